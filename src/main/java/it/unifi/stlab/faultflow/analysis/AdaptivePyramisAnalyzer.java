@@ -0,0 +1,176 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.analysis;
+
+import it.unifi.stlab.transformation.faulttree.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Computes the CDF of the top event of a fault tree with Pyramis on a non-uniform time grid.
+ *
+ * The tree is first evaluated on a coarse uniform grid, then with half the step up to the last interval that still
+ * needs refinement. An interval is accepted when both the difference between the two step sizes at its end points
+ * (discretization error) and the deviation of the finer midpoint from the linear interpolation of the coarser end
+ * points (curvature) are below the tolerance. Only the points of the rejected intervals are kept from the finer
+ * levels, so flat regions of the CDF keep the coarse step in the result.
+ *
+ * Pyramis computes the transient from time zero, so each level is evaluated over the whole interval from zero to the
+ * last rejected interval, not just over the rejected ones. The refinement only saves time when the CDF settles well
+ * before the time limit; with a late knee every level costs about as much as a uniform grid with its step. The total
+ * number of evaluated grid points is therefore capped, by default at the points of a uniform grid with the finest
+ * step: a level that would exceed the cap is not evaluated, and the result reports the finest step it reached.
+ */
+public class AdaptivePyramisAnalyzer {
+
+    public static final int DEFAULT_INITIAL_INTERVALS = 64;
+
+    private final double minTimeStep;
+    private final double timeLimit;
+    private final double tolerance;
+    private final int initialIntervals;
+    private final long maxPoints;
+
+    /**
+     * @param minTimeStep      the finest step the refinement is allowed to reach
+     * @param timeLimit        the mission time
+     * @param tolerance        the absolute error accepted on the CDF values
+     * @param initialIntervals the number of intervals of the initial coarse grid
+     * @param maxPoints        the maximum number of grid points evaluated over all the levels
+     */
+    public AdaptivePyramisAnalyzer(double minTimeStep, double timeLimit, double tolerance, int initialIntervals,
+                                   long maxPoints) {
+        if (minTimeStep <= 0 || timeLimit <= 0 || tolerance <= 0 || initialIntervals <= 0 || maxPoints <= 0)
+            throw new IllegalArgumentException("Invalid adaptive grid parameters");
+
+        this.minTimeStep = minTimeStep;
+        this.timeLimit = timeLimit;
+        this.tolerance = tolerance;
+        this.initialIntervals = initialIntervals;
+        this.maxPoints = maxPoints;
+    }
+
+    public AdaptivePyramisAnalyzer(double minTimeStep, double timeLimit, double tolerance, int initialIntervals) {
+        this(minTimeStep, timeLimit, tolerance, initialIntervals, Math.round(timeLimit / minTimeStep) + 1);
+    }
+
+    public AdaptivePyramisAnalyzer(double minTimeStep, double timeLimit, double tolerance) {
+        this(minTimeStep, timeLimit, tolerance, DEFAULT_INITIAL_INTERVALS);
+    }
+
+    public CDFResult evaluate(Node tree) {
+        double initialStep = Math.max(timeLimit / initialIntervals, minTimeStep);
+        int refinements = 0;
+
+        while (initialStep / Math.pow(2, refinements + 1) >= minTimeStep)
+            refinements++;
+
+        // Points are keyed by their index on the finest grid that can be reached, to avoid comparing doubles
+        Map<Long, Double> series = new TreeMap<>();
+        long parseTime = 0;
+        long evaluationTime = 0;
+
+        CDFResult coarse = new PyramisAnalyzer(initialStep, timeLimit).evaluate(tree);
+        parseTime += coarse.getParseTime();
+        evaluationTime += coarse.getEvaluationTime();
+        double[] previous = coarse.getValues();
+        long evaluatedPoints = previous.length;
+
+        for (int index = 0; index < previous.length; index++)
+            series.put((long) index << refinements, previous[index]);
+
+        // Intervals of the previous level, by their left end point, that have to be checked
+        List<Integer> pending = new ArrayList<>();
+
+        for (int index = 0; index + 1 < previous.length; index++)
+            pending.add(index);
+
+        double finestStep = initialStep;
+
+        for (int level = 1; level <= refinements && !pending.isEmpty(); level++) {
+            double step = initialStep / Math.pow(2, level);
+            double horizon = Math.min(timeLimit, (pending.get(pending.size() - 1) + 1) * 2 * step);
+            long points = Math.round(horizon / step) + 1;
+
+            if (evaluatedPoints + points > maxPoints)
+                break;
+
+            evaluatedPoints += points;
+            CDFResult fine = new PyramisAnalyzer(step, horizon).evaluate(tree);
+            parseTime += fine.getParseTime();
+            evaluationTime += fine.getEvaluationTime();
+            finestStep = step;
+
+            double[] values = fine.getValues();
+            int shift = refinements - level;
+            List<Integer> rejected = new ArrayList<>();
+
+            for (int interval : pending) {
+                int left = 2 * interval;
+
+                if (left + 2 >= values.length || interval + 1 >= previous.length)
+                    continue;
+
+                double discretization = Math.max(Math.abs(values[left] - previous[interval]),
+                        Math.abs(values[left + 2] - previous[interval + 1]));
+                double curvature = Math.abs(values[left + 1] - (previous[interval] + previous[interval + 1]) / 2);
+
+                // The finer values are kept for the end points anyway, they are more accurate
+                series.put((long) left << shift, values[left]);
+                series.put((long) (left + 2) << shift, values[left + 2]);
+
+                if (discretization > tolerance || curvature > tolerance) {
+                    series.put((long) (left + 1) << shift, values[left + 1]);
+                    rejected.add(left);
+                    rejected.add(left + 1);
+                }
+            }
+
+            previous = values;
+            pending = rejected;
+        }
+
+        double keyStep = initialStep / Math.pow(2, refinements);
+        double[] times = new double[series.size()];
+        double[] values = new double[series.size()];
+        int position = 0;
+
+        for (Map.Entry<Long, Double> point : series.entrySet()) {
+            times[position] = point.getKey() * keyStep;
+            values[position] = point.getValue();
+            position++;
+        }
+
+        return new CDFResult(times, values, finestStep, timeLimit, parseTime, evaluationTime, coarse.getGates(),
+                coarse.getBasicEvents());
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public long getMaxPoints() {
+        return maxPoints;
+    }
+}
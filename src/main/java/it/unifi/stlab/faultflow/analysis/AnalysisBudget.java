@@ -0,0 +1,306 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.analysis;
+
+import org.oristool.analyzer.log.AnalysisMonitor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Resources granted to a single analysis: a wall-clock timeout, a maximum number of explored states (state classes of
+ * the Sirio analysis, states of the HSMPs solved by Pyramis) over all its evaluations and a maximum estimate of the
+ * memory needed by each model, each disabled when zero. The budget of the analysis running on the current thread is
+ * checked by the engines at their checkpoints, and it can be cancelled from another thread; once exhausted, every
+ * following checkpoint throws a BudgetExceededException.
+ *
+ * Engines that can stop early, like the regenerative transient of Sirio, are interrupted and report the result
+ * computed so far as a partial one. Pyramis cannot be interrupted during an evaluation: its budget is checked before
+ * building the model, with an estimate of its size, and while waiting for the evaluation lock.
+ *
+ * Active budgets are registered by their owner, the caller that started the analysis, and by an id chosen by that
+ * caller, so that the REST layer can cancel them: only the owner can cancel a budget, and an owner cannot activate two
+ * budgets with the same id at once.
+ */
+public class AnalysisBudget {
+
+    public enum Reason {
+        TIMEOUT, STATES, MEMORY, CANCELLED
+    }
+
+    /**
+     * Rough memory taken by each state class of a Sirio analysis, per place and transition of the net
+     */
+    public static final long CLASS_BYTES_PER_NODE = 64;
+
+    /**
+     * Rough memory taken by each state of an HSMP, per point of the time grid
+     */
+    public static final long HSMP_BYTES_PER_POINT = 4 * Double.BYTES;
+
+    private static final AnalysisBudget NONE = new AnalysisBudget(null, null, 0, 0, 0);
+    private static final ThreadLocal<AnalysisBudget> currentBudget = new ThreadLocal<>();
+    private static final Map<String, AnalysisBudget> active = new ConcurrentHashMap<>();
+
+    private final String owner;
+    private final String id;
+    private final long timeout;
+    private final long maxStates;
+    private final long maxMemory;
+    private final long start;
+    private final AtomicLong states = new AtomicLong();
+    private final AtomicLong memory = new AtomicLong();
+    private volatile Reason exhausted;
+    private volatile String exhaustedPhase;
+
+    /**
+     * Creates a budget with the given timeout in milliseconds, maximum number of states and maximum memory estimate in
+     * bytes, each unlimited when zero. The id, if any, is used by the owner to cancel it.
+     */
+    public AnalysisBudget(String owner, String id, long timeout, long maxStates, long maxMemory) {
+        if (timeout < 0 || maxStates < 0 || maxMemory < 0)
+            throw new IllegalArgumentException("The limits of an analysis budget must not be negative");
+
+        this.owner = owner;
+        this.id = id;
+        this.timeout = timeout;
+        this.maxStates = maxStates;
+        this.maxMemory = maxMemory;
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * Builds the budget from optional limits: missing ones do not limit the analysis
+     */
+    public static AnalysisBudget of(String owner, String id, Long timeout, Long maxStates, Long maxMemory) {
+        return new AnalysisBudget(owner, id, timeout != null ? timeout : 0, maxStates != null ? maxStates : 0,
+                maxMemory != null ? maxMemory : 0);
+    }
+
+    /**
+     * Returns the budget of the analysis running on the current thread, an unlimited one if none was set
+     */
+    public static AnalysisBudget current() {
+        AnalysisBudget budget = currentBudget.get();
+        return budget != null ? budget : NONE;
+    }
+
+    /**
+     * Makes the budget the current one of this thread and registers it for cancellation, until it is released. Throws
+     * an IllegalStateException if a budget of the same owner with the same id is active.
+     */
+    public AnalysisBudget activate() {
+        if (id != null && active.putIfAbsent(key(owner, id), this) != null)
+            throw new IllegalStateException("An analysis with id " + id + " is already running");
+
+        currentBudget.set(this);
+        return this;
+    }
+
+    public void release() {
+        if (currentBudget.get() == this)
+            currentBudget.remove();
+
+        if (id != null)
+            active.remove(key(owner, id), this);
+    }
+
+    /**
+     * Runs the task with this budget as the current one, as for tasks started by an analysis on other threads
+     */
+    public <T> T run(Supplier<T> task) {
+        AnalysisBudget previous = currentBudget.get();
+        currentBudget.set(this);
+
+        try {
+            return task.get();
+        } finally {
+            if (previous != null)
+                currentBudget.set(previous);
+            else
+                currentBudget.remove();
+        }
+    }
+
+    /**
+     * Cancels the active budget of the owner with the given id, returning false if there is none
+     */
+    public static boolean cancel(String owner, String id) {
+        AnalysisBudget budget = active.get(key(owner, id));
+
+        if (budget == null)
+            return false;
+
+        budget.cancel();
+        return true;
+    }
+
+    public void cancel() {
+        if (this == NONE)
+            throw new IllegalStateException("An unlimited budget cannot be cancelled");
+
+        exhaust(Reason.CANCELLED, null);
+    }
+
+    private static String key(String owner, String id) {
+        return owner + "|" + id;
+    }
+
+    /**
+     * Throws a BudgetExceededException if the budget is exhausted, checking the timeout first
+     */
+    public void checkpoint(String phase) {
+        if (timeout > 0 && getElapsedMillis() > timeout)
+            exhaust(Reason.TIMEOUT, phase);
+
+        if (exhausted != null)
+            throw new BudgetExceededException(this, phase, null);
+    }
+
+    /**
+     * Accounts for the states and the estimated bytes of a model about to be analysed, throwing a
+     * BudgetExceededException if they exceed the budget. States add up over all the models of the analysis, while the
+     * memory limit applies to each model.
+     */
+    public void require(String phase, long modelStates, long modelMemory) {
+        if (maxStates > 0 && states.addAndGet(modelStates) > maxStates)
+            exhaust(Reason.STATES, phase);
+
+        if (memory.accumulateAndGet(modelMemory, Math::max) > maxMemory && maxMemory > 0)
+            exhaust(Reason.MEMORY, phase);
+
+        checkpoint(phase);
+    }
+
+    /**
+     * Returns a Sirio monitor counting the explored state classes, each taken to need the given bytes, and requesting
+     * the analysis to stop as soon as the budget is exhausted
+     */
+    public AnalysisMonitor monitor(String phase, long bytesPerState) {
+        return new AnalysisMonitor() {
+
+            private long explored;
+
+            @Override
+            public boolean interruptRequested() {
+                if (exhausted != null)
+                    return true;
+
+                explored++;
+
+                if (maxStates > 0 && states.incrementAndGet() > maxStates)
+                    exhaust(Reason.STATES, phase);
+                else if (memory.accumulateAndGet(explored * bytesPerState, Math::max) > maxMemory && maxMemory > 0)
+                    exhaust(Reason.MEMORY, phase);
+                else if (timeout > 0 && getElapsedMillis() > timeout)
+                    exhaust(Reason.TIMEOUT, phase);
+
+                return exhausted != null;
+            }
+
+            @Override
+            public void notifyMessage(String message) {
+            }
+
+            @Override
+            public void notifyProgress(int progress) {
+            }
+        };
+    }
+
+    // The first reason holds
+    private synchronized void exhaust(Reason reason, String phase) {
+        if (exhausted == null) {
+            exhaustedPhase = phase;
+            exhausted = reason;
+        }
+    }
+
+    /**
+     * Returns the remaining time in milliseconds, Long.MAX_VALUE without timeout
+     */
+    public long getRemainingMillis() {
+        return timeout > 0 ? Math.max(0, timeout - getElapsedMillis()) : Long.MAX_VALUE;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Returns false for the unlimited budget of the threads on which none was set, which engines need not check
+     */
+    public boolean isLimited() {
+        return this != NONE;
+    }
+
+    public boolean isExhausted() {
+        return exhausted != null;
+    }
+
+    /**
+     * Returns the reason why the budget was exhausted, null if it was not
+     */
+    public Reason getReason() {
+        return exhausted;
+    }
+
+    /**
+     * Returns the phase during which the budget was exhausted, null if it was cancelled between two phases
+     */
+    public String getExhaustedPhase() {
+        return exhaustedPhase;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public long getMaxStates() {
+        return maxStates;
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    public long getStates() {
+        return states.get();
+    }
+
+    /**
+     * Returns the largest memory estimate of the models analysed so far
+     */
+    public long getMemory() {
+        return memory.get();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decision taken by AnalysisPlanner: the engine chosen for a fault tree, its estimated cost and, for every engine
+ * considered, either its estimated cost or the reason why it does not apply. Costs are estimated numbers of
+ * elementary operations, meant to rank the engines rather than to predict times.
+ */
+public class AnalysisPlan {
+
+    public enum Engine {
+        ANALYTIC, PYRAMIS, MODULAR, SIRIO;
+
+        public static Engine fromString(String engine) {
+            for (Engine value : values())
+                if (value.name().equalsIgnoreCase(engine))
+                    return value;
+
+            throw new IllegalArgumentException("Unknown analysis engine: " + engine);
+        }
+    }
+
+    private final ModelFeatures features;
+    private final double timeStep;
+    private final double timeLimit;
+    private final Map<Engine, Double> estimatedCosts = new LinkedHashMap<>();
+    private final Map<Engine, String> rejections = new LinkedHashMap<>();
+    private final List<String> notes = new ArrayList<>();
+    private Engine engine;
+
+    AnalysisPlan(ModelFeatures features, double timeStep, double timeLimit) {
+        this.features = features;
+        this.timeStep = timeStep;
+        this.timeLimit = timeLimit;
+    }
+
+    void estimate(Engine engine, double cost) {
+        estimatedCosts.put(engine, cost);
+    }
+
+    void reject(Engine engine, String reason) {
+        rejections.put(engine, reason);
+    }
+
+    void note(String note) {
+        notes.add(note);
+    }
+
+    void choose(Engine engine) {
+        this.engine = engine;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public double getEstimatedCost() {
+        return estimatedCosts.getOrDefault(engine, Double.NaN);
+    }
+
+    public boolean isApplicable(Engine engine) {
+        return estimatedCosts.containsKey(engine);
+    }
+
+    public Map<Engine, Double> getEstimatedCosts() {
+        return Collections.unmodifiableMap(estimatedCosts);
+    }
+
+    public Map<Engine, String> getRejections() {
+        return Collections.unmodifiableMap(rejections);
+    }
+
+    public List<String> getNotes() {
+        return Collections.unmodifiableList(notes);
+    }
+
+    public ModelFeatures getFeatures() {
+        return features;
+    }
+
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    public double getTimeLimit() {
+        return timeLimit;
+    }
+
+    @Override
+    public String toString() {
+        return engine + " (estimated cost " + String.format("%.3g", getEstimatedCost()) + "), candidates "
+                + estimatedCosts + ", rejected " + rejections + ", features: " + features;
+    }
+}
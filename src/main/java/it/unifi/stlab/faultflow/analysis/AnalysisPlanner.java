@@ -0,0 +1,245 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.analysis;
+
+import it.unifi.stlab.faultflow.analysis.AnalysisPlan.Engine;
+import it.unifi.stlab.faultflow.metrics.AnalysisTrace;
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.model.knowledge.composition.SystemType;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
+import it.unifi.stlab.faultflow.model.operational.Scenario;
+import it.unifi.stlab.transformation.faulttree.Node;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Chooses the engine that evaluates the CDF of the top event of a fault tree from the features of the model, and
+ * runs it.
+ *
+ * The analytic evaluation combines independent CDFs on the time grid and conditions on the state of every
+ * reconvergent shared event, so its cost doubles with each of them; Pyramis analyses the whole tree as a
+ * hierarchical SMP, with a cost growing with the number of nodes and quadratically with the grid; the modular
+ * analysis does the same on each independent module; Sirio explores the state space of the Petri net of the system,
+ * which grows exponentially with the basic events, but it is the only engine representing the events of an
+ * operational scenario and shared events behind a delay. Cut-set bounds are never chosen, since they only
+ * approximate the exact engines.
+ */
+public class AnalysisPlanner {
+
+    private static final List<String> NOT_ANALYTIC = Arrays.asList("expoly", "piecewise");
+    private static final int MAX_EXPONENT = 40;
+
+    private final double timeStep;
+    private final double timeLimit;
+    private final int minModuleSize;
+
+    public AnalysisPlanner(double timeStep, double timeLimit, int minModuleSize) {
+        if (timeStep <= 0 || timeLimit < 0)
+            throw new IllegalArgumentException("Invalid time grid: step " + timeStep + ", limit " + timeLimit);
+
+        this.timeStep = timeStep;
+        this.timeLimit = timeLimit;
+        this.minModuleSize = minModuleSize;
+    }
+
+    public AnalysisPlanner(double timeStep, double timeLimit) {
+        this(timeStep, timeLimit, ModularAnalyzer.DEFAULT_MIN_MODULE_SIZE);
+    }
+
+    /**
+     * Estimates the cost of every engine that applies to the tree and chooses the cheapest one; the scenario may be
+     * null
+     */
+    public AnalysisPlan plan(Node tree, Scenario scenario) {
+        ModelFeatures features = ModelFeatures.of(tree, scenario, minModuleSize);
+        AnalysisPlan plan = new AnalysisPlan(features, timeStep, timeLimit);
+        double steps = Math.round(timeLimit / timeStep) + 1;
+        int nodes = features.getNodes();
+
+        if (features.getScenarioEvents() > 0) {
+            String reason = "the " + features.getScenarioEvents() + " events of the scenario are only represented"
+                    + " in the Petri net";
+            plan.reject(Engine.ANALYTIC, reason);
+            plan.reject(Engine.PYRAMIS, reason);
+            plan.reject(Engine.MODULAR, reason);
+        } else {
+            String analyticReason = analyticRejection(features);
+
+            if (analyticReason == null)
+                plan.estimate(Engine.ANALYTIC, (nodes * steps + features.getDelayedGates() * steps * steps / 2)
+                        * Math.pow(2, Math.min(features.getReconvergentEvents(), MAX_EXPONENT)));
+            else
+                plan.reject(Engine.ANALYTIC, analyticReason);
+
+            if (features.getSharedEvents() > 0)
+                plan.reject(Engine.PYRAMIS, features.getSharedEvents() + " shared events cannot be represented in"
+                        + " the hierarchical SMP");
+            else if (!Collections.disjoint(features.getVotingFamilies(), NOT_ANALYTIC))
+                plan.reject(Engine.PYRAMIS, "the children of intermediate voting gates have "
+                        + features.getVotingFamilies() + " PDFs, which cannot be reduced analytically");
+            else
+                plan.estimate(Engine.PYRAMIS, Math.pow(nodes, 1.5) * steps * steps);
+
+            if (features.getModules() == 0)
+                plan.reject(Engine.MODULAR, "no independent module with at least " + minModuleSize + " nodes");
+            else if (features.getSharedEvents() > 0 && analyticReason != null)
+                plan.reject(Engine.MODULAR, "the modules containing shared events would be solved analytically, but "
+                        + analyticReason);
+            else if (!Collections.disjoint(features.getVotingFamilies(), NOT_ANALYTIC))
+                plan.reject(Engine.MODULAR, "the children of intermediate voting gates have "
+                        + features.getVotingFamilies() + " PDFs, which cannot be reduced analytically");
+            else {
+                double cost = 0;
+                for (int size : features.getModuleSizes())
+                    cost += Math.pow(size, 1.5) * steps * steps;
+                plan.estimate(Engine.MODULAR, cost);
+            }
+        }
+
+        double states = Math.pow(2, Math.min(features.getBasicEvents() + features.getDelayedGates(), MAX_EXPONENT));
+        plan.estimate(Engine.SIRIO, features.isAllExponential() ? states * steps * 10 : states * steps * steps);
+
+        if (features.isAllExponential())
+            plan.note("all PDFs are exponential: Sirio analyses a CTMC");
+        if (features.getPdfFamilies().contains("gaussian"))
+            plan.note("gaussian PDFs are approximated by uniform ones with the same mean and variance");
+        if (features.getIntermediateVotingGates() > 0 && plan.isApplicable(Engine.PYRAMIS))
+            plan.note(features.getIntermediateVotingGates() + " intermediate voting gates are reduced analytically"
+                    + " before the Pyramis analysis");
+
+        Engine best = null;
+        for (Engine engine : Engine.values())
+            if (plan.isApplicable(engine) && (best == null
+                    || plan.getEstimatedCosts().get(engine) < plan.getEstimatedCosts().get(best)))
+                best = engine;
+
+        plan.choose(best);
+        return plan;
+    }
+
+    /**
+     * Forces the engine of a plan, provided that it applies to the tree
+     */
+    public AnalysisPlan plan(Node tree, Scenario scenario, Engine engine) {
+        AnalysisPlan plan = plan(tree, scenario);
+
+        if (engine != null && engine != plan.getEngine()) {
+            if (!plan.isApplicable(engine))
+                throw new IllegalArgumentException("The " + engine + " engine does not apply: "
+                        + plan.getRejections().get(engine));
+
+            plan.note("engine " + engine + " requested instead of " + plan.getEngine());
+            plan.choose(engine);
+        }
+
+        return plan;
+    }
+
+    /**
+     * Runs the engine of the plan; the system and the error mode are only used by Sirio, which translates the system
+     * instead of the tree
+     */
+    public CDFResult execute(AnalysisPlan plan, Node tree, SystemType system, ErrorMode errorMode,
+                             Scenario scenario) {
+        Metrics metrics = Metrics.getInstance();
+        metrics.increment(Metrics.PLANNER + "." + plan.getEngine().name().toLowerCase());
+
+        AnalysisTrace trace = metrics.currentTrace();
+        if (trace != null) {
+            trace.setAttribute("engine", plan.getEngine());
+            trace.setAttribute("estimatedCost", String.format("%.3g", plan.getEstimatedCost()));
+        }
+
+        if (plan.getEngine() == Engine.SIRIO) {
+            CDFResult result = new SirioAnalyzer(timeStep, timeLimit).evaluate(system, errorMode, scenario);
+            return new CDFResult(result.getTimes(), result.getValues(), timeStep, timeLimit,
+                    result.getParseTime(), result.getEvaluationTime(), plan.getFeatures().getGates(),
+                    plan.getFeatures().getBasicEvents());
+        }
+
+        return analyzer(plan).evaluate(tree);
+    }
+
+    /**
+     * Returns the analyzer of the engine of the plan, as for analyses evaluating many variants of the same tree
+     */
+    public TreeAnalyzer analyzer(AnalysisPlan plan) {
+        Engine engine = treeEngine(plan);
+
+        switch (engine) {
+            case ANALYTIC:
+                return new AnalyticAnalyzer(timeStep, timeLimit);
+            case PYRAMIS:
+                return new PyramisAnalyzer(timeStep, timeLimit);
+            case MODULAR:
+                return new ModularAnalyzer(new PyramisAnalyzer(timeStep, timeLimit), minModuleSize);
+            default:
+                throw new UnsupportedOperationException("Engine currently not supported");
+        }
+    }
+
+    /**
+     * Returns the engine of the plan if it analyses the fault tree. Sirio translates the system instead, so in its
+     * place the cheapest other engine that applies is returned.
+     */
+    public Engine treeEngine(AnalysisPlan plan) {
+        if (plan.getEngine() != Engine.SIRIO)
+            return plan.getEngine();
+
+        Engine engine = null;
+
+        for (Engine other : Engine.values())
+            if (other != Engine.SIRIO && plan.isApplicable(other) && (engine == null
+                    || plan.getEstimatedCosts().get(other) < plan.getEstimatedCosts().get(engine)))
+                engine = other;
+
+        if (engine == null)
+            throw new UnsupportedOperationException("Only the Sirio engine applies, which does not analyse fault"
+                    + " trees");
+
+        return engine;
+    }
+
+    private static String analyticRejection(ModelFeatures features) {
+        Set<String> families = features.getPdfFamilies();
+
+        if (!Collections.disjoint(families, NOT_ANALYTIC))
+            return "the tree has " + families + " PDFs, which cannot be tabulated";
+        if (features.hasDelayedSharedPaths())
+            return "a delay lies between a shared event and the gate where its paths reconverge";
+
+        return null;
+    }
+
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    public double getTimeLimit() {
+        return timeLimit;
+    }
+
+    public int getMinModuleSize() {
+        return minModuleSize;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.analysis;
+
+import it.unifi.stlab.faultflow.metrics.AnalysisTrace;
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.transformation.faulttree.Node;
+import it.unifi.stlab.transformation.faulttree.SymmetryDetector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Pool of independent CDF evaluations. Every task evaluates its own fault tree and carries its own time grid, so tasks
+ * can be freely mixed; the Pyramis evaluations are serialised by PyramisAnalyzer, while analyzers without shared state,
+ * like AnalyticAnalyzer, run fully in parallel.
+ *
+ * Trees are built from the persistent entities of the request, which must not be accessed outside the request thread:
+ * trees parsed from a SystemType are built by the caller, and the suppliers of the submitted trees only copy or
+ * modify trees that have already been built.
+ */
+public class AnalysisPool implements AutoCloseable {
+
+    private final ExecutorService executor;
+
+    public AnalysisPool(int threads) {
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    public AnalysisPool() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Submits the evaluation of the tree provided by the supplier on the given time grid
+     */
+    public Future<CDFResult> submit(Supplier<Node> tree, double timeStep, double timeLimit) {
+        return submit(tree, new PyramisAnalyzer(timeStep, timeLimit));
+    }
+
+    /**
+     * Submits the evaluation of the tree provided by the supplier with the given analyzer
+     */
+    public Future<CDFResult> submit(Supplier<Node> tree, TreeAnalyzer analyzer) {
+        // The phases run on the pool are recorded on the trace and charged to the budget of the submitting analysis
+        AnalysisTrace trace = Metrics.getInstance().currentTrace();
+        AnalysisBudget budget = AnalysisBudget.current();
+        return executor.submit(() -> budget.run(() -> Metrics.getInstance().inTrace(trace,
+                () -> analyzer.evaluate(tree.get()))));
+    }
+
+    /**
+     * Submits a task that is not a CDF evaluation, such as a batch of simulation runs, with the trace and the budget of
+     * the submitting analysis
+     */
+    public <T> Future<T> submitTask(Supplier<T> task) {
+        AnalysisTrace trace = Metrics.getInstance().currentTrace();
+        AnalysisBudget budget = AnalysisBudget.current();
+        return executor.submit(() -> budget.run(() -> Metrics.getInstance().inTrace(trace, task)));
+    }
+
+    /**
+     * Submits all the given trees on the same time grid and waits for their results, returned in the same order
+     */
+    public List<CDFResult> evaluateAll(List<Supplier<Node>> trees, double timeStep, double timeLimit) {
+        return evaluateAll(trees, new PyramisAnalyzer(timeStep, timeLimit));
+    }
+
+    /**
+     * Submits all the given trees to the same analyzer and waits for their results, returned in the same order
+     */
+    public List<CDFResult> evaluateAll(List<Supplier<Node>> trees, TreeAnalyzer analyzer) {
+        List<Future<CDFResult>> futures = new ArrayList<>();
+
+        for (Supplier<Node> tree : trees)
+            futures.add(submit(tree, analyzer));
+
+        List<CDFResult> results = new ArrayList<>();
+
+        for (Future<CDFResult> future : futures)
+            results.add(get(future));
+
+        return results;
+    }
+
+    /**
+     * Evaluates each class of isomorphic trees among the given ones only once with the given analyzer, waiting for the
+     * results, returned in the same order as the trees. Used when the trees are reductions of a model with replicated
+     * sub-systems, as for the minimal cut sets.
+     */
+    public List<CDFResult> evaluateDistinct(List<Node> trees, TreeAnalyzer analyzer) {
+        SymmetryDetector symmetry = new SymmetryDetector();
+        Map<Integer, Future<CDFResult>> classes = new HashMap<>();
+        List<Future<CDFResult>> futures = new ArrayList<>();
+
+        for (Node tree : trees) {
+            int classId = symmetry.visit(tree);
+            Future<CDFResult> result = classId != SymmetryDetector.NO_CLASS ? classes.get(classId) : null;
+
+            if (result == null) {
+                result = submit(() -> tree, analyzer);
+
+                if (classId != SymmetryDetector.NO_CLASS)
+                    classes.put(classId, result);
+            } else {
+                Metrics.getInstance().increment(Metrics.SYMMETRY_REUSE);
+            }
+
+            futures.add(result);
+        }
+
+        List<CDFResult> results = new ArrayList<>();
+
+        for (Future<CDFResult> future : futures)
+            results.add(get(future));
+
+        return results;
+    }
+
+    /**
+     * Waits for the given task, rethrowing its failure as an unchecked exception
+     */
+    public static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the analysis", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
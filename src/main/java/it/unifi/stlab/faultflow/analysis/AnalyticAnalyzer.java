@@ -0,0 +1,739 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.analysis;
+
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.metrics.Timer;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
+import it.unifi.stlab.faultflow.model.utils.PDFParser;
+import it.unifi.stlab.transformation.faulttree.AND;
+import it.unifi.stlab.transformation.faulttree.BasicEvent;
+import it.unifi.stlab.transformation.faulttree.Gate;
+import it.unifi.stlab.transformation.faulttree.KOutN;
+import it.unifi.stlab.transformation.faulttree.Node;
+import it.unifi.stlab.transformation.faulttree.OR;
+import it.unifi.stlab.transformation.faulttree.SharedNodeFinder;
+import it.unifi.stlab.transformation.faulttree.SymmetryDetector;
+import it.unifi.stlab.transformation.faulttree.TabulatedEvent;
+import org.apache.commons.math3.distribution.RealDistribution;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Computes the CDF of the top event of a fault tree directly on a uniform time grid, without building an HSMP: an AND
+ * gate fails when all its children have failed, an OR gate when the first one fails, a K-out-of-N gate when k of them
+ * have failed, the fault-to-failure delay of an error mode is a discrete convolution and its routing probability scales
+ * the result.
+ *
+ * The CDF of each node is computed once and memoized, so nodes shared by more than one gate are evaluated once. The
+ * children of a gate that depend on the same shared node are not independent: the gate is then evaluated conditioning
+ * on the state of the shared node, which is exact as long as no propagation delay lies between the two, since the
+ * state of the gate at each time only depends on the state of the shared node at the same time.
+ */
+public class AnalyticAnalyzer implements TreeAnalyzer {
+
+    private final double timeStep;
+    private final double timeLimit;
+    private final int length;
+
+    public AnalyticAnalyzer(double timeStep, double timeLimit) {
+        if (timeStep <= 0 || timeLimit < 0)
+            throw new IllegalArgumentException("Invalid time grid: step " + timeStep + ", limit " + timeLimit);
+
+        this.timeStep = timeStep;
+        this.timeLimit = timeLimit;
+        this.length = (int) Math.round(timeLimit / timeStep) + 1;
+    }
+
+    /**
+     * Evaluates the CDF of the top event of the given fault tree
+     */
+    @Override
+    public CDFResult evaluate(Node tree) {
+        long start = System.currentTimeMillis();
+        SharedNodeFinder finder = new SharedNodeFinder();
+        finder.visit(tree);
+        SymmetryDetector symmetry = new SymmetryDetector();
+        symmetry.visit(tree);
+        long parseTime = System.currentTimeMillis() - start;
+        require(finder);
+
+        Timer.Context evaluation = Metrics.getInstance().start(Metrics.ANALYTIC_EVALUATE);
+        double[] values = new Evaluation(finder, symmetry).cdf(tree);
+        long evaluationTime = evaluation.stop();
+
+        return new CDFResult(CDFResult.uniformGrid(timeStep, length), values, timeStep, timeLimit, parseTime,
+                evaluationTime, finder.getGateCount(), finder.getBasicEventCount());
+    }
+
+    /**
+     * Evaluates the CDFs of the top events of several fault trees in a single evaluation, so that the sub-trees they
+     * share are evaluated once. The parse and evaluation times of each result are those of the whole batch.
+     */
+    @Override
+    public List<CDFResult> evaluateAll(List<Node> trees) {
+        long start = System.currentTimeMillis();
+        SharedNodeFinder finder = new SharedNodeFinder();
+        SymmetryDetector symmetry = new SymmetryDetector();
+        List<SharedNodeFinder> sizes = new ArrayList<>();
+
+        for (Node tree : trees) {
+            finder.visit(tree);
+            symmetry.visit(tree);
+            SharedNodeFinder size = new SharedNodeFinder();
+            size.visit(tree);
+            sizes.add(size);
+        }
+
+        long parseTime = System.currentTimeMillis() - start;
+        require(finder);
+
+        Timer.Context evaluation = Metrics.getInstance().start(Metrics.ANALYTIC_EVALUATE);
+        Evaluation shared = new Evaluation(finder, symmetry);
+        List<double[]> values = new ArrayList<>();
+
+        for (Node tree : trees)
+            values.add(shared.cdf(tree));
+
+        long evaluationTime = evaluation.stop();
+        List<CDFResult> results = new ArrayList<>();
+
+        for (int index = 0; index < trees.size(); index++)
+            results.add(new CDFResult(CDFResult.uniformGrid(timeStep, length), values.get(index), timeStep, timeLimit,
+                    parseTime, evaluationTime, sizes.get(index).getGateCount(),
+                    sizes.get(index).getBasicEventCount()));
+
+        return results;
+    }
+
+    /**
+     * Evaluates the CDF of the top event of the given fault tree conditioned on each of its basic events, failed at
+     * time 0 and never failing, with one upward and one downward sweep. The upward sweep is the evaluation of the
+     * tree; the downward one computes the sensitivity of the top event CDF to the CDF of each node, at each time, as
+     * the product of the partial derivatives of the gates above it. The CDF of a gate with independent children is
+     * linear in the CDF of each child, so the conditioned CDFs follow exactly from the sensitivity of each event.
+     *
+     * Sensitivities only propagate through gates without delays whose children are independent. Below any other gate,
+     * they are taken with respect to each child that shares no event with the rest of the tree, whose conditioned CDF
+     * is then propagated to the top event reusing the results of all the other nodes; the basic events below shared
+     * nodes are conditioned one at a time in the same way. These propagations are independent of each other and run in
+     * parallel on an AnalysisPool.
+     */
+    public ConditionedCDFResult conditionAll(Node tree) {
+        long start = System.currentTimeMillis();
+        SharedNodeFinder finder = new SharedNodeFinder();
+        finder.visit(tree);
+        SymmetryDetector symmetry = new SymmetryDetector();
+        symmetry.visit(tree);
+        long parseTime = System.currentTimeMillis() - start;
+        require(finder);
+
+        Timer.Context evaluation = Metrics.getInstance().start(Metrics.ANALYTIC_CONDITION);
+        Evaluation base = new Evaluation(finder, symmetry);
+        double[] values = base.cdf(tree);
+        Map<BasicEvent, double[]> events = new IdentityHashMap<>();
+        Map<BasicEvent, double[]> failed = new IdentityHashMap<>();
+        Map<BasicEvent, double[]> working = new IdentityHashMap<>();
+        base.conditionAll(tree, events, failed, working);
+        long evaluationTime = evaluation.stop();
+
+        return new ConditionedCDFResult(new CDFResult(CDFResult.uniformGrid(timeStep, length), values, timeStep,
+                timeLimit, parseTime, evaluationTime, finder.getGateCount(), finder.getBasicEventCount()), events,
+                failed, working);
+    }
+
+    // Charges the budget of the current thread with the CDFs kept for every node of the trees
+    private void require(SharedNodeFinder finder) {
+        AnalysisBudget.current().require(Metrics.ANALYTIC_EVALUATE, 0,
+                (long) (finder.getGateCount() + finder.getBasicEventCount()) * length * Double.BYTES);
+    }
+
+    /**
+     * Tabulates the CDF of the given distribution on the time grid. Gaussian distributions are approximated by the
+     * uniform distribution with the same mean and variance, as in the HSMP translation.
+     */
+    public double[] tabulate(String pdf) {
+        String type = pdf.toLowerCase().replaceAll("\\s*\\([^()]*\\)\\s*", "");
+        String arguments = pdf.substring(type.length() + 1, pdf.length() - 1);
+        double[] cdf = new double[length];
+
+        switch (type) {
+            case "":
+            case "dirac":
+                double value = arguments.isBlank() ? 0 : PDFParser.checkDivision(arguments.trim());
+                for (int index = 0; index < length; index++)
+                    cdf[index] = index * timeStep >= value - timeStep * 1e-9 ? 1 : 0;
+                return cdf;
+            case "gaussian":
+                String[] args = arguments.split(",");
+                double mean = Double.parseDouble(args[0]);
+                double factor = Math.sqrt(3 * Double.parseDouble(args[1]));
+                return tabulate("uniform(" + (mean - factor) + "," + (mean + factor) + ")");
+            case "expoly":
+            case "piecewise":
+                throw new UnsupportedOperationException("The analytic evaluation does not support " + type
+                        + " distributions");
+            default:
+                RealDistribution distribution = PDFParser.parseStringToRealDistribution(pdf);
+                for (int index = 0; index < length; index++)
+                    cdf[index] = distribution.cumulativeProbability(index * timeStep);
+                return cdf;
+        }
+    }
+
+    /**
+     * CDF of the failure time of a gate, given the CDF of the time at which its children trigger it: the time to
+     * failure is delayed by the fault-to-failure distribution and it is never reached with probability 1 - routing.
+     */
+    double[] propagate(Gate gate, double[] triggered, Map<String, double[]> distributions) {
+        ErrorMode errorMode = gate.getErrorMode();
+        double[] failed = triggered;
+
+        if (errorMode != null && errorMode.getFaultToFailurePDFToString() != null) {
+            double[] delay = distributions.computeIfAbsent(errorMode.getFaultToFailurePDFToString(), this::tabulate);
+
+            if (delay[0] < 1)
+                failed = convolve(triggered, delay);
+        }
+
+        Double routingProbability = gate.getRoutingProbability();
+
+        if (routingProbability != null && routingProbability < 1) {
+            double[] routed = new double[length];
+
+            for (int index = 0; index < length; index++)
+                routed[index] = failed[index] * routingProbability;
+
+            return routed;
+        }
+
+        return failed;
+    }
+
+    /**
+     * CDF of the sum of two independent times, the first given by its CDF and the second by its CDF on the same grid
+     */
+    double[] convolve(double[] cdf, double[] delay) {
+        double[] result = new double[length];
+
+        for (int trigger = 0; trigger < length; trigger++) {
+            double mass = cdf[trigger] - (trigger > 0 ? cdf[trigger - 1] : 0);
+
+            if (mass == 0)
+                continue;
+
+            for (int index = trigger; index < length; index++)
+                result[index] += mass * delay[index - trigger];
+        }
+
+        return result;
+    }
+
+    /**
+     * Combines the CDFs of the children of a gate, assuming that they are independent
+     */
+    double[] combine(Gate gate, double[][] children) {
+        double[] result = new double[length];
+
+        if (gate instanceof AND) {
+            Arrays.fill(result, 1);
+
+            for (double[] child : children)
+                for (int index = 0; index < length; index++)
+                    result[index] *= child[index];
+        } else if (gate instanceof OR) {
+            Arrays.fill(result, 1);
+
+            for (double[] child : children)
+                for (int index = 0; index < length; index++)
+                    result[index] *= 1 - child[index];
+
+            for (int index = 0; index < length; index++)
+                result[index] = 1 - result[index];
+        } else if (gate instanceof KOutN) {
+            int k = ((KOutN) gate).getK();
+
+            if (k <= 0) {
+                Arrays.fill(result, 1);
+                return result;
+            }
+
+            /* failed[j] is the probability that exactly j of the children considered so far have failed, with
+            failed[k] collecting the cases with at least k failures: O(k n) per time point */
+            double[] failed = new double[k + 1];
+
+            for (int index = 0; index < length; index++) {
+                Arrays.fill(failed, 0);
+                failed[0] = 1;
+
+                for (double[] child : children) {
+                    double probability = child[index];
+                    failed[k] += failed[k - 1] * probability;
+
+                    for (int count = k - 1; count > 0; count--)
+                        failed[count] = failed[count] * (1 - probability) + failed[count - 1] * probability;
+
+                    failed[0] *= 1 - probability;
+                }
+
+                result[index] = failed[k];
+            }
+        } else {
+            throw new UnsupportedOperationException("Gate type currently not supported");
+        }
+
+        return result;
+    }
+
+    /**
+     * Memoized evaluation of a fault tree. A conditioned evaluation shares the distributions and the results of the
+     * nodes that do not depend on the conditioning node with the evaluation it derives from. Isomorphic sub-trees
+     * without shared events, such as those of replicated sub-systems, are evaluated once.
+     */
+    private class Evaluation {
+
+        private final SharedNodeFinder finder;
+        private final SymmetryDetector symmetry;
+        private final Map<Integer, double[]> replicas;
+        private final Map<String, double[]> distributions;
+        private final Map<Node, double[]> cdfs;
+        private final Map<Node, Set<Node>> sharedBelow;
+        private final Set<Node> fixed;
+        private final Map<Node, Set<Node>> ancestors;
+        // Nodes depending on a conditioned node: their replicas do not have the same CDF
+        private final Set<Node> conditioned;
+
+        private Evaluation(SharedNodeFinder finder, SymmetryDetector symmetry) {
+            this.finder = finder;
+            this.symmetry = symmetry;
+            // Shared with the conditioned evaluations, which may run in parallel
+            replicas = new ConcurrentHashMap<>();
+            distributions = new ConcurrentHashMap<>();
+            cdfs = new IdentityHashMap<>();
+            sharedBelow = new IdentityHashMap<>();
+            fixed = Collections.newSetFromMap(new IdentityHashMap<>());
+            ancestors = Collections.synchronizedMap(new IdentityHashMap<>());
+            conditioned = Collections.emptySet();
+        }
+
+        private Evaluation(Evaluation parent, Node node, double[] value) {
+            finder = parent.finder;
+            symmetry = parent.symmetry;
+            replicas = parent.replicas;
+            distributions = parent.distributions;
+            ancestors = parent.ancestors;
+            cdfs = new IdentityHashMap<>();
+            sharedBelow = new IdentityHashMap<>();
+            fixed = Collections.newSetFromMap(new IdentityHashMap<>());
+            fixed.addAll(parent.fixed);
+            fixed.add(node);
+
+            Set<Node> dependent = ancestors(node);
+            conditioned = Collections.newSetFromMap(new IdentityHashMap<>());
+            conditioned.addAll(parent.conditioned);
+            conditioned.addAll(dependent);
+
+            parent.cdfs.forEach((key, cdf) -> {
+                if (!dependent.contains(key))
+                    cdfs.put(key, cdf);
+            });
+            parent.sharedBelow.forEach((key, shared) -> {
+                if (!dependent.contains(key))
+                    sharedBelow.put(key, shared);
+            });
+
+            cdfs.put(node, value);
+            sharedBelow.put(node, Collections.emptySet());
+        }
+
+        private double[] cdf(Node node) {
+            double[] cdf = cdfs.get(node);
+
+            if (cdf != null)
+                return cdf;
+
+            if (node instanceof TabulatedEvent) {
+                TabulatedEvent tabulatedEvent = (TabulatedEvent) node;
+                cdf = new double[length];
+
+                for (int index = 0; index < length; index++)
+                    cdf[index] = tabulatedEvent.cdf(index * timeStep);
+            } else if (node.isBasicEvent()) {
+                BasicEvent basicEvent = (BasicEvent) node;
+                cdf = distributions.computeIfAbsent(basicEvent.getFaultMode().getTimeToFaultPDFToString(),
+                        AnalyticAnalyzer.this::tabulate);
+            } else {
+                AnalysisBudget.current().checkpoint(Metrics.ANALYTIC_EVALUATE);
+                Gate gate = (Gate) node;
+                int classId = conditioned.contains(gate) ? SymmetryDetector.NO_CLASS : symmetry.getClassId(gate);
+                cdf = classId != SymmetryDetector.NO_CLASS ? replicas.get(classId) : null;
+
+                if (cdf == null) {
+                    cdf = propagate(gate, triggered(gate), distributions);
+
+                    if (classId != SymmetryDetector.NO_CLASS)
+                        replicas.put(classId, cdf);
+                } else {
+                    Metrics.getInstance().increment(Metrics.SYMMETRY_REUSE);
+                }
+            }
+
+            cdfs.put(node, cdf);
+            return cdf;
+        }
+
+        // CDF of the time at which the children of the gate trigger it
+        private double[] triggered(Gate gate) {
+            Node pivot = findPivot(gate);
+
+            if (pivot == null) {
+                double[][] children = gate.getChildren().stream().map(this::cdf).toArray(double[][]::new);
+                return combine(gate, children);
+            }
+
+            requireStaticPaths(gate, pivot);
+
+            double[] pivotCdf = cdf(pivot);
+            double[] failed = new Evaluation(this, pivot, constant(1)).triggered(gate);
+            double[] working = new Evaluation(this, pivot, constant(0)).triggered(gate);
+            double[] result = new double[length];
+
+            for (int index = 0; index < length; index++)
+                result[index] = pivotCdf[index] * failed[index] + (1 - pivotCdf[index]) * working[index];
+
+            return result;
+        }
+
+        /**
+         * Conditions the top event on every basic event of the tree, sweeping the nodes from the top down: each node
+         * gets the node whose CDF its sensitivity refers to, its anchor, or none if it has to be conditioned directly
+         */
+        private void conditionAll(Node tree, Map<BasicEvent, double[]> events, Map<BasicEvent, double[]> failed,
+                                  Map<BasicEvent, double[]> working) {
+            List<Node> order = new ArrayList<>();
+            postOrder(tree, order, Collections.newSetFromMap(new IdentityHashMap<>()));
+            Map<Node, Node> anchors = new IdentityHashMap<>();
+            Map<Node, double[]> sensitivities = new IdentityHashMap<>();
+            anchors.put(tree, tree);
+            sensitivities.put(tree, constant(1));
+            List<BasicEvent> propagated = new ArrayList<>();
+            List<Supplier<double[][]>> propagations = new ArrayList<>();
+
+            // Each node that is not shared has a single parent, which comes before it
+            for (int position = order.size() - 1; position >= 0; position--) {
+                Node node = order.get(position);
+                Node anchor = anchors.get(node);
+                double[] sensitivity = sensitivities.remove(node);
+                AnalysisBudget.current().checkpoint(Metrics.ANALYTIC_CONDITION);
+
+                if (node.isBasicEvent()) {
+                    BasicEvent basicEvent = (BasicEvent) node;
+                    double[] eventCdf = cdf(basicEvent);
+                    double[] anchorCdf = anchor != null ? cdf(anchor) : null;
+                    events.put(basicEvent, eventCdf);
+
+                    if (anchor == tree) {
+                        double[][] conditioned = condition(basicEvent, anchor, anchorCdf, eventCdf, sensitivity, tree);
+                        failed.put(basicEvent, conditioned[0]);
+                        working.put(basicEvent, conditioned[1]);
+                    } else {
+                        propagated.add(basicEvent);
+                        propagations.add(() -> condition(basicEvent, anchor, anchorCdf, eventCdf, sensitivity, tree));
+                    }
+
+                    continue;
+                }
+
+                Gate gate = (Gate) node;
+                List<Node> children = gate.getChildren();
+                boolean linear = anchor != null && !delayed(gate) && findPivot(gate) == null;
+                double[][] partials = linear ? partials(gate) : null;
+                Double routingProbability = gate.getRoutingProbability();
+                double routing = routingProbability != null && routingProbability < 1 ? routingProbability : 1;
+
+                for (int index = 0; index < children.size(); index++) {
+                    Node child = children.get(index);
+
+                    if (finder.isShared(child))
+                        continue;
+
+                    if (linear) {
+                        double[] childSensitivity = partials[index];
+
+                        for (int time = 0; time < length; time++)
+                            childSensitivity[time] *= sensitivity[time] * routing;
+
+                        anchors.put(child, anchor);
+                        sensitivities.put(child, childSensitivity);
+                    } else if (sharedBelow(child).isEmpty()) {
+                        anchors.put(child, child);
+                        sensitivities.put(child, constant(1));
+                    }
+                }
+            }
+
+            List<double[][]> results = new ArrayList<>();
+
+            if (propagations.size() > 1) {
+                try (AnalysisPool pool = new AnalysisPool()) {
+                    List<Future<double[][]>> futures = new ArrayList<>();
+
+                    for (Supplier<double[][]> propagation : propagations)
+                        futures.add(pool.submitTask(propagation));
+
+                    for (Future<double[][]> future : futures)
+                        results.add(AnalysisPool.get(future));
+                }
+            } else {
+                for (Supplier<double[][]> propagation : propagations)
+                    results.add(propagation.get());
+            }
+
+            for (int index = 0; index < propagated.size(); index++) {
+                failed.put(propagated.get(index), results.get(index)[0]);
+                working.put(propagated.get(index), results.get(index)[1]);
+            }
+        }
+
+        /* Conditioned CDFs of the top event for one basic event, failed and working: from its sensitivity, the
+        conditioned CDFs of its anchor, propagated to the top event if the anchor is not the top event itself. It only
+        reads the results of this evaluation, so that events can be conditioned in parallel. */
+        private double[][] condition(BasicEvent basicEvent, Node anchor, double[] anchorCdf, double[] eventCdf,
+                                     double[] sensitivity, Node tree) {
+            if (anchor == null)
+                return new double[][]{new Evaluation(this, basicEvent, constant(1)).cdf(tree),
+                        new Evaluation(this, basicEvent, constant(0)).cdf(tree)};
+
+            double[] one = new double[length];
+            double[] zero = new double[length];
+
+            for (int index = 0; index < length; index++) {
+                one[index] = Math.min(1, anchorCdf[index] + sensitivity[index] * (1 - eventCdf[index]));
+                zero[index] = Math.max(0, anchorCdf[index] - sensitivity[index] * eventCdf[index]);
+            }
+
+            if (anchor != tree) {
+                one = new Evaluation(this, anchor, one).cdf(tree);
+                zero = new Evaluation(this, anchor, zero).cdf(tree);
+            }
+
+            return new double[][]{one, zero};
+        }
+
+        /* Partial derivatives of the combination of the children of a gate with respect to the CDF of each child,
+        assuming that they are independent */
+        private double[][] partials(Gate gate) {
+            List<Node> children = gate.getChildren();
+            int count = children.size();
+            double[][] partials = new double[count][length];
+
+            if (gate instanceof AND || gate instanceof OR) {
+                // Product of the factors of the other children, from the products before and after each one
+                double[] before = constant(1);
+
+                for (int index = 0; index < count; index++) {
+                    System.arraycopy(before, 0, partials[index], 0, length);
+                    double[] factor = cdf(children.get(index));
+
+                    for (int time = 0; time < length; time++)
+                        before[time] *= gate instanceof AND ? factor[time] : 1 - factor[time];
+                }
+
+                double[] after = constant(1);
+
+                for (int index = count - 1; index >= 0; index--) {
+                    double[] factor = cdf(children.get(index));
+
+                    for (int time = 0; time < length; time++) {
+                        partials[index][time] *= after[time];
+                        after[time] *= gate instanceof AND ? factor[time] : 1 - factor[time];
+                    }
+                }
+            } else if (gate instanceof KOutN) {
+                int k = ((KOutN) gate).getK();
+
+                if (k <= 0 || k > count)
+                    return partials;
+
+                // The gate depends on a child when exactly k - 1 of the others have failed
+                double[] failed = new double[k];
+
+                for (int index = 0; index < count; index++) {
+                    for (int time = 0; time < length; time++) {
+                        Arrays.fill(failed, 0);
+                        failed[0] = 1;
+
+                        for (int other = 0; other < count; other++) {
+                            if (other == index)
+                                continue;
+
+                            double probability = cdf(children.get(other))[time];
+
+                            for (int failures = k - 1; failures > 0; failures--)
+                                failed[failures] = failed[failures] * (1 - probability)
+                                        + failed[failures - 1] * probability;
+
+                            failed[0] *= 1 - probability;
+                        }
+
+                        partials[index][time] = failed[k - 1];
+                    }
+                }
+            } else {
+                throw new UnsupportedOperationException("Gate type currently not supported");
+            }
+
+            return partials;
+        }
+
+        private void postOrder(Node node, List<Node> order, Set<Node> visited) {
+            if (!visited.add(node))
+                return;
+
+            if (!node.isBasicEvent()) {
+                for (Node child : node.getChildren())
+                    postOrder(child, order, visited);
+            }
+
+            order.add(node);
+        }
+
+        // Whether the fault-to-failure delay of the gate is not always zero
+        private boolean delayed(Gate gate) {
+            ErrorMode errorMode = gate.getErrorMode();
+
+            return errorMode != null && errorMode.getFaultToFailurePDFToString() != null
+                    && distributions.computeIfAbsent(errorMode.getFaultToFailurePDFToString(),
+                    AnalyticAnalyzer.this::tabulate)[0] < 1;
+        }
+
+        /* Returns the topmost shared node on which two children of the gate depend, null if the children are
+        independent */
+        private Node findPivot(Gate gate) {
+            Set<Node> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            Node pivot = null;
+
+            for (Node child : gate.getChildren()) {
+                Set<Node> reached = Collections.newSetFromMap(new IdentityHashMap<>());
+                reached.addAll(sharedBelow(child));
+
+                if (finder.isShared(child) && !fixed.contains(child))
+                    reached.add(child);
+
+                for (Node node : reached) {
+                    if (!seen.add(node) && (pivot == null || sharedBelow(node).size() > sharedBelow(pivot).size()))
+                        pivot = node;
+                }
+            }
+
+            return pivot;
+        }
+
+        // Shared nodes, not fixed by a conditioning, reachable from the node
+        private Set<Node> sharedBelow(Node node) {
+            Set<Node> shared = sharedBelow.get(node);
+
+            if (shared != null)
+                return shared;
+
+            shared = Collections.newSetFromMap(new IdentityHashMap<>());
+
+            if (!node.isBasicEvent() && !fixed.contains(node)) {
+                for (Node child : node.getChildren()) {
+                    if (finder.isShared(child) && !fixed.contains(child))
+                        shared.add(child);
+
+                    shared.addAll(sharedBelow(child));
+                }
+            }
+
+            sharedBelow.put(node, shared);
+            return shared;
+        }
+
+        // Nodes from which the given one can be reached, including itself
+        private Set<Node> ancestors(Node node) {
+            return ancestors.computeIfAbsent(node, key -> {
+                Set<Node> result = Collections.newSetFromMap(new IdentityHashMap<>());
+                Deque<Node> queue = new ArrayDeque<>();
+                queue.add(key);
+
+                while (!queue.isEmpty()) {
+                    Node current = queue.poll();
+
+                    if (result.add(current))
+                        queue.addAll(finder.getParents(current));
+                }
+
+                return result;
+            });
+        }
+
+        /* Conditioning on the state of the pivot is exact only if every gate between the pivot and the given one
+        combines its children without delays */
+        private void requireStaticPaths(Gate gate, Node pivot) {
+            Set<Node> dependent = ancestors(pivot);
+            Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+            Deque<Node> queue = new ArrayDeque<>(gate.getChildren());
+
+            while (!queue.isEmpty()) {
+                Node node = queue.poll();
+
+                if (node == pivot || node.isBasicEvent() || fixed.contains(node) || !dependent.contains(node)
+                        || !visited.add(node))
+                    continue;
+
+                if (delayed((Gate) node))
+                    throw new UnsupportedOperationException("The analytic evaluation cannot combine the dependent"
+                            + " events of " + gate + ": " + pivot + " reaches it through the delay of " + node);
+
+                queue.addAll(node.getChildren());
+            }
+        }
+
+        private double[] constant(double value) {
+            double[] result = new double[length];
+            Arrays.fill(result, value);
+            return result;
+        }
+    }
+
+    @Override
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    @Override
+    public double getTimeLimit() {
+        return timeLimit;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.analysis;
+
+import it.unifi.stlab.faultflow.model.knowledge.composition.ComponentType;
+import it.unifi.stlab.faultflow.model.knowledge.composition.SystemType;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
+import it.unifi.stlab.transformation.TreeParser;
+import it.unifi.stlab.transformation.faulttree.Node;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the CDFs of the failures of several error modes of a system together, as needed by FMEA-style reports: their
+ * fault trees are built as a single DAG, so that the sub-trees they have in common are built once, and the analyzer
+ * evaluates them with TreeAnalyzer.evaluateAll, which AnalyticAnalyzer and ModularAnalyzer implement by evaluating each
+ * shared sub-tree once.
+ */
+public class BatchAnalyzer {
+
+    private final TreeAnalyzer analyzer;
+
+    public BatchAnalyzer(TreeAnalyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * Evaluates the CDF of each error mode, returning the results in the order of the error modes
+     */
+    public Map<ErrorMode, CDFResult> evaluate(SystemType system, List<ErrorMode> errorModes) {
+        List<Node> trees = new TreeParser(system).createTrees(errorModes);
+        List<CDFResult> results = analyzer.evaluateAll(trees);
+        Map<ErrorMode, CDFResult> cdfs = new LinkedHashMap<>();
+
+        for (int index = 0; index < errorModes.size(); index++)
+            cdfs.put(errorModes.get(index), results.get(index));
+
+        return cdfs;
+    }
+
+    /**
+     * Evaluates the CDFs of all the error modes of a component of the system
+     */
+    public Map<ErrorMode, CDFResult> evaluate(SystemType system, ComponentType component) {
+        return evaluate(system, component.getErrorModes());
+    }
+
+    public TreeAnalyzer getAnalyzer() {
+        return analyzer;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.analysis;
+
+/**
+ * Thrown when the budget of an analysis is exhausted. It carries the state of the budget at that time and, for the
+ * engines that can stop early, the result computed so far, whose values are lower bounds of the exact ones.
+ */
+public class BudgetExceededException extends RuntimeException {
+
+    private final AnalysisBudget.Reason reason;
+    private final String phase;
+    private final long elapsedMillis;
+    private final long states;
+    private final long memory;
+    private final CDFResult partialResult;
+
+    public BudgetExceededException(AnalysisBudget budget, String phase, CDFResult partialResult) {
+        super("Analysis budget exhausted (" + budget.getReason() + ") during "
+                + (budget.getExhaustedPhase() != null ? budget.getExhaustedPhase() : phase));
+
+        this.reason = budget.getReason();
+        this.phase = budget.getExhaustedPhase() != null ? budget.getExhaustedPhase() : phase;
+        this.elapsedMillis = budget.getElapsedMillis();
+        this.states = budget.getStates();
+        this.memory = budget.getMemory();
+        this.partialResult = partialResult;
+    }
+
+    public AnalysisBudget.Reason getReason() {
+        return reason;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getStates() {
+        return states;
+    }
+
+    /**
+     * Returns the largest estimate, in bytes, of the memory needed by the models analysed until the budget was exhausted
+     */
+    public long getMemory() {
+        return memory;
+    }
+
+    /**
+     * Returns the result computed before the analysis stopped, or null if there is none
+     */
+    public CDFResult getPartialResult() {
+        return partialResult;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.analysis;
+
+/**
+ * Result of a single CDF evaluation of a fault tree top event. Each instance owns its values and its time grid, so
+ * results of different evaluations never share state.
+ */
+public class CDFResult {
+
+    private final double[] times;
+    private final double[] values;
+    private final double timeStep;
+    private final double timeLimit;
+    private final long parseTime;
+    private final long evaluationTime;
+    private final int gates;
+    private final int basicEvents;
+
+    public CDFResult(double[] times, double[] values, double timeStep, double timeLimit, long parseTime,
+                     long evaluationTime, int gates, int basicEvents) {
+        if (times.length != values.length)
+            throw new IllegalArgumentException("Time grid and values must have the same length");
+
+        this.times = times;
+        this.values = values;
+        this.timeStep = timeStep;
+        this.timeLimit = timeLimit;
+        this.parseTime = parseTime;
+        this.evaluationTime = evaluationTime;
+        this.gates = gates;
+        this.basicEvents = basicEvents;
+    }
+
+    /**
+     * Builds the time grid 0, timeStep, 2 * timeStep, ... associated to a uniform series of the given length
+     */
+    public static double[] uniformGrid(double timeStep, int length) {
+        double[] times = new double[length];
+
+        for (int index = 0; index < length; index++)
+            times[index] = index * timeStep;
+
+        return times;
+    }
+
+    public double[] getTimes() {
+        return times;
+    }
+
+    public double[] getValues() {
+        return values;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    public double getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * Time spent translating the fault tree into the model to analyse, in milliseconds
+     */
+    public long getParseTime() {
+        return parseTime;
+    }
+
+    /**
+     * Time spent by the analysis engine, in milliseconds
+     */
+    public long getEvaluationTime() {
+        return evaluationTime;
+    }
+
+    public long getElapsedTime() {
+        return parseTime + evaluationTime;
+    }
+
+    public int getGates() {
+        return gates;
+    }
+
+    public int getBasicEvents() {
+        return basicEvents;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.analysis;
+
+import it.unifi.stlab.transformation.faulttree.BasicEvent;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * CDF of the top event of a fault tree together with its CDFs conditioned on each basic event: failed at time 0 and
+ * never failing. All the importance measures based on conditioning derive from these curves.
+ */
+public class ConditionedCDFResult extends CDFResult {
+
+    private final Map<BasicEvent, double[]> events;
+    private final Map<BasicEvent, double[]> failed;
+    private final Map<BasicEvent, double[]> working;
+
+    public ConditionedCDFResult(CDFResult top, Map<BasicEvent, double[]> events, Map<BasicEvent, double[]> failed,
+                                Map<BasicEvent, double[]> working) {
+        super(top.getTimes(), top.getValues(), top.getTimeStep(), top.getTimeLimit(), top.getParseTime(),
+                top.getEvaluationTime(), top.getGates(), top.getBasicEvents());
+        this.events = new IdentityHashMap<>(events);
+        this.failed = new IdentityHashMap<>(failed);
+        this.working = new IdentityHashMap<>(working);
+    }
+
+    /**
+     * Returns the basic events the top event was conditioned on
+     */
+    public Set<BasicEvent> getConditionedEvents() {
+        return Collections.unmodifiableSet(failed.keySet());
+    }
+
+    /**
+     * Returns the CDF of the basic event itself
+     */
+    public double[] getEventCdf(BasicEvent basicEvent) {
+        return curve(events, basicEvent);
+    }
+
+    /**
+     * Returns the CDF of the top event given that the basic event failed at time 0
+     */
+    public double[] getFailed(BasicEvent basicEvent) {
+        return curve(failed, basicEvent);
+    }
+
+    /**
+     * Returns the CDF of the top event given that the basic event never fails
+     */
+    public double[] getWorking(BasicEvent basicEvent) {
+        return curve(working, basicEvent);
+    }
+
+    /**
+     * Returns the Birnbaum importance of the basic event: P(top | failed) - P(top | working) at each time
+     */
+    public double[] getBirnbaum(BasicEvent basicEvent) {
+        return ConditionedImportanceMeasure.BIRNBAUM.evaluate(this, basicEvent);
+    }
+
+    private static double[] curve(Map<BasicEvent, double[]> curves, BasicEvent basicEvent) {
+        double[] curve = curves.get(basicEvent);
+
+        if (curve == null)
+            throw new IllegalArgumentException("The top event was not conditioned on " + basicEvent);
+
+        return curve;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.analysis;
+
+import it.unifi.stlab.transformation.faulttree.BasicEvent;
+
+/**
+ * Importance measures of a basic event that derive from the CDF of the top event, P(top), and from its CDFs given that
+ * the event failed at time 0, P(top | 1), and that it never fails, P(top | 0), all computed once by
+ * AnalyticAnalyzer.conditionAll. A ratio whose denominator is zero is infinite if its numerator is positive, as the
+ * risk reduction worth of a single point of failure, and undefined (NaN) if its numerator is zero too, as before any
+ * failure is possible.
+ *
+ * The name distinguishes these measures from the cut set based ones of transformation.minimalcutset.ImportanceMeasure.
+ */
+public enum ConditionedImportanceMeasure {
+
+    // P(top | 1) - P(top | 0)
+    BIRNBAUM("birnbaum"),
+    // Risk Achievement Worth: P(top | 1) / P(top)
+    RISK_ACHIEVEMENT_WORTH("raw"),
+    // Risk Reduction Worth: P(top) / P(top | 0)
+    RISK_REDUCTION_WORTH("rrw"),
+    // Criticality importance: Birnbaum * P(event) / P(top)
+    CRITICALITY("criticality"),
+    // Diagnostic importance factor, the probability of the event given the top event: P(event) * P(top | 1) / P(top)
+    DIAGNOSTIC("dif");
+
+    private final String name;
+
+    ConditionedImportanceMeasure(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the measure with the given name, null if there is none
+     */
+    public static ConditionedImportanceMeasure of(String name) {
+        for (ConditionedImportanceMeasure measure : values()) {
+            if (measure.name.equalsIgnoreCase(name))
+                return measure;
+        }
+
+        return null;
+    }
+
+    /**
+     * Computes the measure of the basic event at each time of the conditioned result
+     */
+    public double[] evaluate(ConditionedCDFResult result, BasicEvent basicEvent) {
+        double[] top = result.getValues();
+        double[] event = result.getEventCdf(basicEvent);
+        double[] one = result.getFailed(basicEvent);
+        double[] zero = result.getWorking(basicEvent);
+        double[] measure = new double[top.length];
+
+        for (int index = 0; index < measure.length; index++) {
+            switch (this) {
+                case BIRNBAUM:
+                    measure[index] = one[index] - zero[index];
+                    break;
+                case RISK_ACHIEVEMENT_WORTH:
+                    measure[index] = ratio(one[index], top[index]);
+                    break;
+                case RISK_REDUCTION_WORTH:
+                    measure[index] = ratio(top[index], zero[index]);
+                    break;
+                case CRITICALITY:
+                    measure[index] = ratio((one[index] - zero[index]) * event[index], top[index]);
+                    break;
+                default:
+                    measure[index] = ratio(event[index] * one[index], top[index]);
+            }
+        }
+
+        return measure;
+    }
+
+    private static double ratio(double numerator, double denominator) {
+        if (denominator > 0)
+            return numerator / denominator;
+
+        return numerator > 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+    }
+}
@@ -0,0 +1,434 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.analysis;
+
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.metrics.Timer;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
+import it.unifi.stlab.faultflow.model.operational.Error;
+import it.unifi.stlab.faultflow.model.operational.Event;
+import it.unifi.stlab.faultflow.model.operational.Failure;
+import it.unifi.stlab.faultflow.model.operational.Fault;
+import it.unifi.stlab.transformation.faulttree.BasicEvent;
+import it.unifi.stlab.transformation.faulttree.Gate;
+import it.unifi.stlab.transformation.faulttree.ModuleFinder;
+import it.unifi.stlab.transformation.faulttree.Node;
+import it.unifi.stlab.transformation.faulttree.OR;
+import it.unifi.stlab.transformation.faulttree.SharedNodeFinder;
+import it.unifi.stlab.transformation.faulttree.TabulatedEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Failure probability of the top event of a fault tree for a single operating unit, kept up to date while the faults,
+ * errors and failures observed on the unit are applied to it.
+ *
+ * The tree is split into its independent modules, whose CDFs are kept, each computed with the modules it contains
+ * replaced by a TabulatedEvent. An observed event conditions the node it concerns: a fault or a failure turns the
+ * basic event or the gate into a certain event at the time of the observation, while an error keeps the gate and its
+ * fault-to-failure delay but triggers it at that time. Only the modules containing a conditioned node are evaluated
+ * again, innermost first, so that the cost of an event is bounded by the modules on its path to the top.
+ *
+ * The conditional CDF given the state of the unit at an observation time reuses the same module CDFs: every module
+ * that has not been observed to occur is taken as working at that time, so the modules without evidence are just
+ * conditioned on their survival, and only those containing a conditioned node are evaluated again.
+ */
+public class IncrementalReliability {
+
+    private final TreeAnalyzer analyzer;
+    private final Node tree;
+    private final SharedNodeFinder structure;
+    private final List<Gate> modules;
+    private final Map<Gate, List<Gate>> innerModules;
+    private final Map<Gate, TabulatedEvent> solved;
+    // Nodes concerned by the events on each fault mode, error mode and failure mode, by name
+    private final Map<String, List<Node>> faultNodes;
+    private final Map<String, List<Node>> errorNodes;
+    private final Map<String, List<Node>> failureNodes;
+    // Conditioned nodes and the nodes replacing them in the evaluations
+    private final Map<Node, Node> evidence;
+    private final List<Event> events;
+    private double lastObservation;
+
+    /**
+     * Evaluates every module of the tree without evidence. The given tree is not changed.
+     */
+    public IncrementalReliability(TreeAnalyzer analyzer, Node tree) {
+        if (tree.isBasicEvent())
+            throw new IllegalArgumentException("The top event of the fault tree must be a gate");
+
+        this.analyzer = analyzer;
+        this.tree = tree.copy();
+        this.structure = new SharedNodeFinder();
+        this.structure.visit(this.tree);
+
+        ModuleFinder moduleFinder = new ModuleFinder();
+        moduleFinder.visit(this.tree);
+        this.modules = moduleFinder.getModules();
+        this.innerModules = new IdentityHashMap<>();
+        this.solved = new IdentityHashMap<>();
+        this.evidence = new IdentityHashMap<>();
+        this.events = new ArrayList<>();
+        this.faultNodes = new HashMap<>();
+        this.errorNodes = new HashMap<>();
+        this.failureNodes = new HashMap<>();
+
+        for (Node node : structure.getNodes()) {
+            if (node.isBasicEvent()) {
+                if (!(node instanceof TabulatedEvent))
+                    index(faultNodes, ((BasicEvent) node).getFaultMode().getName(), node);
+            } else if (((Gate) node).getErrorMode() != null) {
+                ErrorMode errorMode = ((Gate) node).getErrorMode();
+                index(errorNodes, errorMode.getName(), node);
+
+                if (errorMode.getOutgoingFailure() != null)
+                    index(failureNodes, errorMode.getOutgoingFailure().getDescription(), node);
+            }
+        }
+
+        for (Gate module : modules)
+            innerModules.put(module, innerModules(module));
+
+        for (Gate module : modules)
+            solve(module, evidence, solved);
+    }
+
+    /**
+     * Copies the given reliability, with the events applied so far, sharing its tree and the CDFs of its modules. The
+     * copy is evaluated only on the modules affected by the events applied to it afterwards, so that many units of the
+     * same system can start from a single unconditioned evaluation.
+     */
+    public IncrementalReliability(IncrementalReliability prior) {
+        synchronized (prior) {
+            this.analyzer = prior.analyzer;
+            this.tree = prior.tree;
+            this.structure = prior.structure;
+            this.modules = prior.modules;
+            this.innerModules = prior.innerModules;
+            this.faultNodes = prior.faultNodes;
+            this.errorNodes = prior.errorNodes;
+            this.failureNodes = prior.failureNodes;
+            this.solved = new IdentityHashMap<>(prior.solved);
+            this.evidence = new IdentityHashMap<>(prior.evidence);
+            this.events = new ArrayList<>(prior.events);
+            this.lastObservation = prior.lastObservation;
+        }
+    }
+
+    private static void index(Map<String, List<Node>> nodes, String name, Node node) {
+        nodes.computeIfAbsent(name, key -> new ArrayList<>()).add(node);
+    }
+
+    // The modules directly contained in the given one, that is, not through another module
+    private List<Gate> innerModules(Gate module) {
+        List<Gate> inner = new ArrayList<>();
+        Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Node> queue = new ArrayDeque<>(module.getChildren());
+
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+
+            if (!visited.add(node) || node.isBasicEvent())
+                continue;
+
+            if (innerModules.containsKey(node))
+                inner.add((Gate) node);
+            else
+                queue.addAll(node.getChildren());
+        }
+
+        return inner;
+    }
+
+    /**
+     * Applies the observed events, in the given order, and evaluates again the modules they affect. Events concerning
+     * modes that do not appear in the tree are recorded but change nothing, as are repeated observations of the same
+     * node, for which the earliest one holds. Returns the number of modules evaluated.
+     *
+     * The update is atomic: all the events are validated before any of them is applied, and the new evidence and
+     * module CDFs replace the current ones only once every affected module has been evaluated, so that a failure
+     * leaves the reliability as it was.
+     */
+    public synchronized int apply(List<? extends Event> observed) {
+        Timer.Context update = Metrics.getInstance().start(Metrics.EVENT_UPDATE);
+        List<List<Node>> observedNodes = new ArrayList<>();
+
+        for (Event event : observed) {
+            if (event.getTimestamp() == null)
+                throw new IllegalArgumentException("The event " + event.getDescription() + " has no timestamp");
+
+            observedNodes.add(nodesOf(event));
+        }
+
+        Map<Node, Node> newEvidence = new IdentityHashMap<>(evidence);
+        List<Node> conditioned = new ArrayList<>();
+        double newLastObservation = lastObservation;
+
+        for (int index = 0; index < observed.size(); index++) {
+            Event event = observed.get(index);
+            double time = event.getTimestamp().doubleValue();
+            newLastObservation = Math.max(newLastObservation, time);
+
+            for (Node node : observedNodes.get(index)) {
+                if (!newEvidence.containsKey(node)) {
+                    newEvidence.put(node, condition(event, node, time));
+                    conditioned.add(node);
+                }
+            }
+        }
+
+        Set<Node> affected = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Node> queue = new ArrayDeque<>(conditioned);
+
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+
+            if (affected.add(node))
+                queue.addAll(structure.getParents(node));
+        }
+
+        Map<Gate, TabulatedEvent> newSolved = new IdentityHashMap<>(solved);
+        int evaluated = 0;
+
+        // Modules are listed after the modules they contain
+        for (Gate module : modules) {
+            if (affected.contains(module)) {
+                solve(module, newEvidence, newSolved);
+                evaluated++;
+            }
+        }
+
+        evidence.putAll(newEvidence);
+        solved.putAll(newSolved);
+        events.addAll(observed);
+        lastObservation = newLastObservation;
+
+        update.stop();
+        return evaluated;
+    }
+
+    private List<Node> nodesOf(Event event) {
+        List<Node> nodes;
+
+        if (event instanceof Fault)
+            nodes = faultNodes.get(((Fault) event).getFaultMode().getName());
+        else if (event instanceof Error)
+            nodes = errorNodes.get(((Error) event).getErrorMode().getName());
+        else if (event instanceof Failure)
+            nodes = failureNodes.get(((Failure) event).getFailureMode().getDescription());
+        else
+            throw new IllegalArgumentException("Unknown event type: " + event.getClass().getSimpleName());
+
+        return nodes != null ? nodes : List.of();
+    }
+
+    private Node condition(Event event, Node node, double time) {
+        TabulatedEvent occurred = occurredAt(event.getDescription(), time);
+
+        if (!(event instanceof Error))
+            return occurred;
+
+        // The error mode is activated, its failure still follows its fault-to-failure delay and routing probability
+        Gate gate = (Gate) node;
+        Gate triggered = new OR(gate.getName());
+        triggered.setErrorMode(gate.getErrorMode());
+        triggered.setRoutingProbability(gate.getRoutingProbability());
+        triggered.addChild(occurred);
+        return triggered;
+    }
+
+    private TabulatedEvent occurredAt(String description, double time) {
+        double timeStep = analyzer.getTimeStep();
+        double[] cdf = new double[solved.get(tree).getCdf().length];
+
+        for (int index = 0; index < cdf.length; index++)
+            cdf[index] = index * timeStep >= time ? 1 : 0;
+
+        return new TabulatedEvent(description, timeStep, cdf);
+    }
+
+    // Evaluates the module given the evidence, with its inner modules replaced by their solved CDFs
+    private void solve(Gate module, Map<Node, Node> evidence, Map<Gate, TabulatedEvent> solved) {
+        Node replacement = evidence.get(module);
+        double[] cdf;
+
+        if (replacement instanceof TabulatedEvent) {
+            cdf = ((TabulatedEvent) replacement).getCdf();
+        } else {
+            Map<Node, Node> copies = new IdentityHashMap<>();
+
+            for (Map.Entry<Node, Node> entry : evidence.entrySet()) {
+                if (entry.getKey() != module)
+                    copies.put(entry.getKey(), entry.getValue());
+            }
+
+            for (Gate inner : innerModules.get(module))
+                copies.put(inner, solved.get(inner));
+
+            Node root = replacement != null ? replacement.copy(copies) : module.copy(copies);
+            cdf = analyzer.evaluate(root).getValues();
+        }
+
+        solved.put(module, new TabulatedEvent(module.getName(), analyzer.getTimeStep(), cdf));
+    }
+
+    /**
+     * Returns the probability that the top event occurs by each time of the grid from the observation time on, given
+     * the events applied so far and that no other module has occurred by then. The observation time cannot precede
+     * the last applied event. Modules without evidence are conditioned on their tabulated CDF, without evaluating them
+     * again; the top event is certain from the observation time on if it has been observed.
+     */
+    public synchronized CDFResult getConditionalCdf(double observationTime) {
+        if (observationTime < lastObservation)
+            throw new IllegalArgumentException("The observation time " + observationTime
+                    + " precedes the last applied event at " + lastObservation);
+
+        Timer.Context conditional = Metrics.getInstance().start(Metrics.CONDITIONAL);
+        double timeStep = analyzer.getTimeStep();
+        int length = solved.get(tree).getCdf().length;
+        int first = Math.min(length - 1, (int) Math.floor(observationTime / timeStep));
+
+        Set<Node> affected = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Node> queue = new ArrayDeque<>(evidence.keySet());
+
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+
+            if (affected.add(node))
+                queue.addAll(structure.getParents(node));
+        }
+
+        Map<Gate, TabulatedEvent> conditioned = new IdentityHashMap<>();
+
+        // Modules are listed after the modules they contain
+        for (Gate module : modules) {
+            Node replacement = evidence.get(module);
+            double[] cdf;
+
+            if (replacement instanceof TabulatedEvent) {
+                cdf = ((TabulatedEvent) replacement).getCdf();
+            } else if (!affected.contains(module)) {
+                cdf = survived(solved.get(module).getCdf(), first);
+            } else {
+                Map<Node, Node> copies = new IdentityHashMap<>();
+
+                for (Map.Entry<Node, Node> entry : evidence.entrySet()) {
+                    if (entry.getKey() != module)
+                        copies.put(entry.getKey(), entry.getValue());
+                }
+
+                for (Gate inner : innerModules.get(module))
+                    copies.put(inner, conditioned.get(inner));
+
+                Node root = replacement != null ? replacement.copy(copies) : module.copy(copies);
+                cdf = survived(analyzer.evaluate(root).getValues(), first);
+            }
+
+            conditioned.put(module, new TabulatedEvent(module.getName(), timeStep, cdf));
+        }
+
+        double[] cdf = conditioned.get(tree).getCdf();
+        double[] times = new double[length - first];
+
+        for (int index = 0; index < times.length; index++)
+            times[index] = (first + index) * timeStep;
+
+        return new CDFResult(times, Arrays.copyOfRange(cdf, first, length), timeStep, analyzer.getTimeLimit(), 0,
+                conditional.stop(), structure.getGateCount(), structure.getBasicEventCount());
+    }
+
+    // The CDF given that no failure occurred up to the given index of the grid, zero before it
+    private static double[] survived(double[] cdf, int first) {
+        double survival = 1 - cdf[first];
+
+        // A module certain to have occurred by then keeps its CDF
+        if (survival <= 0)
+            return cdf;
+
+        double[] conditioned = new double[cdf.length];
+
+        for (int index = first + 1; index < cdf.length; index++)
+            conditioned[index] = Math.max(0, Math.min(1, (cdf[index] - cdf[first]) / survival));
+
+        return conditioned;
+    }
+
+    /**
+     * Returns the CDF of the top event given the events applied so far
+     */
+    public synchronized double[] getCdf() {
+        return solved.get(tree).getCdf().clone();
+    }
+
+    /**
+     * Returns the probability that the unit survives each time of the grid from the last observation on, given that it
+     * has survived up to it: the reliability of the top event divided by its reliability at the last observation. It
+     * is zero once the top event is certain to have occurred.
+     */
+    public synchronized double[] getRemainingReliability() {
+        double[] cdf = solved.get(tree).getCdf();
+        int start = Math.min(cdf.length - 1, (int) Math.floor(lastObservation / analyzer.getTimeStep()));
+        double survival = 1 - cdf[start];
+        double[] reliability = new double[cdf.length - start];
+
+        for (int index = 0; index < reliability.length; index++)
+            reliability[index] = survival > 0 ? Math.max(0, Math.min(1, (1 - cdf[start + index]) / survival)) : 0;
+
+        return reliability;
+    }
+
+    /**
+     * Returns the grid time from which the remaining reliability starts
+     */
+    public synchronized double getStartTime() {
+        double timeStep = analyzer.getTimeStep();
+        int start = Math.min(solved.get(tree).getCdf().length - 1, (int) Math.floor(lastObservation / timeStep));
+        return start * timeStep;
+    }
+
+    public synchronized List<Event> getEvents() {
+        return List.copyOf(events);
+    }
+
+    /**
+     * Returns the time of the last applied event, zero if none
+     */
+    public synchronized double getLastObservation() {
+        return lastObservation;
+    }
+
+    public int getModules() {
+        return modules.size();
+    }
+
+    public double getTimeStep() {
+        return analyzer.getTimeStep();
+    }
+}
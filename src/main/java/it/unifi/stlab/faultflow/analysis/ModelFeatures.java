@@ -0,0 +1,363 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.analysis;
+
+import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
+import it.unifi.stlab.faultflow.model.operational.Scenario;
+import it.unifi.stlab.faultflow.model.utils.PDFParser;
+import it.unifi.stlab.transformation.faulttree.BasicEvent;
+import it.unifi.stlab.transformation.faulttree.Gate;
+import it.unifi.stlab.transformation.faulttree.KOutN;
+import it.unifi.stlab.transformation.faulttree.ModuleFinder;
+import it.unifi.stlab.transformation.faulttree.Node;
+import it.unifi.stlab.transformation.faulttree.SharedNodeFinder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Structural and stochastic features of a fault tree that determine which analysis engines apply to it and how much
+ * they cost: size and depth, PDF families, shared events and the delays on their paths, voting gates, independent
+ * modules and the events of an operational scenario.
+ */
+public class ModelFeatures {
+
+    private final int gates;
+    private final int basicEvents;
+    private final int depth;
+    private final int sharedEvents;
+    private final int reconvergentEvents;
+    private final boolean delayedSharedPaths;
+    private final int delayedGates;
+    private final int votingGates;
+    private final int intermediateVotingGates;
+    private final Set<String> pdfFamilies;
+    private final Set<String> votingFamilies;
+    private final List<Integer> moduleSizes;
+    private final int scenarioEvents;
+
+    private ModelFeatures(Node tree, Scenario scenario, int minModuleSize) {
+        SharedNodeFinder finder = new SharedNodeFinder();
+        finder.visit(tree);
+
+        gates = finder.getGateCount();
+        basicEvents = finder.getBasicEventCount();
+        sharedEvents = finder.getSharedNodes().size();
+        depth = depth(tree, new IdentityHashMap<>());
+        pdfFamilies = new TreeSet<>();
+        votingFamilies = new TreeSet<>();
+
+        int delayed = 0;
+        int voting = 0;
+        int intermediateVoting = 0;
+
+        for (Node node : finder.getNodes()) {
+            if (node.isBasicEvent()) {
+                pdfFamilies.add(family(((BasicEvent) node).getFaultMode().getTimeToFaultPDFToString()));
+                continue;
+            }
+
+            Gate gate = (Gate) node;
+
+            if (isDelayed(gate)) {
+                delayed++;
+                pdfFamilies.add(family(gate.getErrorMode().getFaultToFailurePDFToString()));
+            }
+
+            if (gate instanceof KOutN) {
+                voting++;
+                int k = ((KOutN) gate).getK();
+
+                if (k > 1 && k < gate.getChildren().size()) {
+                    intermediateVoting++;
+                    collectFamilies(gate, votingFamilies, Collections.newSetFromMap(new IdentityHashMap<>()));
+                }
+            }
+        }
+
+        delayedGates = delayed;
+        votingGates = voting;
+        intermediateVotingGates = intermediateVoting;
+
+        Map<Node, Set<Node>> reach = new IdentityHashMap<>();
+        Set<Node> reconvergent = Collections.newSetFromMap(new IdentityHashMap<>());
+        delayedSharedPaths = findReconvergences(finder, reach, reconvergent);
+        reconvergentEvents = reconvergent.size();
+
+        moduleSizes = moduleSizes(tree, minModuleSize);
+        scenarioEvents = scenario != null && scenario.getIncomingEvents() != null
+                ? scenario.getIncomingEvents().size() : 0;
+    }
+
+    public static ModelFeatures of(Node tree, Scenario scenario, int minModuleSize) {
+        return new ModelFeatures(tree, scenario, minModuleSize);
+    }
+
+    public static ModelFeatures of(Node tree) {
+        return new ModelFeatures(tree, null, ModularAnalyzer.DEFAULT_MIN_MODULE_SIZE);
+    }
+
+    /**
+     * Returns the family of the given PDF, that is the lower case name before its arguments
+     */
+    public static String family(String pdf) {
+        if (pdf == null)
+            return "dirac";
+
+        int parenthesis = pdf.indexOf('(');
+        return (parenthesis < 0 ? pdf : pdf.substring(0, parenthesis)).trim().toLowerCase();
+    }
+
+    /**
+     * A gate delays the propagation if its error mode has a fault-to-failure PDF other than dirac(0)
+     */
+    public static boolean isDelayed(Gate gate) {
+        ErrorMode errorMode = gate.getErrorMode();
+
+        if (errorMode == null || errorMode.getFaultToFailurePDFToString() == null)
+            return false;
+
+        String pdf = errorMode.getFaultToFailurePDFToString();
+
+        if (!family(pdf).equals("dirac") && !family(pdf).isEmpty())
+            return true;
+
+        String argument = pdf.substring(pdf.indexOf('(') + 1, pdf.lastIndexOf(')')).trim();
+        return !argument.isEmpty() && PDFParser.checkDivision(argument) != 0;
+    }
+
+    private static int depth(Node node, Map<Node, Integer> depths) {
+        if (node.isBasicEvent())
+            return 0;
+
+        Integer depth = depths.get(node);
+
+        if (depth != null)
+            return depth;
+
+        int result = 0;
+        for (Node child : node.getChildren())
+            result = Math.max(result, depth(child, depths) + 1);
+
+        depths.put(node, result);
+        return result;
+    }
+
+    private static void collectFamilies(Node node, Set<String> families, Set<Node> visited) {
+        if (!visited.add(node))
+            return;
+
+        if (node.isBasicEvent()) {
+            families.add(family(((BasicEvent) node).getFaultMode().getTimeToFaultPDFToString()));
+            return;
+        }
+
+        if (isDelayed((Gate) node))
+            families.add(family(((Gate) node).getErrorMode().getFaultToFailurePDFToString()));
+
+        for (Node child : node.getChildren())
+            collectFamilies(child, families, visited);
+    }
+
+    /* Finds the shared events reached by more than one child of the same gate, returning whether a delay lies on one
+    of the paths from the gate to them: the analytic evaluation is exact only when it does not */
+    private static boolean findReconvergences(SharedNodeFinder finder, Map<Node, Set<Node>> reach,
+                                              Set<Node> reconvergent) {
+        boolean delayed = false;
+
+        for (Node node : finder.getNodes()) {
+            if (node.isBasicEvent())
+                continue;
+
+            Map<Node, Integer> counts = new IdentityHashMap<>();
+
+            for (Node child : node.getChildren())
+                for (Node shared : reach(child, finder, reach))
+                    counts.merge(shared, 1, Integer::sum);
+
+            for (Map.Entry<Node, Integer> entry : counts.entrySet()) {
+                if (entry.getValue() < 2)
+                    continue;
+
+                reconvergent.add(entry.getKey());
+
+                for (Node child : node.getChildren())
+                    if (reach(child, finder, reach).contains(entry.getKey()) && delayedPath(child, entry.getKey(),
+                            finder, reach, Collections.newSetFromMap(new IdentityHashMap<>())))
+                        delayed = true;
+            }
+        }
+
+        return delayed;
+    }
+
+    // Shared events reachable from the node, including the node itself
+    private static Set<Node> reach(Node node, SharedNodeFinder finder, Map<Node, Set<Node>> reach) {
+        Set<Node> result = reach.get(node);
+
+        if (result != null)
+            return result;
+
+        result = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        if (finder.isShared(node))
+            result.add(node);
+
+        if (!node.isBasicEvent())
+            for (Node child : node.getChildren())
+                result.addAll(reach(child, finder, reach));
+
+        reach.put(node, result);
+        return result;
+    }
+
+    private static boolean delayedPath(Node node, Node shared, SharedNodeFinder finder, Map<Node, Set<Node>> reach,
+                                       Set<Node> visited) {
+        if (node == shared || node.isBasicEvent() || !visited.add(node))
+            return false;
+
+        if (isDelayed((Gate) node))
+            return true;
+
+        for (Node child : node.getChildren())
+            if (reach(child, finder, reach).contains(shared) && delayedPath(child, shared, finder, reach, visited))
+                return true;
+
+        return false;
+    }
+
+    /* Sizes of the modules that ModularAnalyzer solves separately, each counting its inner modules as single events,
+    followed by the size of the reduced top event */
+    private static List<Integer> moduleSizes(Node tree, int minModuleSize) {
+        ModuleFinder moduleFinder = new ModuleFinder();
+        moduleFinder.visit(tree);
+        Set<Node> selected = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Integer> sizes = new ArrayList<>();
+
+        for (Gate module : moduleFinder.getModules()) {
+            if (module != tree && ModuleFinder.size(module) < minModuleSize)
+                continue;
+
+            sizes.add(reducedSize(module, selected, Collections.newSetFromMap(new IdentityHashMap<>())));
+            selected.add(module);
+        }
+
+        return sizes;
+    }
+
+    private static int reducedSize(Node node, Set<Node> selected, Set<Node> visited) {
+        if (!visited.add(node))
+            return 0;
+
+        if (node.isBasicEvent() || (selected.contains(node) && visited.size() > 1))
+            return 1;
+
+        int size = 1;
+        for (Node child : node.getChildren())
+            size += reducedSize(child, selected, visited);
+
+        return size;
+    }
+
+    public int getGates() {
+        return gates;
+    }
+
+    public int getBasicEvents() {
+        return basicEvents;
+    }
+
+    public int getNodes() {
+        return gates + basicEvents;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getSharedEvents() {
+        return sharedEvents;
+    }
+
+    /**
+     * Returns the number of shared events on which more than one child of the same gate depends
+     */
+    public int getReconvergentEvents() {
+        return reconvergentEvents;
+    }
+
+    public boolean hasDelayedSharedPaths() {
+        return delayedSharedPaths;
+    }
+
+    public int getDelayedGates() {
+        return delayedGates;
+    }
+
+    public int getVotingGates() {
+        return votingGates;
+    }
+
+    public int getIntermediateVotingGates() {
+        return intermediateVotingGates;
+    }
+
+    public Set<String> getPdfFamilies() {
+        return pdfFamilies;
+    }
+
+    /**
+     * Returns the PDF families found below the voting gates with 1 < k < n, which are evaluated analytically
+     */
+    public Set<String> getVotingFamilies() {
+        return votingFamilies;
+    }
+
+    public boolean isAllExponential() {
+        return pdfFamilies.stream().allMatch(family -> family.equals("exp"));
+    }
+
+    /**
+     * Returns the reduced sizes of the modules solved separately, the top event being the last one
+     */
+    public List<Integer> getModuleSizes() {
+        return moduleSizes;
+    }
+
+    public int getModules() {
+        return moduleSizes.size() - 1;
+    }
+
+    public int getScenarioEvents() {
+        return scenarioEvents;
+    }
+
+    @Override
+    public String toString() {
+        return "gates=" + gates + ", basicEvents=" + basicEvents + ", depth=" + depth + ", sharedEvents="
+                + sharedEvents + ", delayedSharedPaths=" + delayedSharedPaths + ", votingGates=" + votingGates
+                + ", pdfFamilies=" + pdfFamilies + ", modules=" + getModules() + ", scenarioEvents=" + scenarioEvents;
+    }
+}
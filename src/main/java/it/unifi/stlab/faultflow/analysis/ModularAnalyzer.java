@@ -0,0 +1,237 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.analysis;
+
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.transformation.faulttree.Gate;
+import it.unifi.stlab.transformation.faulttree.ModuleFinder;
+import it.unifi.stlab.transformation.faulttree.Node;
+import it.unifi.stlab.transformation.faulttree.OR;
+import it.unifi.stlab.transformation.faulttree.SharedNodeFinder;
+import it.unifi.stlab.transformation.faulttree.SymmetryDetector;
+import it.unifi.stlab.transformation.faulttree.TabulatedEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * Solves a fault tree by modules: the independent modules found by ModuleFinder with at least minModuleSize nodes
+ * are solved separately and concurrently, innermost first, and each of them is replaced by a TabulatedEvent carrying
+ * its CDF, so that the final analysis of the top event works on a much smaller model.
+ *
+ * Modules are solved with the given analyzer, except those containing shared events, which Pyramis cannot represent
+ * and are solved with AnalyticAnalyzer on the same time grid. Isomorphic modules, such as the copies of a replicated
+ * sub-system, are solved once.
+ *
+ * The result is approximate even with an exact analyzer: a TabulatedEvent matches the CDF of its module only at the
+ * points of the grid and interpolates it linearly in between, so the finer the time step, the closer the result.
+ */
+public class ModularAnalyzer implements TreeAnalyzer {
+
+    public static final int DEFAULT_MIN_MODULE_SIZE = 8;
+
+    private final TreeAnalyzer analyzer;
+    private final TreeAnalyzer sharedEventsAnalyzer;
+    private final int minModuleSize;
+
+    public ModularAnalyzer(TreeAnalyzer analyzer, int minModuleSize) {
+        if (minModuleSize < 2)
+            throw new IllegalArgumentException("A module must contain at least 2 nodes");
+
+        this.analyzer = analyzer;
+        this.sharedEventsAnalyzer = analyzer instanceof AnalyticAnalyzer ? analyzer
+                : new AnalyticAnalyzer(analyzer.getTimeStep(), analyzer.getTimeLimit());
+        this.minModuleSize = minModuleSize;
+    }
+
+    public ModularAnalyzer(TreeAnalyzer analyzer) {
+        this(analyzer, DEFAULT_MIN_MODULE_SIZE);
+    }
+
+    @Override
+    public CDFResult evaluate(Node tree) {
+        return evaluateAll(List.of(tree)).get(0);
+    }
+
+    /**
+     * Solves the fault trees of several top events together: the modules are searched in the DAG made of all the
+     * trees, so that a module shared by more than one of them, such as the sub-tree of an error mode feeding several
+     * top events, is solved once and replaced in all of them. A top event that is itself a module takes its result from
+     * the module, the others are solved last.
+     */
+    @Override
+    public List<CDFResult> evaluateAll(List<Node> trees) {
+        long start = System.currentTimeMillis();
+        List<SharedNodeFinder> sizes = new ArrayList<>();
+        Map<Node, Node> copies = new IdentityHashMap<>();
+        List<Node> tops = new ArrayList<>();
+
+        for (Node tree : trees) {
+            SharedNodeFinder size = new SharedNodeFinder();
+            size.visit(tree);
+            sizes.add(size);
+            tops.add(tree.copy(copies));
+        }
+
+        // The copies keep the nodes shared among the trees, and a virtual gate joins them in a single DAG
+        Node root = new OR(tops, "batch");
+        ModuleFinder moduleFinder = new ModuleFinder();
+        moduleFinder.visit(root);
+        SharedNodeFinder structure = new SharedNodeFinder();
+        structure.visit(root);
+        SymmetryDetector symmetry = new SymmetryDetector();
+        symmetry.visit(root);
+        List<List<Gate>> levels = levels(root, moduleFinder);
+        long parseTime = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        List<CDFResult> results = new ArrayList<>();
+
+        try (AnalysisPool pool = new AnalysisPool()) {
+            // Replicas of a module already submitted reuse its result
+            Map<Integer, Future<CDFResult>> replicas = new HashMap<>();
+            Map<Node, Future<CDFResult>> solved = new IdentityHashMap<>();
+
+            for (List<Gate> level : levels) {
+                // The modules of a level are disjoint, and their inner modules were replaced by previous levels
+                for (Gate module : level)
+                    solved.put(module, submit(module, symmetry, replicas, pool));
+
+                for (Gate module : level) {
+                    TabulatedEvent event = new TabulatedEvent(module.getName(), getTimeStep(),
+                            AnalysisPool.get(solved.get(module)).getValues());
+                    replace(module, event, structure.getParents(module));
+                }
+            }
+
+            for (Node top : tops) {
+                if (!solved.containsKey(top))
+                    solved.put(top, submit(top, symmetry, replicas, pool));
+            }
+
+            for (Node top : tops)
+                results.add(AnalysisPool.get(solved.get(top)));
+        }
+
+        long evaluationTime = System.currentTimeMillis() - start;
+        List<CDFResult> batch = new ArrayList<>();
+
+        for (int index = 0; index < results.size(); index++) {
+            CDFResult result = results.get(index);
+            batch.add(new CDFResult(result.getTimes(), result.getValues(), getTimeStep(), getTimeLimit(), parseTime,
+                    evaluationTime, sizes.get(index).getGateCount(), sizes.get(index).getBasicEventCount()));
+        }
+
+        return batch;
+    }
+
+    private Future<CDFResult> submit(Node module, SymmetryDetector symmetry, Map<Integer, Future<CDFResult>> replicas,
+                                     AnalysisPool pool) {
+        int classId = symmetry.getClassId(module);
+        Future<CDFResult> future = classId != SymmetryDetector.NO_CLASS ? replicas.get(classId) : null;
+
+        if (future != null) {
+            Metrics.getInstance().increment(Metrics.SYMMETRY_REUSE);
+            return future;
+        }
+
+        future = pool.submit(() -> module, analyzerFor(module));
+
+        if (classId != SymmetryDetector.NO_CLASS)
+            replicas.put(classId, future);
+
+        return future;
+    }
+
+    /**
+     * Groups the modules to be solved separately so that each module comes after the modules it contains
+     */
+    List<List<Gate>> levels(Node root, ModuleFinder moduleFinder) {
+        Map<Node, Integer> depths = new IdentityHashMap<>();
+        List<List<Gate>> levels = new ArrayList<>();
+
+        // Modules are listed after the modules they contain
+        for (Gate module : moduleFinder.getModules()) {
+            if (module == root || ModuleFinder.size(module) < minModuleSize)
+                continue;
+
+            int depth = innerDepth(module, depths, Collections.newSetFromMap(new IdentityHashMap<>()));
+            depths.put(module, depth);
+
+            while (levels.size() <= depth)
+                levels.add(new ArrayList<>());
+
+            levels.get(depth).add(module);
+        }
+
+        return levels;
+    }
+
+    // Number of nested selected modules below the node
+    private int innerDepth(Node node, Map<Node, Integer> depths, Set<Node> visited) {
+        int depth = 0;
+
+        if (node.isBasicEvent())
+            return depth;
+
+        for (Node child : node.getChildren()) {
+            if (!visited.add(child))
+                continue;
+
+            Integer childDepth = depths.get(child);
+            depth = Math.max(depth, childDepth != null ? childDepth + 1 : innerDepth(child, depths, visited));
+        }
+
+        return depth;
+    }
+
+    private TreeAnalyzer analyzerFor(Node module) {
+        SharedNodeFinder finder = new SharedNodeFinder();
+        finder.visit(module);
+
+        return finder.getSharedNodes().isEmpty() ? analyzer : sharedEventsAnalyzer;
+    }
+
+    private static void replace(Node module, Node event, List<Gate> parents) {
+        for (Gate parent : parents)
+            parent.getChildren().replaceAll(child -> child == module ? event : child);
+    }
+
+    public int getMinModuleSize() {
+        return minModuleSize;
+    }
+
+    @Override
+    public double getTimeStep() {
+        return analyzer.getTimeStep();
+    }
+
+    @Override
+    public double getTimeLimit() {
+        return analyzer.getTimeLimit();
+    }
+}
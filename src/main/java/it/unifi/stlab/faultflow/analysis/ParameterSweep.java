@@ -0,0 +1,422 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.analysis;
+
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.metrics.Timer;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.InternalFaultMode;
+import it.unifi.stlab.transformation.faulttree.BasicEvent;
+import it.unifi.stlab.transformation.faulttree.Gate;
+import it.unifi.stlab.transformation.faulttree.ModuleFinder;
+import it.unifi.stlab.transformation.faulttree.Node;
+import it.unifi.stlab.transformation.faulttree.SharedNodeFinder;
+import it.unifi.stlab.transformation.faulttree.TabulatedEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * Evaluates the CDF of the top event of a fault tree for every combination of values of some arguments of the
+ * time-to-fault PDFs of its fault modes and of the fault-to-failure PDFs of its error modes, as in "what if the MTTF of
+ * the detector doubles".
+ *
+ * The modules of the tree that no parameter affects are solved once and replaced by a TabulatedEvent before the sweep,
+ * and every variant shares with the others the nodes below them, so that it only copies and evaluates the gates above
+ * the changed events. The variants are built lazily, each one by the task evaluating it on an AnalysisPool.
+ */
+public class ParameterSweep {
+
+    private final TreeAnalyzer analyzer;
+    private final List<Parameter> parameters;
+
+    public ParameterSweep(TreeAnalyzer analyzer, List<Parameter> parameters) {
+        if (parameters.isEmpty())
+            throw new IllegalArgumentException("At least one parameter must be swept");
+
+        this.analyzer = analyzer;
+        this.parameters = List.copyOf(parameters);
+    }
+
+    /**
+     * Evaluates the tree for every combination of the parameter values, the last parameter changing fastest. The
+     * given tree is not changed.
+     */
+    public SweepResult evaluate(Node tree) {
+        return evaluate(tree, combinations());
+    }
+
+    /**
+     * Evaluates the tree for each of the given combinations of values, one value for each parameter in their order,
+     * which need not be among the values of the parameters
+     */
+    SweepResult evaluate(Node tree, Iterator<double[]> combinations) {
+        Timer.Context sweep = Metrics.getInstance().start(Metrics.SWEEP);
+        Node base = tree.copy();
+        SharedNodeFinder structure = new SharedNodeFinder();
+        structure.visit(base);
+
+        List<List<Node>> targets = new ArrayList<>();
+
+        for (Parameter parameter : parameters) {
+            List<Node> nodes = new ArrayList<>();
+
+            for (Node node : structure.getNodes()) {
+                if (parameter.matches(node)) {
+                    // Fails here, rather than in the tasks, if the PDF has no such argument
+                    parameter.withArgument(parameter.pdfOf(node), parameter.getValues()[0]);
+                    nodes.add(node);
+                }
+            }
+
+            if (nodes.isEmpty())
+                throw new IllegalArgumentException("No " + parameter.getTarget().getDescription() + " "
+                        + parameter.getName() + " in the fault tree");
+
+            targets.add(nodes);
+        }
+
+        Set<Node> affected = ancestors(targets, structure);
+        List<double[]> evaluated = new ArrayList<>();
+        List<double[]> values = new ArrayList<>();
+        double[] times = null;
+        int reusedModules;
+
+        try (AnalysisPool pool = new AnalysisPool()) {
+            reusedModules = solveUnaffected(base, affected, structure, pool);
+            List<Node> frontier = frontier(base, affected);
+            List<Future<CDFResult>> futures = new ArrayList<>();
+
+            while (combinations.hasNext()) {
+                double[] combination = combinations.next();
+
+                if (combination.length != parameters.size())
+                    throw new IllegalArgumentException("A combination needs one value for each parameter");
+
+                evaluated.add(combination);
+                futures.add(pool.submit(() -> variant(base, frontier, targets, combination), analyzer));
+            }
+
+            for (Future<CDFResult> future : futures) {
+                CDFResult result = AnalysisPool.get(future);
+                times = result.getTimes();
+                values.add(result.getValues());
+            }
+        }
+
+        long elapsedTime = sweep.stop();
+        List<String> labels = new ArrayList<>();
+
+        for (Parameter parameter : parameters)
+            labels.add(parameter.toString());
+
+        return new SweepResult(labels, evaluated, times, values, analyzer.getTimeStep(), reusedModules,
+                elapsedTime);
+    }
+
+    // The nodes depending on a parameter, including the changed ones
+    private static Set<Node> ancestors(List<List<Node>> targets, SharedNodeFinder structure) {
+        Set<Node> affected = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Node> queue = new ArrayDeque<>();
+        targets.forEach(queue::addAll);
+
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+
+            if (affected.add(node))
+                queue.addAll(structure.getParents(node));
+        }
+
+        return affected;
+    }
+
+    /* Solves the largest modules that do not depend on any parameter, replacing them with their CDF, and returns how
+    many were replaced */
+    private int solveUnaffected(Node base, Set<Node> affected, SharedNodeFinder structure, AnalysisPool pool) {
+        ModuleFinder moduleFinder = new ModuleFinder();
+        moduleFinder.visit(base);
+        List<Gate> modules = moduleFinder.getModules();
+        Set<Node> covered = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Gate> selected = new ArrayList<>();
+        List<Future<CDFResult>> futures = new ArrayList<>();
+
+        // Modules are listed after the modules they contain, so the outer ones are visited first
+        for (int index = modules.size() - 1; index >= 0; index--) {
+            Gate module = modules.get(index);
+
+            if (affected.contains(module) || covered.contains(module))
+                continue;
+
+            Deque<Node> queue = new ArrayDeque<>(module.getChildren());
+
+            while (!queue.isEmpty()) {
+                Node node = queue.poll();
+
+                if (covered.add(node) && !node.isBasicEvent())
+                    queue.addAll(node.getChildren());
+            }
+
+            selected.add(module);
+            futures.add(pool.submit(() -> module, analyzer));
+        }
+
+        for (int index = 0; index < selected.size(); index++) {
+            Gate module = selected.get(index);
+            TabulatedEvent event = new TabulatedEvent(module.getName(), analyzer.getTimeStep(),
+                    AnalysisPool.get(futures.get(index)).getValues());
+
+            for (Gate parent : structure.getParents(module))
+                parent.getChildren().replaceAll(child -> child == module ? event : child);
+        }
+
+        return selected.size();
+    }
+
+    // The nodes not depending on any parameter whose parents do: the variants share them instead of copying them
+    private static List<Node> frontier(Node base, Set<Node> affected) {
+        Set<Node> frontier = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Node> queue = new ArrayDeque<>();
+        queue.add(base);
+
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+
+            if (!visited.add(node) || node.isBasicEvent())
+                continue;
+
+            for (Node child : node.getChildren()) {
+                if (affected.contains(child))
+                    queue.add(child);
+                else
+                    frontier.add(child);
+            }
+        }
+
+        return new ArrayList<>(frontier);
+    }
+
+    private Node variant(Node base, List<Node> frontier, List<List<Node>> targets, double[] combination) {
+        Map<Node, Node> copies = new IdentityHashMap<>();
+
+        for (Node node : frontier)
+            copies.put(node, node);
+
+        Node root = base.copy(copies);
+
+        for (int index = 0; index < parameters.size(); index++) {
+            Parameter parameter = parameters.get(index);
+
+            for (Node target : targets.get(index))
+                parameter.apply(copies.get(target), combination[index]);
+        }
+
+        return root;
+    }
+
+    private double[] valuesOf(int[] combination) {
+        double[] values = new double[combination.length];
+
+        for (int index = 0; index < combination.length; index++)
+            values[index] = parameters.get(index).getValues()[combination[index]];
+
+        return values;
+    }
+
+    // Values of each parameter, the last one changing fastest
+    private Iterator<double[]> combinations() {
+        return new Iterator<>() {
+            private int[] next = new int[parameters.size()];
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public double[] next() {
+                if (next == null)
+                    throw new NoSuchElementException();
+
+                double[] current = valuesOf(next);
+                int index = next.length - 1;
+
+                while (index >= 0 && ++next[index] == parameters.get(index).getValues().length) {
+                    next[index] = 0;
+                    index--;
+                }
+
+                if (index < 0)
+                    next = null;
+
+                return current;
+            }
+        };
+    }
+
+    public List<Parameter> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * A swept argument of a PDF: the values replace, in turn, the argument at the given position of the time-to-fault
+     * PDF of a fault mode or of the fault-to-failure PDF of an error mode, such as the rate of exp(0.0001) at position
+     * 0 or the rate of erlang(3,0.0002) at position 1
+     */
+    public static class Parameter {
+
+        public enum Target {
+            FAULT_MODE("fault mode"), ERROR_MODE("error mode");
+
+            private final String description;
+
+            Target(String description) {
+                this.description = description;
+            }
+
+            public String getDescription() {
+                return description;
+            }
+        }
+
+        private final Target target;
+        private final String name;
+        private final int argument;
+        private final double[] values;
+
+        public Parameter(Target target, String name, int argument, double... values) {
+            if (argument < 0)
+                throw new IllegalArgumentException("Invalid argument position: " + argument);
+
+            if (values.length == 0)
+                throw new IllegalArgumentException("No values given for " + name);
+
+            this.target = target;
+            this.name = name;
+            this.argument = argument;
+            this.values = values.clone();
+        }
+
+        /**
+         * Parses a parameter written as name:argument:value,value,...
+         */
+        public static Parameter parse(Target target, String specification) {
+            String[] parts = specification.split(":");
+
+            if (parts.length != 3)
+                throw new IllegalArgumentException("Invalid parameter " + specification
+                        + ", expected name:argument:value,value,...");
+
+            try {
+                double[] values = Arrays.stream(parts[2].split(",")).map(String::trim)
+                        .mapToDouble(Double::parseDouble).toArray();
+                return new Parameter(target, parts[0].trim(), Integer.parseInt(parts[1].trim()), values);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid parameter " + specification + ": " + e.getMessage());
+            }
+        }
+
+        boolean matches(Node node) {
+            if (target == Target.FAULT_MODE)
+                return node instanceof BasicEvent && !(node instanceof TabulatedEvent)
+                        && ((BasicEvent) node).getFaultMode().getName().equals(name);
+
+            return node instanceof Gate && ((Gate) node).getErrorMode() != null
+                    && ((Gate) node).getErrorMode().getName().equals(name);
+        }
+
+        // Changes the PDF of a node of a variant, which owns the node but not its fault or error mode
+        void apply(Node node, double value) {
+            String pdf = withArgument(pdfOf(node), value);
+
+            if (target == Target.FAULT_MODE) {
+                ((BasicEvent) node).setFaultMode(new InternalFaultMode(name, pdf));
+            } else {
+                Gate gate = (Gate) node;
+                ErrorMode errorMode = gate.getErrorMode();
+                gate.setErrorMode(new ErrorMode(errorMode.getName(), errorMode.getActivationFunction(),
+                        errorMode.getOutgoingFailure(), pdf));
+            }
+        }
+
+        private String pdfOf(Node node) {
+            if (target == Target.FAULT_MODE)
+                return ((BasicEvent) node).getFaultMode().getTimeToFaultPDFToString();
+
+            String pdf = ((Gate) node).getErrorMode().getFaultToFailurePDFToString();
+
+            if (pdf == null)
+                throw new IllegalArgumentException("Error mode " + name + " has no fault-to-failure PDF");
+
+            return pdf;
+        }
+
+        private String withArgument(String pdf, double value) {
+            int open = pdf.indexOf('(');
+            int close = pdf.lastIndexOf(')');
+
+            if (open < 0 || close < open)
+                throw new IllegalArgumentException("Cannot change the arguments of " + pdf);
+
+            String[] arguments = pdf.substring(open + 1, close).split(",");
+
+            if (argument >= arguments.length)
+                throw new IllegalArgumentException(pdf + " of " + name + " has no argument " + argument);
+
+            // Integer arguments, such as the shape of an Erlang PDF, are kept integer
+            arguments[argument] = value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE
+                    ? String.valueOf((long) value) : String.valueOf(value);
+
+            return pdf.substring(0, open + 1) + String.join(",", arguments) + pdf.substring(close);
+        }
+
+        public Target getTarget() {
+            return target;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getArgument() {
+            return argument;
+        }
+
+        public double[] getValues() {
+            return values;
+        }
+
+        @Override
+        public String toString() {
+            return name + "[" + argument + "]";
+        }
+    }
+}
@@ -20,6 +20,7 @@
 
 package it.unifi.stlab.faultflow.analysis;
 
+import it.unifi.stlab.faultflow.metrics.Metrics;
 import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
 import it.unifi.stlab.faultflow.model.knowledge.propagation.PropagationPortType;
 import it.unifi.stlab.faultflow.model.operational.Component;
@@ -52,7 +53,8 @@ public class PetriNetAnalyzer {
 
     /**
      * Method that performs a regenerative transient analysis given a String containing one or more rewards to calculate
-     * at a given time, with a precise step and error
+     * at a given time, with a precise step and error. Under a budget, the exploration stops as soon as it is exhausted
+     * and the solution is computed on the classes explored so far: callers check the budget afterwards.
      */
     public TransientSolution<DeterministicEnablingState, RewardRate> regenerativeTransient(String rewards, BigDecimal time,
                                                                                             BigDecimal step, BigDecimal error) {
@@ -63,10 +65,11 @@ public class PetriNetAnalyzer {
         builder.greedyPolicy(time, error);
         builder.stopOn(MarkingCondition.fromString(rewards));
         builder.markingFilter(RewardRate.nonZero(0.0, rewardRates));
+        monitor(builder);
         RegTransient analysis = builder.build();
 
         TransientSolution<DeterministicEnablingState, Marking> transientUnreliability =
-                analysis.compute(petriNet, marking);
+                Metrics.getInstance().time(Metrics.SIRIO_EXPLORE, () -> analysis.compute(petriNet, marking));
 
         return TransientSolution.computeRewards(false, transientUnreliability, rewardRates);
     }
@@ -75,11 +78,20 @@ public class PetriNetAnalyzer {
      * Method that performs a regenerative transient analysis at a given time, with a precise step and error
      */
     public TransientSolution<DeterministicEnablingState, Marking> regenerativeTransient(int time, double step) {
-        RegTransient analysis = RegTransient.builder()
+        RegTransient.Builder builder = RegTransient.builder()
                 .timeBound(new BigDecimal(time))
-                .timeStep(new BigDecimal(step))
-                .build();
-        return analysis.compute(petriNet, marking);
+                .timeStep(new BigDecimal(step));
+        monitor(builder);
+        RegTransient analysis = builder.build();
+        return Metrics.getInstance().time(Metrics.SIRIO_EXPLORE, () -> analysis.compute(petriNet, marking));
+    }
+
+    private void monitor(RegTransient.Builder builder) {
+        AnalysisBudget budget = AnalysisBudget.current();
+
+        if (budget.isLimited())
+            builder.monitor(budget.monitor(Metrics.SIRIO_EXPLORE, AnalysisBudget.CLASS_BYTES_PER_NODE
+                    * (petriNet.getPlaces().size() + petriNet.getTransitions().size())));
     }
 
     /**
@@ -109,7 +121,8 @@ public class PetriNetAnalyzer {
     public Map<Marking, BigDecimal> regenerativeSteadyState() {
         RegSteadyState analysis = RegSteadyState.builder().build();
 
-        SteadyStateSolution<Marking> result = analysis.compute(petriNet, marking);
+        SteadyStateSolution<Marking> result = Metrics.getInstance().time(Metrics.SIRIO_EXPLORE,
+                () -> analysis.compute(petriNet, marking));
         return result.getSteadyState();
     }
 
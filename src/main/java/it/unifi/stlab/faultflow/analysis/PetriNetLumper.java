@@ -0,0 +1,218 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.analysis;
+
+import it.unifi.stlab.faultflow.model.knowledge.composition.ComponentType;
+import it.unifi.stlab.faultflow.model.knowledge.composition.SystemType;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.BooleanExpression;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.FaultMode;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.InternalFaultMode;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.operators.AND;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.operators.OR;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.operators.Operator;
+import it.unifi.stlab.faultflow.model.utils.PDFParser;
+import it.unifi.stlab.faultflow.translator.PetriNetTranslator;
+import org.oristool.models.stpn.MarkingExpr;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+import org.oristool.petrinet.EnablingFunction;
+import org.oristool.petrinet.Marking;
+import org.oristool.petrinet.PetriNet;
+import org.oristool.petrinet.Place;
+import org.oristool.petrinet.Postcondition;
+import org.oristool.petrinet.Precondition;
+import org.oristool.petrinet.Transition;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lumps the replicated internal faults of a system in its Petri net. The exponential faults with the same rate that
+ * are direct inputs of the same AND or OR activation function, and of no other one, are interchangeable: their m
+ * occurrence places become a single place with m tokens, whose transition fires with rate proportional to its tokens,
+ * and their fault places become a single counting place tested with >= m (AND) or > 0 (OR). The lumping is exact,
+ * since the number of occurred faults is a death process with rate proportional to the faults still working, and it
+ * removes m - 1 concurrent clocks from every state of the analysis.
+ *
+ * Faults with other distributions are not lumped, since the enabling of their clocks would not be preserved. The net
+ * must not be decorated with a scenario, which reads the places of single faults.
+ */
+public class PetriNetLumper {
+
+    private final PetriNet petriNet;
+    private final Marking marking;
+    private int lumpedFaults;
+    private int groups;
+
+    public PetriNetLumper(PetriNet petriNet, Marking marking) {
+        this.petriNet = petriNet;
+        this.marking = new Marking(marking);
+    }
+
+    public void lump(SystemType system) {
+        Map<FaultMode, Integer> readers = new IdentityHashMap<>();
+
+        for (ComponentType component : system.getComponents())
+            for (ErrorMode errorMode : component.getErrorModes())
+                for (FaultMode faultMode : errorMode.getInputFaultModes())
+                    readers.merge(faultMode, 1, Integer::sum);
+
+        for (ComponentType component : system.getComponents())
+            for (ErrorMode errorMode : component.getErrorModes())
+                lump(errorMode, readers);
+    }
+
+    private void lump(ErrorMode errorMode, Map<FaultMode, Integer> readers) {
+        BooleanExpression activationFunction = errorMode.getActivationFunction();
+
+        if (!(activationFunction instanceof AND) && !(activationFunction instanceof OR))
+            return;
+
+        Transition transition = petriNet.getTransition(PetriNetTranslator.getTransitionName(
+                errorMode.getOutgoingFailure().getDescription()));
+
+        if (transition == null || !transition.hasFeature(EnablingFunction.class)
+                || !transition.getFeature(EnablingFunction.class).toString().equals(activationFunction.toString()))
+            return;
+
+        Map<String, List<InternalFaultMode>> replicas = new LinkedHashMap<>();
+
+        for (BooleanExpression element : ((Operator) activationFunction).getElements()) {
+            if (element instanceof InternalFaultMode && readers.getOrDefault(element, 0) == 1
+                    && isLumpable((InternalFaultMode) element)) {
+                String pdf = ((InternalFaultMode) element).getTimeToFaultPDFToString().replaceAll("\\s", "");
+                replicas.computeIfAbsent(pdf, key -> new ArrayList<>()).add((InternalFaultMode) element);
+            }
+        }
+
+        Map<BooleanExpression, String> conditions = new HashMap<>();
+
+        for (Map.Entry<String, List<InternalFaultMode>> entry : replicas.entrySet()) {
+            List<InternalFaultMode> faults = entry.getValue();
+
+            if (faults.size() < 2)
+                continue;
+
+            InternalFaultMode representative = faults.get(0);
+            Place occurrence = petriNet.getPlace(representative.getName() + "Occurrence");
+
+            for (InternalFaultMode fault : faults.subList(1, faults.size())) {
+                Place faultOccurrence = petriNet.getPlace(fault.getName() + "Occurrence");
+                marking.setTokens(faultOccurrence, 0);
+                removeTransition(petriNet.getTransition(PetriNetTranslator.getTransitionName(faultOccurrence.getName())));
+                petriNet.removePlace(faultOccurrence);
+                petriNet.removePlace(petriNet.getPlace(fault.getName()));
+                conditions.put(fault, null);
+                lumpedFaults++;
+            }
+
+            String arguments = entry.getKey().substring(entry.getKey().indexOf('(') + 1, entry.getKey().length() - 1);
+            Transition occurrenceTransition = petriNet.getTransition(
+                    PetriNetTranslator.getTransitionName(occurrence.getName()));
+            occurrenceTransition.removeFeature(StochasticTransitionFeature.class);
+            occurrenceTransition.addFeature(StochasticTransitionFeature.newExponentialInstance(
+                    BigDecimal.valueOf(PDFParser.checkDivision(arguments)),
+                    MarkingExpr.from(occurrence.getName(), petriNet)));
+            marking.setTokens(occurrence, faults.size());
+
+            conditions.put(representative, representative.getName()
+                    + (activationFunction instanceof AND ? ">=" + faults.size() : ">0"));
+            groups++;
+        }
+
+        if (conditions.isEmpty())
+            return;
+
+        List<String> terms = new ArrayList<>();
+
+        for (BooleanExpression element : ((Operator) activationFunction).getElements()) {
+            if (!conditions.containsKey(element))
+                terms.add(element.toString());
+            else if (conditions.get(element) != null)
+                terms.add(conditions.get(element));
+        }
+
+        String operator = activationFunction instanceof AND ? ")&&(" : ")||(";
+        transition.removeFeature(EnablingFunction.class);
+        transition.addFeature(new EnablingFunction("(" + String.join(operator, terms) + ")"));
+    }
+
+    /**
+     * An exponential fault whose occurrence place holds its only token and feeds its fault place alone
+     */
+    private boolean isLumpable(InternalFaultMode fault) {
+        String pdf = fault.getTimeToFaultPDFToString();
+        Place occurrence = petriNet.getPlace(fault.getName() + "Occurrence");
+        Place place = petriNet.getPlace(fault.getName());
+
+        if (pdf == null || !pdf.trim().toLowerCase().startsWith("exp(") || occurrence == null || place == null
+                || marking.getTokens(occurrence) != 1 || marking.getTokens(place) != 0)
+            return false;
+
+        int producers = 0;
+        for (Postcondition postcondition : petriNet.getPostconditions())
+            if (postcondition.getPlace() == place)
+                producers++;
+
+        for (Precondition precondition : petriNet.getPreconditions())
+            if (precondition.getPlace() == place || (precondition.getPlace() == occurrence
+                    && !precondition.getTransition().getName().equals(
+                    PetriNetTranslator.getTransitionName(occurrence.getName()))))
+                return false;
+
+        return producers == 1;
+    }
+
+    private void removeTransition(Transition transition) {
+        for (Precondition precondition : new ArrayList<>(petriNet.getPreconditions(transition)))
+            petriNet.removePrecondition(precondition);
+        for (Postcondition postcondition : new ArrayList<>(petriNet.getPostconditions(transition)))
+            petriNet.removePostcondition(postcondition);
+
+        petriNet.removeTransition(transition);
+    }
+
+    public PetriNet getPetriNet() {
+        return petriNet;
+    }
+
+    public Marking getMarking() {
+        return marking;
+    }
+
+    public int getLumpedFaults() {
+        return lumpedFaults;
+    }
+
+    public int getGroups() {
+        return groups;
+    }
+
+    @Override
+    public String toString() {
+        return lumpedFaults + " replicated faults lumped into " + groups + " counting places";
+    }
+}
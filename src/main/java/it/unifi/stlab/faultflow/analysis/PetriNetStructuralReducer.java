@@ -0,0 +1,504 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.analysis;
+
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.metrics.Timer;
+import org.oristool.models.pn.Priority;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+import org.oristool.petrinet.EnablingFunction;
+import org.oristool.petrinet.InhibitorArc;
+import org.oristool.petrinet.Marking;
+import org.oristool.petrinet.PetriNet;
+import org.oristool.petrinet.Place;
+import org.oristool.petrinet.Postcondition;
+import org.oristool.petrinet.Precondition;
+import org.oristool.petrinet.Transition;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Structural reduction of the Petri net of a system before its regenerative transient analysis. The reduction keeps
+ * the transient probabilities of the places read by the reward, and it applies these rules until none of them
+ * changes the net:
+ *
+ * - relevance: transitions that neither add tokens to nor remove tokens from a relevant place are removed, together
+ * with the places they alone read; a place is relevant if the reward reads it, or if a relevant transition consumes
+ * it, tests it with an inhibitor arc or reads it in its enabling function, weight or rate;
+ * - dead transitions: transitions that can never be enabled, since some input place is never marked, are removed;
+ * - initial firings: an immediate transition that is the only consumer of an initially marked source place fires
+ * at time 0 regardless of the rest of the net, so the tokens are moved to its outputs;
+ * - series fusion: a place with a single producer and a single consumer, where the consumer is an immediate transition
+ * with no other input and no guard, is removed by connecting the producer to the outputs of the consumer. This fuses
+ * the Failure -> toFaults -> ExternalFault chains and the routers left with a single branch.
+ *
+ * Places read by the reward or by any enabling function are never removed or fused. The net is reduced in place,
+ * while the marking is copied.
+ *
+ * Both firing an immediate transition at time 0 and fusing it away remove a vanishing marking in which it would race
+ * with the other immediate transitions enabled at the same time. A Priority feature would decide those races, so an
+ * immediate transition with a Priority is only fired or fused when every immediate transition of the net has the same
+ * priority, in which case the priorities order none of them.
+ */
+public class PetriNetStructuralReducer {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private final PetriNet petriNet;
+    private final Marking marking;
+    private NetSize before;
+    private NetSize after;
+    private int prunedTransitions;
+    private int deadTransitions;
+    private int firedTransitions;
+    private int fusedPlaces;
+
+    public PetriNetStructuralReducer(PetriNet petriNet, Marking marking) {
+        this.petriNet = petriNet;
+        this.marking = new Marking(marking);
+    }
+
+    /**
+     * Reduces the net preserving the places read by the given reward expression
+     */
+    public void reduce(String rewards) {
+        Timer.Context reduction = Metrics.getInstance().start(Metrics.SIRIO_REDUCE);
+        before = NetSize.of(petriNet);
+        Set<String> preserved = identifiers(rewards);
+        boolean changed = true;
+
+        while (changed) {
+            changed = pruneIrrelevant(preserved);
+            changed |= removeDeadTransitions();
+            changed |= fireInitialTransitions(preserved);
+            changed |= fuseSeries(preserved);
+        }
+
+        after = NetSize.of(petriNet);
+        reduction.stop();
+    }
+
+    private boolean pruneIrrelevant(Set<String> preserved) {
+        Map<Place, List<Transition>> producers = new HashMap<>();
+        Map<Place, List<Transition>> consumers = new HashMap<>();
+
+        for (Postcondition postcondition : petriNet.getPostconditions())
+            producers.computeIfAbsent(postcondition.getPlace(), p -> new ArrayList<>()).add(postcondition.getTransition());
+        for (Precondition precondition : petriNet.getPreconditions())
+            consumers.computeIfAbsent(precondition.getPlace(), p -> new ArrayList<>()).add(precondition.getTransition());
+
+        Set<Place> relevantPlaces = new HashSet<>();
+        Set<Transition> relevantTransitions = new HashSet<>();
+        Deque<Place> pending = new ArrayDeque<>();
+
+        for (Place place : petriNet.getPlaces())
+            if (preserved.contains(place.getName()) && relevantPlaces.add(place))
+                pending.add(place);
+
+        while (!pending.isEmpty()) {
+            Place place = pending.poll();
+            List<Transition> touching = new ArrayList<>(producers.getOrDefault(place, List.of()));
+            touching.addAll(consumers.getOrDefault(place, List.of()));
+
+            for (Transition transition : touching) {
+                if (!relevantTransitions.add(transition))
+                    continue;
+
+                for (Place read : readPlaces(transition))
+                    if (relevantPlaces.add(read))
+                        pending.add(read);
+            }
+        }
+
+        boolean changed = false;
+
+        for (Transition transition : new ArrayList<>(petriNet.getTransitions())) {
+            if (!relevantTransitions.contains(transition)) {
+                removeTransition(transition);
+                prunedTransitions++;
+                changed = true;
+            } else {
+                for (Postcondition postcondition : new ArrayList<>(petriNet.getPostconditions(transition)))
+                    if (!relevantPlaces.contains(postcondition.getPlace()))
+                        petriNet.removePostcondition(postcondition);
+            }
+        }
+
+        for (Place place : new ArrayList<>(petriNet.getPlaces())) {
+            if (!relevantPlaces.contains(place)) {
+                marking.setTokens(place, 0);
+                petriNet.removePlace(place);
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    private boolean removeDeadTransitions() {
+        Set<Place> marked = new HashSet<>();
+        Set<Transition> enabled = new HashSet<>();
+
+        for (Place place : petriNet.getPlaces())
+            if (marking.getTokens(place) > 0)
+                marked.add(place);
+
+        boolean grown = true;
+        while (grown) {
+            grown = false;
+
+            for (Transition transition : petriNet.getTransitions()) {
+                if (enabled.contains(transition))
+                    continue;
+
+                boolean enabling = true;
+                for (Precondition precondition : petriNet.getPreconditions(transition))
+                    enabling &= marked.contains(precondition.getPlace());
+
+                if (enabling) {
+                    enabled.add(transition);
+                    for (Postcondition postcondition : petriNet.getPostconditions(transition))
+                        marked.add(postcondition.getPlace());
+                    grown = true;
+                }
+            }
+        }
+
+        boolean changed = false;
+
+        for (Transition transition : new ArrayList<>(petriNet.getTransitions())) {
+            if (!enabled.contains(transition)) {
+                removeTransition(transition);
+                deadTransitions++;
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    private boolean fireInitialTransitions(Set<String> preserved) {
+        Set<String> referenced = referencedPlaces(preserved);
+        boolean uniformPriorities = hasUniformPriorities();
+        Set<Place> produced = new HashSet<>();
+        Map<Place, List<Precondition>> consumers = new HashMap<>();
+
+        for (Postcondition postcondition : petriNet.getPostconditions())
+            produced.add(postcondition.getPlace());
+        for (Precondition precondition : petriNet.getPreconditions())
+            consumers.computeIfAbsent(precondition.getPlace(), p -> new ArrayList<>()).add(precondition);
+
+        boolean changed = false;
+
+        for (Place place : new ArrayList<>(petriNet.getPlaces())) {
+            int tokens = marking.getTokens(place);
+            List<Precondition> outputs = consumers.getOrDefault(place, List.of());
+
+            if (tokens == 0 || produced.contains(place) || referenced.contains(place.getName()) || outputs.size() != 1)
+                continue;
+
+            Precondition precondition = outputs.get(0);
+            Transition transition = precondition.getTransition();
+
+            if (precondition.getMultiplicity() != 1 || !isUnguardedImmediate(transition, uniformPriorities)
+                    || petriNet.getPreconditions(transition).size() != 1)
+                continue;
+
+            for (Postcondition postcondition : petriNet.getPostconditions(transition))
+                marking.addTokens(postcondition.getPlace(), tokens * postcondition.getMultiplicity());
+
+            marking.setTokens(place, 0);
+            removeTransition(transition);
+            petriNet.removePlace(place);
+            firedTransitions++;
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    private boolean fuseSeries(Set<String> preserved) {
+        Set<String> referenced = referencedPlaces(preserved);
+        boolean uniformPriorities = hasUniformPriorities();
+        Map<Place, List<Postcondition>> producers = new HashMap<>();
+        Map<Place, List<Precondition>> consumers = new HashMap<>();
+
+        // Built once per pass and kept up to date by each fusion, which only changes the arcs of its neighbours
+        for (Postcondition postcondition : petriNet.getPostconditions())
+            producers.computeIfAbsent(postcondition.getPlace(), p -> new ArrayList<>()).add(postcondition);
+        for (Precondition precondition : petriNet.getPreconditions())
+            consumers.computeIfAbsent(precondition.getPlace(), p -> new ArrayList<>()).add(precondition);
+
+        boolean changed = false;
+
+        for (Place place : new ArrayList<>(petriNet.getPlaces())) {
+            List<Postcondition> inputs = producers.getOrDefault(place, List.of());
+            List<Precondition> outputs = consumers.getOrDefault(place, List.of());
+
+            if (inputs.size() != 1 || outputs.size() != 1 || marking.getTokens(place) > 0
+                    || referenced.contains(place.getName()))
+                continue;
+
+            Transition producer = inputs.get(0).getTransition();
+            Transition consumer = outputs.get(0).getTransition();
+
+            if (producer == consumer || inputs.get(0).getMultiplicity() != 1 || outputs.get(0).getMultiplicity() != 1
+                    || !isUnguardedImmediate(consumer, uniformPriorities)
+                    || petriNet.getPreconditions(consumer).size() != 1)
+                continue;
+
+            boolean overlapping = false;
+            for (Postcondition postcondition : petriNet.getPostconditions(consumer))
+                overlapping |= postcondition.getMultiplicity() != 1
+                        || petriNet.getPostcondition(producer, postcondition.getPlace()) != null;
+
+            if (overlapping)
+                continue;
+
+            List<Place> targets = new ArrayList<>();
+            for (Postcondition postcondition : petriNet.getPostconditions(consumer)) {
+                targets.add(postcondition.getPlace());
+                producers.get(postcondition.getPlace()).remove(postcondition);
+            }
+
+            petriNet.removePostcondition(inputs.get(0));
+            removeTransition(consumer);
+            petriNet.removePlace(place);
+            producers.remove(place);
+            consumers.remove(place);
+
+            for (Place target : targets) {
+                petriNet.addPostcondition(producer, target);
+                producers.get(target).add(petriNet.getPostcondition(producer, target));
+            }
+
+            fusedPlaces++;
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    /**
+     * Immediate transitions without enabling functions and inhibitor arcs fire as soon as their input places are
+     * marked, unless a priority orders them against other immediate transitions
+     */
+    private boolean isUnguardedImmediate(Transition transition, boolean uniformPriorities) {
+        StochasticTransitionFeature feature = transition.getFeature(StochasticTransitionFeature.class);
+
+        return feature != null && feature.isIMM() && !transition.hasFeature(EnablingFunction.class)
+                && petriNet.getInhibitorArcs(transition).isEmpty()
+                && (uniformPriorities || !transition.hasFeature(Priority.class));
+    }
+
+    /**
+     * Returns true if all the immediate transitions have the same priority, or none has one
+     */
+    private boolean hasUniformPriorities() {
+        Set<Integer> priorities = new HashSet<>();
+        boolean unprioritised = false;
+
+        for (Transition transition : petriNet.getTransitions()) {
+            StochasticTransitionFeature feature = transition.getFeature(StochasticTransitionFeature.class);
+
+            if (feature == null || !feature.isIMM())
+                continue;
+
+            if (transition.hasFeature(Priority.class))
+                priorities.add(transition.getFeature(Priority.class).value());
+            else
+                unprioritised = true;
+        }
+
+        return priorities.isEmpty() || (priorities.size() == 1 && !unprioritised);
+    }
+
+    /**
+     * Places whose marking a transition depends on: its input places, those of its inhibitor arcs and those named in
+     * its enabling function, weight and rate
+     */
+    private Set<Place> readPlaces(Transition transition) {
+        Set<Place> places = new HashSet<>();
+
+        for (Precondition precondition : petriNet.getPreconditions(transition))
+            places.add(precondition.getPlace());
+        for (InhibitorArc inhibitorArc : petriNet.getInhibitorArcs(transition))
+            places.add(inhibitorArc.getPlace());
+
+        for (String name : expressionIdentifiers(transition)) {
+            Place place = petriNet.getPlace(name);
+            if (place != null)
+                places.add(place);
+        }
+
+        return places;
+    }
+
+    private Set<String> referencedPlaces(Set<String> preserved) {
+        Set<String> referenced = new HashSet<>(preserved);
+
+        for (Transition transition : petriNet.getTransitions()) {
+            referenced.addAll(expressionIdentifiers(transition));
+            for (InhibitorArc inhibitorArc : petriNet.getInhibitorArcs(transition))
+                referenced.add(inhibitorArc.getPlace().getName());
+        }
+
+        return referenced;
+    }
+
+    private static Set<String> expressionIdentifiers(Transition transition) {
+        Set<String> identifiers = new HashSet<>();
+
+        if (transition.hasFeature(EnablingFunction.class))
+            identifiers.addAll(identifiers(transition.getFeature(EnablingFunction.class).toString()));
+
+        StochasticTransitionFeature feature = transition.getFeature(StochasticTransitionFeature.class);
+        if (feature != null) {
+            identifiers.addAll(identifiers(String.valueOf(feature.weight())));
+            identifiers.addAll(identifiers(String.valueOf(feature.clockRate())));
+        }
+
+        return identifiers;
+    }
+
+    private static Set<String> identifiers(String expression) {
+        Set<String> identifiers = new HashSet<>();
+        Matcher matcher = IDENTIFIER.matcher(expression);
+
+        while (matcher.find())
+            identifiers.add(matcher.group());
+
+        return identifiers;
+    }
+
+    private void removeTransition(Transition transition) {
+        for (Precondition precondition : new ArrayList<>(petriNet.getPreconditions(transition)))
+            petriNet.removePrecondition(precondition);
+        for (Postcondition postcondition : new ArrayList<>(petriNet.getPostconditions(transition)))
+            petriNet.removePostcondition(postcondition);
+
+        petriNet.removeTransition(transition);
+    }
+
+    public PetriNet getPetriNet() {
+        return petriNet;
+    }
+
+    public Marking getMarking() {
+        return marking;
+    }
+
+    public NetSize getBefore() {
+        return before;
+    }
+
+    public NetSize getAfter() {
+        return after;
+    }
+
+    public int getPrunedTransitions() {
+        return prunedTransitions;
+    }
+
+    public int getDeadTransitions() {
+        return deadTransitions;
+    }
+
+    public int getFiredTransitions() {
+        return firedTransitions;
+    }
+
+    public int getFusedPlaces() {
+        return fusedPlaces;
+    }
+
+    @Override
+    public String toString() {
+        return "Petri net reduced from " + before + " to " + after + ": " + prunedTransitions
+                + " irrelevant and " + deadTransitions + " dead transitions removed, " + firedTransitions
+                + " fired at time 0, " + fusedPlaces + " places fused";
+    }
+
+    /**
+     * Number of places, transitions (of which immediate) and arcs of a net
+     */
+    public static class NetSize {
+
+        private final int places;
+        private final int transitions;
+        private final int immediateTransitions;
+        private final int arcs;
+
+        private NetSize(int places, int transitions, int immediateTransitions, int arcs) {
+            this.places = places;
+            this.transitions = transitions;
+            this.immediateTransitions = immediateTransitions;
+            this.arcs = arcs;
+        }
+
+        public static NetSize of(PetriNet petriNet) {
+            Collection<Transition> transitions = petriNet.getTransitions();
+            int immediate = 0;
+            int inhibitorArcs = 0;
+
+            for (Transition transition : transitions) {
+                StochasticTransitionFeature feature = transition.getFeature(StochasticTransitionFeature.class);
+                if (feature != null && feature.isIMM())
+                    immediate++;
+                inhibitorArcs += petriNet.getInhibitorArcs(transition).size();
+            }
+
+            return new NetSize(petriNet.getPlaces().size(), transitions.size(), immediate,
+                    petriNet.getPreconditions().size() + petriNet.getPostconditions().size() + inhibitorArcs);
+        }
+
+        public int getPlaces() {
+            return places;
+        }
+
+        public int getTransitions() {
+            return transitions;
+        }
+
+        public int getImmediateTransitions() {
+            return immediateTransitions;
+        }
+
+        public int getArcs() {
+            return arcs;
+        }
+
+        @Override
+        public String toString() {
+            return places + " places, " + transitions + " transitions (" + immediateTransitions + " immediate), "
+                    + arcs + " arcs";
+        }
+    }
+}
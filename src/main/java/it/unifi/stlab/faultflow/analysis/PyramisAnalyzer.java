@@ -0,0 +1,190 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.analysis;
+
+import it.unifi.hierarchical.analysis.HierarchicalSMPAnalysis;
+import it.unifi.hierarchical.analysis.NumericalValues;
+import it.unifi.hierarchical.model.HSMP;
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.metrics.Timer;
+import it.unifi.stlab.transformation.HSMPParser;
+import it.unifi.stlab.transformation.faulttree.Gate;
+import it.unifi.stlab.transformation.faulttree.KOutN;
+import it.unifi.stlab.transformation.faulttree.Node;
+import it.unifi.stlab.transformation.faulttree.SharedNodeFinder;
+import it.unifi.stlab.transformation.faulttree.TabulatedEvent;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Computes the CDF of the top event of a fault tree with Pyramis over a uniform time grid.
+ *
+ * HierarchicalSMPAnalysis publishes its result through the static field HierarchicalSMPAnalysis.cdf: evaluations are
+ * therefore serialised on a JVM-wide lock and the values are copied into a CDFResult before the lock is released.
+ * Building and parsing the trees is left outside of the lock, so that independent evaluations submitted to an
+ * AnalysisPool only queue on the numerical part.
+ *
+ * Composite steps complete either on their first or on their last region, which covers K-out-of-N gates with k = 1 or
+ * k = n. The other voting gates are solved beforehand with AnalyticAnalyzer on the same grid and replaced by
+ * TabulatedEvents carrying their CDF.
+ *
+ * An evaluation cannot be interrupted once started: the budget of the current thread is charged with the states of
+ * the HSMP and an estimate of their memory before parsing it, and checked while waiting for the lock.
+ */
+public class PyramisAnalyzer implements TreeAnalyzer {
+
+    private static final ReentrantLock EVALUATION_LOCK = new ReentrantLock();
+    private static final long LOCK_POLL_MILLIS = 100;
+
+    private final double timeStep;
+    private final double timeLimit;
+
+    public PyramisAnalyzer(double timeStep, double timeLimit) {
+        if (timeStep <= 0 || timeLimit < 0)
+            throw new IllegalArgumentException("Invalid time grid: step " + timeStep + ", limit " + timeLimit);
+
+        this.timeStep = timeStep;
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * Parses the given fault tree into an HSMP and evaluates the CDF of its top event
+     */
+    @Override
+    public CDFResult evaluate(Node tree) {
+        Metrics metrics = Metrics.getInstance();
+        AnalysisBudget budget = AnalysisBudget.current();
+        Timer.Context parsing = metrics.start(Metrics.HSMP_PARSE);
+        SharedNodeFinder finder = new SharedNodeFinder();
+        finder.visit(tree);
+
+        double[] values;
+        long evaluationTime;
+
+        if (isVoting(tree)) {
+            long parseTime = parsing.stop();
+            CDFResult result = new AnalyticAnalyzer(timeStep, timeLimit).evaluate(tree);
+
+            return new CDFResult(result.getTimes(), result.getValues(), timeStep, timeLimit, parseTime,
+                    result.getEvaluationTime(), finder.getGateCount(), finder.getBasicEventCount());
+        }
+
+        long states = finder.getGateCount() + finder.getBasicEventCount();
+        long points = Math.round(timeLimit / timeStep) + 1;
+        budget.require(Metrics.HSMP_PARSE, states, states * points * AnalysisBudget.HSMP_BYTES_PER_POINT);
+
+        HSMP hsmp = HSMPParser.parseTree(reduceVotingGates(tree));
+        long parseTime = parsing.stop();
+
+        // Time spent waiting for the evaluations of other threads
+        Timer.Context waiting = metrics.start(Metrics.PYRAMIS_LOCK);
+        lock(budget);
+
+        try {
+            waiting.stop();
+            Timer.Context evaluation = metrics.start(Metrics.PYRAMIS_EVALUATE);
+            HierarchicalSMPAnalysis analysis = new HierarchicalSMPAnalysis(hsmp, 0);
+            analysis.evaluate(timeStep, timeLimit);
+            evaluationTime = evaluation.stop();
+
+            NumericalValues cdf = HierarchicalSMPAnalysis.cdf;
+            values = Arrays.copyOf(cdf.getValues(), cdf.getValues().length);
+        } finally {
+            EVALUATION_LOCK.unlock();
+        }
+
+        return new CDFResult(CDFResult.uniformGrid(timeStep, values.length), values, timeStep, timeLimit,
+                parseTime, evaluationTime, finder.getGateCount(), finder.getBasicEventCount());
+    }
+
+    // Waits for the lock as long as the budget allows
+    private static void lock(AnalysisBudget budget) {
+        try {
+            while (!EVALUATION_LOCK.tryLock(Math.min(LOCK_POLL_MILLIS, budget.getRemainingMillis()),
+                    TimeUnit.MILLISECONDS))
+                budget.checkpoint(Metrics.PYRAMIS_LOCK);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the Pyramis evaluation", e);
+        }
+    }
+
+    /**
+     * Returns a copy of the tree where the outermost K-out-of-N gates that are neither an OR nor an AND are replaced by
+     * TabulatedEvents, or the tree itself if there are none
+     */
+    Node reduceVotingGates(Node tree) {
+        if (!containsVoting(tree, Collections.newSetFromMap(new IdentityHashMap<>())))
+            return tree;
+
+        Node root = tree.copy();
+        AnalyticAnalyzer analyzer = new AnalyticAnalyzer(timeStep, timeLimit);
+        reduce(root, analyzer, Collections.newSetFromMap(new IdentityHashMap<>()));
+
+        return root;
+    }
+
+    private void reduce(Node node, AnalyticAnalyzer analyzer, Set<Node> visited) {
+        if (node.isBasicEvent() || !visited.add(node))
+            return;
+
+        Gate gate = (Gate) node;
+        gate.getChildren().replaceAll(child -> isVoting(child) ? new TabulatedEvent(((Gate) child).getName(),
+                timeStep, analyzer.evaluate(child).getValues()) : child);
+
+        for (Node child : gate.getChildren())
+            reduce(child, analyzer, visited);
+    }
+
+    private static boolean containsVoting(Node node, Set<Node> visited) {
+        if (node.isBasicEvent() || !visited.add(node))
+            return false;
+
+        if (isVoting(node))
+            return true;
+
+        for (Node child : node.getChildren())
+            if (containsVoting(child, visited))
+                return true;
+
+        return false;
+    }
+
+    private static boolean isVoting(Node node) {
+        return node instanceof KOutN && ((KOutN) node).getK() > 1
+                && ((KOutN) node).getK() < node.getChildren().size();
+    }
+
+    @Override
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    @Override
+    public double getTimeLimit() {
+        return timeLimit;
+    }
+}
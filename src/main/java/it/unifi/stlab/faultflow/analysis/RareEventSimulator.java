@@ -0,0 +1,534 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.analysis;
+
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.metrics.Timer;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
+import it.unifi.stlab.transformation.faulttree.AND;
+import it.unifi.stlab.transformation.faulttree.BasicEvent;
+import it.unifi.stlab.transformation.faulttree.Gate;
+import it.unifi.stlab.transformation.faulttree.KOutN;
+import it.unifi.stlab.transformation.faulttree.Node;
+import it.unifi.stlab.transformation.faulttree.OR;
+import it.unifi.stlab.transformation.faulttree.TabulatedEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Future;
+
+/**
+ * Estimates the CDF of the top event of a fault tree by simulating the failure times of its basic events, for trees
+ * whose failure is too rare for plain Monte Carlo to observe.
+ *
+ * Runs use importance sampling with balanced failure biasing: every basic event that may fail within the time limit
+ * is made to fail within it with probability at least the bias, by default the order of the smallest cut set over the
+ * number of such events, so that a run reaches a cut set with high probability. The failure time within the limit
+ * keeps its original conditional distribution, and each run is weighted by its likelihood ratio, so the estimate is
+ * unbiased. Runs are split into batches on an AnalysisPool until the relative error of the estimate at the time limit
+ * reaches the target or the maximum number of runs is spent.
+ *
+ * Distributions are tabulated on the time grid as in AnalyticAnalyzer, so both engines see the same model.
+ */
+public class RareEventSimulator implements TreeAnalyzer {
+
+    public static final long DEFAULT_RUNS = 1_000_000;
+    public static final double DEFAULT_RELATIVE_ERROR = 0.05;
+    public static final int BATCH_RUNS = 4096;
+    // Failure biasing never makes an event fail more often than not
+    static final double MAX_BIAS = 0.5;
+    // Hits needed before the relative error estimate is trusted for stopping
+    static final int MIN_HITS = 30;
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+
+    private final AnalyticAnalyzer grid;
+    private final double timeStep;
+    private final double timeLimit;
+    private final int length;
+    private final long maxRuns;
+    private final double targetRelativeError;
+    private final Double bias;
+    private final long seed;
+
+    /**
+     * Builds a simulator on the given time grid. A null bias selects balanced failure biasing, a zero bias plain
+     * Monte Carlo; a zero target relative error spends all the runs.
+     */
+    public RareEventSimulator(double timeStep, double timeLimit, long maxRuns, double targetRelativeError,
+                              Double bias, long seed) {
+        if (maxRuns < 1)
+            throw new IllegalArgumentException("The number of runs must be positive");
+
+        if (targetRelativeError < 0)
+            throw new IllegalArgumentException("The target relative error cannot be negative");
+
+        if (bias != null && (bias < 0 || bias >= 1))
+            throw new IllegalArgumentException("The failure bias must be in [0, 1)");
+
+        this.grid = new AnalyticAnalyzer(timeStep, timeLimit);
+        this.timeStep = timeStep;
+        this.timeLimit = timeLimit;
+        this.length = (int) Math.round(timeLimit / timeStep) + 1;
+        this.maxRuns = maxRuns;
+        this.targetRelativeError = targetRelativeError;
+        this.bias = bias;
+        this.seed = seed;
+    }
+
+    public RareEventSimulator(double timeStep, double timeLimit) {
+        this(timeStep, timeLimit, DEFAULT_RUNS, DEFAULT_RELATIVE_ERROR, null, System.nanoTime());
+    }
+
+    @Override
+    public CDFResult evaluate(Node tree) {
+        return simulate(tree);
+    }
+
+    /**
+     * Estimates the CDF of the top event of the given fault tree, along with its relative error. If the budget of the
+     * analysis is exhausted, the estimate of the runs completed so far is the partial result of the
+     * BudgetExceededException.
+     */
+    public SimulationResult simulate(Node tree) {
+        long start = System.currentTimeMillis();
+        Model model = new Model(tree);
+        long parseTime = System.currentTimeMillis() - start;
+        AnalysisBudget budget = AnalysisBudget.current();
+        budget.require(Metrics.SIMULATION, 0, (long) model.size() * length * Double.BYTES);
+
+        Timer.Context simulation = Metrics.getInstance().start(Metrics.SIMULATION);
+        int threads = Runtime.getRuntime().availableProcessors();
+        Tally total = new Tally(length);
+        long batch = 0;
+
+        try (AnalysisPool pool = new AnalysisPool(threads)) {
+            while (total.runs < maxRuns && !budget.isExhausted()) {
+                List<Future<Tally>> futures = new ArrayList<>();
+
+                for (int task = 0; task < threads && total.runs + (long) task * BATCH_RUNS < maxRuns; task++) {
+                    long runs = Math.min(BATCH_RUNS, maxRuns - total.runs - (long) task * BATCH_RUNS);
+                    SplittableRandom random = new SplittableRandom(seed + batch++ * 0x9E3779B97F4A7C15L);
+                    futures.add(pool.submitTask(() -> model.run(runs, random)));
+                }
+
+                for (Future<Tally> future : futures)
+                    total.add(AnalysisPool.get(future));
+
+                if (targetRelativeError > 0 && total.hits >= MIN_HITS
+                        && total.relativeError(length - 1) <= targetRelativeError)
+                    break;
+            }
+        }
+
+        long evaluationTime = simulation.stop();
+        SimulationResult result = new SimulationResult(CDFResult.uniformGrid(timeStep, length), total.estimates(),
+                total.relativeErrors(), timeStep, timeLimit, total.runs, total.hits, model.bias, parseTime,
+                evaluationTime, model.gates, model.basicEvents);
+
+        if (budget.isExhausted())
+            throw new BudgetExceededException(budget, Metrics.SIMULATION, result);
+
+        return result;
+    }
+
+    @Override
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    @Override
+    public double getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * Time at which the failure probability tabulated in the given CDF reaches u, interpolating between the points of
+     * the grid; infinite if it is not reached within the grid
+     */
+    double quantile(double[] cdf, double u) {
+        if (u > cdf[cdf.length - 1])
+            return Double.POSITIVE_INFINITY;
+
+        int index = Arrays.binarySearch(cdf, u);
+
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            // The first of equal points
+            while (index > 0 && cdf[index - 1] == u)
+                index--;
+        }
+
+        if (index == 0)
+            return 0;
+
+        double fraction = (u - cdf[index - 1]) / (cdf[index] - cdf[index - 1]);
+        return (index - 1 + fraction) * timeStep;
+    }
+
+    /**
+     * Fault tree compiled into arrays in topological order, children first, with the sampling law of every node
+     */
+    private class Model {
+
+        private final int[][] children;
+        private final int[] kinds;
+        private final int[] thresholds;
+        private final double[][] cdfs;
+        private final double[] probabilities;
+        private final double[] biased;
+        private final double[] routing;
+        private final double bias;
+        private final int gates;
+        private final int basicEvents;
+
+        private static final int EVENT = 0;
+        private static final int AND_GATE = 1;
+        private static final int OR_GATE = 2;
+        private static final int K_OUT_N_GATE = 3;
+
+        private Model(Node tree) {
+            List<Node> order = new ArrayList<>();
+            Map<Node, Integer> indexes = new IdentityHashMap<>();
+            sort(tree, order, indexes);
+
+            int size = order.size();
+            children = new int[size][];
+            kinds = new int[size];
+            thresholds = new int[size];
+            cdfs = new double[size][];
+            probabilities = new double[size];
+            biased = new double[size];
+            routing = new double[size];
+            Map<String, double[]> distributions = new HashMap<>();
+            int[] cutOrders = new int[size];
+            int gateCount = 0;
+            int candidates = 0;
+
+            for (int index = 0; index < size; index++) {
+                Node node = order.get(index);
+                routing[index] = 1;
+
+                if (node.isBasicEvent()) {
+                    kinds[index] = EVENT;
+                    cdfs[index] = table(node, distributions);
+                    probabilities[index] = Math.max(0, Math.min(1, cdfs[index][length - 1]));
+                    cutOrders[index] = probabilities[index] > 0 ? 1 : UNREACHABLE;
+
+                    if (probabilities[index] > 0 && probabilities[index] < 1)
+                        candidates++;
+
+                    continue;
+                }
+
+                Gate gate = (Gate) node;
+                gateCount++;
+                List<Node> gateChildren = gate.getChildren();
+                children[index] = new int[gateChildren.size()];
+                int[] childOrders = new int[gateChildren.size()];
+
+                for (int child = 0; child < gateChildren.size(); child++) {
+                    children[index][child] = indexes.get(gateChildren.get(child));
+                    childOrders[child] = cutOrders[children[index][child]];
+                }
+
+                Arrays.sort(childOrders);
+
+                if (gate instanceof AND) {
+                    kinds[index] = AND_GATE;
+                    cutOrders[index] = sum(childOrders, childOrders.length);
+                } else if (gate instanceof OR) {
+                    kinds[index] = OR_GATE;
+                    cutOrders[index] = childOrders.length > 0 ? childOrders[0] : UNREACHABLE;
+                } else if (gate instanceof KOutN) {
+                    kinds[index] = K_OUT_N_GATE;
+                    thresholds[index] = ((KOutN) gate).getK();
+                    cutOrders[index] = thresholds[index] > childOrders.length ? UNREACHABLE
+                            : sum(childOrders, Math.max(0, thresholds[index]));
+                } else {
+                    throw new UnsupportedOperationException("Gate type currently not supported");
+                }
+
+                ErrorMode errorMode = gate.getErrorMode();
+
+                if (errorMode != null && errorMode.getFaultToFailurePDFToString() != null) {
+                    double[] delay = distributions.computeIfAbsent(errorMode.getFaultToFailurePDFToString(),
+                            grid::tabulate);
+
+                    if (delay[0] < 1)
+                        cdfs[index] = delay;
+                }
+
+                Double routingProbability = gate.getRoutingProbability();
+
+                if (routingProbability != null && routingProbability < 1) {
+                    routing[index] = routingProbability;
+
+                    if (routingProbability <= 0)
+                        cutOrders[index] = UNREACHABLE;
+                }
+            }
+
+            int cutOrder = cutOrders[size - 1];
+            bias = RareEventSimulator.this.bias != null ? RareEventSimulator.this.bias
+                    : candidates == 0 || cutOrder >= UNREACHABLE ? 0
+                    : Math.min(MAX_BIAS, (double) cutOrder / candidates);
+
+            for (int index = 0; index < size; index++) {
+                if (kinds[index] == EVENT)
+                    biased[index] = probabilities[index] > 0 && probabilities[index] < 1
+                            ? Math.max(probabilities[index], bias) : probabilities[index];
+            }
+
+            gates = gateCount;
+            basicEvents = size - gateCount;
+        }
+
+        private int size() {
+            return kinds.length;
+        }
+
+        // Post-order visit: each node is listed once, after its children
+        private void sort(Node node, List<Node> order, Map<Node, Integer> indexes) {
+            if (indexes.containsKey(node))
+                return;
+
+            if (!node.isBasicEvent()) {
+                for (Node child : node.getChildren())
+                    sort(child, order, indexes);
+            }
+
+            indexes.put(node, order.size());
+            order.add(node);
+        }
+
+        private double[] table(Node node, Map<String, double[]> distributions) {
+            if (node instanceof TabulatedEvent) {
+                TabulatedEvent tabulatedEvent = (TabulatedEvent) node;
+                double[] cdf = new double[length];
+
+                for (int index = 0; index < length; index++)
+                    cdf[index] = tabulatedEvent.cdf(index * timeStep);
+
+                return cdf;
+            }
+
+            return distributions.computeIfAbsent(((BasicEvent) node).getFaultMode().getTimeToFaultPDFToString(),
+                    grid::tabulate);
+        }
+
+        /**
+         * Simulates the given number of runs, stopping early if the budget of the analysis is exhausted
+         */
+        private Tally run(long runs, SplittableRandom random) {
+            Tally tally = new Tally(length);
+            double[] times = new double[size()];
+            double[] scratch = new double[size()];
+            AnalysisBudget budget = AnalysisBudget.current();
+
+            for (long run = 0; run < runs; run++) {
+                if (run % 256 == 0) {
+                    try {
+                        budget.checkpoint(Metrics.SIMULATION);
+                    } catch (BudgetExceededException e) {
+                        break;
+                    }
+                }
+
+                double weight = 1;
+
+                for (int index = 0; index < times.length; index++) {
+                    if (kinds[index] == EVENT) {
+                        double probability = probabilities[index];
+                        double biasedProbability = biased[index];
+
+                        if (random.nextDouble() < biasedProbability) {
+                            // Failure within the time limit, with its original conditional distribution
+                            times[index] = quantile(cdfs[index], random.nextDouble() * probability);
+                            weight *= probability / biasedProbability;
+                        } else {
+                            times[index] = Double.POSITIVE_INFINITY;
+                            weight *= (1 - probability) / (1 - biasedProbability);
+                        }
+                    } else {
+                        times[index] = fail(index, trigger(index, times, scratch), random);
+                    }
+                }
+
+                tally.record(times[times.length - 1], weight);
+            }
+
+            return tally;
+        }
+
+        // Time at which the children of the gate trigger it
+        private double trigger(int gate, double[] times, double[] scratch) {
+            int[] gateChildren = children[gate];
+
+            switch (kinds[gate]) {
+                case AND_GATE:
+                    double latest = gateChildren.length > 0 ? 0 : Double.POSITIVE_INFINITY;
+
+                    for (int child : gateChildren)
+                        latest = Math.max(latest, times[child]);
+
+                    return latest;
+                case OR_GATE:
+                    double earliest = Double.POSITIVE_INFINITY;
+
+                    for (int child : gateChildren)
+                        earliest = Math.min(earliest, times[child]);
+
+                    return earliest;
+                default:
+                    int k = thresholds[gate];
+
+                    if (k <= 0)
+                        return 0;
+
+                    if (k > gateChildren.length)
+                        return Double.POSITIVE_INFINITY;
+
+                    for (int child = 0; child < gateChildren.length; child++)
+                        scratch[child] = times[gateChildren[child]];
+
+                    Arrays.sort(scratch, 0, gateChildren.length);
+                    return scratch[k - 1];
+            }
+        }
+
+        // Failure time of the gate: delayed by its fault-to-failure distribution and never reached with 1 - routing
+        private double fail(int gate, double triggered, SplittableRandom random) {
+            if (triggered > timeLimit)
+                return Double.POSITIVE_INFINITY;
+
+            if (routing[gate] < 1 && random.nextDouble() >= routing[gate])
+                return Double.POSITIVE_INFINITY;
+
+            if (cdfs[gate] != null)
+                triggered += quantile(cdfs[gate], random.nextDouble());
+
+            return triggered;
+        }
+
+        private int sum(int[] sorted, int count) {
+            long total = 0;
+
+            for (int index = 0; index < count; index++)
+                total += sorted[index];
+
+            return (int) Math.min(UNREACHABLE, total);
+        }
+    }
+
+    /**
+     * Weighted counts of the runs whose top event failed by each point of the grid
+     */
+    private class Tally {
+
+        private final double[] weights;
+        private final double[] squares;
+        private long runs;
+        private long hits;
+
+        private Tally(int length) {
+            weights = new double[length];
+            squares = new double[length];
+        }
+
+        private void record(double time, double weight) {
+            runs++;
+
+            if (time > timeLimit + timeStep * 1e-9)
+                return;
+
+            // Counted at the first point of the grid not earlier than the failure
+            int point = (int) Math.max(0, Math.ceil(time / timeStep - 1e-9));
+            weights[point] += weight;
+            squares[point] += weight * weight;
+            hits++;
+        }
+
+        private void add(Tally other) {
+            for (int point = 0; point < weights.length; point++) {
+                weights[point] += other.weights[point];
+                squares[point] += other.squares[point];
+            }
+
+            runs += other.runs;
+            hits += other.hits;
+        }
+
+        private double[] estimates() {
+            double[] estimates = new double[weights.length];
+            double cumulated = 0;
+
+            for (int point = 0; point < weights.length; point++) {
+                cumulated += weights[point];
+                estimates[point] = runs > 0 ? Math.min(1, cumulated / runs) : 0;
+            }
+
+            return estimates;
+        }
+
+        private double[] relativeErrors() {
+            double[] errors = new double[weights.length];
+            double weight = 0;
+            double square = 0;
+
+            for (int point = 0; point < weights.length; point++) {
+                weight += weights[point];
+                square += squares[point];
+                errors[point] = relativeError(weight, square);
+            }
+
+            return errors;
+        }
+
+        private double relativeError(int point) {
+            double weight = 0;
+            double square = 0;
+
+            for (int index = 0; index <= point; index++) {
+                weight += weights[index];
+                square += squares[index];
+            }
+
+            return relativeError(weight, square);
+        }
+
+        /**
+         * Standard error of the estimate with the given cumulated weights over the estimate, NaN without hits
+         */
+        private double relativeError(double weight, double square) {
+            if (runs == 0 || weight == 0)
+                return Double.NaN;
+
+            double mean = weight / runs;
+            double variance = Math.max(0, square / runs - mean * mean) / runs;
+            return Math.sqrt(variance) / mean;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.analysis;
+
+/**
+ * CDF of a fault tree top event estimated by a RareEventSimulator, with the relative error of the estimate at every
+ * point of the grid: the standard error over the estimate, NaN where no run failed.
+ */
+public class SimulationResult extends CDFResult {
+
+    private final double[] relativeErrors;
+    private final long runs;
+    private final long hits;
+    private final double bias;
+
+    public SimulationResult(double[] times, double[] values, double[] relativeErrors, double timeStep,
+                            double timeLimit, long runs, long hits, double bias, long parseTime, long evaluationTime,
+                            int gates, int basicEvents) {
+        super(times, values, timeStep, timeLimit, parseTime, evaluationTime, gates, basicEvents);
+
+        if (relativeErrors.length != values.length)
+            throw new IllegalArgumentException("Values and relative errors must have the same length");
+
+        this.relativeErrors = relativeErrors;
+        this.runs = runs;
+        this.hits = hits;
+        this.bias = bias;
+    }
+
+    public double[] getRelativeErrors() {
+        return relativeErrors;
+    }
+
+    /**
+     * Returns the relative error of the estimate at the time limit
+     */
+    public double getRelativeError() {
+        return relativeErrors[relativeErrors.length - 1];
+    }
+
+    public long getRuns() {
+        return runs;
+    }
+
+    /**
+     * Returns the number of runs in which the top event failed within the time limit
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the minimum probability of failing within the time limit given to the basic events, 0 for plain Monte
+     * Carlo
+     */
+    public double getBias() {
+        return bias;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.analysis;
+
+import it.unifi.stlab.faultflow.exporter.PetriNetExportMethod;
+import it.unifi.stlab.faultflow.metrics.AnalysisTrace;
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.model.knowledge.composition.ComponentType;
+import it.unifi.stlab.faultflow.model.knowledge.composition.SystemType;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.PropagationPortType;
+import it.unifi.stlab.faultflow.model.operational.Scenario;
+import it.unifi.stlab.faultflow.translator.PetriNetTranslator;
+import org.oristool.models.stpn.RewardRate;
+import org.oristool.models.stpn.TransientSolution;
+import org.oristool.models.stpn.trees.DeterministicEnablingState;
+import org.oristool.petrinet.Marking;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes the CDF of the failure of an error mode with a regenerative transient analysis of the Petri net of the
+ * whole system, as done by AnalysisLauncher. Unlike the fault tree engines, it supports shared events with any delay
+ * and the fault and failure occurrences of an operational scenario, which decorate the net before the analysis.
+ * Without a scenario, replicated exponential faults are lumped into counting places. The result does not count gates
+ * and basic events, since no fault tree is built.
+ */
+public class SirioAnalyzer {
+
+    private final double timeStep;
+    private final double timeLimit;
+    private final double error;
+
+    public SirioAnalyzer(double timeStep, double timeLimit, double error) {
+        if (timeStep <= 0 || timeLimit < 0)
+            throw new IllegalArgumentException("Invalid time grid: step " + timeStep + ", limit " + timeLimit);
+
+        this.timeStep = timeStep;
+        this.timeLimit = timeLimit;
+        this.error = error;
+    }
+
+    public SirioAnalyzer(double timeStep, double timeLimit) {
+        this(timeStep, timeLimit, 0);
+    }
+
+    /**
+     * Evaluates the CDF of the outgoing failure of the error mode; the scenario may be null. If the budget of the
+     * current thread is exhausted during the exploration, the CDF computed on the classes explored so far is thrown
+     * as the partial result of a BudgetExceededException.
+     */
+    public CDFResult evaluate(SystemType system, ErrorMode errorMode, Scenario scenario) {
+        AnalysisBudget budget = AnalysisBudget.current();
+        budget.checkpoint(Metrics.SIRIO_TRANSLATE);
+        long start = System.currentTimeMillis();
+        PetriNetTranslator pnt = new PetriNetTranslator();
+        pnt.translate(system, PetriNetExportMethod.FAULT_ANALYSIS);
+
+        if (scenario != null)
+            scenario.accept(pnt);
+
+        List<PropagationPortType> propagationPorts = new ArrayList<>();
+        List<ErrorMode> errorModes = new ArrayList<>();
+
+        for (ComponentType component : system.getComponents()) {
+            propagationPorts.addAll(component.getPropagationPorts());
+            errorModes.addAll(component.getErrorModes());
+        }
+
+        String failureName = errorMode.getOutgoingFailure().getDescription();
+        PetriNetReducer reducer = new PetriNetReducer(pnt.getPetriNet(), pnt.getMarking());
+        reducer.reduce(failureName, propagationPorts, errorModes);
+        Marking marking = reducer.getMarking();
+
+        // The places of single faults must be kept for the scenario
+        if (scenario == null) {
+            PetriNetLumper lumper = new PetriNetLumper(reducer.getPetriNet(), marking);
+            lumper.lump(system);
+            marking = lumper.getMarking();
+        }
+
+        PetriNetStructuralReducer structuralReducer = new PetriNetStructuralReducer(reducer.getPetriNet(), marking);
+        structuralReducer.reduce(failureName);
+        long parseTime = System.currentTimeMillis() - start;
+        budget.checkpoint(Metrics.SIRIO_REDUCE);
+
+        AnalysisTrace trace = Metrics.getInstance().currentTrace();
+        if (trace != null) {
+            trace.setAttribute("netBefore", structuralReducer.getBefore());
+            trace.setAttribute("netAfter", structuralReducer.getAfter());
+        }
+
+        start = System.currentTimeMillis();
+        PetriNetAnalyzer analyzer = new PetriNetAnalyzer(structuralReducer.getPetriNet(),
+                structuralReducer.getMarking());
+        TransientSolution<DeterministicEnablingState, RewardRate> rewards = analyzer.regenerativeTransient(failureName,
+                BigDecimal.valueOf(timeLimit), BigDecimal.valueOf(timeStep), BigDecimal.valueOf(error));
+        long evaluationTime = System.currentTimeMillis() - start;
+
+        double[] values = new double[rewards.getSolution().length];
+        for (int index = 0; index < values.length; index++)
+            values[index] = rewards.getSolution()[index][0][0];
+
+        CDFResult result = new CDFResult(CDFResult.uniformGrid(rewards.getStep().doubleValue(), values.length), values,
+                timeStep, timeLimit, parseTime, evaluationTime, 0, 0);
+
+        if (budget.isExhausted())
+            throw new BudgetExceededException(budget, Metrics.SIRIO_EXPLORE, result);
+
+        return result;
+    }
+
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    public double getTimeLimit() {
+        return timeLimit;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.analysis;
+
+import java.util.List;
+
+/**
+ * CDFs of the top event computed by a ParameterSweep, one for each combination of the parameter values
+ */
+public class SweepResult {
+
+    private final List<String> parameters;
+    private final List<double[]> combinations;
+    private final double[] times;
+    private final List<double[]> values;
+    private final double timeStep;
+    private final int reusedModules;
+    private final long elapsedTime;
+
+    public SweepResult(List<String> parameters, List<double[]> combinations, double[] times, List<double[]> values,
+                       double timeStep, int reusedModules, long elapsedTime) {
+        this.parameters = parameters;
+        this.combinations = combinations;
+        this.times = times;
+        this.values = values;
+        this.timeStep = timeStep;
+        this.reusedModules = reusedModules;
+        this.elapsedTime = elapsedTime;
+    }
+
+    /**
+     * Returns the CDF of the top event at the given time for each combination, taken at the nearest point of the grid
+     */
+    public double[] getValuesAt(double time) {
+        double[] result = new double[values.size()];
+
+        for (int index = 0; index < result.length; index++) {
+            double[] cdf = values.get(index);
+            int point = (int) Math.min(cdf.length - 1, Math.max(0, Math.round(time / timeStep)));
+            result[index] = cdf[point];
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the labels of the parameters, in the order of the values of each combination
+     */
+    public List<String> getParameters() {
+        return parameters;
+    }
+
+    public List<double[]> getCombinations() {
+        return combinations;
+    }
+
+    public double[] getTimes() {
+        return times;
+    }
+
+    /**
+     * Returns the CDF of the top event for each combination, in the order of the combinations
+     */
+    public List<double[]> getValues() {
+        return values;
+    }
+
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * Returns the number of modules not depending on any parameter, solved once for all the combinations
+     */
+    public int getReusedModules() {
+        return reusedModules;
+    }
+
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+}
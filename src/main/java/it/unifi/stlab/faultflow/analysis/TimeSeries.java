@@ -0,0 +1,269 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.analysis;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable set of named value columns sharing the same time grid, together with the time spent computing them.
+ * It is the full resolution form in which analysis results are cached; windowing, striding and downsampling return
+ * new series and never modify the original one. The getters return copies of the time grid and of the columns,
+ * since cached series are shared by all the requests; the arrays given to the constructors are kept as they are and
+ * must not be modified afterwards.
+ */
+public class TimeSeries {
+
+    private final double[] times;
+    private final Map<String, double[]> columns;
+    private final long elapsedTime;
+    private final double errorBound;
+
+    public TimeSeries(double[] times, Map<String, double[]> columns, long elapsedTime) {
+        this(times, columns, elapsedTime, 0);
+    }
+
+    /**
+     * Creates a series whose values are approximated, e.g. because of a truncation, within the given error bound
+     */
+    public TimeSeries(double[] times, Map<String, double[]> columns, long elapsedTime, double errorBound) {
+        for (Map.Entry<String, double[]> column : columns.entrySet()) {
+            if (column.getValue().length != times.length)
+                throw new IllegalArgumentException("Column " + column.getKey() + " does not match the time grid");
+        }
+
+        this.times = times;
+        this.columns = new LinkedHashMap<>(columns);
+        this.elapsedTime = elapsedTime;
+        this.errorBound = errorBound;
+    }
+
+    public TimeSeries(CDFResult cdf, String name) {
+        this(cdf.getTimes(), Map.of(name, cdf.getValues()), cdf.getEvaluationTime());
+    }
+
+    public double[] getTimes() {
+        return times.clone();
+    }
+
+    /**
+     * Returns an unmodifiable copy of the columns, in their order
+     */
+    public Map<String, double[]> getColumns() {
+        Map<String, double[]> copy = new LinkedHashMap<>();
+
+        for (Map.Entry<String, double[]> column : columns.entrySet())
+            copy.put(column.getKey(), column.getValue().clone());
+
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Returns a copy of the named column, null if there is none
+     */
+    public double[] getColumn(String name) {
+        double[] column = columns.get(name);
+        return column != null ? column.clone() : null;
+    }
+
+    public Set<String> getColumnNames() {
+        return Collections.unmodifiableSet(columns.keySet());
+    }
+
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    public double getErrorBound() {
+        return errorBound;
+    }
+
+    public int size() {
+        return times.length;
+    }
+
+    /**
+     * Keeps the points whose time lies in [from, to]; null bounds leave the corresponding side open
+     */
+    public TimeSeries window(Double from, Double to) {
+        int start = from == null ? 0 : lowerBound(from);
+        int end = to == null ? times.length : upperBound(to);
+
+        if (start == 0 && end == times.length)
+            return this;
+
+        int[] indexes = new int[Math.max(0, end - start)];
+
+        for (int index = 0; index < indexes.length; index++)
+            indexes[index] = start + index;
+
+        return select(indexes);
+    }
+
+    /**
+     * Keeps one point every stride points, always including the last one
+     */
+    public TimeSeries stride(int stride) {
+        if (stride <= 1 || times.length <= 2)
+            return this;
+
+        int count = (times.length - 1) / stride + 1;
+        boolean lastIncluded = (times.length - 1) % stride == 0;
+        int[] indexes = new int[lastIncluded ? count : count + 1];
+
+        for (int index = 0; index < count; index++)
+            indexes[index] = index * stride;
+
+        if (!lastIncluded)
+            indexes[count] = times.length - 1;
+
+        return select(indexes);
+    }
+
+    /**
+     * Reduces the series to the given number of points with the Largest-Triangle-Three-Buckets algorithm, which keeps
+     * the visual shape of the curves. The same points are selected for every column: in each bucket the chosen point
+     * maximises the sum over the columns of the triangle areas, each normalised by the range of its column.
+     */
+    public TimeSeries downsample(int points) {
+        int length = times.length;
+
+        if (points >= length || points < 3)
+            return this;
+
+        double[] scales = new double[columns.size()];
+        double[][] values = columns.values().toArray(new double[0][]);
+
+        for (int column = 0; column < values.length; column++) {
+            double min = Arrays.stream(values[column]).min().orElse(0);
+            double max = Arrays.stream(values[column]).max().orElse(0);
+            scales[column] = max > min ? 1 / (max - min) : 0;
+        }
+
+        int[] indexes = new int[points];
+        double bucketSize = (double) (length - 2) / (points - 2);
+        int previous = 0;
+        indexes[0] = 0;
+
+        for (int bucket = 0; bucket < points - 2; bucket++) {
+            // Average point of the next bucket, the third vertex of the triangles
+            int nextStart = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, length);
+            double averageTime = 0;
+            double[] averageValues = new double[values.length];
+
+            for (int index = nextStart; index < nextEnd; index++) {
+                averageTime += times[index];
+                for (int column = 0; column < values.length; column++)
+                    averageValues[column] += values[column][index];
+            }
+
+            int nextCount = nextEnd - nextStart;
+            averageTime /= nextCount;
+            for (int column = 0; column < values.length; column++)
+                averageValues[column] /= nextCount;
+
+            int start = (int) Math.floor(bucket * bucketSize) + 1;
+            int end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            double maxArea = -1;
+            int selected = start;
+
+            for (int index = start; index < end; index++) {
+                double area = 0;
+
+                for (int column = 0; column < values.length; column++) {
+                    double previousValue = values[column][previous];
+                    area += scales[column] * Math.abs((times[previous] - averageTime) * (values[column][index] - previousValue)
+                            - (times[previous] - times[index]) * (averageValues[column] - previousValue));
+                }
+
+                if (area > maxArea) {
+                    maxArea = area;
+                    selected = index;
+                }
+            }
+
+            indexes[bucket + 1] = selected;
+            previous = selected;
+        }
+
+        indexes[points - 1] = length - 1;
+
+        return select(indexes);
+    }
+
+    private TimeSeries select(int[] indexes) {
+        double[] selectedTimes = new double[indexes.length];
+
+        for (int index = 0; index < indexes.length; index++)
+            selectedTimes[index] = times[indexes[index]];
+
+        Map<String, double[]> selectedColumns = new LinkedHashMap<>();
+
+        for (Map.Entry<String, double[]> column : columns.entrySet()) {
+            double[] selectedValues = new double[indexes.length];
+
+            for (int index = 0; index < indexes.length; index++)
+                selectedValues[index] = column.getValue()[indexes[index]];
+
+            selectedColumns.put(column.getKey(), selectedValues);
+        }
+
+        return new TimeSeries(selectedTimes, selectedColumns, elapsedTime, errorBound);
+    }
+
+    // First index whose time is not lower than the given one
+    private int lowerBound(double time) {
+        int low = 0;
+        int high = times.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (times[middle] < time)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        return low;
+    }
+
+    // First index whose time is greater than the given one
+    private int upperBound(double time) {
+        int low = 0;
+        int high = times.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (times[middle] <= time)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        return low;
+    }
+}
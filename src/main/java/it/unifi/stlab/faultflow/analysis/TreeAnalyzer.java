@@ -0,0 +1,51 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.analysis;
+
+import it.unifi.stlab.transformation.faulttree.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluation of the CDF of the top event of a fault tree on a uniform time grid
+ */
+public interface TreeAnalyzer {
+
+    CDFResult evaluate(Node tree);
+
+    /**
+     * Evaluates the CDFs of the top events of several fault trees, which may share sub-trees, returning them in the
+     * same order. Analyzers able to evaluate the shared sub-trees once override it.
+     */
+    default List<CDFResult> evaluateAll(List<Node> trees) {
+        List<CDFResult> results = new ArrayList<>();
+
+        for (Node tree : trees)
+            results.add(evaluate(tree));
+
+        return results;
+    }
+
+    double getTimeStep();
+
+    double getTimeLimit();
+}
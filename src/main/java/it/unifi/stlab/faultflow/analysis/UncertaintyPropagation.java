@@ -0,0 +1,317 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.analysis;
+
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.metrics.Timer;
+import it.unifi.stlab.transformation.faulttree.Node;
+import org.apache.commons.math3.distribution.LogNormalDistribution;
+import org.apache.commons.math3.distribution.NormalDistribution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Propagates the epistemic uncertainty of the arguments of the PDFs of a fault tree, such as failure rates known up to
+ * a lognormal error factor, to the CDF of its top event: the arguments are sampled from their distributions, the tree
+ * is evaluated for every sample and the percentiles of the CDF over the samples are returned at each time.
+ *
+ * Samples are drawn by Latin hypercube sampling, so that each distribution is covered evenly even by few samples, and
+ * evaluated by a ParameterSweep: the modules of the tree that no uncertain argument affects are solved once, and the
+ * samples are evaluated in parallel, each one copying only the gates above the changed events.
+ */
+public class UncertaintyPropagation {
+
+    public static final int DEFAULT_SAMPLES = 100;
+    public static final double[] DEFAULT_PERCENTILES = {5, 50, 95};
+
+    private final TreeAnalyzer analyzer;
+    private final List<Uncertainty> uncertainties;
+    private final int samples;
+    private final double[] percentiles;
+    private final long seed;
+
+    public UncertaintyPropagation(TreeAnalyzer analyzer, List<Uncertainty> uncertainties, int samples,
+                                  double[] percentiles, long seed) {
+        if (uncertainties.isEmpty())
+            throw new IllegalArgumentException("At least one uncertain argument must be given");
+
+        if (samples < 2)
+            throw new IllegalArgumentException("At least 2 samples are needed");
+
+        if (percentiles.length == 0)
+            throw new IllegalArgumentException("At least one percentile must be requested");
+
+        for (double percentile : percentiles) {
+            if (percentile < 0 || percentile > 100)
+                throw new IllegalArgumentException("Invalid percentile: " + percentile);
+        }
+
+        this.analyzer = analyzer;
+        this.uncertainties = List.copyOf(uncertainties);
+        this.samples = samples;
+        this.percentiles = percentiles.clone();
+        this.seed = seed;
+    }
+
+    /**
+     * Evaluates the tree for every sample of the uncertain arguments. The given tree is not changed.
+     */
+    public UncertaintyResult evaluate(Node tree) {
+        Timer.Context propagation = Metrics.getInstance().start(Metrics.UNCERTAINTY);
+        double[][] values = sample();
+        List<ParameterSweep.Parameter> parameters = new ArrayList<>();
+
+        for (int index = 0; index < uncertainties.size(); index++) {
+            Uncertainty uncertainty = uncertainties.get(index);
+            parameters.add(new ParameterSweep.Parameter(uncertainty.getTarget(), uncertainty.getName(),
+                    uncertainty.getArgument(), values[index]));
+        }
+
+        SweepResult sweep = new ParameterSweep(analyzer, parameters).evaluate(tree, zip(values));
+        double[] times = sweep.getTimes();
+        List<double[]> bands = new ArrayList<>();
+        double[] mean = new double[times.length];
+
+        for (int band = 0; band < percentiles.length; band++)
+            bands.add(new double[times.length]);
+
+        double[] sorted = new double[samples];
+
+        for (int time = 0; time < times.length; time++) {
+            double sum = 0;
+
+            for (int sample = 0; sample < samples; sample++) {
+                sorted[sample] = sweep.getValues().get(sample)[time];
+                sum += sorted[sample];
+            }
+
+            Arrays.sort(sorted);
+            mean[time] = sum / samples;
+
+            for (int band = 0; band < percentiles.length; band++)
+                bands.get(band)[time] = percentile(sorted, percentiles[band]);
+        }
+
+        List<String> labels = new ArrayList<>();
+
+        for (Uncertainty uncertainty : uncertainties)
+            labels.add(uncertainty.toString());
+
+        return new UncertaintyResult(labels, percentiles.clone(), times, bands, mean, samples,
+                analyzer.getTimeStep(), sweep.getReusedModules(), propagation.stop());
+    }
+
+    /* Latin hypercube sample: the range of probabilities of each distribution is split into as many strata as
+    samples, and each stratum is sampled once, in an independent random order for each argument */
+    private double[][] sample() {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[][] values = new double[uncertainties.size()][samples];
+
+        for (int index = 0; index < uncertainties.size(); index++) {
+            int[] strata = new int[samples];
+
+            for (int stratum = 0; stratum < samples; stratum++)
+                strata[stratum] = stratum;
+
+            for (int stratum = samples - 1; stratum > 0; stratum--) {
+                int other = random.nextInt(stratum + 1);
+                int swap = strata[stratum];
+                strata[stratum] = strata[other];
+                strata[other] = swap;
+            }
+
+            // Probabilities are kept above 0, where the quantile of a lognormal distribution is 0
+            for (int sample = 0; sample < samples; sample++)
+                values[index][sample] = uncertainties.get(index).quantile(Math.max(Double.MIN_NORMAL,
+                        (strata[sample] + random.nextDouble()) / samples));
+        }
+
+        return values;
+    }
+
+    // The i-th combination takes the i-th sample of every argument
+    private Iterator<double[]> zip(double[][] values) {
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < samples;
+            }
+
+            @Override
+            public double[] next() {
+                if (next >= samples)
+                    throw new NoSuchElementException();
+
+                double[] combination = new double[values.length];
+
+                for (int index = 0; index < values.length; index++)
+                    combination[index] = values[index][next];
+
+                next++;
+                return combination;
+            }
+        };
+    }
+
+    // Percentile of sorted values, interpolating linearly between the closest ranks
+    static double percentile(double[] sorted, double percentile) {
+        double position = percentile / 100 * (sorted.length - 1);
+        int lower = (int) Math.floor(position);
+        int upper = Math.min(sorted.length - 1, lower + 1);
+        return sorted[lower] + (position - lower) * (sorted[upper] - sorted[lower]);
+    }
+
+    public List<Uncertainty> getUncertainties() {
+        return uncertainties;
+    }
+
+    public int getSamples() {
+        return samples;
+    }
+
+    /**
+     * An uncertain argument of a PDF, identified as a swept ParameterSweep.Parameter, with the distribution of its
+     * values: lognormal(median,errorFactor), where the error factor is the ratio of the 95th percentile to the median,
+     * loguniform(min,max) or uniform(min,max)
+     */
+    public static class Uncertainty {
+
+        // 95th percentile of the standard normal distribution
+        private static final double Z_95 = new NormalDistribution().inverseCumulativeProbability(0.95);
+
+        private final ParameterSweep.Parameter.Target target;
+        private final String name;
+        private final int argument;
+        private final String distribution;
+        private final DoubleUnaryOperator quantile;
+
+        public Uncertainty(ParameterSweep.Parameter.Target target, String name, int argument, String distribution) {
+            if (argument < 0)
+                throw new IllegalArgumentException("Invalid argument position: " + argument);
+
+            this.target = target;
+            this.name = name;
+            this.argument = argument;
+            this.distribution = distribution.trim();
+            this.quantile = quantileOf(this.distribution);
+        }
+
+        /**
+         * Parses an uncertain argument written as name:argument:distribution, such as pump:0:lognormal(0.0001,3)
+         */
+        public static Uncertainty parse(ParameterSweep.Parameter.Target target, String specification) {
+            String[] parts = specification.split(":");
+
+            if (parts.length != 3)
+                throw new IllegalArgumentException("Invalid uncertain argument " + specification
+                        + ", expected name:argument:distribution");
+
+            try {
+                return new Uncertainty(target, parts[0].trim(), Integer.parseInt(parts[1].trim()), parts[2]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid uncertain argument " + specification + ": "
+                        + e.getMessage());
+            }
+        }
+
+        private static DoubleUnaryOperator quantileOf(String distribution) {
+            int open = distribution.indexOf('(');
+            int close = distribution.lastIndexOf(')');
+
+            if (open < 0 || close < open)
+                throw new IllegalArgumentException("Invalid distribution: " + distribution);
+
+            String type = distribution.substring(0, open).trim().toLowerCase();
+            double[] arguments;
+
+            try {
+                arguments = Arrays.stream(distribution.substring(open + 1, close).split(",")).map(String::trim)
+                        .mapToDouble(Double::parseDouble).toArray();
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid distribution " + distribution + ": " + e.getMessage());
+            }
+
+            if (arguments.length != 2)
+                throw new IllegalArgumentException("The distribution " + distribution + " needs 2 arguments");
+
+            double first = arguments[0];
+            double second = arguments[1];
+
+            switch (type) {
+                case "lognormal":
+                    if (first <= 0 || second < 1)
+                        throw new IllegalArgumentException("A lognormal distribution needs a positive median and an"
+                                + " error factor of at least 1");
+
+                    if (second == 1)
+                        return probability -> first;
+
+                    LogNormalDistribution logNormal = new LogNormalDistribution(Math.log(first),
+                            Math.log(second) / Z_95);
+                    return logNormal::inverseCumulativeProbability;
+                case "loguniform":
+                    if (first <= 0 || second < first)
+                        throw new IllegalArgumentException("A loguniform distribution needs 0 < min <= max");
+
+                    return probability -> first * Math.pow(second / first, probability);
+                case "uniform":
+                    if (second < first)
+                        throw new IllegalArgumentException("A uniform distribution needs min <= max");
+
+                    return probability -> first + probability * (second - first);
+                default:
+                    throw new IllegalArgumentException("Unknown distribution: " + distribution);
+            }
+        }
+
+        double quantile(double probability) {
+            return quantile.applyAsDouble(probability);
+        }
+
+        public ParameterSweep.Parameter.Target getTarget() {
+            return target;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getArgument() {
+            return argument;
+        }
+
+        public String getDistribution() {
+            return distribution;
+        }
+
+        @Override
+        public String toString() {
+            return name + "[" + argument + "] ~ " + distribution;
+        }
+    }
+}
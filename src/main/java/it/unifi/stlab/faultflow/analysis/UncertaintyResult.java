@@ -0,0 +1,99 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.analysis;
+
+import java.util.List;
+
+/**
+ * Percentiles and mean of the CDF of the top event over the samples of an UncertaintyPropagation, at each time
+ */
+public class UncertaintyResult {
+
+    private final List<String> uncertainties;
+    private final double[] percentiles;
+    private final double[] times;
+    private final List<double[]> bands;
+    private final double[] mean;
+    private final int samples;
+    private final double timeStep;
+    private final int reusedModules;
+    private final long elapsedTime;
+
+    public UncertaintyResult(List<String> uncertainties, double[] percentiles, double[] times, List<double[]> bands,
+                             double[] mean, int samples, double timeStep, int reusedModules, long elapsedTime) {
+        if (bands.size() != percentiles.length)
+            throw new IllegalArgumentException("One band is needed for each percentile");
+
+        this.uncertainties = uncertainties;
+        this.percentiles = percentiles;
+        this.times = times;
+        this.bands = bands;
+        this.mean = mean;
+        this.samples = samples;
+        this.timeStep = timeStep;
+        this.reusedModules = reusedModules;
+        this.elapsedTime = elapsedTime;
+    }
+
+    /**
+     * Returns the labels of the uncertain arguments and of their distributions
+     */
+    public List<String> getUncertainties() {
+        return uncertainties;
+    }
+
+    public double[] getPercentiles() {
+        return percentiles;
+    }
+
+    public double[] getTimes() {
+        return times;
+    }
+
+    /**
+     * Returns the CDF of the top event at each percentile, in the order of the percentiles
+     */
+    public List<double[]> getBands() {
+        return bands;
+    }
+
+    public double[] getMean() {
+        return mean;
+    }
+
+    public int getSamples() {
+        return samples;
+    }
+
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * Returns the number of modules not depending on any uncertain argument, solved once for all the samples
+     */
+    public int getReusedModules() {
+        return reusedModules;
+    }
+
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+}
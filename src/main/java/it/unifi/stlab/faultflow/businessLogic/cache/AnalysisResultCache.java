@@ -0,0 +1,157 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.businessLogic.cache;
+
+import it.unifi.stlab.faultflow.analysis.TimeSeries;
+import it.unifi.stlab.faultflow.metrics.Metrics;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Application-wide cache of full resolution analysis results, so that repeated queries on different windows or
+ * resolutions of the same analysis do not run it again. Entries are evicted in least recently used order once the
+ * total number of cached points exceeds the capacity.
+ *
+ * Each system has a generation, advanced whenever its entries are invalidated: a result computed while its system was
+ * invalidated is returned to its caller but not cached, since it may have been computed from the old rows.
+ */
+@ApplicationScoped
+public class AnalysisResultCache {
+
+    public static final long DEFAULT_CAPACITY = 20_000_000;
+
+    private final Map<String, TimeSeries> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Long> generations = new HashMap<>();
+    private final long capacity;
+    private long cachedPoints;
+    private long clears;
+
+    public AnalysisResultCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public AnalysisResultCache(long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Builds the key of an analysis of the given system: the system UUID comes first, so that its entries can be
+     * invalidated when it is removed
+     */
+    public static String key(String systemUUID, Object... parameters) {
+        StringBuilder key = new StringBuilder(String.valueOf(systemUUID));
+
+        for (Object parameter : parameters)
+            key.append('|').append(parameter);
+
+        return key.toString();
+    }
+
+    /**
+     * Returns the cached result for the key, computing it if absent. The computation runs outside of the lock: two
+     * concurrent misses on the same key both compute it and the last one is kept, unless the system was invalidated
+     * in the meantime.
+     */
+    public TimeSeries get(String key, Supplier<TimeSeries> analysis) {
+        long generation;
+
+        synchronized (this) {
+            TimeSeries cached = entries.get(key);
+
+            if (cached != null) {
+                Metrics.getInstance().increment(Metrics.CACHE_HIT);
+                return cached;
+            }
+
+            generation = generation(key);
+        }
+
+        Metrics.getInstance().increment(Metrics.CACHE_MISS);
+        TimeSeries result = analysis.get();
+
+        if (result != null)
+            put(key, result, generation);
+
+        return result;
+    }
+
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    private synchronized void put(String key, TimeSeries result, long generation) {
+        long points = points(result);
+
+        if (points > capacity || generation(key) != generation)
+            return;
+
+        TimeSeries previous = entries.put(key, result);
+        if (previous != null)
+            cachedPoints -= points(previous);
+
+        cachedPoints += points;
+
+        Iterator<Map.Entry<String, TimeSeries>> iterator = entries.entrySet().iterator();
+        while (cachedPoints > capacity && iterator.hasNext()) {
+            cachedPoints -= points(iterator.next().getValue());
+            iterator.remove();
+        }
+    }
+
+    public synchronized void invalidateSystem(String systemUUID) {
+        generations.merge(systemUUID, 1L, Long::sum);
+        Iterator<Map.Entry<String, TimeSeries>> iterator = entries.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<String, TimeSeries> entry = iterator.next();
+
+            if (entry.getKey().startsWith(systemUUID + "|")) {
+                cachedPoints -= points(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        cachedPoints = 0;
+        clears++;
+    }
+
+    // Both terms only grow, so their sum changes whenever either does
+    private long generation(String key) {
+        return clears + generations.getOrDefault(systemOf(key), 0L);
+    }
+
+    static String systemOf(String key) {
+        int separator = key.indexOf('|');
+        return separator >= 0 ? key.substring(0, separator) : key;
+    }
+
+    private static long points(TimeSeries series) {
+        return (long) series.size() * (series.getColumnNames().size() + 1);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.businessLogic.cache;
+
+import it.unifi.stlab.faultflow.analysis.IncrementalReliability;
+import it.unifi.stlab.faultflow.metrics.Metrics;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Application-wide cache of the unconditioned IncrementalReliability of a top event, shared by all the operating units
+ * of a system: each conditional analysis starts from a copy of it and evaluates again only the modules affected by the
+ * history of its unit. Keys are built as in AnalysisResultCache and entries are evicted in least recently used order.
+ * As in AnalysisResultCache, a model evaluated while its system was invalidated is not cached.
+ */
+@ApplicationScoped
+public class ReliabilityModelCache {
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final Map<String, IncrementalReliability> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Long> generations = new HashMap<>();
+    private final int capacity;
+    private long clears;
+
+    public ReliabilityModelCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ReliabilityModelCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the cached model for the key, evaluating it if absent. As in AnalysisResultCache, the evaluation runs
+     * outside of the lock.
+     */
+    public IncrementalReliability get(String key, Supplier<IncrementalReliability> evaluation) {
+        long generation;
+
+        synchronized (this) {
+            IncrementalReliability cached = entries.get(key);
+
+            if (cached != null) {
+                Metrics.getInstance().increment(Metrics.CACHE_HIT);
+                return cached;
+            }
+
+            generation = generation(key);
+        }
+
+        Metrics.getInstance().increment(Metrics.CACHE_MISS);
+        IncrementalReliability model = evaluation.get();
+        put(key, model, generation);
+        return model;
+    }
+
+    private synchronized void put(String key, IncrementalReliability model, long generation) {
+        if (generation(key) != generation)
+            return;
+
+        entries.put(key, model);
+
+        Iterator<Map.Entry<String, IncrementalReliability>> iterator = entries.entrySet().iterator();
+        while (entries.size() > capacity && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    public synchronized void invalidateSystem(String systemUUID) {
+        generations.merge(systemUUID, 1L, Long::sum);
+        entries.keySet().removeIf(key -> key.startsWith(systemUUID + "|"));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        clears++;
+    }
+
+    private long generation(String key) {
+        return clears + generations.getOrDefault(AnalysisResultCache.systemOf(key), 0L);
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.businessLogic.ingestion;
+
+import it.unifi.stlab.faultflow.analysis.CDFResult;
+import it.unifi.stlab.faultflow.analysis.IncrementalReliability;
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.model.knowledge.composition.ComponentType;
+import it.unifi.stlab.faultflow.model.knowledge.composition.SystemType;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.FaultMode;
+import it.unifi.stlab.faultflow.model.operational.Error;
+import it.unifi.stlab.faultflow.model.operational.Event;
+import it.unifi.stlab.faultflow.model.operational.Failure;
+import it.unifi.stlab.faultflow.model.operational.Fault;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Application-wide ingestion of the faults, errors and failures observed on the operating units. Events are offered
+ * to a bounded in-process queue and applied by a single worker thread to the IncrementalReliability of their unit:
+ * the worker drains the queue in groups, so that a burst of events on the same unit costs a single evaluation of the
+ * affected modules, and publishes a ReliabilityUpdate for each unit of the group to the listeners.
+ *
+ * The conditional CDFs requested for a unit are cached by observation time on the grid of its analysis until the
+ * next events of the unit are applied, so that dashboards polling a fleet do not evaluate them again.
+ */
+@ApplicationScoped
+public class EventIngestionService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventIngestionService.class);
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final int MAX_GROUP = 256;
+    public static final int MAX_CONDITIONAL = 64;
+
+    private final Map<String, Unit> units = new ConcurrentHashMap<>();
+    private final Map<String, ReliabilityUpdate> updates = new ConcurrentHashMap<>();
+    private final List<Consumer<ReliabilityUpdate>> listeners = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<Observation> queue;
+    private Thread worker;
+
+    public EventIngestionService() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public EventIngestionService(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Starts tracking a unit of the given system, replacing any unit with the same serial, and returns its failure
+     * probability without evidence
+     */
+    public ReliabilityUpdate register(String unit, SystemType system, IncrementalReliability reliability) {
+        units.put(unit, new Unit(system, reliability));
+        ReliabilityUpdate update = new ReliabilityUpdate(unit, reliability, reliability.getModules(), 0);
+        updates.put(unit, update);
+        return update;
+    }
+
+    public void unregister(String unit) {
+        units.remove(unit);
+        updates.remove(unit);
+    }
+
+    public boolean isRegistered(String unit) {
+        return units.containsKey(unit);
+    }
+
+    /**
+     * Builds the event of the given type (fault, error or failure) on the mode with the given name of the system of
+     * the unit: the name of a fault mode, of an error mode or the description of a failure mode
+     */
+    public Event createEvent(String unit, String type, String mode, BigDecimal timestamp, String description) {
+        Unit tracked = units.get(unit);
+
+        if (tracked == null)
+            throw new IllegalArgumentException("Unknown unit: " + unit);
+
+        if (timestamp == null)
+            throw new IllegalArgumentException("The event on " + mode + " has no timestamp");
+
+        String name = description != null ? description : mode + "Occurred";
+
+        for (ComponentType component : tracked.system.getComponents()) {
+            for (ErrorMode errorMode : component.getErrorModes()) {
+                if (type.equalsIgnoreCase("fault")) {
+                    for (FaultMode faultMode : errorMode.getInputFaultModes()) {
+                        if (faultMode.getName().equals(mode))
+                            return new Fault(name, faultMode, timestamp);
+                    }
+                } else if (type.equalsIgnoreCase("error")) {
+                    if (errorMode.getName().equals(mode))
+                        return new Error(name, errorMode, timestamp);
+                } else if (type.equalsIgnoreCase("failure")) {
+                    if (errorMode.getOutgoingFailure() != null
+                            && errorMode.getOutgoingFailure().getDescription().equals(mode))
+                        return new Failure(name, errorMode.getOutgoingFailure(), timestamp);
+                } else {
+                    throw new IllegalArgumentException("Unknown event type: " + type);
+                }
+            }
+        }
+
+        throw new IllegalArgumentException("No " + type + " mode " + mode + " in the system of unit " + unit);
+    }
+
+    /**
+     * Queues an event of a registered unit, returning false without waiting if the queue is full
+     */
+    public boolean offer(String unit, Event event) {
+        if (!units.containsKey(unit))
+            throw new IllegalArgumentException("Unknown unit: " + unit);
+
+        startWorker();
+        return queue.offer(new Observation(unit, event, System.nanoTime()));
+    }
+
+    /**
+     * Applies the events of a unit in the calling thread, bypassing the queue, and publishes the update
+     */
+    public ReliabilityUpdate apply(String unit, List<? extends Event> events) {
+        Unit tracked = units.get(unit);
+
+        if (tracked == null)
+            throw new IllegalArgumentException("Unknown unit: " + unit);
+
+        long start = System.nanoTime();
+        return publish(unit, tracked, tracked.apply(events), start);
+    }
+
+    /**
+     * Returns the last update published for the unit, or null if it is not registered
+     */
+    public ReliabilityUpdate getUpdate(String unit) {
+        return updates.get(unit);
+    }
+
+    /**
+     * Returns the CDF of the top event of the unit from the observation time on, given its state at that time, or
+     * null if the unit is not registered. Without an observation time, the time of the last event is taken. Results
+     * are reused for observation times in the same step of the grid.
+     */
+    public CDFResult getConditional(String unit, Double observationTime) {
+        Unit tracked = units.get(unit);
+
+        if (tracked == null)
+            return null;
+
+        // Events are applied holding the same lock, so a result never outlives the state it was computed on
+        synchronized (tracked.reliability) {
+            double time = observationTime != null ? observationTime : tracked.reliability.getLastObservation();
+            long step = (long) Math.floor(time / tracked.reliability.getTimeStep());
+            CDFResult cached = tracked.conditional.get(step);
+
+            if (cached != null) {
+                Metrics.getInstance().increment(Metrics.CACHE_HIT);
+                return cached;
+            }
+
+            Metrics.getInstance().increment(Metrics.CACHE_MISS);
+            CDFResult result = tracked.reliability.getConditionalCdf(time);
+
+            if (tracked.conditional.size() >= MAX_CONDITIONAL)
+                tracked.conditional.clear();
+
+            tracked.conditional.put(step, result);
+            return result;
+        }
+    }
+
+    public int getPending() {
+        return queue.size();
+    }
+
+    public void addListener(Consumer<ReliabilityUpdate> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<ReliabilityUpdate> listener) {
+        listeners.remove(listener);
+    }
+
+    private synchronized void startWorker() {
+        if (worker != null)
+            return;
+
+        worker = new Thread(this::drain, "event-ingestion");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void drain() {
+        List<Observation> group = new ArrayList<>();
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                group.add(queue.take());
+                queue.drainTo(group, MAX_GROUP - 1);
+                process(group);
+                group.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void process(List<Observation> group) {
+        Map<String, List<Event>> events = new LinkedHashMap<>();
+        Map<String, Long> arrivals = new LinkedHashMap<>();
+
+        for (Observation observation : group) {
+            events.computeIfAbsent(observation.unit, unit -> new ArrayList<>()).add(observation.event);
+            arrivals.putIfAbsent(observation.unit, observation.arrival);
+        }
+
+        for (Map.Entry<String, List<Event>> entry : events.entrySet()) {
+            Unit tracked = units.get(entry.getKey());
+
+            // The unit may have been removed while its events were queued
+            if (tracked == null)
+                continue;
+
+            try {
+                publish(entry.getKey(), tracked, tracked.apply(entry.getValue()), arrivals.get(entry.getKey()));
+            } catch (RuntimeException e) {
+                LOGGER.warn("Discarded {} events of unit {}", entry.getValue().size(), entry.getKey(), e);
+                Metrics.getInstance().increment(Metrics.EVENT_DISCARDED);
+                publishFailure(entry.getKey(), tracked, entry.getValue().size(), e, arrivals.get(entry.getKey()));
+            }
+        }
+    }
+
+    private ReliabilityUpdate publish(String unit, Unit tracked, int evaluated, long arrival) {
+        long latency = (System.nanoTime() - arrival) / 1_000_000;
+        ReliabilityUpdate update = new ReliabilityUpdate(unit, tracked.reliability, evaluated, latency);
+
+        // A unit registered again meanwhile keeps the update of its new tree
+        if (units.get(unit) == tracked)
+            updates.put(unit, update);
+
+        for (Consumer<ReliabilityUpdate> listener : listeners)
+            listener.accept(update);
+
+        return update;
+    }
+
+    // The unit keeps its last update, since a failed group of events leaves its reliability unchanged
+    private void publishFailure(String unit, Unit tracked, int discarded, RuntimeException failure, long arrival) {
+        long latency = (System.nanoTime() - arrival) / 1_000_000;
+        String reason = failure.getMessage() != null ? failure.getMessage() : failure.getClass().getSimpleName();
+        ReliabilityUpdate update = new ReliabilityUpdate(unit, tracked.reliability, 0, latency, reason, discarded);
+
+        for (Consumer<ReliabilityUpdate> listener : listeners)
+            listener.accept(update);
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    private static class Unit {
+
+        private final SystemType system;
+        private final IncrementalReliability reliability;
+        // Conditional CDFs by step of the observation time, guarded by the lock of the reliability
+        private final Map<Long, CDFResult> conditional = new HashMap<>();
+
+        private Unit(SystemType system, IncrementalReliability reliability) {
+            this.system = system;
+            this.reliability = reliability;
+        }
+
+        private int apply(List<? extends Event> events) {
+            synchronized (reliability) {
+                int evaluated = reliability.apply(events);
+                conditional.clear();
+                return evaluated;
+            }
+        }
+    }
+
+    private static class Observation {
+
+        private final String unit;
+        private final Event event;
+        private final long arrival;
+
+        private Observation(String unit, Event event, long arrival) {
+            this.unit = unit;
+            this.event = event;
+            this.arrival = arrival;
+        }
+    }
+}
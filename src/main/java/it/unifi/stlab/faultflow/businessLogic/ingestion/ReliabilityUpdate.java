@@ -0,0 +1,122 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.businessLogic.ingestion;
+
+import it.unifi.stlab.faultflow.analysis.IncrementalReliability;
+
+/**
+ * Snapshot of the failure probability of a unit published after a group of its events has been applied. When the
+ * group could not be applied, the update is failed: it carries the reason and the number of discarded events, and
+ * the failure probability of the unit is the one before the group.
+ */
+public class ReliabilityUpdate {
+
+    private final String unit;
+    private final double timeStep;
+    private final double[] cdf;
+    private final double startTime;
+    private final double[] remainingReliability;
+    private final int events;
+    private final int evaluatedModules;
+    private final int modules;
+    private final long latency;
+    private final String failure;
+    private final int discardedEvents;
+
+    ReliabilityUpdate(String unit, IncrementalReliability reliability, int evaluatedModules, long latency) {
+        this(unit, reliability, evaluatedModules, latency, null, 0);
+    }
+
+    ReliabilityUpdate(String unit, IncrementalReliability reliability, int evaluatedModules, long latency,
+                      String failure, int discardedEvents) {
+        this.unit = unit;
+        this.timeStep = reliability.getTimeStep();
+        this.cdf = reliability.getCdf();
+        this.startTime = reliability.getStartTime();
+        this.remainingReliability = reliability.getRemainingReliability();
+        this.events = reliability.getEvents().size();
+        this.evaluatedModules = evaluatedModules;
+        this.modules = reliability.getModules();
+        this.latency = latency;
+        this.failure = failure;
+        this.discardedEvents = discardedEvents;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * Returns the CDF of the top event from time zero, given the events applied so far
+     */
+    public double[] getCdf() {
+        return cdf;
+    }
+
+    /**
+     * Returns the time of the first point of the remaining reliability, that of the last observed event
+     */
+    public double getStartTime() {
+        return startTime;
+    }
+
+    public double[] getRemainingReliability() {
+        return remainingReliability;
+    }
+
+    public int getEvents() {
+        return events;
+    }
+
+    public int getEvaluatedModules() {
+        return evaluatedModules;
+    }
+
+    public int getModules() {
+        return modules;
+    }
+
+    /**
+     * Returns the time, in milliseconds, from the arrival of the oldest event of the group to the publication
+     */
+    public long getLatency() {
+        return latency;
+    }
+
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * Returns why the group of events could not be applied, null if it was
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    public int getDiscardedEvents() {
+        return discardedEvents;
+    }
+}
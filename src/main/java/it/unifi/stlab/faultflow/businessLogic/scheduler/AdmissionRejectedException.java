@@ -0,0 +1,55 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.businessLogic.scheduler;
+
+/**
+ * Thrown when AnalysisScheduler does not admit a request, which may be repeated after the suggested delay
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    public enum Reason {
+        CALLER_LIMIT, QUEUE_FULL, WAIT_TIMEOUT
+    }
+
+    private final CostClass costClass;
+    private final Reason reason;
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(CostClass costClass, Reason reason, long retryAfterSeconds) {
+        super("Request not admitted on the " + costClass.getName() + " lane: " + reason);
+
+        this.costClass = costClass;
+        this.reason = reason;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public CostClass getCostClass() {
+        return costClass;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
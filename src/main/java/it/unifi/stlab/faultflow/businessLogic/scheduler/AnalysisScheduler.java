@@ -0,0 +1,176 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.businessLogic.scheduler;
+
+import it.unifi.stlab.faultflow.metrics.Metrics;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Application-wide admission control of the analysis requests. Each cost class has its own lane, so that heavy
+ * numerical analyses never delay the cheap structural ones: a lane runs a bounded number of requests at a time, lets
+ * a bounded number of them wait for a slot, in arrival order and for a bounded time, and rejects the others at once.
+ * Each caller can run a bounded number of requests on each lane.
+ *
+ * The limits of a lane are read from the faultflow.scheduler.{class}.running, .queued, .perCaller and .maxWait
+ * (milliseconds) system properties. For every lane, the scheduler publishes the gauges scheduler.{class}.running and
+ * scheduler.{class}.queued, the timer scheduler.{class}.wait and the counters scheduler.{class}.rejected.{reason}.
+ */
+@ApplicationScoped
+public class AnalysisScheduler {
+
+    private final Map<CostClass, Lane> lanes = new EnumMap<>(CostClass.class);
+
+    public AnalysisScheduler() {
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        lanes.put(CostClass.CHEAP, new Lane(CostClass.CHEAP, 2 * processors, 64, 8, 10_000));
+        lanes.put(CostClass.HEAVY, new Lane(CostClass.HEAVY, Math.max(1, processors / 2), 16, 2, 60_000));
+    }
+
+    /**
+     * Admits a request of the caller on the lane of the cost class, waiting for a slot if needed; the admission must be
+     * closed when the request completes. Throws an AdmissionRejectedException if the caller already runs too many
+     * requests on the lane, if its queue is full or if no slot is freed in time.
+     */
+    public Admission admit(CostClass costClass, String caller) {
+        return lanes.get(costClass).admit(caller);
+    }
+
+    public int getRunning(CostClass costClass) {
+        return lanes.get(costClass).getRunning();
+    }
+
+    public int getQueued(CostClass costClass) {
+        return lanes.get(costClass).queued.get();
+    }
+
+    /**
+     * A slot held by an admitted request, released once
+     */
+    public static final class Admission implements AutoCloseable {
+
+        private final Lane lane;
+        private final String caller;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Admission(Lane lane, String caller) {
+            this.lane = lane;
+            this.caller = caller;
+        }
+
+        public CostClass getCostClass() {
+            return lane.costClass;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                lane.slots.release();
+                lane.leave(caller);
+            }
+        }
+    }
+
+    private static class Lane {
+
+        private final CostClass costClass;
+        private final int maxRunning;
+        private final int maxQueued;
+        private final int maxPerCaller;
+        private final long maxWait;
+        private final Semaphore slots;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Map<String, Integer> callers = new ConcurrentHashMap<>();
+        private final String metric;
+
+        private Lane(CostClass costClass, int maxRunning, int maxQueued, int maxPerCaller, long maxWait) {
+            this.costClass = costClass;
+            this.metric = "scheduler." + costClass.getName();
+            String property = "faultflow." + metric;
+            this.maxRunning = Integer.getInteger(property + ".running", maxRunning);
+            this.maxQueued = Integer.getInteger(property + ".queued", maxQueued);
+            this.maxPerCaller = Integer.getInteger(property + ".perCaller", maxPerCaller);
+            this.maxWait = Long.getLong(property + ".maxWait", maxWait);
+            this.slots = new Semaphore(this.maxRunning, true);
+
+            Metrics.getInstance().gauge(metric + ".running", this::getRunning);
+            Metrics.getInstance().gauge(metric + ".queued", queued::get);
+        }
+
+        private Admission admit(String caller) {
+            if (callers.merge(caller, 1, Integer::sum) > maxPerCaller) {
+                leave(caller);
+                throw reject(AdmissionRejectedException.Reason.CALLER_LIMIT);
+            }
+
+            long start = System.nanoTime();
+
+            try {
+                // Requests already waiting keep their turn
+                if (queued.get() > 0 || !slots.tryAcquire()) {
+                    if (queued.incrementAndGet() > maxQueued) {
+                        queued.decrementAndGet();
+                        throw reject(AdmissionRejectedException.Reason.QUEUE_FULL);
+                    }
+
+                    try {
+                        if (!slots.tryAcquire(maxWait, TimeUnit.MILLISECONDS))
+                            throw reject(AdmissionRejectedException.Reason.WAIT_TIMEOUT);
+                    } finally {
+                        queued.decrementAndGet();
+                    }
+                }
+            } catch (InterruptedException e) {
+                leave(caller);
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for admission", e);
+            } catch (AdmissionRejectedException e) {
+                leave(caller);
+                throw e;
+            }
+
+            Metrics.getInstance().timer(metric + ".wait").record(System.nanoTime() - start);
+            return new Admission(this, caller);
+        }
+
+        private void leave(String caller) {
+            callers.computeIfPresent(caller, (key, count) -> count > 1 ? count - 1 : null);
+        }
+
+        private AdmissionRejectedException reject(AdmissionRejectedException.Reason reason) {
+            Metrics.getInstance().increment(metric + ".rejected." + reason.name().toLowerCase());
+            return new AdmissionRejectedException(costClass, reason,
+                    Math.max(1, TimeUnit.MILLISECONDS.toSeconds(maxWait) / 2));
+        }
+
+        private int getRunning() {
+            return maxRunning - slots.availablePermits();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.dto.analysis;
+
+import it.unifi.stlab.faultflow.analysis.AnalysisPlan;
+import it.unifi.stlab.faultflow.analysis.ModelFeatures;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class AnalysisPlanDTO {
+
+    private String engine;
+    private double estimatedCost;
+    private Map<String, Double> candidates;
+    private Map<String, String> rejections;
+    private List<String> notes;
+    private int gates;
+    private int basicEvents;
+    private int depth;
+    private int sharedEvents;
+    private int reconvergentEvents;
+    private boolean delayedSharedPaths;
+    private int delayedGates;
+    private int votingGates;
+    private Set<String> pdfFamilies;
+    private List<Integer> moduleSizes;
+    private int scenarioEvents;
+
+    public AnalysisPlanDTO(AnalysisPlan plan) {
+        ModelFeatures features = plan.getFeatures();
+        this.engine = plan.getEngine().name();
+        this.estimatedCost = plan.getEstimatedCost();
+        this.candidates = new LinkedHashMap<>();
+        this.rejections = new LinkedHashMap<>();
+        this.notes = new ArrayList<>(plan.getNotes());
+
+        plan.getEstimatedCosts().forEach((engine, cost) -> candidates.put(engine.name(), cost));
+        plan.getRejections().forEach((engine, reason) -> rejections.put(engine.name(), reason));
+
+        this.gates = features.getGates();
+        this.basicEvents = features.getBasicEvents();
+        this.depth = features.getDepth();
+        this.sharedEvents = features.getSharedEvents();
+        this.reconvergentEvents = features.getReconvergentEvents();
+        this.delayedSharedPaths = features.hasDelayedSharedPaths();
+        this.delayedGates = features.getDelayedGates();
+        this.votingGates = features.getVotingGates();
+        this.pdfFamilies = new TreeSet<>(features.getPdfFamilies());
+        this.moduleSizes = new ArrayList<>(features.getModuleSizes());
+        this.scenarioEvents = features.getScenarioEvents();
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public void setEngine(String engine) {
+        this.engine = engine;
+    }
+
+    public double getEstimatedCost() {
+        return estimatedCost;
+    }
+
+    public void setEstimatedCost(double estimatedCost) {
+        this.estimatedCost = estimatedCost;
+    }
+
+    public Map<String, Double> getCandidates() {
+        return candidates;
+    }
+
+    public void setCandidates(Map<String, Double> candidates) {
+        this.candidates = candidates;
+    }
+
+    public Map<String, String> getRejections() {
+        return rejections;
+    }
+
+    public void setRejections(Map<String, String> rejections) {
+        this.rejections = rejections;
+    }
+
+    public List<String> getNotes() {
+        return notes;
+    }
+
+    public void setNotes(List<String> notes) {
+        this.notes = notes;
+    }
+
+    public int getGates() {
+        return gates;
+    }
+
+    public void setGates(int gates) {
+        this.gates = gates;
+    }
+
+    public int getBasicEvents() {
+        return basicEvents;
+    }
+
+    public void setBasicEvents(int basicEvents) {
+        this.basicEvents = basicEvents;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public int getSharedEvents() {
+        return sharedEvents;
+    }
+
+    public void setSharedEvents(int sharedEvents) {
+        this.sharedEvents = sharedEvents;
+    }
+
+    public int getReconvergentEvents() {
+        return reconvergentEvents;
+    }
+
+    public void setReconvergentEvents(int reconvergentEvents) {
+        this.reconvergentEvents = reconvergentEvents;
+    }
+
+    public boolean isDelayedSharedPaths() {
+        return delayedSharedPaths;
+    }
+
+    public void setDelayedSharedPaths(boolean delayedSharedPaths) {
+        this.delayedSharedPaths = delayedSharedPaths;
+    }
+
+    public int getDelayedGates() {
+        return delayedGates;
+    }
+
+    public void setDelayedGates(int delayedGates) {
+        this.delayedGates = delayedGates;
+    }
+
+    public int getVotingGates() {
+        return votingGates;
+    }
+
+    public void setVotingGates(int votingGates) {
+        this.votingGates = votingGates;
+    }
+
+    public Set<String> getPdfFamilies() {
+        return pdfFamilies;
+    }
+
+    public void setPdfFamilies(Set<String> pdfFamilies) {
+        this.pdfFamilies = pdfFamilies;
+    }
+
+    public List<Integer> getModuleSizes() {
+        return moduleSizes;
+    }
+
+    public void setModuleSizes(List<Integer> moduleSizes) {
+        this.moduleSizes = moduleSizes;
+    }
+
+    public int getScenarioEvents() {
+        return scenarioEvents;
+    }
+
+    public void setScenarioEvents(int scenarioEvents) {
+        this.scenarioEvents = scenarioEvents;
+    }
+}
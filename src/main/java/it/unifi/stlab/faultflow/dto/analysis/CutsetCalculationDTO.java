@@ -21,6 +21,7 @@
 package it.unifi.stlab.faultflow.dto.analysis;
 
 import it.unifi.stlab.transformation.minimalcutset.MinimalCutSet;
+import it.unifi.stlab.transformation.minimalcutset.TruncatedCutSets;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -30,6 +31,8 @@ public class CutsetCalculationDTO {
     private String systemUUID;
     private String errorModeUUID;
     private List<List<String>> minimalCutSets;
+    private double truncationErrorBound;
+    private int prunedCutSets;
 
     public CutsetCalculationDTO(String systemUUID, String errorModeUUID, List<MinimalCutSet> minimalCutSets) {
         this.systemUUID = systemUUID;
@@ -43,6 +46,12 @@ public class CutsetCalculationDTO {
         });
     }
 
+    public CutsetCalculationDTO(String systemUUID, String errorModeUUID, TruncatedCutSets truncatedCutSets) {
+        this(systemUUID, errorModeUUID, truncatedCutSets.getCutSets());
+        this.truncationErrorBound = truncatedCutSets.getErrorBound();
+        this.prunedCutSets = truncatedCutSets.getPrunedCutSets();
+    }
+
     public String getSystemUUID() {
         return systemUUID;
     }
@@ -66,4 +75,20 @@ public class CutsetCalculationDTO {
     public void setMinimalCutSets(List<List<String>> minimalCutSets) {
         this.minimalCutSets = minimalCutSets;
     }
+
+    public double getTruncationErrorBound() {
+        return truncationErrorBound;
+    }
+
+    public void setTruncationErrorBound(double truncationErrorBound) {
+        this.truncationErrorBound = truncationErrorBound;
+    }
+
+    public int getPrunedCutSets() {
+        return prunedCutSets;
+    }
+
+    public void setPrunedCutSets(int prunedCutSets) {
+        this.prunedCutSets = prunedCutSets;
+    }
 }
@@ -20,9 +20,13 @@
 
 package it.unifi.stlab.faultflow.dto.analysis;
 
+import javax.json.bind.annotation.JsonbTypeSerializer;
+
 public class FaultImportanceMeasureDTO {
 
     private String faultName;
+    // Infinite where a ratio has a zero denominator, NaN where it is undefined
+    @JsonbTypeSerializer(MeasureValuesSerializer.class)
     private double[] values;
 
     public FaultImportanceMeasureDTO(String faultName, double[] values) {
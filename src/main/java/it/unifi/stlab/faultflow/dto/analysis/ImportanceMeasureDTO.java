@@ -32,6 +32,10 @@ public class ImportanceMeasureDTO {
     private int evaluationTime;
     private double timestep;
     private List<FaultImportanceMeasureDTO> values;
+    // Only set when a window or a downsampling of the measures is requested
+    private List<Double> times;
+    // Only set when the minimal cut sets are truncated
+    private Double truncationErrorBound;
 
     public ImportanceMeasureDTO(String importanceMeasure, String systemUUID, String errorModeUUID,
                                 long elapsedAnalysisTime, int evaluationTime, double timestep) {
@@ -102,4 +106,20 @@ public class ImportanceMeasureDTO {
     public void setValues(List<FaultImportanceMeasureDTO> values) {
         this.values = values;
     }
+
+    public List<Double> getTimes() {
+        return times;
+    }
+
+    public void setTimes(List<Double> times) {
+        this.times = times;
+    }
+
+    public Double getTruncationErrorBound() {
+        return truncationErrorBound;
+    }
+
+    public void setTruncationErrorBound(Double truncationErrorBound) {
+        this.truncationErrorBound = truncationErrorBound;
+    }
 }
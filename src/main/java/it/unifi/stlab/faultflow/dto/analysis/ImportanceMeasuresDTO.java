@@ -0,0 +1,66 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.dto.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportanceMeasuresDTO {
+
+    private String systemUUID;
+    private String errorModeUUID;
+    // One entry per requested measure, in the order of the request
+    private List<ImportanceMeasureDTO> measures;
+
+    public ImportanceMeasuresDTO(String systemUUID, String errorModeUUID) {
+        this.systemUUID = systemUUID;
+        this.errorModeUUID = errorModeUUID;
+        measures = new ArrayList<>();
+    }
+
+    public void addImportanceMeasure(ImportanceMeasureDTO importanceMeasureDTO) {
+        measures.add(importanceMeasureDTO);
+    }
+
+    public String getSystemUUID() {
+        return systemUUID;
+    }
+
+    public void setSystemUUID(String systemUUID) {
+        this.systemUUID = systemUUID;
+    }
+
+    public String getErrorModeUUID() {
+        return errorModeUUID;
+    }
+
+    public void setErrorModeUUID(String errorModeUUID) {
+        this.errorModeUUID = errorModeUUID;
+    }
+
+    public List<ImportanceMeasureDTO> getMeasures() {
+        return measures;
+    }
+
+    public void setMeasures(List<ImportanceMeasureDTO> measures) {
+        this.measures = measures;
+    }
+}
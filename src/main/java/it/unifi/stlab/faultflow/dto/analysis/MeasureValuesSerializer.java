@@ -0,0 +1,47 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.dto.analysis;
+
+import javax.json.bind.serializer.JsonbSerializer;
+import javax.json.bind.serializer.SerializationContext;
+import javax.json.stream.JsonGenerator;
+
+/**
+ * Writes the values of an importance measure as a JSON array, which has no literal for non-finite numbers: an
+ * undefined value (NaN) is written as null and an infinite one as the string "Infinity" or "-Infinity".
+ */
+public class MeasureValuesSerializer implements JsonbSerializer<double[]> {
+
+    @Override
+    public void serialize(double[] values, JsonGenerator generator, SerializationContext context) {
+        generator.writeStartArray();
+
+        for (double value : values) {
+            if (Double.isNaN(value))
+                generator.writeNull();
+            else if (Double.isInfinite(value))
+                generator.write(value > 0 ? "Infinity" : "-Infinity");
+            else
+                generator.write(value);
+        }
+
+        generator.writeEnd();
+    }
+}
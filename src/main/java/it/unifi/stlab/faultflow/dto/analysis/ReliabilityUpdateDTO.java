@@ -0,0 +1,154 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.dto.analysis;
+
+import it.unifi.stlab.faultflow.businessLogic.ingestion.ReliabilityUpdate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ReliabilityUpdateDTO {
+
+    private String unit;
+    private double timestep;
+    private List<Double> cdf;
+    // Remaining reliability from startTime on, given the survival up to it
+    private double startTime;
+    private List<Double> remainingReliability;
+    private int events;
+    private int evaluatedModules;
+    private int modules;
+    private long latency;
+    // Why the events could not be applied, null if they were
+    private String failure;
+    private int discardedEvents;
+
+    public ReliabilityUpdateDTO(ReliabilityUpdate update) {
+        this.unit = update.getUnit();
+        this.timestep = update.getTimeStep();
+        this.cdf = toList(update.getCdf());
+        this.startTime = update.getStartTime();
+        this.remainingReliability = toList(update.getRemainingReliability());
+        this.events = update.getEvents();
+        this.evaluatedModules = update.getEvaluatedModules();
+        this.modules = update.getModules();
+        this.latency = update.getLatency();
+        this.failure = update.getFailure();
+        this.discardedEvents = update.getDiscardedEvents();
+    }
+
+    private static List<Double> toList(double[] array) {
+        List<Double> list = new ArrayList<>();
+
+        for (double value : array)
+            list.add(value);
+
+        return list;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    public void setUnit(String unit) {
+        this.unit = unit;
+    }
+
+    public double getTimestep() {
+        return timestep;
+    }
+
+    public void setTimestep(double timestep) {
+        this.timestep = timestep;
+    }
+
+    public List<Double> getCdf() {
+        return cdf;
+    }
+
+    public void setCdf(List<Double> cdf) {
+        this.cdf = cdf;
+    }
+
+    public double getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(double startTime) {
+        this.startTime = startTime;
+    }
+
+    public List<Double> getRemainingReliability() {
+        return remainingReliability;
+    }
+
+    public void setRemainingReliability(List<Double> remainingReliability) {
+        this.remainingReliability = remainingReliability;
+    }
+
+    public int getEvents() {
+        return events;
+    }
+
+    public void setEvents(int events) {
+        this.events = events;
+    }
+
+    public int getEvaluatedModules() {
+        return evaluatedModules;
+    }
+
+    public void setEvaluatedModules(int evaluatedModules) {
+        this.evaluatedModules = evaluatedModules;
+    }
+
+    public int getModules() {
+        return modules;
+    }
+
+    public void setModules(int modules) {
+        this.modules = modules;
+    }
+
+    public long getLatency() {
+        return latency;
+    }
+
+    public void setLatency(long latency) {
+        this.latency = latency;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public void setFailure(String failure) {
+        this.failure = failure;
+    }
+
+    public int getDiscardedEvents() {
+        return discardedEvents;
+    }
+
+    public void setDiscardedEvents(int discardedEvents) {
+        this.discardedEvents = discardedEvents;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.dto.analysis;
+
+import it.unifi.stlab.faultflow.analysis.SimulationResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SimulationResultDTO {
+
+    private String systemUUID;
+    private String errorModeUUID;
+    private double timeStep;
+    private double timeLimit;
+    private List<Double> times;
+    private List<Double> cdf;
+    // Standard error over the estimate at each time, null where no run failed
+    private List<Double> relativeErrors;
+    private long runs;
+    private long hits;
+    private double bias;
+    private long elapsedAnalysisTime;
+
+    public SimulationResultDTO(String systemUUID, String errorModeUUID, SimulationResult result) {
+        this.systemUUID = systemUUID;
+        this.errorModeUUID = errorModeUUID;
+        this.timeStep = result.getTimeStep();
+        this.timeLimit = result.getTimeLimit();
+        this.times = toList(result.getTimes());
+        this.cdf = toList(result.getValues());
+        this.relativeErrors = toList(result.getRelativeErrors());
+        this.runs = result.getRuns();
+        this.hits = result.getHits();
+        this.bias = result.getBias();
+        this.elapsedAnalysisTime = result.getElapsedTime();
+    }
+
+    private static List<Double> toList(double[] array) {
+        List<Double> list = new ArrayList<>();
+
+        for (double value : array)
+            list.add(Double.isNaN(value) ? null : value);
+
+        return list;
+    }
+
+    public String getSystemUUID() {
+        return systemUUID;
+    }
+
+    public void setSystemUUID(String systemUUID) {
+        this.systemUUID = systemUUID;
+    }
+
+    public String getErrorModeUUID() {
+        return errorModeUUID;
+    }
+
+    public void setErrorModeUUID(String errorModeUUID) {
+        this.errorModeUUID = errorModeUUID;
+    }
+
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    public void setTimeStep(double timeStep) {
+        this.timeStep = timeStep;
+    }
+
+    public double getTimeLimit() {
+        return timeLimit;
+    }
+
+    public void setTimeLimit(double timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    public List<Double> getTimes() {
+        return times;
+    }
+
+    public void setTimes(List<Double> times) {
+        this.times = times;
+    }
+
+    public List<Double> getCdf() {
+        return cdf;
+    }
+
+    public void setCdf(List<Double> cdf) {
+        this.cdf = cdf;
+    }
+
+    public List<Double> getRelativeErrors() {
+        return relativeErrors;
+    }
+
+    public void setRelativeErrors(List<Double> relativeErrors) {
+        this.relativeErrors = relativeErrors;
+    }
+
+    public long getRuns() {
+        return runs;
+    }
+
+    public void setRuns(long runs) {
+        this.runs = runs;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public double getBias() {
+        return bias;
+    }
+
+    public void setBias(double bias) {
+        this.bias = bias;
+    }
+
+    public long getElapsedAnalysisTime() {
+        return elapsedAnalysisTime;
+    }
+
+    public void setElapsedAnalysisTime(long elapsedAnalysisTime) {
+        this.elapsedAnalysisTime = elapsedAnalysisTime;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.dto.analysis;
+
+import it.unifi.stlab.faultflow.analysis.SweepResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SweepResultDTO {
+
+    private String systemUUID;
+    private String errorModeUUID;
+    private List<String> parameters;
+    // One row per combination, with the values of the parameters in their order
+    private List<List<Double>> combinations;
+    private List<Double> times;
+    // One row per combination, with the CDF at each time
+    private List<List<Double>> values;
+    private int reusedModules;
+    private long elapsedAnalysisTime;
+
+    /**
+     * Converts the whole CDF of each combination, or only its value at the given time if it is not null
+     */
+    public SweepResultDTO(String systemUUID, String errorModeUUID, SweepResult result, Double time) {
+        this.systemUUID = systemUUID;
+        this.errorModeUUID = errorModeUUID;
+        this.parameters = new ArrayList<>(result.getParameters());
+        this.combinations = new ArrayList<>();
+        this.values = new ArrayList<>();
+        this.reusedModules = result.getReusedModules();
+        this.elapsedAnalysisTime = result.getElapsedTime();
+
+        for (double[] combination : result.getCombinations())
+            combinations.add(toList(combination));
+
+        if (time != null) {
+            this.times = List.of(time);
+
+            for (double value : result.getValuesAt(time))
+                values.add(List.of(value));
+        } else {
+            this.times = toList(result.getTimes());
+
+            for (double[] cdf : result.getValues())
+                values.add(toList(cdf));
+        }
+    }
+
+    private static List<Double> toList(double[] array) {
+        List<Double> list = new ArrayList<>();
+
+        for (double value : array)
+            list.add(value);
+
+        return list;
+    }
+
+    public String getSystemUUID() {
+        return systemUUID;
+    }
+
+    public void setSystemUUID(String systemUUID) {
+        this.systemUUID = systemUUID;
+    }
+
+    public String getErrorModeUUID() {
+        return errorModeUUID;
+    }
+
+    public void setErrorModeUUID(String errorModeUUID) {
+        this.errorModeUUID = errorModeUUID;
+    }
+
+    public List<String> getParameters() {
+        return parameters;
+    }
+
+    public void setParameters(List<String> parameters) {
+        this.parameters = parameters;
+    }
+
+    public List<List<Double>> getCombinations() {
+        return combinations;
+    }
+
+    public void setCombinations(List<List<Double>> combinations) {
+        this.combinations = combinations;
+    }
+
+    public List<Double> getTimes() {
+        return times;
+    }
+
+    public void setTimes(List<Double> times) {
+        this.times = times;
+    }
+
+    public List<List<Double>> getValues() {
+        return values;
+    }
+
+    public void setValues(List<List<Double>> values) {
+        this.values = values;
+    }
+
+    public int getReusedModules() {
+        return reusedModules;
+    }
+
+    public void setReusedModules(int reusedModules) {
+        this.reusedModules = reusedModules;
+    }
+
+    public long getElapsedAnalysisTime() {
+        return elapsedAnalysisTime;
+    }
+
+    public void setElapsedAnalysisTime(long elapsedAnalysisTime) {
+        this.elapsedAnalysisTime = elapsedAnalysisTime;
+    }
+}
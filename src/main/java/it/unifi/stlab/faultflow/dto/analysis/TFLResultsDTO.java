@@ -31,6 +31,10 @@ public class TFLResultsDTO {
     private double timeLimit;
     private long elapsedAnalysisTime;
     private List<Double> cdf;
+    // Only set when the CDF is evaluated on a non-uniform grid or when a window or a downsampling is requested
+    private List<Double> times;
+    // Only set by the automatic analysis, with the engine chosen and the features that determined it
+    private AnalysisPlanDTO plan;
 
     public TFLResultsDTO(String systemUUID, String errorModeUUID, double timestep, double timeLimit,
                          long elapsedAnalysisTime, double[] cdf) {
@@ -92,4 +96,20 @@ public class TFLResultsDTO {
     public void setCdf(List<Double> cdf) {
         this.cdf = cdf;
     }
+
+    public List<Double> getTimes() {
+        return times;
+    }
+
+    public void setTimes(List<Double> times) {
+        this.times = times;
+    }
+
+    public AnalysisPlanDTO getPlan() {
+        return plan;
+    }
+
+    public void setPlan(AnalysisPlanDTO plan) {
+        this.plan = plan;
+    }
 }
@@ -0,0 +1,156 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.dto.analysis;
+
+import it.unifi.stlab.faultflow.analysis.UncertaintyResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class UncertaintyResultDTO {
+
+    private String systemUUID;
+    private String errorModeUUID;
+    private String engine;
+    private List<String> uncertainties;
+    private List<Double> percentiles;
+    private List<Double> times;
+    // One row per percentile, with the CDF at each time
+    private List<List<Double>> bands;
+    private List<Double> mean;
+    private int samples;
+    private int reusedModules;
+    private long elapsedAnalysisTime;
+
+    public UncertaintyResultDTO(String systemUUID, String errorModeUUID, String engine, UncertaintyResult result) {
+        this.systemUUID = systemUUID;
+        this.errorModeUUID = errorModeUUID;
+        this.engine = engine;
+        this.uncertainties = new ArrayList<>(result.getUncertainties());
+        this.percentiles = toList(result.getPercentiles());
+        this.times = toList(result.getTimes());
+        this.bands = new ArrayList<>();
+        this.mean = toList(result.getMean());
+        this.samples = result.getSamples();
+        this.reusedModules = result.getReusedModules();
+        this.elapsedAnalysisTime = result.getElapsedTime();
+
+        for (double[] band : result.getBands())
+            bands.add(toList(band));
+    }
+
+    private static List<Double> toList(double[] array) {
+        List<Double> list = new ArrayList<>();
+
+        for (double value : array)
+            list.add(value);
+
+        return list;
+    }
+
+    public String getSystemUUID() {
+        return systemUUID;
+    }
+
+    public void setSystemUUID(String systemUUID) {
+        this.systemUUID = systemUUID;
+    }
+
+    public String getErrorModeUUID() {
+        return errorModeUUID;
+    }
+
+    public void setErrorModeUUID(String errorModeUUID) {
+        this.errorModeUUID = errorModeUUID;
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public void setEngine(String engine) {
+        this.engine = engine;
+    }
+
+    public List<String> getUncertainties() {
+        return uncertainties;
+    }
+
+    public void setUncertainties(List<String> uncertainties) {
+        this.uncertainties = uncertainties;
+    }
+
+    public List<Double> getPercentiles() {
+        return percentiles;
+    }
+
+    public void setPercentiles(List<Double> percentiles) {
+        this.percentiles = percentiles;
+    }
+
+    public List<Double> getTimes() {
+        return times;
+    }
+
+    public void setTimes(List<Double> times) {
+        this.times = times;
+    }
+
+    public List<List<Double>> getBands() {
+        return bands;
+    }
+
+    public void setBands(List<List<Double>> bands) {
+        this.bands = bands;
+    }
+
+    public List<Double> getMean() {
+        return mean;
+    }
+
+    public void setMean(List<Double> mean) {
+        this.mean = mean;
+    }
+
+    public int getSamples() {
+        return samples;
+    }
+
+    public void setSamples(int samples) {
+        this.samples = samples;
+    }
+
+    public int getReusedModules() {
+        return reusedModules;
+    }
+
+    public void setReusedModules(int reusedModules) {
+        this.reusedModules = reusedModules;
+    }
+
+    public long getElapsedAnalysisTime() {
+        return elapsedAnalysisTime;
+    }
+
+    public void setElapsedAnalysisTime(long elapsedAnalysisTime) {
+        this.elapsedAnalysisTime = elapsedAnalysisTime;
+    }
+}
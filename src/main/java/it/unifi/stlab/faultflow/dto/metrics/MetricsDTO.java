@@ -0,0 +1,78 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.dto.metrics;
+
+import it.unifi.stlab.faultflow.metrics.Counter;
+import it.unifi.stlab.faultflow.metrics.Metrics;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class MetricsDTO {
+
+    private List<TimerDTO> timers;
+    private Map<String, Long> counters;
+    private Map<String, Long> gauges;
+    private List<TraceDTO> traces;
+
+    public MetricsDTO(Metrics metrics, int traces) {
+        this.timers = metrics.getTimers().stream().map(TimerDTO::new).collect(Collectors.toList());
+        this.counters = new LinkedHashMap<>();
+        this.gauges = metrics.getGauges();
+        this.traces = metrics.getTraces().stream().limit(traces).map(TraceDTO::new).collect(Collectors.toList());
+
+        for (Counter counter : metrics.getCounters())
+            this.counters.put(counter.getName(), counter.getCount());
+    }
+
+    public List<TimerDTO> getTimers() {
+        return timers;
+    }
+
+    public void setTimers(List<TimerDTO> timers) {
+        this.timers = timers;
+    }
+
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    public void setCounters(Map<String, Long> counters) {
+        this.counters = counters;
+    }
+
+    public Map<String, Long> getGauges() {
+        return gauges;
+    }
+
+    public void setGauges(Map<String, Long> gauges) {
+        this.gauges = gauges;
+    }
+
+    public List<TraceDTO> getTraces() {
+        return traces;
+    }
+
+    public void setTraces(List<TraceDTO> traces) {
+        this.traces = traces;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.dto.metrics;
+
+import it.unifi.stlab.faultflow.metrics.AnalysisTrace;
+
+import java.util.Map;
+
+public class TraceDTO {
+
+    private String traceId;
+    private String name;
+    private long startTime;
+    private double durationMillis;
+    private Map<String, Double> phases;
+    private Map<String, String> attributes;
+
+    public TraceDTO(AnalysisTrace trace) {
+        this.traceId = trace.getId();
+        this.name = trace.getName();
+        this.startTime = trace.getStartTime();
+        this.durationMillis = trace.getDurationMillis();
+        this.phases = trace.getPhaseMillis();
+        this.attributes = trace.getAttributes();
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public void setTraceId(String traceId) {
+        this.traceId = traceId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    public double getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(double durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public Map<String, Double> getPhases() {
+        return phases;
+    }
+
+    public void setPhases(Map<String, Double> phases) {
+        this.phases = phases;
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(Map<String, String> attributes) {
+        this.attributes = attributes;
+    }
+}
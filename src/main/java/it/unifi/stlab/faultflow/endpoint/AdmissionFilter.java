@@ -0,0 +1,116 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.endpoint;
+
+import it.unifi.stlab.faultflow.businessLogic.scheduler.AdmissionRejectedException;
+import it.unifi.stlab.faultflow.businessLogic.scheduler.AnalysisScheduler;
+import org.json.JSONObject;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+
+/**
+ * Admits the requests of the resource methods marked with AnalysisCost through AnalysisScheduler before they run, so
+ * that the budget of the analysis only starts once it is admitted. The caller is identified as described by Caller.
+ * Rejected requests are answered with 429 and a Retry-After header.
+ *
+ * The admission is released by the response filter, and in any case by AdmissionReleaseFilter once the servlet
+ * request completes, also when the request fails before reaching the response filters.
+ */
+@Provider
+@Priority(Priorities.USER - 100)
+public class AdmissionFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final String TENANT_ID = "X-Tenant-Id";
+
+    static final String ADMISSION_PROPERTY = AnalysisScheduler.Admission.class.getName();
+
+    @Inject
+    AnalysisScheduler scheduler;
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    @Context
+    HttpServletRequest servletRequest;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        AnalysisCost cost = resourceInfo.getResourceMethod() != null
+                ? resourceInfo.getResourceMethod().getAnnotation(AnalysisCost.class) : null;
+
+        if (cost == null)
+            return;
+
+        String caller = Caller.of(requestContext.getSecurityContext(), servletRequest,
+                requestContext.getHeaderString(TENANT_ID));
+
+        try {
+            AnalysisScheduler.Admission admission = scheduler.admit(cost.value(), caller);
+            requestContext.setProperty(ADMISSION_PROPERTY, admission);
+
+            if (servletRequest != null)
+                servletRequest.setAttribute(ADMISSION_PROPERTY, admission);
+        } catch (AdmissionRejectedException e) {
+            requestContext.abortWith(tooManyRequests(e, scheduler));
+        }
+    }
+
+    /**
+     * Answers a rejected request with 429, the reason of the rejection and the state of its lane
+     */
+    static Response tooManyRequests(AdmissionRejectedException e, AnalysisScheduler scheduler) {
+        JSONObject response = new JSONObject();
+        response.put("status", "TooManyRequests")
+                .put("costClass", e.getCostClass().getName())
+                .put("reason", e.getReason())
+                .put("queued", scheduler.getQueued(e.getCostClass()))
+                .put("running", scheduler.getRunning(e.getCostClass()));
+
+        return Response
+                .status(Response.Status.TOO_MANY_REQUESTS)
+                .header("Retry-After", e.getRetryAfterSeconds())
+                .type(MediaType.APPLICATION_JSON)
+                .entity(response.toString())
+                .build();
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext,
+                       ContainerResponseContext responseContext) throws IOException {
+        Object admission = requestContext.getProperty(ADMISSION_PROPERTY);
+
+        if (admission instanceof AnalysisScheduler.Admission)
+            ((AnalysisScheduler.Admission) admission).close();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.endpoint;
+
+import it.unifi.stlab.faultflow.businessLogic.scheduler.AnalysisScheduler;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import java.io.IOException;
+
+/**
+ * Releases the admission taken by AdmissionFilter once the servlet request completes, whatever its outcome: requests
+ * failing with an unmapped exception, or while their response is written, never reach the JAX-RS response filters.
+ * Closing an admission twice has no effect.
+ */
+@WebFilter("/*")
+public class AdmissionReleaseFilter implements Filter {
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Object admission = request.getAttribute(AdmissionFilter.ADMISSION_PROPERTY);
+
+            if (admission instanceof AnalysisScheduler.Admission)
+                ((AnalysisScheduler.Admission) admission).close();
+        }
+    }
+}
@@ -20,54 +20,117 @@
 
 package it.unifi.stlab.faultflow.endpoint;
 
-import it.unifi.hierarchical.analysis.HierarchicalSMPAnalysis;
-import it.unifi.hierarchical.analysis.NumericalValues;
-import it.unifi.hierarchical.model.HSMP;
+import it.unifi.stlab.faultflow.analysis.AdaptivePyramisAnalyzer;
+import it.unifi.stlab.faultflow.analysis.AnalysisBudget;
+import it.unifi.stlab.faultflow.analysis.AnalysisPlan;
+import it.unifi.stlab.faultflow.analysis.AnalysisPlanner;
+import it.unifi.stlab.faultflow.analysis.AnalysisPool;
+import it.unifi.stlab.faultflow.analysis.AnalyticAnalyzer;
+import it.unifi.stlab.faultflow.analysis.BatchAnalyzer;
+import it.unifi.stlab.faultflow.analysis.CDFResult;
+import it.unifi.stlab.faultflow.analysis.ConditionedCDFResult;
+import it.unifi.stlab.faultflow.analysis.ConditionedImportanceMeasure;
+import it.unifi.stlab.faultflow.analysis.IncrementalReliability;
+import it.unifi.stlab.faultflow.analysis.ModularAnalyzer;
+import it.unifi.stlab.faultflow.analysis.ParameterSweep;
+import it.unifi.stlab.faultflow.analysis.PyramisAnalyzer;
+import it.unifi.stlab.faultflow.analysis.RareEventSimulator;
+import it.unifi.stlab.faultflow.analysis.SweepResult;
+import it.unifi.stlab.faultflow.analysis.TimeSeries;
+import it.unifi.stlab.faultflow.analysis.TreeAnalyzer;
+import it.unifi.stlab.faultflow.analysis.UncertaintyPropagation;
+import it.unifi.stlab.faultflow.analysis.UncertaintyResult;
+import it.unifi.stlab.faultflow.businessLogic.cache.AnalysisResultCache;
+import it.unifi.stlab.faultflow.businessLogic.cache.ReliabilityModelCache;
+import it.unifi.stlab.faultflow.businessLogic.scheduler.CostClass;
+import it.unifi.stlab.faultflow.dao.knowledge.ComponentDao;
 import it.unifi.stlab.faultflow.dao.knowledge.ErrorModeDao;
 import it.unifi.stlab.faultflow.dao.knowledge.SystemDao;
+import it.unifi.stlab.faultflow.dao.operational.ScenarioDao;
+import it.unifi.stlab.faultflow.dto.analysis.AnalysisPlanDTO;
 import it.unifi.stlab.faultflow.dto.analysis.CutsetCalculationDTO;
 import it.unifi.stlab.faultflow.dto.analysis.FaultImportanceMeasureDTO;
 import it.unifi.stlab.faultflow.dto.analysis.ImportanceMeasureDTO;
+import it.unifi.stlab.faultflow.dto.analysis.ImportanceMeasuresDTO;
+import it.unifi.stlab.faultflow.dto.analysis.SimulationResultDTO;
+import it.unifi.stlab.faultflow.dto.analysis.SweepResultDTO;
 import it.unifi.stlab.faultflow.dto.analysis.TFLResultsDTO;
+import it.unifi.stlab.faultflow.dto.analysis.UncertaintyResultDTO;
 import it.unifi.stlab.faultflow.endpoint.exception.NoEntityFoundException;
 import it.unifi.stlab.faultflow.endpoint.response.NotFoundResponse;
+import it.unifi.stlab.faultflow.exporter.SeriesEncoder;
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.metrics.Timer;
+import it.unifi.stlab.faultflow.model.knowledge.composition.ComponentType;
 import it.unifi.stlab.faultflow.model.knowledge.composition.SystemType;
 import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
 import it.unifi.stlab.faultflow.model.knowledge.propagation.FaultMode;
 import it.unifi.stlab.faultflow.model.knowledge.propagation.InternalFaultMode;
-import it.unifi.stlab.transformation.HSMPParser;
+import it.unifi.stlab.faultflow.model.operational.Event;
+import it.unifi.stlab.faultflow.model.operational.Scenario;
 import it.unifi.stlab.transformation.TreeParser;
 import it.unifi.stlab.transformation.faulttree.BasicEvent;
 import it.unifi.stlab.transformation.faulttree.BasicEventsFinder;
 import it.unifi.stlab.transformation.faulttree.Node;
+import it.unifi.stlab.transformation.faulttree.OR;
+import it.unifi.stlab.transformation.faulttree.SymmetryDetector;
 import it.unifi.stlab.transformation.faulttree.TreeNodeChanger;
+import it.unifi.stlab.transformation.minimalcutset.CutSetTruncation;
 import it.unifi.stlab.transformation.minimalcutset.MOCUSEngine;
 import it.unifi.stlab.transformation.minimalcutset.MinimalCutSet;
+import it.unifi.stlab.transformation.minimalcutset.TruncatedCutSets;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Path("/analysis")
 public class AnalysisEndpoint {
 
+    private static final String FUSSELL_VESELY = "fusselvesely";
+
     @Inject
     SystemDao systemDao;
 
     @Inject
     ErrorModeDao errorModeDao;
 
+    @Inject
+    ComponentDao componentDao;
+
+    @Inject
+    ScenarioDao scenarioDao;
+
+    @Inject
+    AnalysisResultCache analysisResultCache;
+
+    @Inject
+    ReliabilityModelCache reliabilityModelCache;
+
+    /* Finds the minimal cut sets of the fault tree: maxOrder, and minProbability together with missionTime, discard
+    the cut sets of higher order or lower probability while they are expanded, reporting a bound of the error */
+    @AnalysisCost(CostClass.CHEAP)
     @GET
     @Path("/getMinimalCutsets")
     @Produces(MediaType.APPLICATION_JSON)
     public Response getMinimalCutsets(@QueryParam("systemUUID") String systemUUID,
-                                      @QueryParam("errorModeUUID") String errorModeUUID) {
+                                      @QueryParam("errorModeUUID") String errorModeUUID,
+                                      @QueryParam("maxOrder") Integer maxOrder,
+                                      @QueryParam("minProbability") Double minProbability,
+                                      @QueryParam("missionTime") Double missionTime) {
         Node node;
 
         try {
@@ -78,21 +141,81 @@ public class AnalysisEndpoint {
                     .build();
         }
 
-        List<MinimalCutSet> minimalCutSets = MOCUSEngine.getInstance().getMinimalCutSet(node);
+        TruncatedCutSets minimalCutSets = MOCUSEngine.getInstance().getMinimalCutSet(node,
+                truncation(maxOrder, minProbability, missionTime));
 
         return Response
                 .ok(new CutsetCalculationDTO(systemUUID, errorModeUUID, minimalCutSets))
                 .build();
     }
 
+    /* Calculates an importance measure of every basic event over time: the full resolution result is cached, so that
+    from/to restrict it to a time window and stride or points (LTTB) reduce its resolution without re-running it.
+    For Fussell-Vesely, maxOrder and minProbability truncate the minimal cut sets, the latter at the evaluation time.
+    The other measures, see ConditionedImportanceMeasure, derive from the CDFs of the top event conditioned on each
+    basic event */
+    @AnalysisCost(CostClass.HEAVY)
     @GET
     @Path("/importanceMeasure")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, SeriesEncoder.MEDIA_TYPE})
     public Response getImportanceMeasure(@QueryParam("systemUUID") String systemUUID,
                                          @QueryParam("errorModeUUID") String errorModeUUID,
                                          @QueryParam("measure") String measure,
                                          @QueryParam("timeStep") double timestep,
-                                         @QueryParam("time") int time) {
+                                         @QueryParam("time") int time,
+                                         @QueryParam("maxOrder") Integer maxOrder,
+                                         @QueryParam("minProbability") Double minProbability,
+                                         @QueryParam("from") Double from,
+                                         @QueryParam("to") Double to,
+                                         @QueryParam("stride") Integer stride,
+                                         @QueryParam("points") Integer points) {
+        SystemType system = systemDao.findById(systemUUID);
+        ErrorMode errorMode = errorModeDao.findById(errorModeUUID);
+
+        if (system == null)
+            return NotFoundResponse.json("System", systemUUID);
+
+        if (errorMode == null)
+            return NotFoundResponse.json("ErrorMode", errorModeUUID);
+
+        if (!FUSSELL_VESELY.equals(measure) && ConditionedImportanceMeasure.of(measure) == null)
+            return Response
+                    .noContent()
+                    .build();
+
+        CutSetTruncation truncation = truncation(maxOrder, minProbability, (double) time);
+        String key = AnalysisResultCache.key(systemUUID, "importanceMeasure", errorModeUUID, measure, timestep, time,
+                truncation.getMaxOrder(), truncation.getMinProbability());
+        TimeSeries measures = analysisResultCache.get(key,
+                () -> calculateImportanceMeasure(system, errorMode, measure, timestep, time, truncation));
+        TimeSeries sampled = sample(measures, from, to, stride, points);
+        ImportanceMeasureDTO importanceMeasureDTO = importanceMeasureDTO(measure, systemUUID, errorModeUUID, timestep,
+                time, measures, sampled);
+
+        if (measure.equals(FUSSELL_VESELY) && truncation.isEnabled())
+            importanceMeasureDTO.setTruncationErrorBound(sampled.getErrorBound());
+
+        return Response
+                .ok(importanceMeasureDTO)
+                .build();
+    }
+
+    /* Calculates several importance measures of every basic event over time, all of them from the same CDFs of the
+    top event conditioned on each basic event, computed once: no measure means all of them. Each measure is cached as
+    if requested by itself, and only the measures not cached yet are calculated */
+    @AnalysisCost(CostClass.HEAVY)
+    @GET
+    @Path("/importanceMeasures")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getImportanceMeasures(@QueryParam("systemUUID") String systemUUID,
+                                          @QueryParam("errorModeUUID") String errorModeUUID,
+                                          @QueryParam("measure") List<String> measureNames,
+                                          @QueryParam("timeStep") double timestep,
+                                          @QueryParam("time") int time,
+                                          @QueryParam("from") Double from,
+                                          @QueryParam("to") Double to,
+                                          @QueryParam("stride") Integer stride,
+                                          @QueryParam("points") Integer points) {
         SystemType system = systemDao.findById(systemUUID);
         ErrorMode errorMode = errorModeDao.findById(errorModeUUID);
 
@@ -106,172 +229,789 @@ public class AnalysisEndpoint {
                     .ok(NotFoundResponse.create("ErrorMode", errorModeUUID))
                     .build();
 
-        // Create the fault tree given the system and its error mode of interest
-        TreeParser treeParser = new TreeParser(system);
-        Node node = treeParser.createTree(errorMode);
+        List<ConditionedImportanceMeasure> measures = new ArrayList<>();
 
-        // Find all the basic events in the fault tree
-        BasicEventsFinder finder = new BasicEventsFinder();
-        finder.visit(node);
-        List<BasicEvent> basicEvents = finder.getBasicEvents();
+        for (String measureName : measureNames) {
+            ConditionedImportanceMeasure measure = ConditionedImportanceMeasure.of(measureName);
 
-        // Create the importance measure DTO to be populated later
-        ImportanceMeasureDTO importanceMeasureDTO = new ImportanceMeasureDTO(measure, systemUUID, errorModeUUID, 0,
-                time, timestep);
+            if (measure == null)
+                throw new BadRequestException("Unknown conditioned importance measure: " + measureName);
 
-        if (measure.equals("fusselvesely")) {
-            Map<String, double[]> importanceMeasures = new HashMap<>();
-            Date start = new Date(); // Mark the starting time of the calculation
+            if (!measures.contains(measure))
+                measures.add(measure);
+        }
 
-            List<MinimalCutSet> minimalCutSets = MOCUSEngine.getInstance().getMinimalCutSet(node);
+        if (measures.isEmpty())
+            measures.addAll(Arrays.asList(ConditionedImportanceMeasure.values()));
 
-            // Calculate the CDF of each minimal cutset
-            Map<List<String>, double[]> mcsCDFs = calculateMCSCDF(minimalCutSets, system, errorMode,
-                    timestep, time);
+        CutSetTruncation none = CutSetTruncation.none();
+        Map<ConditionedImportanceMeasure, String> keys = new EnumMap<>(ConditionedImportanceMeasure.class);
+        List<ConditionedImportanceMeasure> missing = new ArrayList<>();
 
-            int length = 0;
+        for (ConditionedImportanceMeasure measure : measures) {
+            keys.put(measure, AnalysisResultCache.key(systemUUID, "importanceMeasure", errorModeUUID,
+                    measure.getName(), timestep, time, none.getMaxOrder(), none.getMinProbability()));
 
-            for (Map.Entry<List<String>, double[]> entry : mcsCDFs.entrySet()) {
-                length = entry.getValue().length;
-                break;
-            }
+            if (!analysisResultCache.contains(keys.get(measure)))
+                missing.add(measure);
+        }
 
-            for (BasicEvent basicEvent : basicEvents) {
-                String faultName = basicEvent.getDescription();
-                importanceMeasures.put(faultName, new double[length]);
-                List<List<String>> interestedCutSets = new ArrayList<>();
+        Map<ConditionedImportanceMeasure, TimeSeries> calculated = missing.isEmpty() ? Map.of()
+                : calculateConditionedMeasures(system, errorMode, missing, timestep, time);
+        ImportanceMeasuresDTO importanceMeasuresDTO = new ImportanceMeasuresDTO(systemUUID, errorModeUUID);
 
-                // Save each cutset in which the basic event participates in
-                for (List<String> key : mcsCDFs.keySet()) {
-                    if (key.contains(basicEvent.getDescription()))
-                        interestedCutSets.add(key);
-                }
+        for (ConditionedImportanceMeasure measure : measures) {
+            // A measure evicted since it was found in the cache is calculated again
+            TimeSeries series = analysisResultCache.get(keys.get(measure), () -> calculated.containsKey(measure)
+                    ? calculated.get(measure)
+                    : calculateConditionedMeasures(system, errorMode, List.of(measure), timestep, time).get(measure));
+            importanceMeasuresDTO.addImportanceMeasure(importanceMeasureDTO(measure.getName(), systemUUID,
+                    errorModeUUID, timestep, time, series, sample(series, from, to, stride, points)));
+        }
 
-                for (int index = 0; index < length; index++) {
-                    double sum = 0;
+        return Response
+                .ok(importanceMeasuresDTO)
+                .build();
+    }
 
-                    for (List<String> interestedCutSet : interestedCutSets) {
-                        sum += mcsCDFs.get(interestedCutSet)[index];
-                    }
+    /* Calculates the top event CDF using the Pyramis analysis engine: when a tolerance is given, the time grid is
+    chosen adaptively and timeStep is the finest step it can reach, within the cost of a uniform grid with that step.
+    With modules, the independent modules of the fault tree are solved separately and replaced by tabulated events,
+    which interpolate their CDFs linearly between the points of the grid, so that the result is approximate. As for
+    importance measures, the full resolution CDF is cached and from, to, stride and points only select which of its
+    points are returned */
+    @AnalysisCost(CostClass.HEAVY)
+    @GET
+    @Path("/pyramisCDF")
+    @Produces({MediaType.APPLICATION_JSON, SeriesEncoder.MEDIA_TYPE})
+    public Response pyramisCDF(@QueryParam("systemUUID") String systemUUID,
+                               @QueryParam("errorModeUUID") String errorModeUUID,
+                               @QueryParam("timeStep") double timestep,
+                               @QueryParam("timeLimit") double timeLimit,
+                               @QueryParam("tolerance") Double tolerance,
+                               @QueryParam("modules") boolean modules,
+                               @QueryParam("from") Double from,
+                               @QueryParam("to") Double to,
+                               @QueryParam("stride") Integer stride,
+                               @QueryParam("points") Integer points) {
+        Node tree;
 
-                    /* FV measure obtained as the sum of CDFs of each cutset in which the basic event participates in
-                    divided by the number of participating cutsets */
-                    importanceMeasures.get(faultName)[index] = sum / interestedCutSets.size();
-                }
-            }
+        try {
+            tree = getTreeFromSystemErrorMode(systemUUID, errorModeUUID);
+        } catch (NoEntityFoundException e) {
+            return NotFoundResponse.json(e.getEntityClass(), e.getEntityExternalID());
+        }
 
-            Date end = new Date(); // Saves the ending time of the calculation...
-            long elapsedAnalysisTime = end.getTime() - start.getTime(); // ...and calculates the delta to get the corresponding computation time
-            importanceMeasureDTO.setElapsedAnalysisTime(elapsedAnalysisTime);
+        if (modules && tolerance != null)
+            throw new BadRequestException("Modules can only be solved on a uniform time grid");
 
-            for (String key : importanceMeasures.keySet()) {
-                importanceMeasureDTO.addFaultImportanceMeasure(new FaultImportanceMeasureDTO(key,
-                        importanceMeasures.get(key)));
-            }
+        boolean adaptive = tolerance != null && tolerance > 0;
+        String key = AnalysisResultCache.key(systemUUID, "pyramisCDF", errorModeUUID, timestep, timeLimit,
+                adaptive ? tolerance : 0, modules);
+        TimeSeries cdf = analysisResultCache.get(key, () -> new TimeSeries(adaptive
+                ? new AdaptivePyramisAnalyzer(timestep, timeLimit, tolerance).evaluate(tree)
+                : analyzer(new PyramisAnalyzer(timestep, timeLimit), modules).evaluate(tree), "cdf"));
+        TimeSeries sampled = sample(cdf, from, to, stride, points);
 
-            return Response
-                    .ok(importanceMeasureDTO)
-                    .build();
-        } else if (measure.equals("birnbaum")) {
-            Date start = new Date();
-
-            for (BasicEvent basicEvent : basicEvents) {
-                /* Creates a copy of the basic event taken into account with a dirac(0) PDF to compute the CDF with
-                the fault already happened in the system; at the same time, it saves the original fault mode to be
-                restored later */
-                FaultMode originalFault = TreeNodeChanger.changeFaultMode(node, basicEvent.getDescription(),
-                        new InternalFaultMode(basicEvent.getFaultMode().getName(),"dirac(0)"));
-
-                // Creates the HSMP with P(1) for the basic event
-                HSMP hsmpOne = HSMPParser.parseTree(node);
-                HierarchicalSMPAnalysis modifiedAnalysis = new HierarchicalSMPAnalysis(hsmpOne, 0);
-                modifiedAnalysis.evaluate(timestep, time);
-
-                NumericalValues oneCdf = HierarchicalSMPAnalysis.cdf;
-                double[] oneCdfValues = Arrays.copyOf(oneCdf.getValues(), oneCdf.getValues().length);
-
-                /* Find all the basic events excluding the one already taken into consideration: this is used later
-                to reduce the fault tree so that it will contain all the basic events excluding the one considered,
-                so that P(0) can be calculated for the Birnbaum measure */
-                List<String> basicEventsMinusOne = new ArrayList<>();
-                basicEvents.forEach(fault -> {
-                    if (!fault.getDescription().equals(basicEvent.getFaultMode().getName()))
-                        basicEventsMinusOne.add(fault.getDescription());
-                });
-
-                treeParser = new TreeParser(system);
-                Node newTree = treeParser.createTree(errorMode);
-                // Reduces the fault tree to exclude the currently considered basic event
-                newTree = treeParser.reduceTree(basicEventsMinusOne, newTree);
-
-                HSMP hsmpZero = HSMPParser.parseTree(newTree);
-                modifiedAnalysis = new HierarchicalSMPAnalysis(hsmpZero, 0);
-                modifiedAnalysis.evaluate(timestep, time);
-
-                NumericalValues zeroCdf = HierarchicalSMPAnalysis.cdf;
-                double[] zeroCdfValues = Arrays.copyOf(zeroCdf.getValues(), zeroCdf.getValues().length);
-                double[] difference = new double[oneCdfValues.length];
-
-                // Computes the point-by-point CDF difference for each time tick
-                for (int index = 0; index < oneCdfValues.length; index++)
-                    difference[index] = oneCdfValues[index] - zeroCdfValues[index];
-
-                // Restores the original fault mode in the fault tree
-                TreeNodeChanger.changeFaultMode(node, basicEvent.getDescription(), (InternalFaultMode) originalFault);
-
-                importanceMeasureDTO.addFaultImportanceMeasure(new FaultImportanceMeasureDTO(originalFault.getName(),
-                        difference));
-            }
+        TFLResultsDTO tflResultsDTO = new TFLResultsDTO(systemUUID, errorModeUUID, timestep, timeLimit,
+                sampled.getElapsedTime(), sampled.getColumn("cdf"));
+
+        if (adaptive || sampled != cdf)
+            tflResultsDTO.setTimes(toList(sampled.getTimes()));
+
+        return Response
+                .ok(tflResultsDTO)
+                .build();
+    }
+
+    /* Calculates the top event CDF directly on the time grid, without building an HSMP: unlike Pyramis, it also
+    supports systems whose fault modes feed more than one error mode */
+    @AnalysisCost(CostClass.HEAVY)
+    @GET
+    @Path("/analyticCDF")
+    @Produces({MediaType.APPLICATION_JSON, SeriesEncoder.MEDIA_TYPE})
+    public Response analyticCDF(@QueryParam("systemUUID") String systemUUID,
+                                @QueryParam("errorModeUUID") String errorModeUUID,
+                                @QueryParam("timeStep") double timestep,
+                                @QueryParam("timeLimit") double timeLimit,
+                                @QueryParam("modules") boolean modules,
+                                @QueryParam("from") Double from,
+                                @QueryParam("to") Double to,
+                                @QueryParam("stride") Integer stride,
+                                @QueryParam("points") Integer points) {
+        Node tree;
+
+        try {
+            tree = getTreeFromSystemErrorMode(systemUUID, errorModeUUID);
+        } catch (NoEntityFoundException e) {
+            return NotFoundResponse.json(e.getEntityClass(), e.getEntityExternalID());
+        }
+
+        String key = AnalysisResultCache.key(systemUUID, "analyticCDF", errorModeUUID, timestep, timeLimit, modules);
+        TimeSeries cdf = analysisResultCache.get(key,
+                () -> new TimeSeries(analyzer(new AnalyticAnalyzer(timestep, timeLimit), modules).evaluate(tree), "cdf"));
+        TimeSeries sampled = sample(cdf, from, to, stride, points);
+
+        TFLResultsDTO tflResultsDTO = new TFLResultsDTO(systemUUID, errorModeUUID, timestep, timeLimit,
+                sampled.getElapsedTime(), sampled.getColumn("cdf"));
+
+        if (sampled != cdf)
+            tflResultsDTO.setTimes(toList(sampled.getTimes()));
+
+        return Response
+                .ok(tflResultsDTO)
+                .build();
+    }
+
+    /**
+     * Evaluates the CDF of the top event with the engine chosen by AnalysisPlanner from the features of the fault
+     * tree, or with the requested one if it applies. With planOnly, only the plan is returned.
+     */
+    @AnalysisCost(CostClass.HEAVY)
+    @GET
+    @Path("/auto")
+    @Produces({MediaType.APPLICATION_JSON, SeriesEncoder.MEDIA_TYPE})
+    public Response autoCDF(@QueryParam("systemUUID") String systemUUID,
+                            @QueryParam("errorModeUUID") String errorModeUUID,
+                            @QueryParam("scenarioUUID") String scenarioUUID,
+                            @QueryParam("timeStep") double timestep,
+                            @QueryParam("timeLimit") double timeLimit,
+                            @QueryParam("engine") String engine,
+                            @QueryParam("planOnly") boolean planOnly,
+                            @QueryParam("from") Double from,
+                            @QueryParam("to") Double to,
+                            @QueryParam("stride") Integer stride,
+                            @QueryParam("points") Integer points) {
+        SystemType system = systemDao.findById(systemUUID);
+        ErrorMode errorMode = errorModeDao.findById(errorModeUUID);
+        Scenario scenario = scenarioUUID != null ? scenarioDao.findById(scenarioUUID) : null;
+
+        if (system == null)
+            return NotFoundResponse.json("System", systemUUID);
+        if (errorMode == null)
+            return NotFoundResponse.json("ErrorMode", errorModeUUID);
+        if (scenarioUUID != null && scenario == null)
+            return NotFoundResponse.json("Scenario", scenarioUUID);
+
+        Node tree = new TreeParser(system).createTree(errorMode);
+        AnalysisPlanner planner;
+        AnalysisPlan plan;
+
+        try {
+            planner = new AnalysisPlanner(timestep, timeLimit);
+            plan = planner.plan(tree, scenario, engine != null ? AnalysisPlan.Engine.fromString(engine) : null);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
 
-            Date end = new Date();
-            long elapsedAnalysisTime = end.getTime() - start.getTime();
-            importanceMeasureDTO.setElapsedAnalysisTime(elapsedAnalysisTime);
+        if (planOnly)
+            return Response.ok(new AnalysisPlanDTO(plan)).type(MediaType.APPLICATION_JSON).build();
 
+        String key = AnalysisResultCache.key(systemUUID, "auto", errorModeUUID, scenarioUUID, plan.getEngine(),
+                timestep, timeLimit);
+        TimeSeries cdf = analysisResultCache.get(key,
+                () -> new TimeSeries(planner.execute(plan, tree, system, errorMode, scenario), "cdf"));
+        TimeSeries sampled = sample(cdf, from, to, stride, points);
+
+        TFLResultsDTO tflResultsDTO = new TFLResultsDTO(systemUUID, errorModeUUID, timestep, timeLimit,
+                sampled.getElapsedTime(), sampled.getColumn("cdf"));
+        tflResultsDTO.setPlan(new AnalysisPlanDTO(plan));
+
+        if (sampled != cdf)
+            tflResultsDTO.setTimes(toList(sampled.getTimes()));
+
+        return Response
+                .ok(tflResultsDTO)
+                .build();
+    }
+
+    /**
+     * Calculates the probability that the top event occurs by each time from the observation time on, given the
+     * history of the scenario: its events up to that time have occurred at their timestamps, and no other error mode
+     * has occurred by then. The unconditioned modules of the tree are evaluated once for all the scenarios of the
+     * system, and only those on the path of the observed events are evaluated again. Results are cached per scenario
+     * and step of the observation time, which defaults to the last event of the scenario.
+     */
+    @AnalysisCost(CostClass.HEAVY)
+    @GET
+    @Path("/conditional")
+    @Produces({MediaType.APPLICATION_JSON, SeriesEncoder.MEDIA_TYPE})
+    public Response conditionalCDF(@QueryParam("systemUUID") String systemUUID,
+                                   @QueryParam("errorModeUUID") String errorModeUUID,
+                                   @QueryParam("scenarioUUID") String scenarioUUID,
+                                   @QueryParam("observationTime") Double observationTime,
+                                   @QueryParam("timeStep") double timestep,
+                                   @QueryParam("timeLimit") double timeLimit,
+                                   @QueryParam("engine") String engine,
+                                   @QueryParam("modules") boolean modules,
+                                   @QueryParam("from") Double from,
+                                   @QueryParam("to") Double to,
+                                   @QueryParam("stride") Integer stride,
+                                   @QueryParam("points") Integer points) {
+        SystemType system = systemDao.findById(systemUUID);
+        ErrorMode errorMode = errorModeDao.findById(errorModeUUID);
+        Scenario scenario = scenarioDao.findById(scenarioUUID);
+
+        if (system == null)
+            return NotFoundResponse.json("System", systemUUID);
+        if (errorMode == null)
+            return NotFoundResponse.json("ErrorMode", errorModeUUID);
+        if (scenario == null)
+            return NotFoundResponse.json("Scenario", scenarioUUID);
+
+        // Events without a timestamp are the potential faults of the scenario, not observations
+        List<Event> history = scenario.getIncomingEvents().stream()
+                .filter(event -> event.getTimestamp() != null)
+                .filter(event -> observationTime == null || event.getTimestamp().doubleValue() <= observationTime)
+                .sorted(Comparator.comparing(Event::getTimestamp))
+                .collect(Collectors.toList());
+        double time = observationTime != null ? observationTime
+                : history.isEmpty() ? 0 : history.get(history.size() - 1).getTimestamp().doubleValue();
+
+        if (time < 0 || time > timeLimit)
+            throw new BadRequestException("The observation time must be within the time limit");
+
+        TreeAnalyzer analyzer = analyzer(engine, timestep, timeLimit, modules);
+        String modelKey = AnalysisResultCache.key(systemUUID, "reliability", errorModeUUID,
+                engineKey(engine, modules), timestep, timeLimit);
+        String key = AnalysisResultCache.key(systemUUID, "conditional", errorModeUUID, scenarioUUID,
+                engineKey(engine, modules), timestep, timeLimit, (long) Math.floor(time / timestep), history.size());
+
+        TimeSeries cdf = analysisResultCache.get(key, () -> {
+            IncrementalReliability unit = new IncrementalReliability(reliabilityModelCache.get(modelKey,
+                    () -> new IncrementalReliability(analyzer, new TreeParser(system).createTree(errorMode))));
+            unit.apply(history);
+            return new TimeSeries(unit.getConditionalCdf(time), "cdf");
+        });
+        TimeSeries sampled = sample(cdf, from, to, stride, points);
+
+        TFLResultsDTO tflResultsDTO = new TFLResultsDTO(systemUUID, errorModeUUID, timestep, timeLimit,
+                sampled.getElapsedTime(), sampled.getColumn("cdf"));
+        tflResultsDTO.setTimes(toList(sampled.getTimes()));
+
+        return Response
+                .ok(tflResultsDTO)
+                .build();
+    }
+
+    /**
+     * Calculates the CDFs of several error modes of the system together, those listed with errorModeUUID or all the
+     * error modes of the component with componentUUID: their fault trees are built as a single DAG and the sub-trees
+     * they share are evaluated once. The analytic engine also accepts modules, the Pyramis one always solves modules,
+     * since it cannot represent the events shared among the trees.
+     */
+    @AnalysisCost(CostClass.HEAVY)
+    @GET
+    @Path("/batch")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response batchCDF(@QueryParam("systemUUID") String systemUUID,
+                             @QueryParam("errorModeUUID") List<String> errorModeUUIDs,
+                             @QueryParam("componentUUID") String componentUUID,
+                             @QueryParam("timeStep") double timestep,
+                             @QueryParam("timeLimit") double timeLimit,
+                             @QueryParam("engine") String engine,
+                             @QueryParam("modules") boolean modules,
+                             @QueryParam("from") Double from,
+                             @QueryParam("to") Double to,
+                             @QueryParam("stride") Integer stride,
+                             @QueryParam("points") Integer points) {
+        SystemType system = systemDao.findById(systemUUID);
+
+        if (system == null)
+            return Response.ok(NotFoundResponse.create("System", systemUUID)).build();
+
+        List<ErrorMode> errorModes = new ArrayList<>();
+
+        if (componentUUID != null) {
+            ComponentType component = componentDao.findById(componentUUID);
+
+            if (component == null)
+                return Response.ok(NotFoundResponse.create("Component", componentUUID)).build();
+
+            errorModes.addAll(component.getErrorModes());
+        }
+
+        for (String errorModeUUID : errorModeUUIDs) {
+            ErrorMode errorMode = errorModeDao.findById(errorModeUUID);
+
+            if (errorMode == null)
+                return Response.ok(NotFoundResponse.create("ErrorMode", errorModeUUID)).build();
+
+            errorModes.add(errorMode);
+        }
+
+        if (errorModes.isEmpty())
+            throw new BadRequestException("No error mode to analyse: give errorModeUUID or componentUUID");
+
+        TreeAnalyzer analyzer = analyzer(engine, timestep, timeLimit, modules);
+        Map<ErrorMode, CDFResult> cdfs = new BatchAnalyzer(analyzer).evaluate(system, errorModes);
+        List<TFLResultsDTO> results = new ArrayList<>();
+
+        for (Map.Entry<ErrorMode, CDFResult> entry : cdfs.entrySet()) {
+            TimeSeries cdf = new TimeSeries(entry.getValue(), "cdf");
+            TimeSeries sampled = sample(cdf, from, to, stride, points);
+
+            TFLResultsDTO tflResultsDTO = new TFLResultsDTO(systemUUID, entry.getKey().getUuid(), timestep, timeLimit,
+                    sampled.getElapsedTime(), sampled.getColumn("cdf"));
+
+            if (sampled != cdf)
+                tflResultsDTO.setTimes(toList(sampled.getTimes()));
+
+            results.add(tflResultsDTO);
+        }
+
+        return Response
+                .ok(results)
+                .build();
+    }
+
+    /**
+     * Evaluates the CDF of the top event for every combination of the values of the swept PDF arguments, each given as
+     * name:argument:value,value,...: fault for the time-to-fault PDF of a fault mode, delay for the fault-to-failure
+     * PDF of an error mode. The modules not depending on any of them are solved once. With time, only the CDF at that
+     * time is returned for each combination. As for batches, modules only applies to the analytic engine.
+     */
+    @AnalysisCost(CostClass.HEAVY)
+    @GET
+    @Path("/sweep")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response sweepCDF(@QueryParam("systemUUID") String systemUUID,
+                             @QueryParam("errorModeUUID") String errorModeUUID,
+                             @QueryParam("fault") List<String> faults,
+                             @QueryParam("delay") List<String> delays,
+                             @QueryParam("timeStep") double timestep,
+                             @QueryParam("timeLimit") double timeLimit,
+                             @QueryParam("engine") String engine,
+                             @QueryParam("modules") boolean modules,
+                             @QueryParam("time") Double time) {
+        Node tree;
+
+        try {
+            tree = getTreeFromSystemErrorMode(systemUUID, errorModeUUID);
+        } catch (NoEntityFoundException e) {
             return Response
-                    .ok(importanceMeasureDTO)
+                    .ok(NotFoundResponse.create(e.getEntityClass(), e.getEntityExternalID()))
                     .build();
         }
 
+        SweepResult result;
+
+        try {
+            List<ParameterSweep.Parameter> parameters = new ArrayList<>();
+
+            for (String fault : faults)
+                parameters.add(ParameterSweep.Parameter.parse(ParameterSweep.Parameter.Target.FAULT_MODE, fault));
+
+            for (String delay : delays)
+                parameters.add(ParameterSweep.Parameter.parse(ParameterSweep.Parameter.Target.ERROR_MODE, delay));
+
+            result = new ParameterSweep(analyzer(engine, timestep, timeLimit, modules), parameters).evaluate(tree);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+
         return Response
-                .noContent()
+                .ok(new SweepResultDTO(systemUUID, errorModeUUID, result, time))
                 .build();
     }
 
-    // Calculates the top event CDF using the Pyramis analysis engine
+    /**
+     * Propagates the uncertainty of arguments of the PDFs of fault modes (fault) and error modes (delay), each written
+     * as name:argument:distribution, such as pump:0:lognormal(0.0001,3), to the CDF of the top event: returns its
+     * percentiles over the samples at each time, 5, 50 and 95 by default. Without an engine, the one chosen by
+     * AnalysisPlanner for the tree is used.
+     */
+    @AnalysisCost(CostClass.HEAVY)
     @GET
-    @Path("/pyramisCDF")
+    @Path("/uncertainty")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response pyramisCDF(@QueryParam("systemUUID") String systemUUID,
-                               @QueryParam("errorModeUUID") String errorModeUUID,
-                               @QueryParam("timeStep") double timestep,
-                               @QueryParam("timeLimit") double timeLimit) {
-        HSMP hsmp;
+    public Response uncertaintyCDF(@QueryParam("systemUUID") String systemUUID,
+                                   @QueryParam("errorModeUUID") String errorModeUUID,
+                                   @QueryParam("fault") List<String> faults,
+                                   @QueryParam("delay") List<String> delays,
+                                   @QueryParam("samples") Integer samples,
+                                   @QueryParam("percentile") List<Double> percentiles,
+                                   @QueryParam("seed") Long seed,
+                                   @QueryParam("timeStep") double timestep,
+                                   @QueryParam("timeLimit") double timeLimit,
+                                   @QueryParam("engine") String engine) {
+        Node tree;
 
         try {
-            hsmp = HSMPParser.parseTree(getTreeFromSystemErrorMode(systemUUID, errorModeUUID));
+            tree = getTreeFromSystemErrorMode(systemUUID, errorModeUUID);
         } catch (NoEntityFoundException e) {
             return Response
                     .ok(NotFoundResponse.create(e.getEntityClass(), e.getEntityExternalID()))
                     .build();
         }
 
-        HierarchicalSMPAnalysis analysis = new HierarchicalSMPAnalysis(hsmp, 0);
+        UncertaintyResult result;
+        AnalysisPlan.Engine treeEngine;
+
+        try {
+            List<UncertaintyPropagation.Uncertainty> uncertainties = new ArrayList<>();
 
-        Date start = new Date();
-        analysis.evaluate(timestep, timeLimit);
-        Date end = new Date();
-        long time = end.getTime() - start.getTime();
+            for (String fault : faults)
+                uncertainties.add(UncertaintyPropagation.Uncertainty.parse(
+                        ParameterSweep.Parameter.Target.FAULT_MODE, fault));
 
-        NumericalValues cdf = HierarchicalSMPAnalysis.cdf;
+            for (String delay : delays)
+                uncertainties.add(UncertaintyPropagation.Uncertainty.parse(
+                        ParameterSweep.Parameter.Target.ERROR_MODE, delay));
 
-        TFLResultsDTO tflResultsDTO = new TFLResultsDTO(systemUUID, errorModeUUID, timestep, timeLimit, time,
-                cdf.getValues());
+            AnalysisPlanner planner = new AnalysisPlanner(timestep, timeLimit);
+            AnalysisPlan plan = planner.plan(tree, null,
+                    engine != null ? AnalysisPlan.Engine.fromString(engine) : null);
+            treeEngine = planner.treeEngine(plan);
+            UncertaintyPropagation propagation = new UncertaintyPropagation(planner.analyzer(plan), uncertainties,
+                    samples != null ? samples : UncertaintyPropagation.DEFAULT_SAMPLES,
+                    percentiles.isEmpty() ? UncertaintyPropagation.DEFAULT_PERCENTILES
+                            : percentiles.stream().mapToDouble(Double::doubleValue).toArray(),
+                    seed != null ? seed : System.nanoTime());
+            result = propagation.evaluate(tree);
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            throw new BadRequestException(e.getMessage());
+        }
 
         return Response
-                .ok(tflResultsDTO)
+                .ok(new UncertaintyResultDTO(systemUUID, errorModeUUID, treeEngine.name().toLowerCase(), result))
                 .build();
     }
 
+    /**
+     * Estimates the CDF of the top event by importance sampling, for failures too rare to be observed by plain Monte
+     * Carlo, with the relative error of the estimate at each time. Runs stop when the relative error at the time limit
+     * reaches relativeError or after runs runs; a bias of 0 selects plain Monte Carlo, no bias balanced failure
+     * biasing.
+     */
+    @AnalysisCost(CostClass.HEAVY)
+    @GET
+    @Path("/rareEvent")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response rareEventCDF(@QueryParam("systemUUID") String systemUUID,
+                                 @QueryParam("errorModeUUID") String errorModeUUID,
+                                 @QueryParam("timeStep") double timestep,
+                                 @QueryParam("timeLimit") double timeLimit,
+                                 @QueryParam("runs") Long runs,
+                                 @QueryParam("relativeError") Double relativeError,
+                                 @QueryParam("bias") Double bias,
+                                 @QueryParam("seed") Long seed) {
+        Node tree;
+
+        try {
+            tree = getTreeFromSystemErrorMode(systemUUID, errorModeUUID);
+        } catch (NoEntityFoundException e) {
+            return Response
+                    .ok(NotFoundResponse.create(e.getEntityClass(), e.getEntityExternalID()))
+                    .build();
+        }
+
+        RareEventSimulator simulator;
+
+        try {
+            simulator = new RareEventSimulator(timestep, timeLimit,
+                    runs != null ? runs : RareEventSimulator.DEFAULT_RUNS,
+                    relativeError != null ? relativeError : RareEventSimulator.DEFAULT_RELATIVE_ERROR, bias,
+                    seed != null ? seed : System.nanoTime());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+
+        return Response
+                .ok(new SimulationResultDTO(systemUUID, errorModeUUID, simulator.simulate(tree)))
+                .build();
+    }
+
+    /**
+     * Cancels the running analysis whose request carried the given X-Request-Id header, if it was started by the same
+     * caller: it stops at its next checkpoint and answers with the state of its budget
+     */
+    @DELETE
+    @Path("/requests/{requestId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response cancelRequest(@PathParam("requestId") String requestId,
+                                  @HeaderParam(AdmissionFilter.TENANT_ID) String tenant,
+                                  @Context SecurityContext securityContext,
+                                  @Context HttpServletRequest servletRequest) {
+        if (!AnalysisBudget.cancel(Caller.of(securityContext, servletRequest, tenant), requestId))
+            return Response.ok(NotFoundResponse.create("Request", requestId)).build();
+
+        return Response.noContent().build();
+    }
+
+    /* The Pyramis engine always solves modules, so that the parts with shared events fall back to the analytic
+    evaluation: modules only applies to the analytic engine */
+    static TreeAnalyzer analyzer(String engine, double timestep, double timeLimit, boolean modules) {
+        if (engine == null || engine.equalsIgnoreCase("pyramis"))
+            return new ModularAnalyzer(new PyramisAnalyzer(timestep, timeLimit));
+
+        if (engine.equalsIgnoreCase("analytic"))
+            return analyzer(new AnalyticAnalyzer(timestep, timeLimit), modules);
+
+        throw new BadRequestException("Unknown engine: " + engine);
+    }
+
+    /* Names the analyzer selected by engine and modules, so that the results of the same analyzer are cached under
+    the same key whatever the spelling of its parameters */
+    static String engineKey(String engine, boolean modules) {
+        if (engine == null || engine.equalsIgnoreCase("pyramis"))
+            return "pyramis";
+
+        if (engine.equalsIgnoreCase("analytic"))
+            return modules ? "analytic-modules" : "analytic";
+
+        throw new BadRequestException("Unknown engine: " + engine);
+    }
+
+    private static TreeAnalyzer analyzer(TreeAnalyzer analyzer, boolean modules) {
+        return modules ? new ModularAnalyzer(analyzer) : analyzer;
+    }
+
+    /**
+     * Applies the optional time window, stride and downsampling requested on an analysis result, in this order.
+     * Returns the result itself when none of them changes it.
+     */
+    private static TimeSeries sample(TimeSeries series, Double from, Double to, Integer stride, Integer points) {
+        if (from != null && to != null && from > to)
+            throw new BadRequestException("The start of the time window must not follow its end");
+
+        if (stride != null && stride < 1)
+            throw new BadRequestException("The stride must be a positive number");
+
+        if (points != null && points < 3)
+            throw new BadRequestException("At least 3 points must be requested");
+
+        TimeSeries sampled = series.window(from, to);
+
+        if (stride != null)
+            sampled = sampled.stride(stride);
+
+        if (points != null)
+            sampled = sampled.downsample(points);
+
+        return sampled;
+    }
+
+    // Converts the sampled importance measures, listing their times only if they differ from the full result
+    private static ImportanceMeasureDTO importanceMeasureDTO(String measure, String systemUUID, String errorModeUUID,
+                                                             double timestep, int time, TimeSeries measures,
+                                                             TimeSeries sampled) {
+        ImportanceMeasureDTO importanceMeasureDTO = new ImportanceMeasureDTO(measure, systemUUID, errorModeUUID, 0,
+                time, timestep);
+        importanceMeasureDTO.setElapsedAnalysisTime(sampled.getElapsedTime());
+
+        for (Map.Entry<String, double[]> entry : sampled.getColumns().entrySet())
+            importanceMeasureDTO.addFaultImportanceMeasure(new FaultImportanceMeasureDTO(entry.getKey(),
+                    entry.getValue()));
+
+        if (sampled != measures)
+            importanceMeasureDTO.setTimes(toList(sampled.getTimes()));
+
+        return importanceMeasureDTO;
+    }
+
+    private static CutSetTruncation truncation(Integer maxOrder, Double minProbability, Double missionTime) {
+        try {
+            return CutSetTruncation.of(maxOrder, minProbability, missionTime);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+    }
+
+    private static List<Double> toList(double[] values) {
+        return Arrays.stream(values).boxed().collect(Collectors.toList());
+    }
+
+    /**
+     * Calculates the Fussell-Vesely importance measure, or one of those derived from the conditioned CDFs of the top
+     * event, of each basic event of the fault tree of the given error mode, returning one column per basic event on a
+     * uniform grid of step timeStep.
+     */
+    private TimeSeries calculateImportanceMeasure(SystemType system, ErrorMode errorMode, String measure,
+                                                  double timestep, int time, CutSetTruncation truncation) {
+        ConditionedImportanceMeasure conditioned = ConditionedImportanceMeasure.of(measure);
+
+        if (conditioned != null)
+            return calculateConditionedMeasures(system, errorMode, List.of(conditioned), timestep, time)
+                    .get(conditioned);
+
+        // Create the fault tree given the system and its error mode of interest
+        TreeParser treeParser = new TreeParser(system);
+        Node node = treeParser.createTree(errorMode);
+
+        // Find all the basic events in the fault tree
+        BasicEventsFinder finder = new BasicEventsFinder();
+        finder.visit(node);
+        List<BasicEvent> basicEvents = finder.getBasicEvents();
+
+        Map<String, double[]> importanceMeasures = new LinkedHashMap<>();
+        Timer.Context calculation = Metrics.getInstance().start(Metrics.IMPORTANCE + "." + measure);
+
+        TruncatedCutSets truncatedCutSets = MOCUSEngine.getInstance().getMinimalCutSet(node, truncation);
+        List<MinimalCutSet> minimalCutSets = truncatedCutSets.getCutSets();
+        double errorBound = truncatedCutSets.getErrorBound();
+
+        // Calculate the CDF of each minimal cutset
+        Map<List<String>, double[]> mcsCDFs = calculateMCSCDF(minimalCutSets, system, errorMode,
+                timestep, time);
+
+        int length = 0;
+
+        for (Map.Entry<List<String>, double[]> entry : mcsCDFs.entrySet()) {
+            length = entry.getValue().length;
+            break;
+        }
+
+        for (BasicEvent basicEvent : basicEvents) {
+            String faultName = basicEvent.getDescription();
+            importanceMeasures.put(faultName, new double[length]);
+            List<List<String>> interestedCutSets = new ArrayList<>();
+
+            // Save each cutset in which the basic event participates in
+            for (List<String> key : mcsCDFs.keySet()) {
+                if (key.contains(basicEvent.getDescription()))
+                    interestedCutSets.add(key);
+            }
+
+            for (int index = 0; index < length; index++) {
+                double sum = 0;
+
+                for (List<String> interestedCutSet : interestedCutSets) {
+                    sum += mcsCDFs.get(interestedCutSet)[index];
+                }
+
+                /* FV measure obtained as the sum of CDFs of each cutset in which the basic event participates in
+                divided by the number of participating cutsets */
+                importanceMeasures.get(faultName)[index] = interestedCutSets.isEmpty() ? 0
+                        : sum / interestedCutSets.size();
+            }
+        }
+
+        long elapsedAnalysisTime = calculation.stop();
+
+        return new TimeSeries(CDFResult.uniformGrid(timestep, length), importanceMeasures, elapsedAnalysisTime,
+                errorBound);
+    }
+
+    /**
+     * Calculates the given importance measures of each basic event of the fault tree of the given error mode, all from
+     * the same conditioned CDFs of the top event
+     */
+    private Map<ConditionedImportanceMeasure, TimeSeries> calculateConditionedMeasures(
+            SystemType system, ErrorMode errorMode, List<ConditionedImportanceMeasure> measures, double timestep,
+            int time) {
+        Node node = new TreeParser(system).createTree(errorMode);
+        BasicEventsFinder finder = new BasicEventsFinder();
+        finder.visit(node);
+        List<BasicEvent> basicEvents = finder.getBasicEvents();
+
+        Timer.Context calculation = Metrics.getInstance().start(Metrics.IMPORTANCE + "."
+                + (measures.size() == 1 ? measures.get(0).getName() : "conditioned"));
+        ConditionedCDFResult conditioned;
+
+        try {
+            conditioned = new AnalyticAnalyzer(timestep, time).conditionAll(node);
+        } catch (UnsupportedOperationException e) {
+            // PDFs or dependencies that the analytic evaluation does not support are left to Pyramis
+            conditioned = conditionByReanalysis(system, errorMode, node, basicEvents, timestep, time);
+        }
+
+        long elapsedAnalysisTime = calculation.stop();
+        Map<ConditionedImportanceMeasure, TimeSeries> result = new EnumMap<>(ConditionedImportanceMeasure.class);
+
+        for (ConditionedImportanceMeasure measure : measures) {
+            Map<String, double[]> importanceMeasures = new LinkedHashMap<>();
+
+            for (BasicEvent basicEvent : basicEvents)
+                importanceMeasures.put(basicEvent.getFaultMode().getName(), measure.evaluate(conditioned, basicEvent));
+
+            result.put(measure, new TimeSeries(conditioned.getTimes(), importanceMeasures, elapsedAnalysisTime, 0));
+        }
+
+        return result;
+    }
+
+    /**
+     * Conditions the top event on each basic event with two Pyramis analyses per event: one of the tree with the event
+     * failed at time 0 and one of the tree without it. The CDF of the event itself is tabulated from its PDF.
+     */
+    private ConditionedCDFResult conditionByReanalysis(SystemType system, ErrorMode errorMode, Node node,
+                                                       List<BasicEvent> basicEvents, double timestep, int time) {
+        PyramisAnalyzer analyzer = new PyramisAnalyzer(timestep, time);
+        CDFResult top = analyzer.evaluate(node);
+        // Basic events mapped onto each other by a symmetry of the tree have the same conditioned CDFs
+        SymmetryDetector symmetry = new SymmetryDetector();
+        symmetry.visit(node);
+        Map<BasicEvent, BasicEvent> representatives = symmetry.getRepresentatives(node);
+        Map<BasicEvent, BasicEvent> computed = new IdentityHashMap<>();
+        Map<BasicEvent, double[]> events = new IdentityHashMap<>();
+        Map<BasicEvent, double[]> failed = new IdentityHashMap<>();
+        Map<BasicEvent, double[]> working = new IdentityHashMap<>();
+
+        for (BasicEvent basicEvent : basicEvents) {
+            BasicEvent symmetric = computed.get(representatives.get(basicEvent));
+
+            if (symmetric != null) {
+                Metrics.getInstance().increment(Metrics.SYMMETRY_REUSE);
+                events.put(basicEvent, events.get(symmetric));
+                failed.put(basicEvent, failed.get(symmetric));
+                working.put(basicEvent, working.get(symmetric));
+                continue;
+            }
+
+            double[] eventCdfValues = eventCdf(basicEvent, timestep, time, analyzer);
+
+            /* Creates a copy of the basic event taken into account with a dirac(0) PDF to compute the CDF with
+            the fault already happened in the system; at the same time, it saves the original fault mode to be
+            restored later */
+            FaultMode originalFault = TreeNodeChanger.changeFaultMode(node, basicEvent.getDescription(),
+                    new InternalFaultMode(basicEvent.getFaultMode().getName(),"dirac(0)"));
+
+            // Evaluates P(1) for the basic event
+            double[] oneCdfValues = analyzer.evaluate(node).getValues();
+
+            /* Find all the basic events excluding the one already taken into consideration: this is used later
+            to reduce the fault tree so that it will contain all the basic events excluding the one considered,
+            so that P(0) can be calculated */
+            List<String> basicEventsMinusOne = new ArrayList<>();
+            basicEvents.forEach(fault -> {
+                if (!fault.getDescription().equals(basicEvent.getFaultMode().getName()))
+                    basicEventsMinusOne.add(fault.getDescription());
+            });
+
+            TreeParser treeParser = new TreeParser(system);
+            Node newTree = treeParser.createTree(errorMode);
+            // Reduces the fault tree to exclude the currently considered basic event
+            newTree = treeParser.reduceTree(basicEventsMinusOne, newTree);
+
+            double[] zeroCdfValues = analyzer.evaluate(newTree).getValues();
+
+            // Restores the original fault mode in the fault tree
+            TreeNodeChanger.changeFaultMode(node, basicEvent.getDescription(), (InternalFaultMode) originalFault);
+
+            events.put(basicEvent, eventCdfValues);
+            failed.put(basicEvent, oneCdfValues);
+            working.put(basicEvent, zeroCdfValues);
+            computed.put(representatives.get(basicEvent), basicEvent);
+        }
+
+        return new ConditionedCDFResult(top, events, failed, working);
+    }
+
+    /**
+     * Tabulates the CDF of the time to fault of the basic event on the time grid: the PDFs that only Pyramis supports
+     * are evaluated as the only event of a tree
+     */
+    private static double[] eventCdf(BasicEvent basicEvent, double timestep, int time, PyramisAnalyzer analyzer) {
+        try {
+            return new AnalyticAnalyzer(timestep, time)
+                    .tabulate(basicEvent.getFaultMode().getTimeToFaultPDFToString());
+        } catch (UnsupportedOperationException e) {
+            return analyzer.evaluate(new OR(List.of(new BasicEvent(basicEvent.getFaultMode())),
+                    basicEvent.getDescription())).getValues();
+        }
+    }
+
     /**
      * Private utility method used to create a Fault Tree and return its top event starting from the String version
      * of the activation function of an error mode.
@@ -297,21 +1037,29 @@ public class AnalysisEndpoint {
      */
     private Map<List<String>, double[]> calculateMCSCDF(List<MinimalCutSet> minimalCutSets, SystemType system,
                                                         ErrorMode errorMode, double timeStep, int time) {
+        List<List<String>> cutSets = new ArrayList<>();
+        List<Node> reducedTrees = new ArrayList<>();
+        // The trees are built from the entities on the calling thread: only their evaluation runs on the pool
         TreeParser treeParser = new TreeParser(system);
-        Map<List<String>, double[]> cdfValues = new HashMap<>();
+        Node tree = treeParser.createTree(errorMode);
 
         for (MinimalCutSet minimalCutSet : minimalCutSets) {
-            Node tree = treeParser.createTree(errorMode);
             List<String> mcs = minimalCutSet.getCutSet().stream()
                     .map(BasicEvent::getDescription)
                     .collect(Collectors.toList());
 
-            Node reducedTree = treeParser.reduceTree(mcs, tree);
-            HSMP hsmp = HSMPParser.parseTree(reducedTree);
-            HierarchicalSMPAnalysis analysis = new HierarchicalSMPAnalysis(hsmp, 0);
-            analysis.evaluate(timeStep, time);
-            NumericalValues cdf = HierarchicalSMPAnalysis.cdf;
-            cdfValues.put(mcs, cdf.getValues());
+            cutSets.add(mcs);
+            // Each cut set reduces its own copy, since reduceTree modifies the tree it is given
+            reducedTrees.add(treeParser.reduceTree(mcs, tree.copy()));
+        }
+
+        Map<List<String>, double[]> cdfValues = new HashMap<>();
+
+        try (AnalysisPool pool = new AnalysisPool()) {
+            List<CDFResult> results = pool.evaluateDistinct(reducedTrees, new PyramisAnalyzer(timeStep, time));
+
+            for (int index = 0; index < cutSets.size(); index++)
+                cdfValues.put(cutSets.get(index), results.get(index).getValues());
         }
 
         return cdfValues;
@@ -0,0 +1,74 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.endpoint;
+
+import it.unifi.stlab.faultflow.analysis.AnalysisBudget;
+import it.unifi.stlab.faultflow.analysis.BudgetExceededException;
+import it.unifi.stlab.faultflow.analysis.CDFResult;
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import org.json.JSONObject;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Answers an analysis stopped by its budget with the state of the budget and the partial result, if any: 422 when the
+ * model exceeds the state or memory limits, so that repeating the request is useless, 503 when it timed out or was
+ * cancelled.
+ */
+@Provider
+public class BudgetExceededMapper implements ExceptionMapper<BudgetExceededException> {
+
+    /* Unprocessable Entity, missing from Response.Status */
+    private static final int UNPROCESSABLE = 422;
+
+    @Override
+    public Response toResponse(BudgetExceededException exception) {
+        Metrics.getInstance().increment(Metrics.BUDGET_EXCEEDED + "." + exception.getReason().name().toLowerCase());
+        JSONObject response = new JSONObject();
+        response.put("status", "BudgetExceeded")
+                .put("reason", exception.getReason())
+                .put("phase", exception.getPhase())
+                .put("elapsedMillis", exception.getElapsedMillis())
+                .put("exploredStates", exception.getStates())
+                .put("estimatedMemory", exception.getMemory());
+
+        CDFResult partial = exception.getPartialResult();
+
+        if (partial != null) {
+            response.put("partial", new JSONObject()
+                    .put("timeStep", partial.getTimeStep())
+                    .put("times", partial.getTimes())
+                    .put("cdf", partial.getValues()));
+        }
+
+        boolean tooLarge = exception.getReason() == AnalysisBudget.Reason.STATES
+                || exception.getReason() == AnalysisBudget.Reason.MEMORY;
+
+        return Response
+                .status(tooLarge ? UNPROCESSABLE : Response.Status.SERVICE_UNAVAILABLE.getStatusCode())
+                .type(MediaType.APPLICATION_JSON)
+                .entity(response.toString())
+                .build();
+    }
+}
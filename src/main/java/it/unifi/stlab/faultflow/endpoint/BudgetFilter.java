@@ -0,0 +1,131 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.endpoint;
+
+import it.unifi.stlab.faultflow.analysis.AnalysisBudget;
+import org.json.JSONObject;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+
+/**
+ * Sets the budget of the analyses run by every request except those on the metrics. The server limits, given by the
+ * faultflow.budget.timeout (milliseconds), faultflow.budget.maxStates and faultflow.budget.maxMemory (bytes) system
+ * properties, can be lowered by the X-Analysis-Timeout, X-Analysis-Max-States and X-Analysis-Max-Memory headers. With
+ * an X-Request-Id header, the analysis can be cancelled with DELETE /analysis/requests/{id} while it runs, by the same
+ * caller only: a request reusing the id of a running analysis of its caller is answered with 409.
+ *
+ * The budget is released by the response filter, and in any case by BudgetReleaseFilter once the servlet request
+ * completes, also when the request fails before reaching the response filters.
+ */
+@Provider
+public class BudgetFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final String REQUEST_ID = "X-Request-Id";
+    public static final String TIMEOUT = "X-Analysis-Timeout";
+    public static final String MAX_STATES = "X-Analysis-Max-States";
+    public static final String MAX_MEMORY = "X-Analysis-Max-Memory";
+
+    public static final long DEFAULT_TIMEOUT = 10 * 60 * 1000;
+
+    static final String BUDGET_PROPERTY = AnalysisBudget.class.getName();
+
+    @Context
+    HttpServletRequest servletRequest;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        String path = requestContext.getUriInfo().getPath();
+
+        if (path.startsWith("/"))
+            path = path.substring(1);
+
+        if (path.startsWith("metrics"))
+            return;
+
+        String requestId = requestContext.getHeaderString(REQUEST_ID);
+        AnalysisBudget budget = new AnalysisBudget(Caller.of(requestContext.getSecurityContext(), servletRequest,
+                requestContext.getHeaderString(AdmissionFilter.TENANT_ID)),
+                requestId,
+                limit(requestContext, TIMEOUT, Long.getLong("faultflow.budget.timeout", DEFAULT_TIMEOUT)),
+                limit(requestContext, MAX_STATES, Long.getLong("faultflow.budget.maxStates", 0)),
+                limit(requestContext, MAX_MEMORY, Long.getLong("faultflow.budget.maxMemory",
+                        Runtime.getRuntime().maxMemory() / 2)));
+
+        try {
+            requestContext.setProperty(BUDGET_PROPERTY, budget.activate());
+
+            if (servletRequest != null)
+                servletRequest.setAttribute(BUDGET_PROPERTY, budget);
+        } catch (IllegalStateException e) {
+            requestContext.abortWith(Response
+                    .status(Response.Status.CONFLICT)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity(new JSONObject()
+                            .put("status", "Conflict")
+                            .put("reason", e.getMessage())
+                            .toString())
+                    .build());
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext,
+                       ContainerResponseContext responseContext) throws IOException {
+        Object budget = requestContext.getProperty(BUDGET_PROPERTY);
+
+        if (budget instanceof AnalysisBudget)
+            ((AnalysisBudget) budget).release();
+    }
+
+    // The limit requested by the header, which cannot exceed the server one, zero meaning unlimited for both
+    private static long limit(ContainerRequestContext requestContext, String header, long serverLimit) {
+        String value = requestContext.getHeaderString(header);
+
+        if (value == null)
+            return serverLimit;
+
+        long requested;
+
+        try {
+            requested = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid " + header + " header: " + value);
+        }
+
+        if (requested < 0)
+            throw new BadRequestException("The " + header + " header must not be negative");
+
+        if (serverLimit == 0)
+            return requested;
+
+        return requested == 0 ? serverLimit : Math.min(requested, serverLimit);
+    }
+}
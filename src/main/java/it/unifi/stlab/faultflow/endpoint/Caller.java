@@ -0,0 +1,50 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.endpoint;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.SecurityContext;
+import java.security.Principal;
+
+/**
+ * Identifies the caller of a request from data the client cannot choose freely: the authenticated user, if any, or
+ * the remote address otherwise. The tenant named by the X-Tenant-Id header is only trusted when the
+ * faultflow.trustTenantHeader system property is set, as behind a gateway that authenticates the clients and sets the
+ * header itself: otherwise a client could get around the per-caller limits by changing it.
+ */
+class Caller {
+
+    public static final String TRUST_TENANT_PROPERTY = "faultflow.trustTenantHeader";
+
+    private Caller() {
+    }
+
+    static String of(SecurityContext securityContext, HttpServletRequest servletRequest, String tenant) {
+        Principal principal = securityContext != null ? securityContext.getUserPrincipal() : null;
+
+        if (principal != null)
+            return "user:" + principal.getName();
+
+        if (tenant != null && Boolean.getBoolean(TRUST_TENANT_PROPERTY))
+            return "tenant:" + tenant;
+
+        return servletRequest != null ? "address:" + servletRequest.getRemoteAddr() : "anonymous";
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.endpoint;
+
+import it.unifi.stlab.faultflow.dto.analysis.FaultImportanceMeasureDTO;
+import it.unifi.stlab.faultflow.dto.analysis.ImportanceMeasureDTO;
+import it.unifi.stlab.faultflow.dto.analysis.TFLResultsDTO;
+import it.unifi.stlab.faultflow.exporter.SeriesEncoder;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serialises analysis results with SeriesEncoder when the client accepts SeriesEncoder.MEDIA_TYPE. The "precision"
+ * media type parameter selects single (32) or double (64, the default) precision values. Any other entity returned
+ * by the endpoints producing SeriesEncoder.MEDIA_TYPE, such as NotFoundResponse.json, must set its media type to JSON
+ * explicitly, since this writer does not accept it.
+ */
+@Provider
+@Produces(SeriesEncoder.MEDIA_TYPE)
+public class CompactSeriesWriter implements MessageBodyWriter<Object> {
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return TFLResultsDTO.class.isAssignableFrom(type) || ImportanceMeasureDTO.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public void writeTo(Object result, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        int precision = "32".equals(mediaType.getParameters().get(SeriesEncoder.PRECISION_PARAMETER)) ? 4 : 8;
+        Map<String, String> metadata = new LinkedHashMap<>();
+        Map<String, double[]> columns = new LinkedHashMap<>();
+        double[] times = null;
+
+        if (result instanceof TFLResultsDTO) {
+            TFLResultsDTO dto = (TFLResultsDTO) result;
+            metadata.put("systemUUID", dto.getSystemUUID());
+            metadata.put("errorModeUUID", dto.getErrorModeUUID());
+            metadata.put("timestep", String.valueOf(dto.getTimestep()));
+            metadata.put("timeLimit", String.valueOf(dto.getTimeLimit()));
+            metadata.put("elapsedAnalysisTime", String.valueOf(dto.getElapsedAnalysisTime()));
+
+            if (dto.getTimes() != null)
+                times = toArray(dto.getTimes());
+
+            columns.put("cdf", toArray(dto.getCdf()));
+        } else {
+            ImportanceMeasureDTO dto = (ImportanceMeasureDTO) result;
+            metadata.put("importanceMeasure", dto.getImportanceMeasure());
+            metadata.put("systemUUID", dto.getSystemUUID());
+            metadata.put("errorModeUUID", dto.getErrorModeUUID());
+            metadata.put("timestep", String.valueOf(dto.getTimestep()));
+            metadata.put("evaluationTime", String.valueOf(dto.getEvaluationTime()));
+            metadata.put("elapsedAnalysisTime", String.valueOf(dto.getElapsedAnalysisTime()));
+
+            if (dto.getTruncationErrorBound() != null)
+                metadata.put("truncationErrorBound", String.valueOf(dto.getTruncationErrorBound()));
+
+            if (dto.getTimes() != null)
+                times = toArray(dto.getTimes());
+
+            for (FaultImportanceMeasureDTO fault : dto.getValues())
+                columns.put(fault.getFaultName(), fault.getValues());
+        }
+
+        SeriesEncoder.encode(entityStream, metadata, times, columns, precision);
+    }
+
+    private static double[] toArray(List<Double> values) {
+        double[] array = new double[values.size()];
+
+        for (int index = 0; index < array.length; index++)
+            array[index] = values.get(index);
+
+        return array;
+    }
+}
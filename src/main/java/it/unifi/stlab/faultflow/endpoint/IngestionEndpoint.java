@@ -0,0 +1,265 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.endpoint;
+
+import it.unifi.stlab.faultflow.analysis.CDFResult;
+import it.unifi.stlab.faultflow.analysis.IncrementalReliability;
+import it.unifi.stlab.faultflow.businessLogic.ingestion.EventIngestionService;
+import it.unifi.stlab.faultflow.businessLogic.ingestion.ReliabilityUpdate;
+import it.unifi.stlab.faultflow.businessLogic.scheduler.AdmissionRejectedException;
+import it.unifi.stlab.faultflow.businessLogic.scheduler.AnalysisScheduler;
+import it.unifi.stlab.faultflow.businessLogic.scheduler.CostClass;
+import it.unifi.stlab.faultflow.dao.knowledge.ErrorModeDao;
+import it.unifi.stlab.faultflow.dao.knowledge.SystemDao;
+import it.unifi.stlab.faultflow.dto.analysis.ReliabilityUpdateDTO;
+import it.unifi.stlab.faultflow.endpoint.response.NotFoundResponse;
+import it.unifi.stlab.faultflow.model.knowledge.composition.SystemType;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
+import it.unifi.stlab.faultflow.model.operational.Event;
+import it.unifi.stlab.transformation.TreeParser;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Path("/ingestion")
+public class IngestionEndpoint {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    @Inject
+    SystemDao systemDao;
+
+    @Inject
+    ErrorModeDao errorModeDao;
+
+    @Inject
+    EventIngestionService ingestionService;
+
+    @Inject
+    AnalysisScheduler scheduler;
+
+    /**
+     * Starts tracking an operating unit of the system, whose top event is the given error mode, and returns its
+     * failure probability before any event is observed
+     */
+    @AnalysisCost(CostClass.HEAVY)
+    @POST
+    @Path("/units/{unit}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response registerUnit(@PathParam("unit") String unit,
+                                 @QueryParam("systemUUID") String systemUUID,
+                                 @QueryParam("errorModeUUID") String errorModeUUID,
+                                 @QueryParam("timeStep") double timestep,
+                                 @QueryParam("timeLimit") double timeLimit,
+                                 @QueryParam("engine") String engine,
+                                 @QueryParam("modules") boolean modules) {
+        SystemType system = systemDao.findById(systemUUID);
+
+        if (system == null)
+            return Response.ok(NotFoundResponse.create("System", systemUUID)).build();
+
+        ErrorMode errorMode = errorModeDao.findById(errorModeUUID);
+
+        if (errorMode == null)
+            return Response.ok(NotFoundResponse.create("ErrorMode", errorModeUUID)).build();
+
+        IncrementalReliability reliability = new IncrementalReliability(
+                AnalysisEndpoint.analyzer(engine, timestep, timeLimit, modules),
+                new TreeParser(system).createTree(errorMode));
+
+        return Response
+                .ok(new ReliabilityUpdateDTO(ingestionService.register(unit, system, reliability)))
+                .build();
+    }
+
+    @DELETE
+    @Path("/units/{unit}")
+    public Response unregisterUnit(@PathParam("unit") String unit) {
+        ingestionService.unregister(unit);
+        return Response.noContent().build();
+    }
+
+    /* Returns the last failure probability and remaining reliability published for the unit */
+    @GET
+    @Path("/units/{unit}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getUnit(@PathParam("unit") String unit) {
+        ReliabilityUpdate update = ingestionService.getUpdate(unit);
+
+        if (update == null)
+            return Response.ok(NotFoundResponse.create("Unit", unit)).build();
+
+        return Response
+                .ok(new ReliabilityUpdateDTO(update))
+                .build();
+    }
+
+    /**
+     * Returns the CDF of the top event of the unit from the observation time on, given the events applied so far and
+     * that nothing else has occurred by then; it defaults to the time of the last event. Results are cached for the
+     * unit until its next events are applied.
+     */
+    @AnalysisCost(CostClass.CHEAP)
+    @GET
+    @Path("/units/{unit}/conditional")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getConditional(@PathParam("unit") String unit,
+                                   @QueryParam("observationTime") Double observationTime) {
+        ReliabilityUpdate update = ingestionService.getUpdate(unit);
+
+        if (update == null)
+            return Response.ok(NotFoundResponse.create("Unit", unit)).build();
+
+        CDFResult cdf;
+
+        try {
+            cdf = ingestionService.getConditional(unit, observationTime);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+
+        if (cdf == null)
+            return Response.ok(NotFoundResponse.create("Unit", unit)).build();
+
+        JSONObject response = new JSONObject();
+        response.put("unit", unit)
+                .put("timeStep", cdf.getTimeStep())
+                .put("times", cdf.getTimes())
+                .put("cdf", cdf.getValues())
+                .put("elapsedAnalysisTime", cdf.getElapsedTime());
+
+        return Response
+                .ok(response.toString())
+                .build();
+    }
+
+    /**
+     * Ingests newline-delimited JSON events such as {"unit": "U1", "type": "fault", "mode": "K1Fault", "timestamp":
+     * 120.5}, where type is fault, error or failure and mode names the fault mode, the error mode or the failure mode.
+     * The events are validated all together, then queued for the ingestion worker; with wait, they are applied before
+     * answering and the updates of their units are returned instead. Since applying them evaluates the affected
+     * modules on the request thread, a waiting request is also admitted on the heavy lane.
+     *
+     * Without wait, once the queue rejects an event of a unit the following events of that unit are not offered, so
+     * that the evidence of a unit never has holes: the response lists the lines that were not queued, which can be
+     * sent again in the same order.
+     */
+    @AnalysisCost(CostClass.CHEAP)
+    @POST
+    @Path("/events")
+    @Consumes({NDJSON, MediaType.TEXT_PLAIN})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response ingestEvents(String body,
+                                 @QueryParam("wait") boolean wait,
+                                 @HeaderParam(AdmissionFilter.TENANT_ID) String tenant,
+                                 @Context SecurityContext securityContext,
+                                 @Context HttpServletRequest servletRequest) {
+        Map<String, List<Event>> events = new LinkedHashMap<>();
+        Map<String, List<Integer>> lineNumbers = new LinkedHashMap<>();
+        String[] lines = body.split("\r?\n");
+        int count = 0;
+
+        for (int index = 0; index < lines.length; index++) {
+            if (lines[index].isBlank())
+                continue;
+
+            try {
+                JSONObject line = new JSONObject(lines[index]);
+                String unit = line.getString("unit");
+                Event event = ingestionService.createEvent(unit, line.getString("type"), line.getString("mode"),
+                        line.getBigDecimal("timestamp"), line.optString("description", null));
+
+                events.computeIfAbsent(unit, key -> new ArrayList<>()).add(event);
+                lineNumbers.computeIfAbsent(unit, key -> new ArrayList<>()).add(index + 1);
+                count++;
+            } catch (JSONException | IllegalArgumentException e) {
+                throw new BadRequestException("Line " + (index + 1) + ": " + e.getMessage());
+            }
+        }
+
+        if (wait) {
+            List<ReliabilityUpdateDTO> updates = new ArrayList<>();
+
+            try (AnalysisScheduler.Admission admission = scheduler.admit(CostClass.HEAVY,
+                    Caller.of(securityContext, servletRequest, tenant))) {
+                for (Map.Entry<String, List<Event>> entry : events.entrySet())
+                    updates.add(new ReliabilityUpdateDTO(ingestionService.apply(entry.getKey(), entry.getValue())));
+            } catch (AdmissionRejectedException e) {
+                return AdmissionFilter.tooManyRequests(e, scheduler);
+            }
+
+            return Response
+                    .ok(updates)
+                    .build();
+        }
+
+        int accepted = 0;
+        List<Integer> rejectedLines = new ArrayList<>();
+
+        for (Map.Entry<String, List<Event>> entry : events.entrySet()) {
+            List<Event> unitEvents = entry.getValue();
+            List<Integer> unitLines = lineNumbers.get(entry.getKey());
+
+            for (int index = 0; index < unitEvents.size(); index++) {
+                if (!ingestionService.offer(entry.getKey(), unitEvents.get(index))) {
+                    rejectedLines.addAll(unitLines.subList(index, unitLines.size()));
+                    break;
+                }
+
+                accepted++;
+            }
+        }
+
+        Collections.sort(rejectedLines);
+
+        JSONObject response = new JSONObject();
+        response.put("accepted", accepted)
+                .put("rejected", count - accepted)
+                .put("rejectedLines", rejectedLines)
+                .put("pending", ingestionService.getPending());
+
+        return Response
+                .status(accepted < count ? Response.Status.SERVICE_UNAVAILABLE : Response.Status.ACCEPTED)
+                .entity(response.toString())
+                .build();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.endpoint;
+
+import it.unifi.stlab.faultflow.dto.metrics.MetricsDTO;
+import it.unifi.stlab.faultflow.dto.metrics.TraceDTO;
+import it.unifi.stlab.faultflow.endpoint.response.NotFoundResponse;
+import it.unifi.stlab.faultflow.metrics.AnalysisTrace;
+import it.unifi.stlab.faultflow.metrics.Metrics;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+@Path("/metrics")
+public class MetricsEndpoint {
+
+    /* Returns the timers and counters of every phase of the analysis pipeline, together with the last traces */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getMetrics(@QueryParam("traces") @DefaultValue("20") int traces) {
+        return Response
+                .ok(new MetricsDTO(Metrics.getInstance(), Math.max(traces, 0)))
+                .build();
+    }
+
+    @GET
+    @Path("/trace")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getTrace(@QueryParam("traceId") String traceId) {
+        AnalysisTrace trace = Metrics.getInstance().findTrace(traceId);
+
+        if (trace == null)
+            return Response
+                    .ok(NotFoundResponse.create("Trace", traceId))
+                    .build();
+
+        return Response
+                .ok(new TraceDTO(trace))
+                .build();
+    }
+
+    @DELETE
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response resetMetrics() {
+        Metrics.getInstance().reset();
+        return Response.ok().build();
+    }
+}
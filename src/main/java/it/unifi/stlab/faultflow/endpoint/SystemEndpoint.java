@@ -20,26 +20,38 @@
 
 package it.unifi.stlab.faultflow.endpoint;
 
+import it.unifi.stlab.faultflow.businessLogic.cache.AnalysisResultCache;
+import it.unifi.stlab.faultflow.businessLogic.cache.ReliabilityModelCache;
 import it.unifi.stlab.faultflow.businessLogic.controller.SystemController;
+import it.unifi.stlab.faultflow.businessLogic.scheduler.CostClass;
 import it.unifi.stlab.faultflow.dto.inputsystemdto.InputSystemDto;
 import it.unifi.stlab.faultflow.dto.system.OutputSystemDto;
 import it.unifi.stlab.faultflow.endpoint.response.NotFoundResponse;
 import it.unifi.stlab.faultflow.exporter.PetriNetExportMethod;
-import it.unifi.stlab.faultflow.exporter.XPNExporter;
+import it.unifi.stlab.faultflow.exporter.XPNStreamExporter;
+import it.unifi.stlab.faultflow.exporter.strategies.LayeredExportToXPN;
 import it.unifi.stlab.faultflow.exporter.strategies.OrderByComponentToXPN;
+import it.unifi.stlab.faultflow.exporter.xpn.TpnEditor;
 import it.unifi.stlab.faultflow.mapper.FaultTreeMapper;
 import it.unifi.stlab.faultflow.mapper.SystemMapper;
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.metrics.Timer;
 import it.unifi.stlab.faultflow.model.knowledge.composition.SystemType;
 import it.unifi.stlab.faultflow.translator.PetriNetTranslator;
 
+import javax.annotation.Resource;
 import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 import javax.transaction.Transactional;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.xml.bind.JAXBException;
-import java.io.File;
-import java.io.FileNotFoundException;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
 
 @Path("/system")
 public class SystemEndpoint {
@@ -47,27 +59,60 @@ public class SystemEndpoint {
     @Inject
     SystemController systemController;
 
+    @Inject
+    AnalysisResultCache analysisResultCache;
+
+    @Inject
+    ReliabilityModelCache reliabilityModelCache;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @AnalysisCost(CostClass.CHEAP)
     @POST
     @Path("/xpn")
     @Consumes(MediaType.APPLICATION_JSON)
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     public Response getPetriNetXPN(InputSystemDto inputSystemDto,
-                                   @QueryParam("method") @DefaultValue("fa") String method) {
+                                   @QueryParam("method") @DefaultValue("fa") String method,
+                                   @QueryParam("layout") @DefaultValue("component") String layout) {
         PetriNetTranslator pnt = new PetriNetTranslator();
         SystemType sys = SystemMapper.BddToSystem(inputSystemDto.getBdd());
         FaultTreeMapper.decorateSystem(inputSystemDto.getFaultTree(), sys);
-        File out = new File("PetriNet.xpn");
+        LayeredExportToXPN layered = null;
+        TpnEditor tpnEditor = null;
         try {
             pnt.translate(sys, PetriNetExportMethod.fromString(method));
-            XPNExporter.export(out, new OrderByComponentToXPN(sys, pnt.getPetriNet(), pnt.getMarking()));
-            return Response.ok(out).header("Content-Disposition", "attachment; filename=" + "PetriNet.xpn").build();
-        } catch (FileNotFoundException fnf) {
-            throw new NotFoundException("File not Found");
-        } catch (JAXBException e) {
-            throw new BadRequestException("There's been a problem with the conversion to XPN");
+            // The layered layout is computed in linear time, for nets too large to be ordered by component, and its
+            // entities are written as they are created instead of building the whole document first
+            if (layout.equals("layered"))
+                layered = new LayeredExportToXPN(pnt.getPetriNet(), pnt.getMarking());
+            else
+                tpnEditor = new OrderByComponentToXPN(sys, pnt.getPetriNet(), pnt.getMarking()).translate();
         } catch (Exception e) {
             throw new InternalServerErrorException("Unexpected Server Problem");
         }
+
+        LayeredExportToXPN layeredStrategy = layered;
+        TpnEditor translated = tpnEditor;
+
+        // The document is written to the response as it is serialised, with no file on disk
+        StreamingOutput output = outputStream -> {
+            try {
+                if (layeredStrategy != null)
+                    XPNStreamExporter.export(outputStream, layeredStrategy);
+                else
+                    XPNStreamExporter.export(outputStream, translated);
+            } catch (JAXBException | XMLStreamException e) {
+                // The response may already be committed: the failure can only end the document early
+                throw new IOException("Unexpected Server Problem", e);
+            }
+        };
+
+        return Response.ok(output)
+                .type(MediaType.APPLICATION_XML)
+                .header("Content-Disposition", "attachment; filename=" + "PetriNet.xpn")
+                .build();
     }
 
     @POST
@@ -76,9 +121,12 @@ public class SystemEndpoint {
     @Produces(MediaType.APPLICATION_JSON)
     @Transactional
     public Response persistSystem(InputSystemDto inputSystemDto) {
+        Timer.Context ingest = Metrics.getInstance().start(Metrics.INGEST);
         SystemType sys = SystemMapper.BddToSystem(inputSystemDto.getBdd());
         FaultTreeMapper.decorateSystem(inputSystemDto.getFaultTree(), sys);
         systemController.persistSystem(sys);
+        ingest.stop();
+        invalidateAfterCommit(sys.getUuid());
         return Response.ok(FaultTreeMapper.systemToOutputSystem(sys)).build();
     }
 
@@ -103,6 +151,10 @@ public class SystemEndpoint {
     @Transactional
     public Response clearDatabase() {
         systemController.removeAllSystems();
+        afterCommit(() -> {
+            analysisResultCache.clear();
+            reliabilityModelCache.clear();
+        });
 
         return Response.ok().build();
     }
@@ -116,10 +168,35 @@ public class SystemEndpoint {
         } else {
             try {
                 systemController.removeSystem(systemUUID);
+                invalidateAfterCommit(systemUUID);
             } catch (Exception e) {
                 throw new Error(e.getMessage());
             }
         }
         return Response.ok().build();
     }
+
+    /* The cached results of the system are invalidated once the transaction has committed: before, a concurrent
+    request could still read the old rows and cache them again */
+    private void invalidateAfterCommit(String systemUUID) {
+        afterCommit(() -> {
+            analysisResultCache.invalidateSystem(systemUUID);
+            reliabilityModelCache.invalidateSystem(systemUUID);
+        });
+    }
+
+    private void afterCommit(Runnable task) {
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED)
+                    task.run();
+            }
+        });
+    }
 }
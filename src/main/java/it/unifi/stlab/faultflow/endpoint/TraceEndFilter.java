@@ -0,0 +1,53 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.endpoint;
+
+import it.unifi.stlab.faultflow.metrics.AnalysisTrace;
+import it.unifi.stlab.faultflow.metrics.Metrics;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import java.io.IOException;
+
+/**
+ * Ends the trace started by TraceFilter once the servlet request completes, whatever its outcome, so that the traces
+ * of failed requests are published too and none is left current on the pooled thread. Ending a trace twice has no
+ * effect.
+ */
+@WebFilter("/*")
+public class TraceEndFilter implements Filter {
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Object trace = request.getAttribute(TraceFilter.TRACE_PROPERTY);
+
+            if (trace instanceof AnalysisTrace)
+                Metrics.getInstance().endTrace((AnalysisTrace) trace);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.endpoint;
+
+import it.unifi.stlab.faultflow.metrics.AnalysisTrace;
+import it.unifi.stlab.faultflow.metrics.Metrics;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+
+/**
+ * Starts a trace for every request except those on the metrics themselves, and returns its id in the X-Trace-Id
+ * header, so that the time spent in each phase of the analysis can be looked up on /metrics/trace.
+ *
+ * The trace is ended by the response filter, and in any case by TraceEndFilter once the servlet request completes, so
+ * that failed requests are traced as well.
+ */
+@Provider
+public class TraceFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    static final String TRACE_PROPERTY = AnalysisTrace.class.getName();
+
+    @Context
+    HttpServletRequest servletRequest;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        String path = requestContext.getUriInfo().getPath();
+
+        if (path.startsWith("/"))
+            path = path.substring(1);
+
+        if (path.startsWith("metrics"))
+            return;
+
+        AnalysisTrace trace = Metrics.getInstance().startTrace(requestContext.getMethod() + " /" + path);
+        requestContext.setProperty(TRACE_PROPERTY, trace);
+
+        if (servletRequest != null)
+            servletRequest.setAttribute(TRACE_PROPERTY, trace);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext,
+                       ContainerResponseContext responseContext) throws IOException {
+        Object trace = requestContext.getProperty(TRACE_PROPERTY);
+
+        if (trace instanceof AnalysisTrace) {
+            responseContext.getHeaders().add(AnalysisTrace.HEADER, ((AnalysisTrace) trace).getId());
+            Metrics.getInstance().endTrace((AnalysisTrace) trace);
+        }
+    }
+}
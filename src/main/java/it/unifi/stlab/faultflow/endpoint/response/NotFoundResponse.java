@@ -2,6 +2,7 @@ package it.unifi.stlab.faultflow.endpoint.response;
 
 import org.json.JSONObject;
 
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 public class NotFoundResponse {
@@ -17,4 +18,21 @@ public class NotFoundResponse {
                 .ok(response)
                 .build();
     }
+
+    /**
+     * Builds the not found response as a JSON string with an explicit media type, for endpoints that also produce
+     * media types whose writers only accept their results
+     */
+    public static Response json(String entityClass, String entityUUID) {
+        JSONObject response = new JSONObject();
+
+        response.put("status", "EntityNotFound")
+                .put("entityClass", entityClass)
+                .put("entityUUID", entityUUID);
+
+        return Response
+                .ok(response.toString())
+                .type(MediaType.APPLICATION_JSON)
+                .build();
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.exporter;
+
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.metrics.Timer;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Writes analysis time series as columnar CSV files: a header row with "time" and the column names, followed by one
+ * row per time point.
+ */
+public class CSVExporter {
+
+    private CSVExporter() {
+    }
+
+    public static void export(String path, double[] times, Map<String, double[]> columns) throws IOException {
+        try (Timer.Context export = Metrics.getInstance().start(Metrics.EXPORT);
+             Writer writer = new BufferedWriter(new FileWriter(path), 1 << 16)) {
+            export(writer, times, columns);
+        }
+    }
+
+    public static void export(Writer writer, double[] times, Map<String, double[]> columns) throws IOException {
+        StringBuilder row = new StringBuilder("time");
+
+        for (String name : columns.keySet())
+            row.append(',').append(name);
+
+        writer.write(row.append('\n').toString());
+
+        for (int index = 0; index < times.length; index++) {
+            row.setLength(0);
+            row.append(times[index]);
+
+            for (double[] column : columns.values())
+                row.append(',').append(index < column.length ? String.valueOf(column[index]) : "");
+
+            writer.write(row.append('\n').toString());
+        }
+    }
+}
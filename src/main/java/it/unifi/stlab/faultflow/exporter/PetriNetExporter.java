@@ -21,6 +21,7 @@
 package it.unifi.stlab.faultflow.exporter;
 
 import it.unifi.stlab.faultflow.exporter.strategies.BasicExportToXPN;
+import it.unifi.stlab.faultflow.exporter.strategies.LayeredExportToXPN;
 import it.unifi.stlab.faultflow.exporter.strategies.OrderByComponentToXPN;
 import it.unifi.stlab.faultflow.model.knowledge.composition.SystemType;
 import it.unifi.stlab.faultflow.translator.PetriNetTranslator;
@@ -46,6 +47,11 @@ public class PetriNetExporter {
                 new BasicExportToXPN(pnt.getPetriNet(), pnt.getMarking()));
     }
 
+    public static void exportPetriNetLayered(PetriNetTranslator pnt) throws JAXBException, FileNotFoundException{
+        XPNExporter.export(new File("export/PetriNet_"+pnt.getName()+"_Layered.xpn"),
+                new LayeredExportToXPN(pnt.getPetriNet(), pnt.getMarking()));
+    }
+
     public static void exportPetriNetOrderedByComponent(PetriNetTranslator pnt, SystemType system) throws JAXBException, FileNotFoundException{
         XPNExporter.export(new File("export/"+system.getName() +"_ByComponent_Fault2Failure.xpn"),
                 new OrderByComponentToXPN(system, pnt.getPetriNet(), pnt.getMarking()));
@@ -0,0 +1,175 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.exporter;
+
+import java.io.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact columnar encoding of analysis time series, used in place of JSON arrays for large CDF and importance
+ * measure results.
+ *
+ * The stream is gzip compressed and contains: the magic "FFTS", a version byte, the precision in bytes (4 or 8), the
+ * metadata as string pairs, the time column (if the grid is not uniform) and the value columns. Each column is stored
+ * as its length followed by its first value and the deltas between consecutive values. Deltas are computed against the
+ * value the decoder will reconstruct, so single precision rounding does not accumulate along the series.
+ */
+public class SeriesEncoder {
+
+    public static final String MEDIA_TYPE = "application/x-faultflow-series";
+    public static final String PRECISION_PARAMETER = "precision";
+
+    private static final byte[] MAGIC = {'F', 'F', 'T', 'S'};
+    private static final byte VERSION = 1;
+
+    private SeriesEncoder() {
+    }
+
+    /**
+     * Writes the given columns to the stream; times can be null when the series is sampled on a uniform grid, whose
+     * step should then be part of the metadata
+     *
+     * @param precision 4 for single precision deltas, 8 for double precision ones
+     */
+    public static void encode(OutputStream output, Map<String, String> metadata, double[] times,
+                              Map<String, double[]> columns, int precision) throws IOException {
+        if (precision != 4 && precision != 8)
+            throw new IllegalArgumentException("Unsupported precision: " + precision);
+
+        GZIPOutputStream gzip = new GZIPOutputStream(output, 1 << 16);
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(gzip, 1 << 16));
+
+        data.write(MAGIC);
+        data.writeByte(VERSION);
+        data.writeByte(precision);
+
+        data.writeInt(metadata.size());
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            data.writeUTF(entry.getKey());
+            data.writeUTF(String.valueOf(entry.getValue()));
+        }
+
+        data.writeBoolean(times != null);
+        if (times != null)
+            writeColumn(data, times, precision);
+
+        data.writeInt(columns.size());
+        for (Map.Entry<String, double[]> column : columns.entrySet()) {
+            data.writeUTF(column.getKey());
+            writeColumn(data, column.getValue(), precision);
+        }
+
+        data.flush();
+        // Completes the gzip trailer without closing the underlying stream, which belongs to the caller
+        gzip.finish();
+    }
+
+    private static void writeColumn(DataOutputStream data, double[] values, int precision) throws IOException {
+        data.writeInt(values.length);
+        double reconstructed = 0;
+
+        for (double value : values) {
+            if (precision == 8) {
+                double delta = value - reconstructed;
+                data.writeDouble(delta);
+                reconstructed += delta;
+            } else {
+                float delta = (float) (value - reconstructed);
+                data.writeFloat(delta);
+                reconstructed += delta;
+            }
+        }
+    }
+
+    public static Series decode(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(new GZIPInputStream(input)));
+
+        byte[] magic = new byte[MAGIC.length];
+        data.readFully(magic);
+        for (int index = 0; index < MAGIC.length; index++) {
+            if (magic[index] != MAGIC[index])
+                throw new IOException("Not an encoded series");
+        }
+
+        byte version = data.readByte();
+        if (version != VERSION)
+            throw new IOException("Unsupported series version: " + version);
+
+        int precision = data.readByte();
+
+        Map<String, String> metadata = new LinkedHashMap<>();
+        int entries = data.readInt();
+        for (int index = 0; index < entries; index++)
+            metadata.put(data.readUTF(), data.readUTF());
+
+        double[] times = data.readBoolean() ? readColumn(data, precision) : null;
+
+        Map<String, double[]> columns = new LinkedHashMap<>();
+        int count = data.readInt();
+        for (int index = 0; index < count; index++)
+            columns.put(data.readUTF(), readColumn(data, precision));
+
+        return new Series(metadata, times, columns);
+    }
+
+    private static double[] readColumn(DataInputStream data, int precision) throws IOException {
+        double[] values = new double[data.readInt()];
+        double reconstructed = 0;
+
+        for (int index = 0; index < values.length; index++) {
+            reconstructed += precision == 8 ? data.readDouble() : data.readFloat();
+            values[index] = reconstructed;
+        }
+
+        return values;
+    }
+
+    /**
+     * Decoded content of an encoded stream
+     */
+    public static class Series {
+
+        private final Map<String, String> metadata;
+        private final double[] times;
+        private final Map<String, double[]> columns;
+
+        public Series(Map<String, String> metadata, double[] times, Map<String, double[]> columns) {
+            this.metadata = metadata;
+            this.times = times;
+            this.columns = columns;
+        }
+
+        public Map<String, String> getMetadata() {
+            return metadata;
+        }
+
+        public double[] getTimes() {
+            return times;
+        }
+
+        public Map<String, double[]> getColumns() {
+            return columns;
+        }
+    }
+}
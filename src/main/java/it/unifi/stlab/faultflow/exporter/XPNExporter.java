@@ -17,9 +17,10 @@
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  *
  */
-
 package it.unifi.stlab.faultflow.exporter;
 
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.metrics.Timer;
 import it.unifi.stlab.faultflow.exporter.xpn.TpnEditor;
 import it.unifi.stlab.faultflow.exporter.strategies.ExportStrategy;
 
@@ -28,15 +29,47 @@ import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.OutputStream;
 
+/**
+ * Marshals the TpnEditor built by an export strategy. The JAXBContext is created once and shared, since it is
+ * thread-safe, while a new Marshaller is created for each export.
+ */
 public class XPNExporter {
 
+    private static volatile JAXBContext context;
+
     public static void export(File output, ExportStrategy strategy)
             throws JAXBException, FileNotFoundException {
 
-        JAXBContext context = JAXBContext.newInstance(TpnEditor.class);
-        Marshaller marshaller = context.createMarshaller();
-        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-        marshaller.marshal(strategy.translate(), output);
+        try (Timer.Context export = Metrics.getInstance().start(Metrics.EXPORT)) {
+            createMarshaller(true).marshal(strategy.translate(), output);
+        }
+    }
+
+    public static void export(OutputStream output, ExportStrategy strategy) throws JAXBException {
+        try (Timer.Context export = Metrics.getInstance().start(Metrics.EXPORT)) {
+            createMarshaller(true).marshal(strategy.translate(), output);
+        }
+    }
+
+    static Marshaller createMarshaller(boolean formatted) throws JAXBException {
+        Marshaller marshaller = getContext().createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formatted);
+        return marshaller;
+    }
+
+    public static JAXBContext getContext() throws JAXBException {
+        JAXBContext result = context;
+
+        if (result == null) {
+            synchronized (XPNExporter.class) {
+                result = context;
+                if (result == null)
+                    context = result = JAXBContext.newInstance(TpnEditor.class);
+            }
+        }
+
+        return result;
     }
 }
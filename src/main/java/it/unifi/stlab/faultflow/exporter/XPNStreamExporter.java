@@ -0,0 +1,171 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.exporter;
+
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.metrics.Timer;
+import it.unifi.stlab.faultflow.exporter.strategies.ExportStrategy;
+import it.unifi.stlab.faultflow.exporter.strategies.LayeredExportToXPN;
+import it.unifi.stlab.faultflow.exporter.xpn.*;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes the XPN document of an export strategy straight to an OutputStream with a StAX writer, without intermediate
+ * files and without building the serialised document in memory. The document and entity elements are written by the
+ * StAX writer, while each place, transition and arc is marshalled as a fragment with the shared JAXBContext of
+ * XPNExporter, so that the output has the same content as the one written by XPNExporter.
+ *
+ * With LayeredExportToXPN the places, transitions and arcs are written as the strategy creates them from the Petri net,
+ * without building the TPNEntities of the document; the other strategies lay out the whole document before it is
+ * written.
+ */
+public class XPNStreamExporter {
+
+    public static final String NAMESPACE = "http://www.oris-tool.org";
+
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+
+    public static void export(OutputStream output, ExportStrategy strategy) throws JAXBException, XMLStreamException {
+        if (strategy instanceof LayeredExportToXPN) {
+            export(output, (LayeredExportToXPN) strategy);
+            return;
+        }
+
+        Object translated = strategy.translate();
+
+        if (!(translated instanceof TpnEditor))
+            throw new IllegalArgumentException("The export strategy does not translate to an XPN document");
+
+        export(output, (TpnEditor) translated);
+    }
+
+    /**
+     * Writes an already translated document, so that translation errors can be reported before the output is opened
+     */
+    public static void export(OutputStream output, TpnEditor tpnEditor) throws JAXBException, XMLStreamException {
+        Timer.Context export = Metrics.getInstance().start(Metrics.EXPORT);
+        TPNEntities entities = tpnEditor.getTpnEntities();
+        Marshaller marshaller = createFragmentMarshaller();
+        XMLStreamWriter writer = createWriter(output);
+
+        try {
+            writeStart(writer);
+
+            // Same order of the entity lists as in TPNEntities
+            writeAll(writer, marshaller, "joint", Joint.class, entities.getJoint());
+            writeAll(writer, marshaller, "place", Place.class, entities.getPlace());
+            writeAll(writer, marshaller, "resource", Resource.class, entities.getResource());
+            writeAll(writer, marshaller, "transition", Transition.class, entities.getTransition());
+            writeAll(writer, marshaller, "note", Note.class, entities.getNote());
+            writeAll(writer, marshaller, "inhibitor-arc", InhibitorArc.class, entities.getInhibitorArc());
+            writeAll(writer, marshaller, "arc", Arc.class, entities.getArc());
+            writeAll(writer, marshaller, "note-connector", NoteConnector.class, entities.getNoteConnector());
+
+            writeEnd(writer);
+        } finally {
+            writer.close();
+            export.stop();
+        }
+    }
+
+    /**
+     * Writes each entity of the layered layout as soon as it is created, so that the document is never held in memory
+     */
+    public static void export(OutputStream output, LayeredExportToXPN strategy)
+            throws JAXBException, XMLStreamException {
+        Timer.Context export = Metrics.getInstance().start(Metrics.EXPORT);
+        Marshaller marshaller = createFragmentMarshaller();
+        XMLStreamWriter writer = createWriter(output);
+        QName place = new QName(NAMESPACE, "place");
+        QName transition = new QName(NAMESPACE, "transition");
+        QName arc = new QName(NAMESPACE, "arc");
+
+        try {
+            writeStart(writer);
+
+            strategy.visit(new LayeredExportToXPN.EntityVisitor<JAXBException>() {
+
+                @Override
+                public void place(Place element) throws JAXBException {
+                    marshaller.marshal(new JAXBElement<>(place, Place.class, element), writer);
+                }
+
+                @Override
+                public void transition(Transition element) throws JAXBException {
+                    marshaller.marshal(new JAXBElement<>(transition, Transition.class, element), writer);
+                }
+
+                @Override
+                public void arc(Arc element) throws JAXBException {
+                    marshaller.marshal(new JAXBElement<>(arc, Arc.class, element), writer);
+                }
+            });
+
+            writeEnd(writer);
+        } finally {
+            writer.close();
+            export.stop();
+        }
+    }
+
+    private static Marshaller createFragmentMarshaller() throws JAXBException {
+        Marshaller marshaller = XPNExporter.createMarshaller(false);
+        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+        return marshaller;
+    }
+
+    private static XMLStreamWriter createWriter(OutputStream output) throws XMLStreamException {
+        synchronized (OUTPUT_FACTORY) {
+            return OUTPUT_FACTORY.createXMLStreamWriter(output, "UTF-8");
+        }
+    }
+
+    private static void writeStart(XMLStreamWriter writer) throws XMLStreamException {
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.setDefaultNamespace(NAMESPACE);
+        writer.writeStartElement(NAMESPACE, "tpn-editor");
+        writer.writeDefaultNamespace(NAMESPACE);
+        writer.writeStartElement(NAMESPACE, "tpn-entities");
+    }
+
+    private static void writeEnd(XMLStreamWriter writer) throws XMLStreamException {
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
+    }
+
+    private static <T> void writeAll(XMLStreamWriter writer, Marshaller marshaller, String name, Class<T> type,
+                                     List<T> elements) throws JAXBException {
+        QName qName = new QName(NAMESPACE, name);
+
+        for (T element : elements)
+            marshaller.marshal(new JAXBElement<>(qName, type, element), writer);
+    }
+}
@@ -43,7 +43,7 @@ public class BasicExportToXPN implements ExportToXPN {
     public TpnEditor translate() {
         ObjectFactory objectFactory = new ObjectFactory();
         TpnEditor tpnEditor = objectFactory.createTpnEditor();
-        TPNEntities tpnEntities = objectFactory.createTPNEntities();
+        TPNEntitiesBuilder tpnEntities = new TPNEntitiesBuilder();
         int x, y;
         y = Y_START;
         for (org.oristool.petrinet.Transition transition : petriNet.getTransitions()) {
@@ -84,7 +84,7 @@ public class BasicExportToXPN implements ExportToXPN {
             y += Y_SPACING;
 
         }
-        tpnEditor.setTpnEntities(tpnEntities);
+        tpnEditor.setTpnEntities(tpnEntities.build());
         return tpnEditor;
     }
 }
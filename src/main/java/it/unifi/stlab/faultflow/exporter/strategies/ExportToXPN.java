@@ -37,16 +37,27 @@ public interface ExportToXPN extends ExportStrategy {
     int X_START = 75;
     int Y_START = 100;
 
-    default Arc addArc(TPNEntities tpnEntities, String from, String to) {
+    default Arc addArc(TPNEntitiesBuilder tpnEntities, String from, String to) {
+        return tpnEntities.add(makeArc(from, to));
+    }
+
+    default Transition addTransition(TPNEntitiesBuilder tpnEntities, org.oristool.petrinet.Transition transition, int x, int y) {
+        return tpnEntities.add(makeTransition(transition, x, y));
+    }
+
+    default Place addPlace(TPNEntitiesBuilder tpnEntities, org.oristool.petrinet.Place place, Marking marking, int x, int y) {
+        return tpnEntities.add(makePlace(place, marking, x, y));
+    }
+
+    default Arc makeArc(String from, String to) {
         ObjectFactory objectFactory = new ObjectFactory();
         Arc arc = objectFactory.createArc();
         arc.setFrom(from);
         arc.setTo(to);
-        tpnEntities.getArc().add(arc);
         return arc;
     }
 
-    default Transition addTransition(TPNEntities tpnEntities, org.oristool.petrinet.Transition transition, int x, int y) {
+    default Transition makeTransition(org.oristool.petrinet.Transition transition, int x, int y) {
         ObjectFactory objectFactory = new ObjectFactory();
         Transition t = objectFactory.createTransition();
         t.setUuid(transition.getName());
@@ -54,42 +65,33 @@ public interface ExportToXPN extends ExportStrategy {
         t.setY(y);
         t.setProperties(makeTransitionProperties(t, transition));
         t.setFeatures(makeTransitionFeature(t));
-        tpnEntities.getTransition().add(t);
         return t;
     }
 
-    default Place addPlace(TPNEntities tpnEntities, org.oristool.petrinet.Place place, Marking marking, int x, int y) {
+    default Place makePlace(org.oristool.petrinet.Place place, Marking marking, int x, int y) {
         ObjectFactory objectFactory = new ObjectFactory();
         Place p = objectFactory.createPlace();
         p.setUuid(place.getName());
         p.setX(x);
         p.setY(y);
         p.setProperties(makePlaceProperties(p, place, marking));
-        tpnEntities.getPlace().add(p);
         return p;
-
     }
 
-    default boolean isPlaceInXML(TPNEntities tpnEntities, String uuid) {
-        return getPlace(tpnEntities, uuid) != null;
+    default boolean isPlaceInXML(TPNEntitiesBuilder tpnEntities, String uuid) {
+        return tpnEntities.containsPlace(uuid);
     }
 
-    default Place getPlace(TPNEntities tpnEntities, String uuid) {
-        return tpnEntities.getPlace().stream()
-                .filter(place -> uuid.equals(place.getUuid()))
-                .findAny()
-                .orElse(null);
+    default Place getPlace(TPNEntitiesBuilder tpnEntities, String uuid) {
+        return tpnEntities.getPlace(uuid);
     }
 
-    default boolean isTransitionInXML(TPNEntities tpnEntities, String uuid) {
-        return getTransition(tpnEntities, uuid) != null;
+    default boolean isTransitionInXML(TPNEntitiesBuilder tpnEntities, String uuid) {
+        return tpnEntities.containsTransition(uuid);
     }
 
-    default Transition getTransition(TPNEntities tpnEntities, String uuid) {
-        return tpnEntities.getTransition().stream()
-                .filter(transition -> uuid.equals(transition.getUuid()))
-                .findAny()
-                .orElse(null);
+    default Transition getTransition(TPNEntitiesBuilder tpnEntities, String uuid) {
+        return tpnEntities.getTransition(uuid);
     }
 
     default void adjustPlacePosition(Place place, int newX, int newY) {
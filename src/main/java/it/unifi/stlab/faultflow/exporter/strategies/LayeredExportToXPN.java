@@ -0,0 +1,206 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.exporter.strategies;
+
+import it.unifi.stlab.faultflow.exporter.xpn.Arc;
+import it.unifi.stlab.faultflow.exporter.xpn.ObjectFactory;
+import it.unifi.stlab.faultflow.exporter.xpn.TpnEditor;
+import org.oristool.petrinet.Marking;
+import org.oristool.petrinet.PetriNet;
+import org.oristool.petrinet.Place;
+import org.oristool.petrinet.Postcondition;
+import org.oristool.petrinet.Precondition;
+import org.oristool.petrinet.Transition;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Create an export strategy that lays out the net in layers from left to right, computed once in linear time: each
+ * place or transition is placed in the layer given by its distance from the places without incoming arcs, such as the
+ * occurrence places of the faults, and the nodes of a layer are stacked in the order in which they are reached.
+ * Suited to large nets, whose layout the other strategies adjust node by node.
+ *
+ * Besides building the whole document with translate, the entities can be handed one at a time to an EntityVisitor,
+ * in the order of the document, as XPNStreamExporter does to write them as they are created.
+ */
+public class LayeredExportToXPN implements ExportToXPN {
+    private final PetriNet petriNet;
+    private final Marking marking;
+
+    public LayeredExportToXPN(PetriNet petriNet, Marking marking) {
+        this.petriNet = petriNet;
+        this.marking = marking;
+    }
+
+    /**
+     * Receives the entities of the document one at a time: all the places, then all the transitions and then all the
+     * arcs, as they are ordered in the document
+     */
+    public interface EntityVisitor<E extends Exception> {
+
+        void place(it.unifi.stlab.faultflow.exporter.xpn.Place place) throws E;
+
+        void transition(it.unifi.stlab.faultflow.exporter.xpn.Transition transition) throws E;
+
+        void arc(Arc arc) throws E;
+    }
+
+    @Override
+    public TpnEditor translate() {
+        ObjectFactory objectFactory = new ObjectFactory();
+        TpnEditor tpnEditor = objectFactory.createTpnEditor();
+        TPNEntitiesBuilder tpnEntities = new TPNEntitiesBuilder();
+
+        visit(new EntityVisitor<RuntimeException>() {
+
+            @Override
+            public void place(it.unifi.stlab.faultflow.exporter.xpn.Place place) {
+                tpnEntities.add(place);
+            }
+
+            @Override
+            public void transition(it.unifi.stlab.faultflow.exporter.xpn.Transition transition) {
+                tpnEntities.add(transition);
+            }
+
+            @Override
+            public void arc(Arc arc) {
+                tpnEntities.add(arc);
+            }
+        });
+
+        tpnEditor.setTpnEntities(tpnEntities.build());
+        return tpnEditor;
+    }
+
+    /**
+     * Creates the entities of the document and hands them to the visitor without keeping them, so that only the
+     * layout of the net is held in memory
+     */
+    public <E extends Exception> void visit(EntityVisitor<E> visitor) throws E {
+        Map<Object, Integer> layers = layers();
+        Map<Object, Integer> rows = new HashMap<>();
+        List<Integer> heights = new ArrayList<>();
+
+        for (Map.Entry<Object, Integer> entry : layers.entrySet()) {
+            int layer = entry.getValue();
+
+            while (heights.size() <= layer)
+                heights.add(0);
+
+            rows.put(entry.getKey(), heights.get(layer));
+            heights.set(layer, heights.get(layer) + 1);
+        }
+
+        // The rows are assigned in the order of the visit, places and transitions together, but the document lists
+        // all the places first
+        for (Map.Entry<Object, Integer> entry : layers.entrySet()) {
+            if (entry.getKey() instanceof Place)
+                visitor.place(makePlace((Place) entry.getKey(), marking, x(entry.getValue()),
+                        y(rows.get(entry.getKey()))));
+        }
+
+        for (Map.Entry<Object, Integer> entry : layers.entrySet()) {
+            if (entry.getKey() instanceof Transition)
+                visitor.transition(makeTransition((Transition) entry.getKey(), x(entry.getValue()),
+                        y(rows.get(entry.getKey()))));
+        }
+
+        for (Transition transition : petriNet.getTransitions()) {
+            for (Precondition precondition : petriNet.getPreconditions(transition))
+                visitor.arc(makeArc(precondition.getPlace().getName(), transition.getName()));
+
+            for (Postcondition postcondition : petriNet.getPostconditions(transition))
+                visitor.arc(makeArc(transition.getName(), postcondition.getPlace().getName()));
+        }
+    }
+
+    private static int x(int layer) {
+        return X_START + layer * X_SPACING;
+    }
+
+    private static int y(int row) {
+        return Y_START + row * Y_SPACING;
+    }
+
+    /* Breadth-first visit from the places without incoming arcs, then from the first node not reached yet, as long as
+    some remain, which only happens for cycles: returns the layer of each node in the order of the visit */
+    private Map<Object, Integer> layers() {
+        Map<Place, List<Transition>> outputs = new HashMap<>();
+        Map<Place, Integer> inputs = new HashMap<>();
+
+        for (Transition transition : petriNet.getTransitions()) {
+            for (Precondition precondition : petriNet.getPreconditions(transition))
+                outputs.computeIfAbsent(precondition.getPlace(), place -> new ArrayList<>()).add(transition);
+
+            for (Postcondition postcondition : petriNet.getPostconditions(transition))
+                inputs.merge(postcondition.getPlace(), 1, Integer::sum);
+        }
+
+        Map<Object, Integer> layers = new LinkedHashMap<>();
+        Deque<Object> queue = new ArrayDeque<>();
+
+        for (Place place : petriNet.getPlaces()) {
+            if (!inputs.containsKey(place)) {
+                layers.put(place, 0);
+                queue.add(place);
+            }
+        }
+
+        List<Object> nodes = new ArrayList<>(petriNet.getPlaces());
+        nodes.addAll(petriNet.getTransitions());
+        int next = 0;
+
+        while (!queue.isEmpty() || layers.size() < nodes.size()) {
+            if (queue.isEmpty()) {
+                while (layers.containsKey(nodes.get(next)))
+                    next++;
+
+                layers.put(nodes.get(next), 0);
+                queue.add(nodes.get(next));
+            }
+
+            Object node = queue.poll();
+            int layer = layers.get(node) + 1;
+            List<Object> successors = new ArrayList<>();
+
+            if (node instanceof Place)
+                successors.addAll(outputs.getOrDefault(node, List.of()));
+            else
+                petriNet.getPostconditions((Transition) node).forEach(postcondition -> successors.add(postcondition.getPlace()));
+
+            for (Object successor : successors) {
+                if (!layers.containsKey(successor)) {
+                    layers.put(successor, layer);
+                    queue.add(successor);
+                }
+            }
+        }
+
+        return layers;
+    }
+}
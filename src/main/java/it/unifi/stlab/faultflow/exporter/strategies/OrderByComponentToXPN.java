@@ -33,8 +33,10 @@ import org.oristool.petrinet.Postcondition;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -58,13 +60,13 @@ public class OrderByComponentToXPN implements ExportToXPN {
     public TpnEditor translate() {
         ObjectFactory objectFactory = new ObjectFactory();
         TpnEditor tpnEditor = objectFactory.createTpnEditor();
-        TPNEntities tpnEntities = objectFactory.createTPNEntities();
+        TPNEntitiesBuilder tpnEntities = new TPNEntitiesBuilder();
         translateOccurrences(system, petriNet, marking, tpnEntities);
-        tpnEditor.setTpnEntities(tpnEntities);
+        tpnEditor.setTpnEntities(tpnEntities.build());
         return tpnEditor;
     }
 
-    private void translateOccurrences(SystemType system, PetriNet petriNet, Marking marking, TPNEntities tpnEntities) {
+    private void translateOccurrences(SystemType system, PetriNet petriNet, Marking marking, TPNEntitiesBuilder tpnEntities) {
         int x, y;
         y = Y_START;
         HashMap<ComponentType, List<org.oristool.petrinet.Place>> componentPlaces = getOccurrencesOrderedByMetaComponent(system, petriNet);
@@ -104,7 +106,7 @@ public class OrderByComponentToXPN implements ExportToXPN {
         }
     }
 
-    private void propagateTranslate(TPNEntities tpnEntities, ComponentType componentType, PetriNet petriNet, Marking marking, Place fault) {
+    private void propagateTranslate(TPNEntitiesBuilder tpnEntities, ComponentType componentType, PetriNet petriNet, Marking marking, Place fault) {
         int y = fault.getY();
         int xvalue = 200;
         for (ErrorMode em : getErrorModesFromFault(fault, componentType)) {
@@ -181,33 +183,25 @@ public class OrderByComponentToXPN implements ExportToXPN {
     private HashMap<ComponentType, List<org.oristool.petrinet.Place>> getOccurrencesOrderedByMetaComponent(SystemType system, PetriNet petrinet) {
         HashMap<ComponentType, List<org.oristool.petrinet.Place>> componentPlaces = new HashMap<>();
         for (ComponentType componentType : system.getComponents()) {
+            // Keeps the first occurrence of each place, without scanning the places already found
+            Set<org.oristool.petrinet.Place> places = new LinkedHashSet<>();
             for (ErrorMode errorMode : componentType.getErrorModes()) {
                 for (FaultMode faultMode : errorMode.getInputFaultModes()) {
                     org.oristool.petrinet.Place place = petrinet.getPlace(faultMode.getName() + "Occurrence");
-                    if (place != null) {
-                        if (componentPlaces.get(componentType) == null)
-                            componentPlaces.computeIfAbsent(componentType, k -> new ArrayList<>()).add(place);
-                        else {
-                            if (!componentPlaces.get(componentType).contains(place))
-                                componentPlaces.get(componentType).add(place);
-                        }
-                    }
+                    if (place != null)
+                        places.add(place);
                 }
                 //check failures too
                 org.oristool.petrinet.Place place = petrinet.getPlace(errorMode.getOutgoingFailure().getDescription() + "Occurrence");
-                if (place != null) {
-                    if (componentPlaces.get(componentType) == null)
-                        componentPlaces.computeIfAbsent(componentType, k -> new ArrayList<>()).add(place);
-                    else {
-                        if (!componentPlaces.get(componentType).contains(place))
-                            componentPlaces.get(componentType).add(place);
-                    }
-                }
+                if (place != null)
+                    places.add(place);
             }
+            if (!places.isEmpty())
+                componentPlaces.put(componentType, new ArrayList<>(places));
         }
         return componentPlaces;
     }
-    private void adjustOccurrencePlaceTransition(TPNEntities tpnEntities, String placeToMove, int newX, int newY){
+    private void adjustOccurrencePlaceTransition(TPNEntitiesBuilder tpnEntities, String placeToMove, int newX, int newY){
         Transition occurrTransition = getTransition(tpnEntities, PetriNetTranslator.getTransitionName(placeToMove+"Occurrence"));
         adjustTransitionPosition(occurrTransition, newX, newY);
         Place occurrPlace = getPlace(tpnEntities, placeToMove+"Occurrence");
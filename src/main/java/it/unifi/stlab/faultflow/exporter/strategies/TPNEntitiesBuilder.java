@@ -0,0 +1,89 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.exporter.strategies;
+
+import it.unifi.stlab.faultflow.exporter.xpn.Arc;
+import it.unifi.stlab.faultflow.exporter.xpn.ObjectFactory;
+import it.unifi.stlab.faultflow.exporter.xpn.Place;
+import it.unifi.stlab.faultflow.exporter.xpn.TPNEntities;
+import it.unifi.stlab.faultflow.exporter.xpn.Transition;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the TPNEntities of an XPN document, keeping an index of its places and transitions by uuid alongside the
+ * lists marshalled by JAXB, so that the export strategies can look them up in constant time while they lay out the
+ * net instead of scanning the lists at every arc.
+ */
+public class TPNEntitiesBuilder {
+
+    private final TPNEntities tpnEntities;
+    private final Map<String, Place> places;
+    private final Map<String, Transition> transitions;
+
+    public TPNEntitiesBuilder() {
+        tpnEntities = new ObjectFactory().createTPNEntities();
+        places = new HashMap<>();
+        transitions = new HashMap<>();
+    }
+
+    /**
+     * Adds a place to the document: if a place with the same uuid was already added, lookups keep returning the first
+     * one, as a scan of the list would
+     */
+    public Place add(Place place) {
+        tpnEntities.getPlace().add(place);
+        places.putIfAbsent(place.getUuid(), place);
+        return place;
+    }
+
+    public Transition add(Transition transition) {
+        tpnEntities.getTransition().add(transition);
+        transitions.putIfAbsent(transition.getUuid(), transition);
+        return transition;
+    }
+
+    public Arc add(Arc arc) {
+        tpnEntities.getArc().add(arc);
+        return arc;
+    }
+
+    public Place getPlace(String uuid) {
+        return places.get(uuid);
+    }
+
+    public Transition getTransition(String uuid) {
+        return transitions.get(uuid);
+    }
+
+    public boolean containsPlace(String uuid) {
+        return places.containsKey(uuid);
+    }
+
+    public boolean containsTransition(String uuid) {
+        return transitions.containsKey(uuid);
+    }
+
+    public TPNEntities build() {
+        return tpnEntities;
+    }
+}
@@ -20,37 +20,43 @@
 
 package it.unifi.stlab.faultflow.launcher;
 
-import it.unifi.hierarchical.analysis.HierarchicalSMPAnalysis;
-import it.unifi.hierarchical.analysis.NumericalValues;
-import it.unifi.hierarchical.model.HSMP;
+import it.unifi.stlab.faultflow.analysis.BatchAnalyzer;
+import it.unifi.stlab.faultflow.analysis.CDFResult;
+import it.unifi.stlab.faultflow.analysis.ModularAnalyzer;
 import it.unifi.stlab.faultflow.analysis.PetriNetAnalyzer;
+import it.unifi.stlab.faultflow.analysis.PetriNetLumper;
 import it.unifi.stlab.faultflow.analysis.PetriNetReducer;
+import it.unifi.stlab.faultflow.analysis.PetriNetStructuralReducer;
+import it.unifi.stlab.faultflow.analysis.PyramisAnalyzer;
+import it.unifi.stlab.faultflow.exporter.CSVExporter;
 import it.unifi.stlab.faultflow.exporter.PetriNetExportMethod;
 import it.unifi.stlab.faultflow.launcher.builders.PetroleumSystemBuilder;
+import it.unifi.stlab.faultflow.metrics.AnalysisTrace;
+import it.unifi.stlab.faultflow.metrics.ConsoleReporter;
+import it.unifi.stlab.faultflow.metrics.Metrics;
 import it.unifi.stlab.faultflow.model.knowledge.composition.SystemType;
 import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
 import it.unifi.stlab.faultflow.translator.PetriNetTranslator;
-import it.unifi.stlab.transformation.HSMPParser;
 import it.unifi.stlab.transformation.TreeParser;
 import it.unifi.stlab.transformation.minimalcutset.ImportanceMeasure;
 import org.oristool.models.stpn.RewardRate;
 import org.oristool.models.stpn.TransientSolution;
 import org.oristool.models.stpn.trees.DeterministicEnablingState;
 
-import java.io.FileWriter;
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.util.Arrays;
-import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Reproduces the examples shown in section 4.3 in the article. More specifically it calculates:
- * - CDF with Sirio of GDBFailure1 with timeLimit 8000 and timeStep 2, printing the elapsed time and storing the result into a csv file (result-sirio-GDBFailure1.csv);
- * - CDF with Sirio of IBFailure1 with timeLimit 8000 and timeStep 2, printing the elapsed time and storing the result into a csv file (result-sirio-IBFailure1.csv);
- * - CDF with Pyramis of the top level Failure (GDSFailure1) with timeLimit 8000 and timeStep 2, printing the elapsed time and storing the result into a csv file (result-pyramis.csv);
- * - Fussell-Vesely importance measure for every fault in the system with timeLimit 60000 and timeStep 4 and storing the result into a csv file (fussellvesely.csv);
- * - Birnbaum importance measure for every fault in the system with timeLimit 60000 and timeStep 4 and storing the result into a csv file (birnbaum.csv);
+ * - CDF with Sirio of GDBFailure1 with timeLimit 8000 and timeStep 2, printing the elapsed time and storing the result into a columnar csv file (result-sirio-GDBFailure1.csv);
+ * - CDF with Sirio of IBFailure1 with timeLimit 8000 and timeStep 2, printing the elapsed time and storing the result into a columnar csv file (result-sirio-IBFailure1.csv);
+ * - CDF with Pyramis of the top level Failure (GDSFailure1) with timeLimit 8000 and timeStep 2, printing the elapsed time and storing the result into a columnar csv file (result-pyramis.csv);
+ * - Fussell-Vesely importance measure for every fault in the system with timeLimit 60000 and timeStep 4 and storing the result into a columnar csv file (fussellvesely.csv);
+ * - Birnbaum importance measure for every fault in the system with timeLimit 60000 and timeStep 4 and storing the result into a columnar csv file (birnbaum.csv);
  *
  * Each found can be found inside the "export" subdirectory.
  */
@@ -78,6 +84,9 @@ public class AnalysisLauncher {
         int timeAnalysis = 60000;
         fussellVesely(s, errorMode, timeAnalysis, imStep);
         birnbaum(s, errorMode, timeAnalysis, imStep);
+
+        Metrics.getInstance().addReporter(new ConsoleReporter());
+        Metrics.getInstance().report();
     }
 
     public static void sirioAnalysis(String failureName, SystemType s, double timeLimit, double timeStep, double error) throws IOException {
@@ -86,73 +95,61 @@ public class AnalysisLauncher {
         pnt.translate(s, PetriNetExportMethod.FAULT_ANALYSIS);
         PetriNetReducer petriNetReducer = new PetriNetReducer(pnt.getPetriNet(), pnt.getMarking());
         petriNetReducer.reduce(failureName, PetroleumSystemBuilder.getPropagationPorts(), PetroleumSystemBuilder.getErrorModes());
+        PetriNetLumper petriNetLumper = new PetriNetLumper(petriNetReducer.getPetriNet(), petriNetReducer.getMarking());
+        petriNetLumper.lump(s);
+        java.lang.System.out.println(petriNetLumper);
+        PetriNetStructuralReducer structuralReducer = new PetriNetStructuralReducer(petriNetLumper.getPetriNet(), petriNetLumper.getMarking());
+        structuralReducer.reduce(failureName);
+        java.lang.System.out.println(structuralReducer);
         //Analyze reduced Petri Net
-        PetriNetAnalyzer petriNetAnalyzer = new PetriNetAnalyzer(petriNetReducer.getPetriNet(), petriNetReducer.getMarking());
-        Date start = new Date();
+        PetriNetAnalyzer petriNetAnalyzer = new PetriNetAnalyzer(structuralReducer.getPetriNet(), structuralReducer.getMarking());
+        AnalysisTrace trace = Metrics.getInstance().startTrace("Sirio " + failureName);
         TransientSolution<DeterministicEnablingState, RewardRate> rewards =
                 petriNetAnalyzer.regenerativeTransient(failureName, new BigDecimal(timeLimit), new BigDecimal(timeStep), new BigDecimal(error));
-        Date end = new Date();
-        long time = end.getTime() - start.getTime();
+        Metrics.getInstance().endTrace(trace);
+        long time = (long) trace.getDurationMillis();
         java.lang.System.out.println("Elapsed analysis time with Sirio of failure " + failureName + ": " + time + " ms");
         //Get results
-        FileWriter writer = new FileWriter("export/result-sirio-" + failureName + ".csv");
-        writer.append("Analysis Result of failure " + failureName + "\n");
-        writer.append("Time: " + rewards.getTimeLimit().toString() + ", Step: " + rewards.getStep().toString() + ", Error: " + error + "\n");
-        writer.append("Values: \n");
-        for (int index = 0; index < rewards.getSolution().length; index++) {
-            writer.append(String.valueOf(rewards.getSolution()[index][0][0]));
-            writer.append("\n");
-        }
-        writer.close();
+        double[] values = new double[rewards.getSolution().length];
+        for (int index = 0; index < values.length; index++)
+            values[index] = rewards.getSolution()[index][0][0];
+
+        CSVExporter.export("export/result-sirio-" + failureName + ".csv",
+                CDFResult.uniformGrid(rewards.getStep().doubleValue(), values.length), Map.of(failureName, values));
     }
 
     public static void pyramisAnalysis(SystemType s, ErrorMode errorMode, double timeLimit, double timeStep) throws IOException {
         TreeParser treeParser = new TreeParser(s);
-        HSMP hsmp = HSMPParser.parseTree(treeParser.createTree(errorMode));
-        HierarchicalSMPAnalysis analysis = new HierarchicalSMPAnalysis(hsmp, 0);
-        Date start = new Date();
-        analysis.evaluate(timeStep, timeLimit);
-        Date end = new Date();
-        long time = end.getTime() - start.getTime();
-        java.lang.System.out.println("Elapsed analysis time with Pyramis: " + time + " ms");
-        FileWriter writer = new FileWriter("export/result-pyramis.csv");
-        writer.append("Analysis Result of failure " + errorMode.getOutgoingFailure().getDescription() + "\n");
-        writer.append("Time: " + timeLimit + ", Step: " + timeStep + "\n");
-        NumericalValues cdf = HierarchicalSMPAnalysis.cdf;
-        writer.append("Values: \n");
-
-        for (double v : cdf.getValues()) {
-            writer.append(String.valueOf(v));
-            writer.append("\n");
-        }
-        writer.close();
+        CDFResult cdf = new PyramisAnalyzer(timeStep, timeLimit).evaluate(treeParser.createTree(errorMode));
+        java.lang.System.out.println("Elapsed analysis time with Pyramis: " + cdf.getEvaluationTime() + " ms");
+        CSVExporter.export("export/result-pyramis.csv", cdf.getTimes(),
+                Map.of(errorMode.getOutgoingFailure().getDescription(), cdf.getValues()));
+    }
+
+    public static void batchAnalysis(SystemType s, List<ErrorMode> errorModes, double timeLimit, double timeStep) throws IOException {
+        Map<ErrorMode, CDFResult> cdfs = new BatchAnalyzer(new ModularAnalyzer(new PyramisAnalyzer(timeStep, timeLimit))).evaluate(s, errorModes);
+        Map<String, double[]> columns = new LinkedHashMap<>();
+        cdfs.forEach((errorMode, cdf) -> columns.put(errorMode.getOutgoingFailure().getDescription(), cdf.getValues()));
+        long time = cdfs.values().stream().mapToLong(CDFResult::getEvaluationTime).findFirst().orElse(0);
+        java.lang.System.out.println("Elapsed batch analysis time of " + cdfs.size() + " error modes: " + time + " ms");
+        CSVExporter.export("export/result-batch.csv", cdfs.values().iterator().next().getTimes(), columns);
     }
 
     public static void fussellVesely(SystemType s, ErrorMode errorMode, int timeAnalysis, double timeStep) throws IOException {
         ImportanceMeasure importanceMeasure = new ImportanceMeasure();
-        FileWriter writer = new FileWriter("export/fussellvesely.csv");
-        writer.append("Fussell-Vesely Importance Measure Result of Errormode " + errorMode.getName() + "\n");
-        writer.append("Time: " + timeAnalysis + ", Step: " + timeStep + "\n");
-        writer.append("Values: \n");
         Map<String, double[]> fussellvesely = importanceMeasure.getImportanceMeasure(s, errorMode, "fusselvesely", timeStep, timeAnalysis);
-        for (Map.Entry<String, double[]> entry : fussellvesely.entrySet()) {
-            writer.append(entry.getKey() + ": " + Arrays.toString(entry.getValue()));
-            writer.append("\n");
-        }
-        writer.close();
+        exportImportanceMeasure("export/fussellvesely.csv", fussellvesely, timeStep);
     }
 
     public static void birnbaum(SystemType s, ErrorMode errorMode, int timeAnalysis, double timeStep) throws IOException {
         ImportanceMeasure importanceMeasure = new ImportanceMeasure();
-        FileWriter writer = new FileWriter("export/birnbaum.csv");
-        writer.append("Birnbaum Importance Measure Result of Errormode " + errorMode.getName() + "\n");
-        writer.append("Time: " + timeAnalysis + ", Step: " + timeStep + "\n");
-        writer.append("Values: \n");
         Map<String, double[]> birnbaum = importanceMeasure.getImportanceMeasure(s, errorMode, "birnbaum", timeStep, timeAnalysis);
-        for (Map.Entry<String, double[]> entry : birnbaum.entrySet()) {
-            writer.append(entry.getKey() + ": " + Arrays.toString(entry.getValue()));
-            writer.append("\n");
-        }
-        writer.close();
+        exportImportanceMeasure("export/birnbaum.csv", birnbaum, timeStep);
+    }
+
+    // Writes one column per fault, sorted by name
+    private static void exportImportanceMeasure(String path, Map<String, double[]> measures, double timeStep) throws IOException {
+        int length = measures.values().stream().mapToInt(values -> values.length).max().orElse(0);
+        CSVExporter.export(path, CDFResult.uniformGrid(timeStep, length), new TreeMap<>(measures));
     }
 }
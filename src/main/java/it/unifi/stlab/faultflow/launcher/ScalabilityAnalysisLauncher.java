@@ -21,21 +21,21 @@
 package it.unifi.stlab.faultflow.launcher;
 
 import com.google.gson.Gson;
-import it.unifi.hierarchical.analysis.HierarchicalSMPAnalysis;
-import it.unifi.hierarchical.model.HSMP;
+import it.unifi.stlab.faultflow.analysis.CDFResult;
+import it.unifi.stlab.faultflow.analysis.PyramisAnalyzer;
 import it.unifi.stlab.faultflow.dto.inputsystemdto.InputSystemDto;
 import it.unifi.stlab.faultflow.mapper.FaultTreeMapper;
 import it.unifi.stlab.faultflow.mapper.SystemMapper;
+import it.unifi.stlab.faultflow.metrics.ConsoleReporter;
+import it.unifi.stlab.faultflow.metrics.Metrics;
 import it.unifi.stlab.faultflow.model.knowledge.composition.SystemType;
 import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
-import it.unifi.stlab.transformation.HSMPParser;
 import it.unifi.stlab.transformation.TreeParser;
 import it.unifi.stlab.transformation.minimalcutset.ImportanceMeasure;
 
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.List;
 
 /**
@@ -79,20 +79,19 @@ public class ScalabilityAnalysisLauncher {
 
             calculateFussellVesely(sys, timeStep, timeLimit);
         }
+
+        // Time spent in each phase over all the systems
+        Metrics.getInstance().addReporter(new ConsoleReporter());
+        Metrics.getInstance().report();
     }
 
     private static void calculateCDF(SystemType sys, double timeStep, double timeLimit) {
         TreeParser treeParser = new TreeParser(sys);
         ErrorMode errorMode = sys.getTopLevelComponent().getErrorModes().get(0);
 
-        HSMP hsmp = HSMPParser.parseTree(treeParser.createTree(errorMode));
-        HierarchicalSMPAnalysis analysis = new HierarchicalSMPAnalysis(hsmp, 0);
-        Date start = new Date();
-        analysis.evaluate(timeStep, timeLimit);
-        Date end = new Date();
-        long time = end.getTime() - start.getTime();
+        CDFResult cdf = new PyramisAnalyzer(timeStep, timeLimit).evaluate(treeParser.createTree(errorMode));
         java.lang.System.out.println("-- " + sys.getTopLevelComponent().getName() + " model --");
-        java.lang.System.out.println("Elapsed analysis time with Pyramis: " + time + " ms\n");
+        java.lang.System.out.println("Elapsed analysis time with Pyramis: " + cdf.getEvaluationTime() + " ms\n");
 
     }
 
@@ -0,0 +1,110 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time spent in each phase by a single analysis, identified by a random trace id. The phases of a trace may be
+ * recorded by more than one thread, as for the evaluations submitted to an AnalysisPool.
+ */
+public class AnalysisTrace {
+
+    public static final String HEADER = "X-Trace-Id";
+
+    private final String id;
+    private final String name;
+    private final long startTime;
+    private final long start;
+    private final Map<String, LongAdder> phases = new ConcurrentHashMap<>();
+    private final Map<String, String> attributes = new ConcurrentHashMap<>();
+    private volatile long duration = -1;
+
+    AnalysisTrace(String name) {
+        this.id = UUID.randomUUID().toString();
+        this.name = name;
+        this.startTime = System.currentTimeMillis();
+        this.start = System.nanoTime();
+    }
+
+    void record(String phase, long nanos) {
+        phases.computeIfAbsent(phase, key -> new LongAdder()).add(nanos);
+    }
+
+    /**
+     * Records a decision taken by the analysis, such as the engine chosen to run it
+     */
+    public void setAttribute(String name, Object value) {
+        attributes.put(name, String.valueOf(value));
+    }
+
+    public Map<String, String> getAttributes() {
+        return new LinkedHashMap<>(attributes);
+    }
+
+    void end() {
+        if (duration < 0)
+            duration = System.nanoTime() - start;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public boolean isEnded() {
+        return duration >= 0;
+    }
+
+    /**
+     * Returns the duration of the trace in milliseconds, up to now if it has not ended yet
+     */
+    public double getDurationMillis() {
+        return Timer.toMillis(duration >= 0 ? duration : System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the time spent in each phase in milliseconds; phases run in parallel may sum up to more than the
+     * duration of the trace
+     */
+    public Map<String, Double> getPhaseMillis() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        phases.forEach((phase, nanos) -> result.put(phase, Timer.toMillis(nanos.sum())));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return name + " [" + id + "] " + TimeUnit.NANOSECONDS.toMillis(duration >= 0 ? duration : 0) + " ms "
+                + getPhaseMillis() + (attributes.isEmpty() ? "" : " " + attributes);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Prints the metrics on the standard output, as done by the launchers
+ */
+public class ConsoleReporter implements MetricsReporter {
+
+    private final boolean traces;
+
+    public ConsoleReporter(boolean traces) {
+        this.traces = traces;
+    }
+
+    public ConsoleReporter() {
+        this(false);
+    }
+
+    @Override
+    public void report(Metrics metrics) {
+        java.lang.System.out.println("-- Metrics --");
+
+        for (Timer timer : metrics.getTimers())
+            java.lang.System.out.println(String.format(Locale.ROOT, "%-24s %8d runs %12.1f ms total %10.1f ms mean %10.1f ms max",
+                    timer.getName(), timer.getCount(), timer.getTotalMillis(), timer.getMeanMillis(),
+                    timer.getMaxMillis()));
+
+        for (Counter counter : metrics.getCounters())
+            java.lang.System.out.println(String.format(Locale.ROOT, "%-24s %8d", counter.getName(), counter.getCount()));
+
+        for (Map.Entry<String, Long> gauge : metrics.getGauges().entrySet())
+            java.lang.System.out.println(String.format(Locale.ROOT, "%-24s %8d now", gauge.getKey(), gauge.getValue()));
+    }
+
+    @Override
+    public void traceCompleted(AnalysisTrace trace) {
+        if (traces)
+            java.lang.System.out.println("Trace " + trace);
+    }
+}
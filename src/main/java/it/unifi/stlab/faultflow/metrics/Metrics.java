@@ -0,0 +1,233 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.metrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * JVM-wide registry of the timers and counters of the analysis pipeline. The trace of the analysis running on the
+ * current thread, if any, also records the time spent in each phase; the last completed traces are kept so that they
+ * can be looked up by id.
+ */
+public final class Metrics {
+
+    public static final String INGEST = "ingest";
+    public static final String TREE_BUILD = "tree.build";
+    public static final String CUT_SETS = "cutset.generate";
+    public static final String HSMP_PARSE = "hsmp.parse";
+    public static final String PYRAMIS_LOCK = "pyramis.lock";
+    public static final String PYRAMIS_EVALUATE = "pyramis.evaluate";
+    public static final String ANALYTIC_EVALUATE = "analytic.evaluate";
+    public static final String ANALYTIC_CONDITION = "analytic.condition";
+    public static final String SIRIO_TRANSLATE = "sirio.translate";
+    public static final String SIRIO_REDUCE = "sirio.reduce";
+    public static final String SIRIO_EXPLORE = "sirio.explore";
+    public static final String PLANNER = "planner";
+    public static final String IMPORTANCE = "importance";
+    public static final String SWEEP = "sweep";
+    public static final String UNCERTAINTY = "uncertainty";
+    public static final String SIMULATION = "simulation";
+    public static final String EVENT_UPDATE = "event.update";
+    public static final String CONDITIONAL = "event.conditional";
+    public static final String EVENT_DISCARDED = "event.discarded";
+    public static final String EXPORT = "export";
+    public static final String CACHE_HIT = "cache.hit";
+    public static final String CACHE_MISS = "cache.miss";
+    public static final String SYMMETRY_REUSE = "symmetry.reuse";
+    public static final String BUDGET_EXCEEDED = "budget.exceeded";
+
+    public static final int TRACE_HISTORY = 256;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final Deque<AnalysisTrace> traces = new ArrayDeque<>();
+    private final List<MetricsReporter> reporters = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<AnalysisTrace> currentTrace = new ThreadLocal<>();
+
+    private Metrics() {
+    }
+
+    public static Metrics getInstance() {
+        return MetricsHolder.INSTANCE;
+    }
+
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, Timer::new);
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    /**
+     * Starts measuring the given phase on the current trace
+     */
+    public Timer.Context start(String phase) {
+        return new Timer.Context(timer(phase), currentTrace.get());
+    }
+
+    public <T> T time(String phase, Supplier<T> task) {
+        try (Timer.Context context = start(phase)) {
+            return task.get();
+        }
+    }
+
+    public void increment(String counter) {
+        counter(counter).increment();
+    }
+
+    /**
+     * Registers a gauge, whose current value is read from the given supplier whenever the metrics are read, replacing
+     * any gauge with the same name
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Starts a new trace and makes it the current one of this thread
+     */
+    public AnalysisTrace startTrace(String name) {
+        AnalysisTrace trace = new AnalysisTrace(name);
+        currentTrace.set(trace);
+        return trace;
+    }
+
+    public AnalysisTrace currentTrace() {
+        return currentTrace.get();
+    }
+
+    /**
+     * Ends the given trace, keeping it among the last completed ones and notifying the reporters
+     */
+    public void endTrace(AnalysisTrace trace) {
+        if (currentTrace.get() == trace)
+            currentTrace.remove();
+
+        if (trace == null || trace.isEnded())
+            return;
+
+        trace.end();
+
+        synchronized (traces) {
+            traces.addFirst(trace);
+
+            while (traces.size() > TRACE_HISTORY)
+                traces.removeLast();
+        }
+
+        for (MetricsReporter reporter : reporters)
+            reporter.traceCompleted(trace);
+    }
+
+    /**
+     * Runs the task with the given trace as the current one, as for tasks started by an analysis on other threads
+     */
+    public <T> T inTrace(AnalysisTrace trace, Supplier<T> task) {
+        AnalysisTrace previous = currentTrace.get();
+        currentTrace.set(trace);
+
+        try {
+            return task.get();
+        } finally {
+            if (previous != null)
+                currentTrace.set(previous);
+            else
+                currentTrace.remove();
+        }
+    }
+
+    public AnalysisTrace findTrace(String id) {
+        synchronized (traces) {
+            return traces.stream().filter(trace -> trace.getId().equals(id)).findFirst().orElse(null);
+        }
+    }
+
+    /**
+     * Returns the last completed traces, most recent first
+     */
+    public List<AnalysisTrace> getTraces() {
+        synchronized (traces) {
+            return new ArrayList<>(traces);
+        }
+    }
+
+    public List<Timer> getTimers() {
+        List<Timer> result = new ArrayList<>(timers.values());
+        result.sort(Comparator.comparing(Timer::getName));
+        return result;
+    }
+
+    public List<Counter> getCounters() {
+        List<Counter> result = new ArrayList<>(counters.values());
+        result.sort(Comparator.comparing(Counter::getName));
+        return result;
+    }
+
+    /**
+     * Returns the current value of every gauge, sorted by name
+     */
+    public Map<String, Long> getGauges() {
+        Map<String, Long> result = new TreeMap<>();
+        gauges.forEach((name, value) -> result.put(name, value.getAsLong()));
+        return result;
+    }
+
+    public void addReporter(MetricsReporter reporter) {
+        reporters.add(reporter);
+    }
+
+    public void removeReporter(MetricsReporter reporter) {
+        reporters.remove(reporter);
+    }
+
+    /**
+     * Sends the current metrics to every registered reporter
+     */
+    public void report() {
+        for (MetricsReporter reporter : reporters)
+            reporter.report(this);
+    }
+
+    public void reset() {
+        timers.values().forEach(Timer::reset);
+        counters.values().forEach(Counter::reset);
+
+        synchronized (traces) {
+            traces.clear();
+        }
+    }
+
+    private static class MetricsHolder {
+
+        private static final Metrics INSTANCE = new Metrics();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package it.unifi.stlab.faultflow.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates the durations of a phase of the analysis pipeline: number of runs, total and maximum time. Timers are
+ * obtained from Metrics and can be updated concurrently.
+ */
+public class Timer {
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    Timer(String name) {
+        this.name = name;
+    }
+
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getTotalMillis() {
+        return toMillis(totalNanos.sum());
+    }
+
+    public double getMeanMillis() {
+        long runs = count.sum();
+        return runs == 0 ? 0 : getTotalMillis() / runs;
+    }
+
+    public double getMaxMillis() {
+        return toMillis(maxNanos.get());
+    }
+
+    void reset() {
+        count.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * A running measurement of a timer: stopping it records the elapsed time in the timer and in the trace that was
+     * current when it was started, if any. It can be used in a try-with-resources block.
+     */
+    public static final class Context implements AutoCloseable {
+
+        private final Timer timer;
+        private final AnalysisTrace trace;
+        private final long start;
+        private long elapsed = -1;
+
+        Context(Timer timer, AnalysisTrace trace) {
+            this.timer = timer;
+            this.trace = trace;
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * Stops the measurement, returning the elapsed time in milliseconds; further calls return the same time
+         */
+        public long stop() {
+            if (elapsed < 0) {
+                elapsed = System.nanoTime() - start;
+                timer.record(elapsed);
+
+                if (trace != null)
+                    trace.record(timer.getName(), elapsed);
+            }
+
+            return TimeUnit.NANOSECONDS.toMillis(elapsed);
+        }
+
+        @Override
+        public void close() {
+            stop();
+        }
+    }
+}
@@ -23,6 +23,7 @@ package it.unifi.stlab.faultflow.model.knowledge.composition;
 import it.unifi.stlab.faultflow.model.knowledge.BaseEntity;
 import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
 import it.unifi.stlab.faultflow.model.knowledge.propagation.PropagationPortType;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.LazyCollection;
 import org.hibernate.annotations.LazyCollectionOption;
 
@@ -49,6 +50,7 @@ public class ComponentType extends BaseEntity {
      */
     @OneToMany(orphanRemoval = true)
     @LazyCollection(LazyCollectionOption.FALSE)
+    @BatchSize(size = 64)
     @JoinTable(
             name = "component_errormodes",
             joinColumns = @JoinColumn(name = "component_uuid"),
@@ -61,6 +63,7 @@ public class ComponentType extends BaseEntity {
      */
     @OneToMany(orphanRemoval = true)
     @LazyCollection(LazyCollectionOption.FALSE)
+    @BatchSize(size = 64)
     @JoinTable(
             name = "component_propagationports",
             joinColumns = @JoinColumn(name = "component_uuid"),
@@ -21,9 +21,11 @@
 package it.unifi.stlab.faultflow.model.knowledge.propagation;
 
 import it.unifi.stlab.faultflow.model.knowledge.BaseEntity;
+import it.unifi.stlab.faultflow.model.utils.ActivationFunctionCodec;
 import it.unifi.stlab.faultflow.model.utils.BooleanExpressionConverter;
 import it.unifi.stlab.faultflow.model.utils.PDFParser;
 import org.apache.commons.math3.distribution.RealDistribution;
+import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -48,6 +50,7 @@ public class ErrorMode extends BaseEntity {
      * Collection of fault modes that concur to the activation of the error mode
      */
     @ManyToMany(fetch = FetchType.EAGER)
+    @BatchSize(size = 64)
     @JoinTable(
             name = "errormode_faultmodes",
             joinColumns = @JoinColumn(name = "errormode_uuid"),
@@ -56,12 +59,29 @@ public class ErrorMode extends BaseEntity {
     private List<FaultMode> inputFaultModes;
 
     /**
-     * Boolean expression that represents the boolean activation function of the error mode
+     * Boolean expression that represents the boolean activation function of the error mode: it is stored as
+     * activationCode and rebuilt as soon as the error mode is loaded, sharing the persisted input fault modes, so that
+     * loaded error modes are never modified by reading them and can be read from several threads
      */
-    @Lob
-    @Convert(converter = BooleanExpressionConverter.class)
+    @Transient
     private BooleanExpression activationFunction;
 
+    /**
+     * Pre-order encoding of the activation function written by {@link ActivationFunctionCodec}, whose fault modes
+     * refer to the input fault modes by uuid
+     */
+    @Lob
+    @Column(name = "activation_code")
+    private String activationCode;
+
+    /**
+     * Activation function of the error modes saved before activationCode, as the JSON written by
+     * {@link BooleanExpressionConverter}: it is only read, and replaced by activationCode when the error mode is loaded
+     */
+    @Lob
+    @Column(name = "activationFunction")
+    private String legacyActivationFunction;
+
     /**
      * Failure mode that is activated by the propagation of the error mode
      */
@@ -109,8 +129,7 @@ public class ErrorMode extends BaseEntity {
      */
     public ErrorMode(String name, BooleanExpression function) {
         this(name);
-        this.activationFunction = function;
-        this.inputFaultModes = activationFunction.extractIncomingFaults();
+        setActivationFunction(function);
     }
 
     /**
@@ -196,6 +215,15 @@ public class ErrorMode extends BaseEntity {
      */
     public void setActivationFunction(BooleanExpression activationFunction) {
         this.activationFunction = activationFunction;
+        // Encoded right away, so that the change reaches a persisted column even if the function was null before
+        this.activationCode = activationFunction != null ? ActivationFunctionCodec.encode(activationFunction) : null;
+        this.legacyActivationFunction = null;
+
+        // The input fault modes must contain those of the activation function, which is decoded from them
+        if (activationFunction != null)
+            for (FaultMode faultMode : activationFunction.extractIncomingFaults())
+                if (inputFaultModes.stream().noneMatch(input -> input.getUuid().equals(faultMode.getUuid())))
+                    inputFaultModes.add(faultMode);
     }
 
     /**
@@ -204,7 +232,7 @@ public class ErrorMode extends BaseEntity {
      * @return a {@link List} of {@link FaultMode} instances that compose the error mode activation function
      */
     public List<FaultMode> getInputFaultModes() {
-        return activationFunction.extractIncomingFaults();
+        return getActivationFunction().extractIncomingFaults();
     }
 
     /**
@@ -269,7 +297,7 @@ public class ErrorMode extends BaseEntity {
      * otherwise
      */
     public boolean checkActivationFunction() {
-        return activationFunction.compute();
+        return getActivationFunction().compute();
     }
 
     /**
@@ -299,6 +327,23 @@ public class ErrorMode extends BaseEntity {
      * @param faultModes        {@link List} of {@link FaultMode} instances that compose the error mode activation function
      */
     public void setEnablingCondition(String booleanExpression, HashMap<String, FaultMode> faultModes) {
-        this.activationFunction = BooleanExpression.config(booleanExpression, faultModes);
+        setActivationFunction(BooleanExpression.config(booleanExpression, faultModes));
+    }
+
+    /**
+     * Decodes the activation function as soon as the error mode is loaded. An activation function found only in the
+     * legacy JSON column is encoded into activationCode, which dirties the entity: the row is rewritten in the new
+     * format when the transaction that loaded it commits.
+     */
+    @PostLoad
+    private void decodeActivationFunction() {
+        if (activationCode != null && !activationCode.isEmpty()) {
+            activationFunction = ActivationFunctionCodec.decode(activationCode, inputFaultModes);
+        } else if (legacyActivationFunction != null && !legacyActivationFunction.isEmpty()) {
+            activationFunction = ActivationFunctionCodec.resolve(new BooleanExpressionConverter()
+                    .convertToEntityAttribute(legacyActivationFunction), inputFaultModes);
+            activationCode = ActivationFunctionCodec.encode(activationFunction);
+            legacyActivationFunction = null;
+        }
     }
 }
@@ -21,9 +21,12 @@
 package it.unifi.stlab.faultflow.model.knowledge.propagation.operators;
 
 import it.unifi.stlab.faultflow.model.knowledge.propagation.BooleanExpression;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.FaultMode;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * K-out-of-N operator, used in the definition of boolean expressions for error mode activation conditions, that
@@ -86,41 +89,51 @@ public class KofN extends Operator {
     }
 
     /**
-     * Method used to export the K-out-of-N formula as a string
+     * Method used to export the K-out-of-N formula as a string: when all its sub-elements are fault modes, whose places
+     * hold at most one token, the formula compares the sum of their markings with k, e.g. "(a+b+c)>=2"; otherwise it
+     * is the disjunction of the conjunctions of every k sub-elements
      *
      * @return a {@link String} that represents a literal conversion of the formula
      */
     @Override
     public String toString() {
+        if (k == 1 || k == n)
+            return join(elements, k == 1 ? "||" : "&&", BooleanExpression::toString);
+
+        if (elements.stream().allMatch(element -> element instanceof FaultMode)) {
+            StringBuilder res = new StringBuilder("(");
+            for (BooleanExpression element : elements)
+                res.append(((FaultMode) element).getName()).append("+");
+            return res.substring(0, res.length() - 1) + ")>=" + k;
+        }
+
         StringBuilder res = new StringBuilder();
-        if (k == 1) {
-            res.append(this.elements.get(0).toString());
-            for (int i = 1; i < this.n; i++) {
-                res.append("||").append(this.elements.get(i).toString()).append("||");
-            }
-        } else if (k == n) {
-            res.append(this.elements.get(0).toString());
-            for (int i = 1; i < this.n; i++) {
-                res.append("&&").append(this.elements.get(i).toString());
-            }
-        } else {
-            for (int i = 0; i <= n - k; i++) {
-                BooleanExpression first = elements.get(i);
-                for (int z = i + 1; z <= n - k + 1; z++) {
-                    res.append("(");
-                    res.append(first.toString());
-                    BooleanExpression next;
-                    for (int j = 0; j < k - 1; j++) {
-                        next = elements.get(z + j);
-                        res.append("&&").append(next.toString());
-                    }
-                    res.append(")");
-                    res.append("||");
-                }
-            }
-            res = new StringBuilder(res.substring(0, res.length() - 2));
+        appendCombinations(res, 0, k, new ArrayList<>());
+        return res.substring(0, res.length() - 2);
+    }
+
+    /**
+     * Appends the conjunctions of every choice of the given number of sub-elements starting from the given index
+     */
+    private void appendCombinations(StringBuilder res, int start, int remaining, List<BooleanExpression> chosen) {
+        if (remaining == 0) {
+            res.append("(").append(join(chosen, "&&", BooleanExpression::toString)).append(")||");
+            return;
+        }
+
+        for (int index = start; index <= elements.size() - remaining; index++) {
+            chosen.add(elements.get(index));
+            appendCombinations(res, index + 1, remaining - 1, chosen);
+            chosen.remove(chosen.size() - 1);
         }
-        return res.toString();
+    }
+
+    private static String join(List<BooleanExpression> expressions, String operator,
+                               Function<BooleanExpression, String> format) {
+        StringBuilder res = new StringBuilder();
+        for (BooleanExpression expression : expressions)
+            res.append("(").append(format.apply(expression)).append(")").append(operator);
+        return res.substring(0, res.length() - operator.length());
     }
 
     /**
@@ -140,37 +153,18 @@ public class KofN extends Operator {
         return res.toString();
     }
 
+    /**
+     * Method used to export the K-out-of-N formula in the bracket format read by the fault tree parser, which keeps the
+     * voting gate as a single entity: KOUTOFN[k](e1),(e2),...,(en)
+     *
+     * @return a {@link String} that represents the formula in bracket format
+     */
     @Override
     public String toBracketFormat() {
-        StringBuilder res = new StringBuilder();
-        if (k == 1) {
-            res.append("(").append(this.elements.get(0).toBracketFormat()).append(")");
-            for (int i = 1; i < this.n; i++) {
-                res.append("||").append("(").append(this.elements.get(i).toBracketFormat()).append(")");
-            }
-        } else if (k == n) {
-            res.append("(").append(this.elements.get(0).toBracketFormat()).append(")");
-            for (int i = 1; i < this.n; i++) {
-                res.append("&&").append("(").append(this.elements.get(i).toBracketFormat()).append(")");
-            }
-        } else {
-            for (int i = 0; i <= n - k; i++) {
-                BooleanExpression first = elements.get(i);
-                for (int z = i + 1; z <= n - k + 1; z++) {
-                    res.append("(");
-                    res.append("(").append(first.toBracketFormat()).append(")");
-                    BooleanExpression next;
-                    for (int j = 0; j < k - 1; j++) {
-                        next = elements.get(z + j);
-                        res.append("&&").append("(").append(next.toBracketFormat()).append(")");
-                    }
-                    res.append(")");
-                    res.append("||");
-                }
-            }
-            res = new StringBuilder(res.substring(0, res.length() - 2));
-        }
-        return res.toString();
+        StringBuilder res = new StringBuilder("KOUTOFN[").append(k).append("]");
+        for (BooleanExpression element : elements)
+            res.append("(").append(element.toBracketFormat()).append("),");
+        return res.substring(0, res.length() - 1);
     }
 
     /**
@@ -0,0 +1,166 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.faultflow.model.utils;
+
+import it.unifi.stlab.faultflow.model.knowledge.propagation.BooleanExpression;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.FaultMode;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.operators.AND;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.operators.KofN;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.operators.NOT;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.operators.OR;
+import it.unifi.stlab.faultflow.model.knowledge.propagation.operators.Operator;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact encoding of an activation function, stored by ErrorMode instead of the JSON written by
+ * BooleanExpressionConverter: the operators are listed in pre-order, separated by spaces, each followed by its children.
+ * An AND or OR with n children is written &n or |n, a NOT is written !, a K-out-of-N is written k/n, and a fault mode
+ * is written #uuid, so that it is resolved against the persisted input fault modes of the error mode instead of being
+ * rebuilt. For example, (A&&B)||C is "|2 &2 #uuidA #uuidB #uuidC". Decoding takes a single pass, with no regular
+ * expressions.
+ */
+public class ActivationFunctionCodec {
+
+    private ActivationFunctionCodec() {
+    }
+
+    public static String encode(BooleanExpression expression) {
+        StringBuilder code = new StringBuilder();
+        encode(expression, code);
+        return code.toString();
+    }
+
+    private static void encode(BooleanExpression expression, StringBuilder code) {
+        if (code.length() > 0)
+            code.append(' ');
+
+        if (expression instanceof FaultMode) {
+            code.append('#').append(((FaultMode) expression).getUuid());
+            return;
+        }
+
+        List<BooleanExpression> elements = ((Operator) expression).getElements();
+
+        if (expression instanceof AND)
+            code.append('&').append(elements.size());
+        else if (expression instanceof OR)
+            code.append('|').append(elements.size());
+        else if (expression instanceof NOT)
+            code.append('!');
+        else if (expression instanceof KofN)
+            code.append(((KofN) expression).getK()).append('/').append(((KofN) expression).getN());
+        else
+            throw new UnsupportedOperationException("Cannot encode " + expression.getClass().getSimpleName());
+
+        for (BooleanExpression element : elements)
+            encode(element, code);
+    }
+
+    /**
+     * Rebuilds an activation function, taking its fault modes from the given ones by uuid, so that the error modes
+     * loaded in the same persistence context share the same fault mode instances
+     */
+    public static BooleanExpression decode(String code, Collection<? extends FaultMode> faultModes) {
+        Map<String, FaultMode> byUuid = new HashMap<>();
+
+        for (FaultMode faultMode : faultModes)
+            byUuid.put(faultMode.getUuid(), faultMode);
+
+        String[] tokens = code.split(" ");
+        int[] next = {0};
+        BooleanExpression expression = decode(tokens, next, byUuid);
+
+        if (next[0] != tokens.length)
+            throw new IllegalArgumentException("Unexpected tokens after the activation function: " + code);
+
+        return expression;
+    }
+
+    private static BooleanExpression decode(String[] tokens, int[] next, Map<String, FaultMode> faultModes) {
+        if (next[0] >= tokens.length)
+            throw new IllegalArgumentException("Truncated activation function");
+
+        String token = tokens[next[0]++];
+        Operator operator;
+        int children;
+
+        switch (token.charAt(0)) {
+            case '#':
+                FaultMode faultMode = faultModes.get(token.substring(1));
+
+                if (faultMode == null)
+                    throw new IllegalArgumentException("Unknown input fault mode " + token.substring(1));
+
+                return faultMode;
+            case '&':
+                operator = new AND();
+                children = Integer.parseInt(token.substring(1));
+                break;
+            case '|':
+                operator = new OR();
+                children = Integer.parseInt(token.substring(1));
+                break;
+            case '!':
+                operator = new NOT();
+                children = 1;
+                break;
+            default:
+                int slash = token.indexOf('/');
+
+                if (slash < 0)
+                    throw new IllegalArgumentException("Unknown activation function token " + token);
+
+                children = Integer.parseInt(token.substring(slash + 1));
+                operator = new KofN(Integer.parseInt(token.substring(0, slash)), children);
+        }
+
+        for (int index = 0; index < children; index++)
+            operator.addChild(decode(tokens, next, faultModes));
+
+        return operator;
+    }
+
+    /**
+     * Replaces the fault modes of an activation function rebuilt by BooleanExpressionConverter with the given ones
+     * having the same uuid, keeping the others
+     */
+    public static BooleanExpression resolve(BooleanExpression expression, Collection<? extends FaultMode> faultModes) {
+        Map<String, FaultMode> byUuid = new HashMap<>();
+
+        for (FaultMode faultMode : faultModes)
+            byUuid.put(faultMode.getUuid(), faultMode);
+
+        return resolve(expression, byUuid);
+    }
+
+    private static BooleanExpression resolve(BooleanExpression expression, Map<String, FaultMode> faultModes) {
+        if (expression instanceof FaultMode)
+            return faultModes.getOrDefault(((FaultMode) expression).getUuid(), (FaultMode) expression);
+
+        List<BooleanExpression> elements = ((Operator) expression).getElements();
+        elements.replaceAll(element -> resolve(element, faultModes));
+        return expression;
+    }
+}
@@ -101,7 +101,7 @@ public class PDFParser {
                     else
                         throw new UnsupportedOperationException("Function not well formed");
                 }
-                 StochasticTransitionFeature.of(new PartitionedGEN(functions), MarkingExpr.ONE, MarkingExpr.ONE);
+                return StochasticTransitionFeature.of(new PartitionedGEN(functions), MarkingExpr.ONE, MarkingExpr.ONE);
 
             default:
                 throw new UnsupportedOperationException("PDF not supported");
@@ -21,6 +21,8 @@
 package it.unifi.stlab.faultflow.translator;
 
 import it.unifi.stlab.faultflow.exporter.PetriNetExportMethod;
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.metrics.Timer;
 import it.unifi.stlab.faultflow.model.knowledge.composition.ComponentType;
 import it.unifi.stlab.faultflow.model.knowledge.composition.SystemType;
 import it.unifi.stlab.faultflow.model.knowledge.propagation.*;
@@ -65,6 +67,7 @@ public class PetriNetTranslator implements Translator {
     }
 
     public void translate(SystemType system, PetriNetExportMethod method) {
+        Timer.Context translation = Metrics.getInstance().start(Metrics.SIRIO_TRANSLATE);
         this.sysName = system.getName();
         //First add ErrorModes to the net, thus the ErrorMode and its outgoing failure become places and
         //between them there's a transition with the ErrorMode's enabling function
@@ -143,6 +146,7 @@ public class PetriNetTranslator implements Translator {
                 }
             }
         }
+        translation.stop();
     }
 
     public void translate(SystemType system) {
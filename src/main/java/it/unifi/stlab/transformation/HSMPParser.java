@@ -36,7 +36,18 @@ import java.util.List;
 
 public class HSMPParser {
 
+    /**
+     * Parses the fault tree into an HSMP. The regions of a composite step evolve independently, so fault trees with
+     * nodes shared by more than one gate cannot be represented and are rejected.
+     */
     public static HSMP parseTree(Node tree) {
+        SharedNodeFinder sharedNodeFinder = new SharedNodeFinder();
+        sharedNodeFinder.visit(tree);
+
+        if (!sharedNodeFinder.getSharedNodes().isEmpty())
+            throw new UnsupportedOperationException("Shared events cannot be analysed with Pyramis: "
+                    + sharedNodeFinder.getSharedNodes());
+
         LogicalLocation initialLocation = createFromNode(tree);
         HSMP hsmp = new HSMP(initialLocation);
 
@@ -98,6 +109,13 @@ public class HSMPParser {
             compositeStep = new CompositeStep(name, CompositeStepType.LAST, 0);
         else if (node instanceof OR)
             compositeStep = new CompositeStep(name, CompositeStepType.FIRST, 0);
+        else if (node instanceof KOutN && ((KOutN) node).getK() == 1)
+            compositeStep = new CompositeStep(name, CompositeStepType.FIRST, 0);
+        else if (node instanceof KOutN && ((KOutN) node).getK() == node.getChildren().size())
+            compositeStep = new CompositeStep(name, CompositeStepType.LAST, 0);
+        else if (node instanceof KOutN)
+            throw new UnsupportedOperationException("Composite steps only complete on the first or last region: "
+                    + "voting gates with 1 < k < n must be reduced before parsing");
         else
             throw new RuntimeException("Gate type currently not supported");
 
@@ -20,6 +20,8 @@
 
 package it.unifi.stlab.transformation;
 
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.metrics.Timer;
 import it.unifi.stlab.faultflow.model.knowledge.composition.SystemType;
 import it.unifi.stlab.faultflow.model.knowledge.propagation.*;
 import it.unifi.stlab.transformation.faulttree.*;
@@ -33,7 +35,10 @@ public class TreeParser {
     private final Map<FailureMode, ErrorMode> errorModes;
     private final Map<String, ErrorMode> activationFunctions;
     private final List<PropagationPortType> propagations;
-    private final List<FaultMode> alreadyVisitedFaults;
+    // Nodes already created for each fault mode and error mode, shared by all the gates they feed
+    private final Map<FaultMode, Node> faultModeNodes;
+    private final Map<ErrorMode, Node> errorModeNodes;
+    private final Set<ErrorMode> errorModesInProgress;
     private final SystemType system;
 
     public TreeParser(SystemType system) {
@@ -41,7 +46,9 @@ public class TreeParser {
         errorModes = new HashMap<>();
         propagations = new ArrayList<>();
         activationFunctions = new HashMap<>();
-        alreadyVisitedFaults = new ArrayList<>();
+        faultModeNodes = new IdentityHashMap<>();
+        errorModeNodes = new IdentityHashMap<>();
+        errorModesInProgress = Collections.newSetFromMap(new IdentityHashMap<>());
 
         this.system = system;
     }
@@ -58,15 +65,39 @@ public class TreeParser {
             });
             propagations.addAll(component.getPropagationPorts());
         });
-        alreadyVisitedFaults.clear();
+        faultModeNodes.clear();
+        errorModeNodes.clear();
+        errorModesInProgress.clear();
     }
 
     /**
-     * Method used to create a fault tree from a given error mode, then returning the top event of the fault tree
+     * Method used to create a fault tree from a given error mode, then returning the top event of the fault tree.
+     * A fault mode feeding more than one error mode, or a failure mode propagated to more than one component, becomes
+     * a single node shared by all the gates it feeds, so the result is a DAG whose size is linear in the system.
      */
     public Node createTree(ErrorMode errorMode) {
+        return createTrees(List.of(errorMode)).get(0);
+    }
+
+    /**
+     * Creates the fault trees of several error modes as a single DAG: the sub-trees of the error modes and fault modes
+     * that the trees have in common are built once and shared by all of them. The top events are returned in the same
+     * order as the error modes.
+     */
+    public List<Node> createTrees(List<ErrorMode> errorModes) {
+        Timer.Context treeBuild = Metrics.getInstance().start(Metrics.TREE_BUILD);
         setStructures();
 
+        List<Node> trees = new ArrayList<>();
+
+        for (ErrorMode errorMode : errorModes)
+            trees.add(createTop(errorMode));
+
+        treeBuild.stop();
+        return trees;
+    }
+
+    private Node createTop(ErrorMode errorMode) {
         String activationFunction = (errorMode.getActivationFunction().toBracketFormat());
         activationFunction = "(" + activationFunction + ")";
         Map<String, List<String>> errorModeEntities = new LinkedHashMap<>();
@@ -88,11 +119,13 @@ public class TreeParser {
         if(subEntities!= null) {
             if (subEntities.size() == 0) {
                 FaultMode faultMode = faults.get(entity);
-                if(alreadyVisitedFaults.contains(faultMode))
-                    throw new RuntimeException("Repeated event: " + faultMode.getName());
-                alreadyVisitedFaults.add(faultMode);
+                Node shared = faultModeNodes.get(faultMode);
+                if (shared != null)
+                    return shared;
                 if (faultMode instanceof InternalFaultMode) {
-                    return new BasicEvent((InternalFaultMode) faultMode);
+                    Node basicEvent = new BasicEvent((InternalFaultMode) faultMode);
+                    faultModeNodes.put(faultMode, basicEvent);
+                    return basicEvent;
                 } else {
                 /* If it is an external fault mode, we need to retrieve the activation function of the failure mode that
                 causes it and create the sub-tree related to the external fault mode*/
@@ -103,7 +136,10 @@ public class TreeParser {
                     activationFunction = "(" + activationFunction + ")";
                     errorModeEntities.putAll(ActivationFunctionParser.getActivationFunctionEntities(activationFunction));
 
-                    return createTreeEntity((errorMode.getActivationFunction().toBracketFormat()), errorModeEntities);
+                    Node subTree = createTreeEntity((errorMode.getActivationFunction().toBracketFormat()), errorModeEntities);
+                    if (subTree != null)
+                        faultModeNodes.put(faultMode, subTree);
+                    return subTree;
                 }
             } else {
                 // If it has subentities, it is a gate!
@@ -111,6 +147,13 @@ public class TreeParser {
                 Gate gate;
                 ErrorMode errorMode = activationFunctions.get(entity);
 
+                if (errorMode != null) {
+                    if (errorModeNodes.containsKey(errorMode))
+                        return errorModeNodes.get(errorMode);
+                    if (!errorModesInProgress.add(errorMode))
+                        throw new RuntimeException("Cyclic propagation: " + errorMode.getName());
+                }
+
                 switch (gateType) {
                     case "AND":
                         if (errorMode != null) {
@@ -137,7 +180,20 @@ public class TreeParser {
                             gate = new OR(entity);
                         break;
                     default:
-                        throw new RuntimeException();
+                        if (!gateType.startsWith("KOUTOFN["))
+                            throw new RuntimeException();
+                        int k = Integer.parseInt(gateType.substring("KOUTOFN[".length(), gateType.length() - 1));
+                        if (errorMode != null) {
+                            gate = new KOutN(activationFunctions.get(entity), k);
+                            PropagationPortType pp = getPropagationPortFromFailureMode(errorMode.getOutgoingFailure());
+                            if(pp != null)
+                                gate.setRoutingProbability(pp.getRoutingProbability().doubleValue());
+                            else
+                                gate.setRoutingProbability(1.0);
+                        }
+                        else
+                            gate = new KOutN(entity, k);
+                        break;
                 }
 
                 for (int index = 1; index < subEntities.size(); index++) {
@@ -146,6 +202,11 @@ public class TreeParser {
                         gate.addChild(node);
                 }
 
+                if (errorMode != null) {
+                    errorModesInProgress.remove(errorMode);
+                    errorModeNodes.put(errorMode, gate);
+                }
+
                 return gate;
             }
         }
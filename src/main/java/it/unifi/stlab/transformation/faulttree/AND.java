@@ -38,28 +38,24 @@ public class AND extends Gate {
         }
 
         this.gateType = GateType.AND;
-        id = lastId;
-        lastId++;
+        id = lastId.getAndIncrement();
     }
 
     public AND() {
         this.gateType = GateType.AND;
-        id = lastId;
-        lastId++;
+        id = lastId.getAndIncrement();
     }
 
     public AND(ErrorMode errorMode) {
         super(errorMode);
         this.gateType = GateType.AND;
-        id = lastId;
-        lastId++;
+        id = lastId.getAndIncrement();
     }
 
     public AND(String name) {
         super(name);
         this.gateType = GateType.AND;
-        id = lastId;
-        lastId++;
+        id = lastId.getAndIncrement();
     }
 
     @Override
@@ -69,4 +65,9 @@ public class AND extends Gate {
         AND and = (AND) o;
         return id == and.id;
     }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
 }
@@ -23,19 +23,20 @@ package it.unifi.stlab.transformation.faulttree;
 import it.unifi.stlab.faultflow.model.knowledge.propagation.InternalFaultMode;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class BasicEvent implements Node {
 
-    private static int lastId = 0;
+    private static final AtomicInteger lastId = new AtomicInteger();
     private final String description;
     private final int id;
     private InternalFaultMode faultMode;
 
     public BasicEvent(String description) {
         this.description = description;
-        id = lastId;
-        lastId++;
+        id = lastId.getAndIncrement();
     }
 
     public BasicEvent(String description, int id) {
@@ -86,12 +87,24 @@ public class BasicEvent implements Node {
         BasicEvent that = (BasicEvent) o;
         return id == that.id ;
     }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
     @Override
     public BasicEvent copy() {
         BasicEvent copied = new BasicEvent(description, id);
+        copied.setFaultMode(faultMode);
         return copied;
     }
 
+    @Override
+    public Node copy(Map<Node, Node> copies) {
+        return copies.computeIfAbsent(this, node -> copy());
+    }
+
     @Override
     public List<Node> getChildren() {
         throw new UnsupportedOperationException("Child operation on leaf object.");
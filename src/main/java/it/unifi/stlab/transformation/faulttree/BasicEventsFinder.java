@@ -21,20 +21,29 @@
 package it.unifi.stlab.transformation.faulttree;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 /**
- * Utility class used to retrieve a list of basic events given the top event of a fault tree.
+ * Utility class used to retrieve a list of basic events given the top event of a fault tree. Nodes shared by more
+ * than one gate are visited once, so each basic event is listed once.
  */
 public class BasicEventsFinder {
 
     private final List<BasicEvent> basicEvents;
+    private final Set<Node> visited;
 
     public BasicEventsFinder() {
         basicEvents = new ArrayList<>();
+        visited = Collections.newSetFromMap(new IdentityHashMap<>());
     }
 
     public void visit(Node node) {
+        if (!visited.add(node))
+            return;
+
         if (node instanceof BasicEvent)
             basicEvents.add((BasicEvent) node);
         else if (node instanceof Gate)
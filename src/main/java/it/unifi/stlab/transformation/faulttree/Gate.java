@@ -21,15 +21,17 @@
 package it.unifi.stlab.transformation.faulttree;
 
 import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
-import it.unifi.stlab.transformation.utils.GraphSearcher;
-import it.unifi.stlab.transformation.utils.SearchResult;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class Gate implements Node {
 
-    protected static int lastId = 0;
+    // Shared by all gate types; trees can be built concurrently
+    protected static final AtomicInteger lastId = new AtomicInteger();
     protected List<Node> children;
     protected GateType gateType;
     String name;
@@ -75,6 +77,10 @@ public abstract class Gate implements Node {
         return errorMode;
     }
 
+    public void setErrorMode(ErrorMode errorMode) {
+        this.errorMode = errorMode;
+    }
+
     public String getName() {
         return name;
     }
@@ -98,7 +104,21 @@ public abstract class Gate implements Node {
 
     @Override
     public Node copy() {
-        Node copied = null;
+        return copy(new IdentityHashMap<>());
+    }
+
+    /**
+     * Copies the sub-tree rooted in this gate, keeping its error mode and routing probability. Nodes shared by more
+     * than one gate are copied once, so that the copy has the same DAG structure and takes linear time.
+     */
+    @Override
+    public Node copy(Map<Node, Node> copies) {
+        Node existing = copies.get(this);
+
+        if (existing != null)
+            return existing;
+
+        Gate copied = null;
         if (this.gateType == GateType.AND) {
             copied = new AND(name);
         } else if (this.gateType == GateType.OR) {
@@ -107,24 +127,12 @@ public abstract class Gate implements Node {
             copied = new KOutN(name, ((KOutN) this).getK());
         }
 
-        for (Node n : children) {
-            if (n.isBasicEvent()) {
-                SearchResult sr = GraphSearcher.getNodeByName(((BasicEvent) n).getDescription(), this);
-                if (sr.isPresent()) {
-                    copied.addChild(sr.getNode());
-                } else {
-                    copied.addChild(((BasicEvent) n).copy());
-                }
-            } else {
-                SearchResult sr = GraphSearcher.getNodeByName(((Gate) n).getName(), this);
-                if (sr.isPresent()) {
-                    copied.addChild(sr.getNode());
-                } else {
-                    copied.addChild(n.copy());
-                }
-
-            }
-        }
+        copied.errorMode = errorMode;
+        copied.routingProbability = routingProbability;
+        copies.put(this, copied);
+
+        for (Node n : children)
+            copied.addChild(n.copy(copies));
 
         return copied;
     }
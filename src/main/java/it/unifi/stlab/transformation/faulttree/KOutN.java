@@ -20,7 +20,10 @@
 
 package it.unifi.stlab.transformation.faulttree;
 
+import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
+
 import java.util.List;
+import java.util.Objects;
 
 public class KOutN extends Gate {
 
@@ -31,14 +34,20 @@ public class KOutN extends Gate {
         super(name);
         this.k = k;
         this.gateType = GateType.KoutN;
-        id = lastId++;
+        id = lastId.getAndIncrement();
+    }
+
+    public KOutN(ErrorMode errorMode, int k) {
+        super(errorMode);
+        this.k = k;
+        this.gateType = GateType.KoutN;
+        id = lastId.getAndIncrement();
     }
 
     public KOutN(int k) {
         this.k = k;
         this.gateType = GateType.KoutN;
-        id = lastId;
-        lastId++;
+        id = lastId.getAndIncrement();
     }
 
     public KOutN(List<Node> children, int k) {
@@ -51,11 +60,23 @@ public class KOutN extends Gate {
         }
 
         this.gateType = GateType.KoutN;
-        id = lastId;
-        lastId++;
+        id = lastId.getAndIncrement();
     }
 
     public int getK() {
         return k;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        KOutN kOutN = (KOutN) o;
+        return id == kOutN.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.transformation.faulttree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the independent modules of a fault tree with the linear-time algorithm by Dutuit and Rauzy: a module is a
+ * gate whose descendants can only be reached through it, so that it can be solved separately and replaced by a single
+ * event. A depth-first visit dates the first and last visit of each node and the exit from each gate; a gate is a
+ * module if all its descendants are first visited after entering it and last visited before leaving it.
+ */
+public class ModuleFinder {
+
+    private final Map<Node, int[]> dates;
+    private final Map<Node, int[]> ranges;
+    private final List<Gate> modules;
+    private final Set<Node> moduleSet;
+    private int counter;
+
+    public ModuleFinder() {
+        dates = new IdentityHashMap<>();
+        ranges = new IdentityHashMap<>();
+        modules = new ArrayList<>();
+        moduleSet = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    public void visit(Node top) {
+        date(top);
+        range(top);
+    }
+
+    // Dates are {first visit, exit, last visit}
+    private void date(Node node) {
+        counter++;
+        int[] nodeDates = dates.get(node);
+
+        if (nodeDates != null) {
+            nodeDates[2] = counter;
+            return;
+        }
+
+        nodeDates = new int[]{counter, counter, counter};
+        dates.put(node, nodeDates);
+
+        if (!node.isBasicEvent()) {
+            for (Node child : node.getChildren())
+                date(child);
+
+            counter++;
+            nodeDates[1] = counter;
+            nodeDates[2] = counter;
+        }
+    }
+
+    // Minimum first visit and maximum last visit among the descendants of the node
+    private int[] range(Node node) {
+        int[] range = ranges.get(node);
+
+        if (range != null)
+            return range;
+
+        range = new int[]{Integer.MAX_VALUE, Integer.MIN_VALUE};
+
+        if (!node.isBasicEvent()) {
+            for (Node child : node.getChildren()) {
+                int[] childDates = dates.get(child);
+                int[] childRange = range(child);
+                range[0] = Math.min(range[0], Math.min(childDates[0], childRange[0]));
+                range[1] = Math.max(range[1], Math.max(childDates[2], childRange[1]));
+            }
+
+            int[] nodeDates = dates.get(node);
+
+            if (range[0] > nodeDates[0] && range[1] < nodeDates[1]) {
+                modules.add((Gate) node);
+                moduleSet.add(node);
+            }
+        }
+
+        ranges.put(node, range);
+        return range;
+    }
+
+    /**
+     * Returns the modules found, each listed after the modules it contains; the top event is always the last one
+     */
+    public List<Gate> getModules() {
+        return modules;
+    }
+
+    public boolean isModule(Node node) {
+        return moduleSet.contains(node);
+    }
+
+    /**
+     * Returns the number of distinct nodes in the sub-tree rooted in the given node
+     */
+    public static int size(Node node) {
+        Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        countNodes(node, visited);
+        return visited.size();
+    }
+
+    private static void countNodes(Node node, Set<Node> visited) {
+        if (!visited.add(node) || node.isBasicEvent())
+            return;
+
+        for (Node child : node.getChildren())
+            countNodes(child, visited);
+    }
+}
@@ -21,6 +21,7 @@
 package it.unifi.stlab.transformation.faulttree;
 
 import java.util.List;
+import java.util.Map;
 
 public interface Node {
 
@@ -33,4 +34,9 @@ public interface Node {
     boolean isBasicEvent();
 
     Node copy();
+
+    /**
+     * Copies the node reusing the copies already made, so that nodes shared by more than one gate are copied once
+     */
+    Node copy(Map<Node, Node> copies);
 }
@@ -38,14 +38,12 @@ public class OR extends Gate {
         }
 
         this.gateType = GateType.OR;
-        id = lastId;
-        lastId++;
+        id = lastId.getAndIncrement();
     }
 
     public OR() {
         this.gateType = GateType.OR;
-        id = lastId;
-        lastId++;
+        id = lastId.getAndIncrement();
     }
 
     public OR(List<Node> children, String name) {
@@ -58,15 +56,13 @@ public class OR extends Gate {
         }
 
         this.gateType = GateType.OR;
-        id = lastId;
-        lastId++;
+        id = lastId.getAndIncrement();
     }
 
     public OR(ErrorMode errorMode) {
         super(errorMode);
         this.gateType = GateType.OR;
-        id = lastId;
-        lastId++;
+        id = lastId.getAndIncrement();
     }
 
     @Override
@@ -77,7 +73,14 @@ public class OR extends Gate {
         return id == or.id;
     }
 
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
     public OR(String name) {
         super(name);
+        this.gateType = GateType.OR;
+        id = lastId.getAndIncrement();
     }
 }
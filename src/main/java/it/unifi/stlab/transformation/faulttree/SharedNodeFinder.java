@@ -0,0 +1,104 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.transformation.faulttree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Utility class used to find the nodes of a fault tree that are children of more than one gate, i.e. the events
+ * shared by different sub-trees when the fault tree is a DAG. Each node is visited once, so the visit is linear in
+ * the size of the DAG rather than in the size of the equivalent tree.
+ */
+public class SharedNodeFinder {
+
+    private final Map<Node, List<Gate>> parents;
+    private final List<Node> sharedNodes;
+
+    public SharedNodeFinder() {
+        parents = new IdentityHashMap<>();
+        sharedNodes = new ArrayList<>();
+    }
+
+    public void visit(Node node) {
+        if (parents.containsKey(node))
+            return;
+
+        parents.put(node, new ArrayList<>());
+        expand(node);
+    }
+
+    private void expand(Node node) {
+        if (node.isBasicEvent())
+            return;
+
+        for (Node child : node.getChildren()) {
+            List<Gate> childParents = parents.get(child);
+
+            if (childParents == null) {
+                childParents = new ArrayList<>();
+                childParents.add((Gate) node);
+                parents.put(child, childParents);
+                expand(child);
+            } else {
+                childParents.add((Gate) node);
+
+                if (childParents.size() == 2)
+                    sharedNodes.add(child);
+            }
+        }
+    }
+
+    /**
+     * Returns the nodes with more than one parent, in the order in which they were found
+     */
+    public List<Node> getSharedNodes() {
+        return sharedNodes;
+    }
+
+    public boolean isShared(Node node) {
+        List<Gate> nodeParents = parents.get(node);
+        return nodeParents != null && nodeParents.size() > 1;
+    }
+
+    public List<Gate> getParents(Node node) {
+        return parents.getOrDefault(node, Collections.emptyList());
+    }
+
+    /**
+     * Returns each node of the visited fault trees once
+     */
+    public Set<Node> getNodes() {
+        return parents.keySet();
+    }
+
+    public int getGateCount() {
+        return (int) parents.keySet().stream().filter(node -> !node.isBasicEvent()).count();
+    }
+
+    public int getBasicEventCount() {
+        return (int) parents.keySet().stream().filter(Node::isBasicEvent).count();
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.transformation.faulttree;
+
+import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Detects the isomorphic sub-trees of fault trees, such as those of the replicated sub-systems of a model: two
+ * sub-trees are isomorphic if they have the same gates, with the same delays and routing probabilities, and the same
+ * basic event PDFs, up to the order of the children of each gate. Every isomorphic sub-tree gets the same class id,
+ * computed bottom-up by hash-consing the gate type with the sorted class ids of its children, so that a visit takes
+ * O(n log n) time and the ids of different trees visited by the same detector can be compared.
+ *
+ * Sub-trees containing shared events get no class, since their CDFs are not independent of the rest of the tree.
+ */
+public class SymmetryDetector {
+
+    public static final int NO_CLASS = -1;
+
+    private final Map<String, Integer> classIds;
+    private final Map<Node, Integer> classes;
+    private final Map<Integer, List<Node>> members;
+    private SharedNodeFinder finder;
+
+    public SymmetryDetector() {
+        classIds = new HashMap<>();
+        classes = new IdentityHashMap<>();
+        members = new LinkedHashMap<>();
+    }
+
+    /**
+     * Classifies all the sub-trees of the given tree, returning the class of the whole tree
+     */
+    public int visit(Node top) {
+        finder = new SharedNodeFinder();
+        finder.visit(top);
+        return classify(top);
+    }
+
+    private int classify(Node node) {
+        Integer known = classes.get(node);
+
+        if (known != null)
+            return known;
+
+        int classId = NO_CLASS;
+
+        if (!finder.isShared(node) && !(node instanceof TabulatedEvent)) {
+            String key = node.isBasicEvent() ? "E" + normalize(((BasicEvent) node).getFaultMode()
+                    .getTimeToFaultPDFToString()) : gateKey((Gate) node);
+
+            if (key != null)
+                classId = classIds.computeIfAbsent(key, k -> classIds.size());
+        } else if (!node.isBasicEvent()) {
+            // The sub-trees below a shared gate can still be replicas of each other
+            for (Node child : node.getChildren())
+                classify(child);
+        }
+
+        classes.put(node, classId);
+
+        if (classId != NO_CLASS)
+            members.computeIfAbsent(classId, k -> new ArrayList<>()).add(node);
+
+        return classId;
+    }
+
+    // Returns null if a child has no class, after classifying all the children
+    private String gateKey(Gate gate) {
+        List<Integer> children = new ArrayList<>();
+        boolean independent = true;
+
+        for (Node child : gate.getChildren()) {
+            int classId = classify(child);
+            independent &= classId != NO_CLASS;
+            children.add(classId);
+        }
+
+        if (!independent)
+            return null;
+
+        Collections.sort(children);
+        ErrorMode errorMode = gate.getErrorMode();
+        String type = gate instanceof KOutN ? "K" + ((KOutN) gate).getK() : gate.getClass().getSimpleName();
+
+        return type + "[" + (errorMode != null ? normalize(errorMode.getFaultToFailurePDFToString()) : "") + ";"
+                + gate.getRoutingProbability() + "]" + children;
+    }
+
+    private static String normalize(String pdf) {
+        return pdf == null ? "" : pdf.replaceAll("\\s", "").toLowerCase();
+    }
+
+    /**
+     * Returns the class of a visited node, or NO_CLASS if its sub-tree contains shared events
+     */
+    public int getClassId(Node node) {
+        return classes.getOrDefault(node, NO_CLASS);
+    }
+
+    /**
+     * Returns the groups of at least two isomorphic gates, in the order in which they were classified, so that the
+     * groups of inner sub-trees come first
+     */
+    public List<List<Node>> getReplicas() {
+        List<List<Node>> replicas = new ArrayList<>();
+
+        for (List<Node> nodes : members.values())
+            if (nodes.size() > 1 && !nodes.get(0).isBasicEvent())
+                replicas.add(nodes);
+
+        return replicas;
+    }
+
+    /**
+     * Groups the basic events of the last visited tree that are mapped onto each other by a symmetry of the tree, so that
+     * any measure invariant under symmetries, such as the Birnbaum importance, only needs to be computed once per
+     * group. Two basic events are symmetric if the ancestors on their paths from the top are pairwise in the same
+     * class, or are the same node where the class is not defined: where the paths diverge, the two sub-trees are
+     * interchangeable children of the same gate. Shared events are only symmetric to themselves.
+     */
+    public List<List<BasicEvent>> getOrbits(Node top) {
+        Map<List<Object>, List<BasicEvent>> orbits = new LinkedHashMap<>();
+        Set<Node> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        collectOrbits(top, new ArrayList<>(), orbits, seen);
+
+        return new ArrayList<>(orbits.values());
+    }
+
+    /**
+     * Maps each basic event of the last visited tree to the first event of its orbit
+     */
+    public Map<BasicEvent, BasicEvent> getRepresentatives(Node top) {
+        Map<BasicEvent, BasicEvent> representatives = new IdentityHashMap<>();
+
+        for (List<BasicEvent> orbit : getOrbits(top))
+            for (BasicEvent event : orbit)
+                representatives.put(event, orbit.get(0));
+
+        return representatives;
+    }
+
+    private void collectOrbits(Node node, List<Object> path, Map<List<Object>, List<BasicEvent>> orbits,
+                               Set<Node> seen) {
+        int classId = getClassId(node);
+        path.add(classId != NO_CLASS ? classId : node);
+
+        if (node.isBasicEvent()) {
+            if (seen.add(node)) {
+                List<Object> key = finder.isShared(node) ? List.of(node) : new ArrayList<>(path);
+                orbits.computeIfAbsent(key, k -> new ArrayList<>()).add((BasicEvent) node);
+            }
+        } else {
+            for (Node child : node.getChildren())
+                collectOrbits(child, path, orbits, seen);
+        }
+
+        path.remove(path.size() - 1);
+    }
+
+    /**
+     * Returns the number of distinct classes found so far
+     */
+    public int getClassCount() {
+        return classIds.size();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.transformation.faulttree;
+
+import it.unifi.stlab.faultflow.model.knowledge.propagation.InternalFaultMode;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pseudo basic event standing for an independent module of a fault tree that has already been solved. It carries the
+ * CDF of the module on a uniform time grid; its fault mode has a piecewise uniform PDF with one bin per time step, so
+ * that it can also be translated into an HSMP.
+ *
+ * The substitution is an approximation: the PDF reproduces the tabulated CDF at every point of the grid, but between
+ * two points the CDF of the module is replaced by the line joining them. The error of the top event is therefore
+ * bounded by the interpolation error of the module CDFs, which shrinks with the time step, while delays and the
+ * remaining gates of the tree can spread it over the following points.
+ */
+public class TabulatedEvent extends BasicEvent {
+
+    private final double timeStep;
+    private final double[] cdf;
+
+    public TabulatedEvent(String description, double timeStep, double[] cdf) {
+        super(new InternalFaultMode(description, piecewisePDF(timeStep, cdf)));
+        this.timeStep = timeStep;
+        this.cdf = cdf;
+    }
+
+    private TabulatedEvent(TabulatedEvent event) {
+        super(event.getDescription(), event.getId());
+        setFaultMode(event.getFaultMode());
+        this.timeStep = event.timeStep;
+        this.cdf = event.cdf;
+    }
+
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    public double[] getCdf() {
+        return cdf;
+    }
+
+    /**
+     * Returns the CDF at the given time, interpolating linearly between the points of the grid; beyond the last point
+     * the CDF is taken as constant
+     */
+    public double cdf(double time) {
+        double position = time / timeStep;
+        int index = (int) Math.floor(position);
+
+        if (index < 0)
+            return 0;
+
+        if (index >= cdf.length - 1)
+            return cdf[cdf.length - 1];
+
+        double fraction = position - index;
+        return cdf[index] + fraction * (cdf[index + 1] - cdf[index]);
+    }
+
+    @Override
+    public BasicEvent copy() {
+        return new TabulatedEvent(this);
+    }
+
+    @Override
+    public Node copy(Map<Node, Node> copies) {
+        return copies.computeIfAbsent(this, node -> copy());
+    }
+
+    /**
+     * Builds a piecewise PDF with a uniform bin over each time step, carrying the increase of the CDF over that step, so
+     * that its CDF matches the given one at each point of the grid. Steps with the same density are merged and steps
+     * without mass are left out. Mass already reached at time 0 is placed in a narrow bin at the start of the grid, and
+     * the mass not reached by its end is spread over the following time step.
+     */
+    static String piecewisePDF(double timeStep, double[] cdf) {
+        double horizon = (cdf.length - 1) * timeStep;
+        List<String> pieces = new ArrayList<>();
+        double previousMass = Math.max(0, Math.min(1, cdf[0]));
+        // End of the bin holding the mass at time 0, where the following bins start
+        double origin = previousMass > 0 ? timeStep / 1000 : 0;
+        double runStart = 0;
+        double runMass = 0;
+        double stepMass = 0;
+
+        if (previousMass > 0)
+            pieces.add(piece(previousMass / origin, 0, origin));
+
+        for (int index = 1; index < cdf.length; index++) {
+            double mass = Math.max(previousMass, Math.min(1, cdf[index]));
+
+            // Steps are merged as long as each of them carries the same mass
+            if (mass - previousMass != stepMass) {
+                addBin(pieces, Math.max(runStart, origin), (index - 1) * timeStep, runMass);
+                runStart = (index - 1) * timeStep;
+                runMass = 0;
+                stepMass = mass - previousMass;
+            }
+
+            runMass += mass - previousMass;
+            previousMass = mass;
+        }
+
+        addBin(pieces, Math.max(runStart, origin), horizon, runMass);
+
+        if (previousMass < 1) {
+            double start = Math.max(horizon, origin);
+            pieces.add(piece((1 - previousMass) / timeStep, start, start + timeStep));
+        }
+
+        return "piecewise(" + String.join(";", pieces) + ")";
+    }
+
+    private static void addBin(List<String> pieces, double start, double end, double mass) {
+        if (mass > 0 && end > start)
+            pieces.add(piece(mass / (end - start), start, end));
+    }
+
+    private static String piece(double density, double eft, double lft) {
+        return plain(density) + "," + plain(eft) + "," + plain(lft);
+    }
+
+    private static String plain(double value) {
+        return new BigDecimal(value, new MathContext(12)).stripTrailingZeros().toPlainString();
+    }
+}
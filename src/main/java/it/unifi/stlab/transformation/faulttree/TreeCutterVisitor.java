@@ -50,8 +50,12 @@ public class TreeCutterVisitor {
     public boolean visit(Gate gate) {
         if (gate instanceof AND)
             return visit((AND) gate);
-        else
+        else if (gate instanceof OR)
             return visit((OR) gate);
+        else if (gate instanceof KOutN)
+            return visit((KOutN) gate);
+        else
+            throw new UnsupportedOperationException("Gate type currently not supported");
     }
 
     /**
@@ -83,4 +87,21 @@ public class TreeCutterVisitor {
 
         return or.getChildren().size() != 0;
     }
+
+    /**
+     * Visit method for K-out-of-N gates. Removes all children of the gate that are not present in the minimal cutset
+     * and returns true if at least k of them are left.
+     */
+    public boolean visit(KOutN kOutN) {
+        List<Node> toBeRemoved = new ArrayList<>();
+
+        for (Node node : kOutN.getChildren()) {
+            if (!visit(node))
+                toBeRemoved.add(node);
+        }
+
+        toBeRemoved.forEach(kOutN::removeChild);
+
+        return kOutN.getChildren().size() >= kOutN.getK();
+    }
 }
@@ -24,7 +24,10 @@ import it.unifi.stlab.faultflow.model.knowledge.propagation.FaultMode;
 import it.unifi.stlab.faultflow.model.knowledge.propagation.InternalFaultMode;
 
 import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Queue;
+import java.util.Set;
 
 /**
  * Utility class used to change a node in the fault tree with another given. This is used in the Birnbaum Importance
@@ -34,12 +37,17 @@ public class TreeNodeChanger {
 
     public static FaultMode changeFaultMode(Node tree, String nodeName, InternalFaultMode newFaultMode) {
         Queue<Node> nodes = new ArrayDeque<>();
+        Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<>());
         nodes.add(tree);
         FaultMode oldFaultMode = null;
 
         while (!nodes.isEmpty()) {
             Node node = nodes.poll();
 
+            // Shared nodes are changed once
+            if (!visited.add(node))
+                continue;
+
             if (node instanceof BasicEvent) {
                 if (((BasicEvent) node).getFaultMode().getName().equals(nodeName)) {
                     oldFaultMode = ((BasicEvent) node).getFaultMode();
@@ -24,18 +24,26 @@ import it.unifi.stlab.faultflow.model.knowledge.propagation.FaultMode;
 import it.unifi.stlab.faultflow.model.knowledge.propagation.InternalFaultMode;
 
 import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Queue;
+import java.util.Set;
 
 public class TreePDFChanger {
 
     public static FaultMode changeFaultMode(Node tree, String nodeName, InternalFaultMode newFaultMode) {
         Queue<Node> nodes = new ArrayDeque<>();
+        Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<>());
         nodes.add(tree);
         FaultMode oldFaultMode = null;
 
         while (!nodes.isEmpty()) {
             Node node = nodes.poll();
 
+            // Shared nodes are changed once
+            if (!visited.add(node))
+                continue;
+
             if (node instanceof BasicEvent) {
                 if (((BasicEvent) node).getFaultMode().getName().equals(nodeName)) {
                     oldFaultMode = ((BasicEvent) node).getFaultMode();
@@ -0,0 +1,143 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.transformation.minimalcutset;
+
+import it.unifi.stlab.faultflow.model.utils.ExpolynomialDistribution;
+import it.unifi.stlab.transformation.faulttree.BasicEvent;
+import it.unifi.stlab.transformation.faulttree.Node;
+import org.apache.commons.math3.distribution.RealDistribution;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cut-off criteria applied by MOCUSEngine while expanding the fault tree: a partial cut set is discarded as soon as
+ * it contains more than maxOrder distinct basic events, or as soon as the product of the probabilities of its basic
+ * events at missionTime falls below minProbability. Since gates still to be expanded can only add basic events to a
+ * partial cut set, that product is an upper bound of the probability of every cut set it would have generated.
+ */
+public class CutSetTruncation {
+
+    private final int maxOrder;
+    private final double minProbability;
+    private final double missionTime;
+    private final Map<Integer, Double> probabilities = new HashMap<>();
+
+    public CutSetTruncation(int maxOrder, double minProbability, double missionTime) {
+        if (maxOrder < 1)
+            throw new IllegalArgumentException("The maximum order of a cut set must be positive");
+
+        if (minProbability < 0 || minProbability > 1)
+            throw new IllegalArgumentException("The minimum probability of a cut set must be between 0 and 1");
+
+        if (minProbability > 0 && missionTime <= 0)
+            throw new IllegalArgumentException("A positive mission time is needed to truncate by probability");
+
+        this.maxOrder = maxOrder;
+        this.minProbability = minProbability;
+        this.missionTime = missionTime;
+    }
+
+    /**
+     * Builds the truncation from optional parameters: missing ones do not limit the expansion
+     */
+    public static CutSetTruncation of(Integer maxOrder, Double minProbability, Double missionTime) {
+        return new CutSetTruncation(maxOrder != null ? maxOrder : Integer.MAX_VALUE,
+                minProbability != null ? minProbability : 0, missionTime != null ? missionTime : 0);
+    }
+
+    public static CutSetTruncation none() {
+        return new CutSetTruncation(Integer.MAX_VALUE, 0, 0);
+    }
+
+    public int getMaxOrder() {
+        return maxOrder;
+    }
+
+    public double getMinProbability() {
+        return minProbability;
+    }
+
+    public double getMissionTime() {
+        return missionTime;
+    }
+
+    public boolean isEnabled() {
+        return maxOrder < Integer.MAX_VALUE || minProbability > 0;
+    }
+
+    /**
+     * Returns the upper bound of the probability of the cut sets generated by the given partial cut set if it has to
+     * be discarded, -1 if it has to be kept
+     */
+    double prune(Collection<Node> partialCutSet) {
+        if (!isEnabled())
+            return -1;
+
+        Set<BasicEvent> basicEvents = new HashSet<>();
+
+        for (Node node : partialCutSet) {
+            if (node.isBasicEvent())
+                basicEvents.add((BasicEvent) node);
+        }
+
+        double product = 1;
+
+        if (minProbability > 0 || basicEvents.size() > maxOrder) {
+            for (BasicEvent basicEvent : basicEvents)
+                product *= probability(basicEvent);
+        }
+
+        if (basicEvents.size() > maxOrder || product < minProbability)
+            return product;
+
+        return -1;
+    }
+
+    /**
+     * Probability that the basic event occurred by the mission time: 1 when the mission time or its distribution is
+     * unknown, so that it never causes a cut set to be discarded
+     */
+    double probability(BasicEvent basicEvent) {
+        return probabilities.computeIfAbsent(basicEvent.getId(), id -> {
+            if (missionTime <= 0)
+                return 1.0;
+
+            if (basicEvent.getFaultMode() == null || basicEvent.getFaultMode().getTimeToFaultPDFToString() == null)
+                return 1.0;
+
+            try {
+                RealDistribution distribution = basicEvent.getFaultMode().getTimeToFaultPDF();
+
+                // The CDF of expolynomial distributions is not available
+                if (distribution instanceof ExpolynomialDistribution)
+                    return 1.0;
+
+                return distribution.cumulativeProbability(missionTime);
+            } catch (UnsupportedOperationException e) {
+                return 1.0;
+            }
+        });
+    }
+}
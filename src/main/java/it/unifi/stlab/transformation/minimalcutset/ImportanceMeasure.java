@@ -20,18 +20,20 @@
 
 package it.unifi.stlab.transformation.minimalcutset;
 
-import it.unifi.hierarchical.analysis.HierarchicalSMPAnalysis;
-import it.unifi.hierarchical.analysis.NumericalValues;
-import it.unifi.hierarchical.model.HSMP;
+import it.unifi.stlab.faultflow.analysis.AnalysisPool;
+import it.unifi.stlab.faultflow.analysis.CDFResult;
+import it.unifi.stlab.faultflow.analysis.PyramisAnalyzer;
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.metrics.Timer;
 import it.unifi.stlab.faultflow.model.knowledge.composition.SystemType;
 import it.unifi.stlab.faultflow.model.knowledge.propagation.ErrorMode;
 import it.unifi.stlab.faultflow.model.knowledge.propagation.FaultMode;
 import it.unifi.stlab.faultflow.model.knowledge.propagation.InternalFaultMode;
-import it.unifi.stlab.transformation.HSMPParser;
 import it.unifi.stlab.transformation.TreeParser;
 import it.unifi.stlab.transformation.faulttree.BasicEvent;
 import it.unifi.stlab.transformation.faulttree.BasicEventsFinder;
 import it.unifi.stlab.transformation.faulttree.Node;
+import it.unifi.stlab.transformation.faulttree.SymmetryDetector;
 import it.unifi.stlab.transformation.faulttree.TreeNodeChanger;
 
 import java.util.*;
@@ -41,6 +43,15 @@ public class ImportanceMeasure {
 
     public Map<String, double[]> getImportanceMeasure(SystemType system, ErrorMode errorMode, String measure,
                                                       double timeStep, int time) {
+        return getImportanceMeasure(system, errorMode, measure, timeStep, time, CutSetTruncation.none());
+    }
+
+    /**
+     * Calculates the importance measure of each basic event; for Fussell-Vesely, the minimal cut sets are truncated
+     * with the given criteria
+     */
+    public Map<String, double[]> getImportanceMeasure(SystemType system, ErrorMode errorMode, String measure,
+                                                      double timeStep, int time, CutSetTruncation truncation) {
         // Create the fault tree given the system and its error mode of interest
         TreeParser treeParser = new TreeParser(system);
         Node node = treeParser.createTree(errorMode);
@@ -51,13 +62,17 @@ public class ImportanceMeasure {
         List<BasicEvent> basicEvents = finder.getBasicEvents();
         Map<String, double[]> importanceMeasures = new HashMap<>();
         if (measure.equals("fusselvesely")) {
-            Date start = new Date(); // Mark the starting time of the calculation
+            Timer.Context calculation = Metrics.getInstance().start(Metrics.IMPORTANCE + "." + measure);
 
-            List<MinimalCutSet> minimalCutSets = MOCUSEngine.getInstance().getMinimalCutSet(node);
+            TruncatedCutSets truncatedCutSets = MOCUSEngine.getInstance().getMinimalCutSet(node, truncation);
+            List<MinimalCutSet> minimalCutSets = truncatedCutSets.getCutSets();
             java.lang.System.out.println("Minimal CutSets:\n");
             for(MinimalCutSet cs: minimalCutSets){
                 java.lang.System.out.println(cs.getCutSet());
             }
+            if (truncatedCutSets.isTruncated())
+                java.lang.System.out.println("Pruned cut sets: " + truncatedCutSets.getPrunedCutSets()
+                        + ", error bound: " + truncatedCutSets.getErrorBound() + "\n");
             // Calculate the CDF of each minimal cutset
             Map<List<String>, double[]> mcsCDFs = calculateMCSCDF(minimalCutSets, system, errorMode,
                     timeStep, time);
@@ -89,29 +104,37 @@ public class ImportanceMeasure {
 
                     /* FV measure obtained as the sum of CDFs of each cutset in which the basic event participates in
                     divided by the number of participating cutsets */
-                    importanceMeasures.get(faultName)[index] = sum / interestedCutSets.size();
+                    importanceMeasures.get(faultName)[index] = interestedCutSets.isEmpty() ? 0
+                            : sum / interestedCutSets.size();
                 }
             }
 
-            Date end = new Date(); // Saves the ending time of the calculation...
-            long elapsedAnalysisTime = end.getTime() - start.getTime(); // ...and calculates the delta to get the corresponding computation time
-            java.lang.System.out.println("Fussell Vesely time: " + elapsedAnalysisTime +" ms\n");
+            java.lang.System.out.println("Fussell Vesely time: " + calculation.stop() +" ms\n");
         } else if (measure.equals("birnbaum")) {
-            Date start = new Date();
+            Timer.Context calculation = Metrics.getInstance().start(Metrics.IMPORTANCE + "." + measure);
+            PyramisAnalyzer analyzer = new PyramisAnalyzer(timeStep, time);
+            // Basic events mapped onto each other by a symmetry of the tree have the same Birnbaum measure
+            SymmetryDetector symmetry = new SymmetryDetector();
+            symmetry.visit(node);
+            Map<BasicEvent, BasicEvent> representatives = symmetry.getRepresentatives(node);
+            Map<BasicEvent, double[]> orbitMeasures = new IdentityHashMap<>();
 
             for (BasicEvent basicEvent : basicEvents) {
+                double[] symmetric = orbitMeasures.get(representatives.get(basicEvent));
+
+                if (symmetric != null) {
+                    Metrics.getInstance().increment(Metrics.SYMMETRY_REUSE);
+                    importanceMeasures.put(basicEvent.getFaultMode().getName(), symmetric);
+                    continue;
+                }
+
                 /* Creates a copy of the basic event taken into account with a dirac(0) PDF to compute the CDF with
                 the fault already happened in the system; at the same time, it saves the original fault mode to be
                 restored later */
                 FaultMode originalFault = TreeNodeChanger.changeFaultMode(node, basicEvent.getDescription(),
                         new InternalFaultMode(basicEvent.getFaultMode().getName(), "dirac(0)"));
-                // Creates the HSMP with P(1) for the basic event
-                HSMP hsmpOne = HSMPParser.parseTree(node);
-                HierarchicalSMPAnalysis modifiedAnalysis = new HierarchicalSMPAnalysis(hsmpOne, 0);
-                modifiedAnalysis.evaluate(timeStep, time);
-
-                NumericalValues oneCdf = HierarchicalSMPAnalysis.cdf;
-                double[] oneCdfValues = Arrays.copyOf(oneCdf.getValues(), oneCdf.getValues().length);
+                // Evaluates P(1) for the basic event
+                double[] oneCdfValues = analyzer.evaluate(node).getValues();
 
                 /* Find all the basic events excluding the one already taken into consideration: this is used later
                 to reduce the fault tree so that it will contain all the basic events excluding the one considered,
@@ -127,12 +150,7 @@ public class ImportanceMeasure {
                 // Reduces the fault tree to exclude the currently considered basic event
                 newTree = treeParser.reduceTree(basicEventsMinusOne, newTree);
 
-                HSMP hsmpZero = HSMPParser.parseTree(newTree);
-                modifiedAnalysis = new HierarchicalSMPAnalysis(hsmpZero, 0);
-                modifiedAnalysis.evaluate(timeStep, time);
-
-                NumericalValues zeroCdf = HierarchicalSMPAnalysis.cdf;
-                double[] zeroCdfValues = Arrays.copyOf(zeroCdf.getValues(), zeroCdf.getValues().length);
+                double[] zeroCdfValues = analyzer.evaluate(newTree).getValues();
                 double[] difference = new double[oneCdfValues.length];
 
                 // Computes the point-by-point CDF difference for each time tick
@@ -143,11 +161,10 @@ public class ImportanceMeasure {
                 TreeNodeChanger.changeFaultMode(node, basicEvent.getDescription(), (InternalFaultMode) originalFault);
 
                 importanceMeasures.put(originalFault.getName(), difference);
+                orbitMeasures.put(representatives.get(basicEvent), difference);
             }
 
-            Date end = new Date();
-            long elapsedAnalysisTime = end.getTime() - start.getTime();
-            java.lang.System.out.println("Birnbaum time: " + elapsedAnalysisTime+" ms\n");
+            java.lang.System.out.println("Birnbaum time: " + calculation.stop() + " ms\n");
         }
         return importanceMeasures;
 
@@ -162,20 +179,29 @@ public class ImportanceMeasure {
      */
     private Map<List<String>, double[]> calculateMCSCDF(List<MinimalCutSet> minimalCutSets, SystemType system,
                                                         ErrorMode errorMode, double timeStep, int time) {
+        List<List<String>> cutSets = new ArrayList<>();
+        List<Node> reducedTrees = new ArrayList<>();
+        // The trees are built from the entities on the calling thread: only their evaluation runs on the pool
         TreeParser treeParser = new TreeParser(system);
-        Map<List<String>, double[]> cdfValues = new HashMap<>();
+        Node tree = treeParser.createTree(errorMode);
+
         for (MinimalCutSet minimalCutSet : minimalCutSets) {
-            Node tree = treeParser.createTree(errorMode);
             List<String> mcs = minimalCutSet.getCutSet().stream()
                     .map(BasicEvent::getDescription)
                     .collect(Collectors.toList());
 
-            Node reducedTree = treeParser.reduceTree(mcs, tree);
-            HSMP hsmp = HSMPParser.parseTree(reducedTree);
-            HierarchicalSMPAnalysis analysis = new HierarchicalSMPAnalysis(hsmp, 0);
-            analysis.evaluate(timeStep, time);
-            NumericalValues cdf = HierarchicalSMPAnalysis.cdf;
-            cdfValues.put(mcs, cdf.getValues());
+            cutSets.add(mcs);
+            // Each cut set reduces its own copy, since reduceTree modifies the tree it is given
+            reducedTrees.add(treeParser.reduceTree(mcs, tree.copy()));
+        }
+
+        Map<List<String>, double[]> cdfValues = new HashMap<>();
+
+        try (AnalysisPool pool = new AnalysisPool()) {
+            List<CDFResult> results = pool.evaluateDistinct(reducedTrees, new PyramisAnalyzer(timeStep, time));
+
+            for (int index = 0; index < cutSets.size(); index++)
+                cdfValues.put(cutSets.get(index), results.get(index).getValues());
         }
 
         return cdfValues;
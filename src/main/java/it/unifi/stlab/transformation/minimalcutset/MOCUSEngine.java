@@ -20,8 +20,11 @@
 
 package it.unifi.stlab.transformation.minimalcutset;
 
+import it.unifi.stlab.faultflow.metrics.Metrics;
+import it.unifi.stlab.faultflow.metrics.Timer;
 import it.unifi.stlab.transformation.faulttree.BasicEvent;
 import it.unifi.stlab.transformation.faulttree.Gate;
+import it.unifi.stlab.transformation.faulttree.KOutN;
 import it.unifi.stlab.transformation.faulttree.Node;
 
 import java.util.*;
@@ -39,10 +42,20 @@ public final class MOCUSEngine {
     }
 
     public List<MinimalCutSet> getMinimalCutSet(Node topEvent) {
+        return getMinimalCutSet(topEvent, CutSetTruncation.none()).getCutSets();
+    }
+
+    /**
+     * Finds the minimal cut sets of the fault tree, discarding during the expansion the partial cut sets that exceed
+     * the order or fall below the probability given by the truncation.
+     */
+    public TruncatedCutSets getMinimalCutSet(Node topEvent, CutSetTruncation truncation) {
+        Timer.Context generation = Metrics.getInstance().start(Metrics.CUT_SETS);
         Node top = topEvent.copy();
         List<MinimalCutSet> ret = new ArrayList<>();
+        Pruning pruning = new Pruning(truncation);
 
-        List<List<Node>> cs = init(top);
+        List<List<Node>> cs = init(top, pruning);
 
         List<Set<Node>> css = list2Set(cs);
 
@@ -65,7 +78,8 @@ public final class MOCUSEngine {
             ret.add(mcs);
         }
 
-        return ret;
+        generation.stop();
+        return new TruncatedCutSets(ret, pruning.errorBound, pruning.pruned);
     }
 
     private List<Set<Node>> list2Set(List<List<Node>> cs) {
@@ -78,12 +92,13 @@ public final class MOCUSEngine {
         return ret;
     }
 
-    private List<List<Node>> init(Node topEvent) {
+    private List<List<Node>> init(Node topEvent, Pruning pruning) {
         List<List<Node>> ps = topToInitPath(topEvent);
+        pruning.apply(ps, new ArrayList<>(ps));
 
         while (existExpandableGate(ps)) {
             Result r = findElementToExpand(ps);
-            CSHelper(r, ps);
+            pruning.apply(ps, CSHelper(r, ps));
         }
 
         return ps;
@@ -121,17 +136,73 @@ public final class MOCUSEngine {
         return newRows;
     }
 
-    private void CSHelper(Result res, List<List<Node>> paths) {
+    /**
+     * A K-out-of-N gate is rewritten as the OR of the AND of each k-combination of its children: the row is replaced
+     * by one row per combination, without building the equivalent expression
+     */
+    private List<List<Node>> rewriteVoting(KOutN e, List<Node> row, int index) {
+        List<List<Node>> newRows = new ArrayList<>();
+        row.remove(index);
+        for (List<Node> combination : combinations(e.getChildren(), e.getK())) {
+            List<Node> loc = new ArrayList<>(combination);
+            loc.addAll(row);
+            newRows.add(loc);
+        }
+        return newRows;
+    }
+
+    // Lists the k-combinations of the given nodes in lexicographic order of their positions
+    private List<List<Node>> combinations(List<Node> nodes, int k) {
+        List<List<Node>> ret = new ArrayList<>();
+        int size = Math.max(k, 0);
+
+        if (size > nodes.size())
+            return ret;
+
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i++)
+            indexes[i] = i;
+
+        while (true) {
+            List<Node> combination = new ArrayList<>(size);
+            for (int i : indexes)
+                combination.add(nodes.get(i));
+            ret.add(combination);
+
+            int i = size - 1;
+            while (i >= 0 && indexes[i] == nodes.size() - size + i)
+                i--;
+
+            if (i < 0)
+                return ret;
+
+            indexes[i]++;
+            for (int j = i + 1; j < size; j++)
+                indexes[j] = indexes[j - 1] + 1;
+        }
+    }
+
+    /**
+     * Expands the gate found in the given position, returning the rows it modified or created
+     */
+    private List<List<Node>> CSHelper(Result res, List<List<Node>> paths) {
 
         Node e = paths.get(res.getFirst()).get(res.getSecond());
         List<Node> row = paths.get(res.getFirst());
 
         if (((Gate) e).getGateType() == Gate.GateType.AND) {
             rewriteAnd(e, row, res.getSecond());
+            return Collections.singletonList(row);
+        } else if (((Gate) e).getGateType() == Gate.GateType.KoutN) {
+            paths.remove(res.getFirst());
+            List<List<Node>> newRows = rewriteVoting((KOutN) e, row, res.getSecond());
+            paths.addAll(newRows);
+            return newRows;
         } else {
             paths.remove(res.getFirst());
             List<List<Node>> newRows = rewriteOr(e, row, res.getSecond());
             paths.addAll(newRows);
+            return newRows;
         }
     }
 
@@ -139,6 +210,8 @@ public final class MOCUSEngine {
         List<List<Node>> ret = new ArrayList<>();
         if (((Gate) te).getGateType() == Gate.GateType.AND) {
             ret.add(te.getChildren());
+        } else if (((Gate) te).getGateType() == Gate.GateType.KoutN) {
+            ret.addAll(combinations(te.getChildren(), ((KOutN) te).getK()));
         } else {
             for (Node n : te.getChildren()) {
                 List<Node> ln = new ArrayList<>();
@@ -163,6 +236,35 @@ public final class MOCUSEngine {
         return ret;
     }
 
+    /**
+     * Removes the partial cut sets discarded by the truncation, keeping track of the bound of the error it causes
+     */
+    private static final class Pruning {
+
+        private final CutSetTruncation truncation;
+        private double errorBound;
+        private int pruned;
+
+        private Pruning(CutSetTruncation truncation) {
+            this.truncation = truncation;
+        }
+
+        private void apply(List<List<Node>> paths, List<List<Node>> rows) {
+            if (!truncation.isEnabled())
+                return;
+
+            for (List<Node> row : rows) {
+                double bound = truncation.prune(row);
+
+                if (bound >= 0) {
+                    paths.removeIf(path -> path == row);
+                    errorBound += bound;
+                    pruned++;
+                }
+            }
+        }
+    }
+
     private static class MOCUSEngineHolder {
 
         private static final MOCUSEngine INSTANCE = new MOCUSEngine();
@@ -0,0 +1,59 @@
+/*
+ * This program is part of the ORIS Tool.
+ * Copyright (C) 2011-2023 The ORIS Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unifi.stlab.transformation.minimalcutset;
+
+import java.util.List;
+
+/**
+ * Minimal cut sets found by a truncated MOCUS expansion, together with an upper bound of the probability of the
+ * cut sets that were discarded, i.e. of the error made on the top event probability by ignoring them.
+ */
+public class TruncatedCutSets {
+
+    private final List<MinimalCutSet> cutSets;
+    private final double errorBound;
+    private final int prunedCutSets;
+
+    public TruncatedCutSets(List<MinimalCutSet> cutSets, double errorBound, int prunedCutSets) {
+        this.cutSets = cutSets;
+        this.errorBound = errorBound;
+        this.prunedCutSets = prunedCutSets;
+    }
+
+    public List<MinimalCutSet> getCutSets() {
+        return cutSets;
+    }
+
+    /**
+     * Sum of the probability bounds of the discarded partial cut sets, capped at 1
+     */
+    public double getErrorBound() {
+        return Math.min(errorBound, 1);
+    }
+
+    public int getPrunedCutSets() {
+        return prunedCutSets;
+    }
+
+    public boolean isTruncated() {
+        return prunedCutSets > 0;
+    }
+}
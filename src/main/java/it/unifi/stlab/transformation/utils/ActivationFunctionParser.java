@@ -35,6 +35,8 @@ import java.util.stream.Collectors;
  */
 public class ActivationFunctionParser {
 
+    private static final Pattern VOTING_PATTERN = Pattern.compile("KOUTOFN\\[\\d+\\]");
+
     /**
      * "Top-level" method that calls for the creation of entities and returns a mapping between the activation function
      * (or sub-function) with an List of strings representation of its contained sub-entities.
@@ -105,6 +107,16 @@ public class ActivationFunctionParser {
             functionEntities.add(removeOuterParentheses(polishedFunction.substring(interval.getLower(), interval.getUpper() + 1)));
         }
 
+        /* A K-out-of-N function is written as KOUTOFN[k](e1),...,(en): its prefix is read before the entities are
+        stripped, since their names could overlap with the operator itself */
+        Matcher votingMatcher = VOTING_PATTERN.matcher(polishedFunction);
+        if (votingMatcher.lookingAt()) {
+            if (functionEntities.isEmpty())
+                throw new IllegalArgumentException("Malformed K-out-of-N function: " + function);
+            functionEntities.add(0, votingMatcher.group());
+            return functionEntities;
+        }
+
         // Remove the entities already added to the List from the starting polished function
         for (String entity : functionEntities) {
             polishedFunction = polishedFunction.replace(entity, "");
@@ -121,20 +133,6 @@ public class ActivationFunctionParser {
             functionEntities.add(0, polishedFunction.split("!")[1]);
             functionEntities.add(0, "NOT");
         }
-        else if (polishedFunction.contains("KOUTOFN")) {
-            List<String> subEntities = new ArrayList<>(Arrays.asList(polishedFunction.split("KOUTOFN\\[(.*?)\\]")[1].split(",")));
-            subEntities.remove(0);
-            functionEntities.addAll(0, subEntities);
-
-            Pattern pattern = Pattern.compile("KOUTOFN\\[(.*?)\\]");
-            Matcher matcher = pattern.matcher(polishedFunction);
-
-            if (matcher.find()) {
-                functionEntities.add(0, matcher.group());
-            } else {
-                throw new RuntimeException(); // FIXME
-            }
-        }
 
         return functionEntities;
     }